@@ -0,0 +1,30 @@
+package org.example.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Đánh dấu API GET trả ETag theo phiên bản các nhóm dữ liệu mà response phụ thuộc vào
+ * Nếu If-None-Match khớp, ConditionalGetInterceptor trả 304 trước khi controller chạy (không truy cập DB)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+
+    Domain[] value();
+
+    enum Domain {
+        // Model, variant, configuration, màu, xe và giá hãng
+        CATALOG,
+        // Danh sách dealer (không có API sửa dealer nên chỉ đổi khi khởi động lại)
+        DEALERS,
+        // Tồn kho của dealer mà user thuộc về, user không thuộc dealer nào thì là tồn kho toàn hệ thống
+        INVENTORY,
+        // Tồn kho toàn hệ thống
+        ALL_INVENTORY,
+        // Promotion của dealer mà user thuộc về
+        PROMOTIONS
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.example.security.CurrentUser;
+import org.example.service.implementation.DataVersions;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Arrays;
+
+/**
+ * Conditional GET cho các API có @ConditionalGet
+ * ETag = epoch + phiên bản từng nhóm dữ liệu + role và dealer của user (response khác nhau theo role / dealer)
+ * nên chỉ cần đọc bộ đếm trong bộ nhớ, không phải build response để băm như ShallowEtagHeaderFilter
+ * ETag được tính trước khi controller chạy nhưng chỉ gắn vào response 2xx (xem ConditionalGetResponseAdvice),
+ * response lỗi không được mang ETag để client không dùng lại nó làm If-None-Match
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    /**
+     * Request attribute giữ ETag đã tính cho request hiện tại
+     */
+    static final String ETAG_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".ETAG";
+
+    private final DataVersions dataVersions;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+
+        ConditionalGet conditionalGet = handlerMethod.getMethodAnnotation(ConditionalGet.class);
+        if (conditionalGet == null) {
+            return true;
+        }
+
+        // Principal được JwtAuthenticationFilter đặt sẵn, chưa đăng nhập thì để controller trả lỗi như cũ
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof CurrentUser user)) {
+            return true;
+        }
+
+        String etag = buildETag(conditionalGet.value(), user);
+        if (etag == null) {
+            return true;
+        }
+
+        // Response khác nhau theo user nên không cho cache dùng chung lưu lại, client phải hỏi lại mỗi lần
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+
+        // Khớp If-None-Match thì trả 304, không chạy controller
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        return true;
+    }
+
+    /**
+     * So If-None-Match với ETag theo kiểu so sánh yếu (bỏ tiền tố W/), hỗ trợ danh sách nhiều ETag và "*"
+     */
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(candidate -> candidate.startsWith("W/") ? candidate.substring(2) : candidate)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(etag));
+    }
+
+    /**
+     * Trả null nếu response không xác định được phiên bản, khi đó không dùng conditional GET
+     */
+    private String buildETag(ConditionalGet.Domain[] domains, CurrentUser user) {
+        StringBuilder etag = new StringBuilder("\"").append(dataVersions.getEpoch());
+        for (ConditionalGet.Domain domain : domains) {
+            switch (domain) {
+                case CATALOG -> etag.append("-c").append(dataVersions.catalog());
+                case DEALERS -> etag.append("-d");
+                case INVENTORY -> etag.append("-i").append(user.getDealerId() != null
+                        ? dataVersions.inventory(user.getDealerId())
+                        : "a" + dataVersions.totalInventory());
+                case ALL_INVENTORY -> etag.append("-ia").append(dataVersions.totalInventory());
+                case PROMOTIONS -> {
+                    // Promotion chỉ có phiên bản theo dealer, user không thuộc dealer nào thì không có ETag
+                    if (user.getDealerId() == null) {
+                        return null;
+                    }
+                    etag.append("-p").append(dataVersions.promotions(user.getDealerId()));
+                }
+            }
+        }
+        etag.append("-").append(user.getRoleName()).append("-").append(user.getDealerId());
+        return etag.append("\"").toString();
+    }
+}
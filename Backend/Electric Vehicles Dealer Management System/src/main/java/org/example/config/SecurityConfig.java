@@ -1,9 +1,11 @@
 package org.example.config;
 
+import jakarta.servlet.DispatcherType;
 import org.example.security.JwtAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -31,8 +33,12 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authorize -> authorize
+                // Request đã được xác thực ở lần dispatch đầu, lần dispatch ASYNC khi ghi xong response streaming không có JWT filter
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
+                // Xem ảnh không cần đăng nhập, upload dạng luồng thì cần (ghi thẳng vào kho ảnh)
+                .requestMatchers(HttpMethod.POST, "/api/images/upload-stream").authenticated()
                 .requestMatchers("/api/images/**").permitAll()
                 .requestMatchers("/api/cars/**").authenticated()
                 .requestMatchers("/api/distribution-requests/**").authenticated()
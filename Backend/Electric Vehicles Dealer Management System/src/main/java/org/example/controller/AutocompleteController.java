@@ -0,0 +1,127 @@
+package org.example.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.example.config.ConditionalGet;
+import org.example.config.ConditionalGet.Domain;
+import org.example.service.AutocompleteService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.function.Function;
+
+@RestController
+@RequestMapping("/api/autocomplete")
+@RequiredArgsConstructor
+@Tag(name = "Autocomplete", description = "Typeahead suggestions for models, variants, colors, dealers and customers")
+public class AutocompleteController {
+
+    private final AutocompleteService autocompleteService;
+
+    @GetMapping("/models")
+    @ConditionalGet(Domain.CATALOG)
+    @Operation(summary = "Suggest model names", description = "Models whose name (or a word in it) starts with the prefix, accents are ignored")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved suggestions"),
+            @ApiResponse(responseCode = "400", description = "Bad request - Invalid limit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token")
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<?> suggestModels(
+            @Parameter(description = "Typed prefix") @RequestParam(required = false) String prefix,
+            @Parameter(description = "Maximum number of suggestions (1-50, default 10)") @RequestParam(required = false) Integer limit) {
+        return respond(email -> autocompleteService.suggestModels(prefix, limit));
+    }
+
+    @GetMapping("/variants")
+    @ConditionalGet(Domain.CATALOG)
+    @Operation(summary = "Suggest variant names", description = "Variants whose name or \"model variant\" starts with the prefix, optionally within one model")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved suggestions"),
+            @ApiResponse(responseCode = "400", description = "Bad request - Invalid limit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token")
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<?> suggestVariants(
+            @Parameter(description = "Typed prefix") @RequestParam(required = false) String prefix,
+            @Parameter(description = "Only suggest variants of this model") @RequestParam(required = false) String modelName,
+            @Parameter(description = "Maximum number of suggestions (1-50, default 10)") @RequestParam(required = false) Integer limit) {
+        return respond(email -> autocompleteService.suggestVariants(modelName, prefix, limit));
+    }
+
+    @GetMapping("/colors")
+    @ConditionalGet(Domain.CATALOG)
+    @Operation(summary = "Suggest color names", description = "Colors whose name starts with the prefix, optionally only colors available for a model and variant")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved suggestions"),
+            @ApiResponse(responseCode = "400", description = "Bad request - Invalid limit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token")
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<?> suggestColors(
+            @Parameter(description = "Typed prefix") @RequestParam(required = false) String prefix,
+            @Parameter(description = "Model name, used together with variantName") @RequestParam(required = false) String modelName,
+            @Parameter(description = "Variant name, used together with modelName") @RequestParam(required = false) String variantName,
+            @Parameter(description = "Maximum number of suggestions (1-50, default 10)") @RequestParam(required = false) Integer limit) {
+        return respond(email -> autocompleteService.suggestColors(modelName, variantName, prefix, limit));
+    }
+
+    @GetMapping("/dealers")
+    @ConditionalGet(Domain.DEALERS)
+    @Operation(summary = "Suggest dealer names", description = "Dealers whose name (or a word in it) starts with the prefix")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved suggestions"),
+            @ApiResponse(responseCode = "400", description = "Bad request - Invalid limit"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token")
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<?> suggestDealers(
+            @Parameter(description = "Typed prefix") @RequestParam(required = false) String prefix,
+            @Parameter(description = "Maximum number of suggestions (1-50, default 10)") @RequestParam(required = false) Integer limit) {
+        return respond(email -> autocompleteService.suggestDealers(prefix, limit));
+    }
+
+    @GetMapping("/customers")
+    @Operation(summary = "Suggest customers of the current dealer",
+            description = "Customers who have ordered at the current user's dealer, matched by name or phone number prefix. " +
+                    "Only DealerManager and DealerStaff can use this endpoint.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved suggestions"),
+            @ApiResponse(responseCode = "400", description = "Bad request - Invalid limit or user not assigned to a dealer"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Only DealerManager and DealerStaff can access customer information")
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<?> suggestCustomers(
+            @Parameter(description = "Typed prefix of name or phone number") @RequestParam(required = false) String prefix,
+            @Parameter(description = "Maximum number of suggestions (1-50, default 10)") @RequestParam(required = false) Integer limit) {
+        return respond(email -> autocompleteService.suggestCustomers(email, prefix, limit));
+    }
+
+    private ResponseEntity<?> respond(Function<String, ?> suggestions) {
+        // Lấy email từ authentication (JWT subject)
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication.getName() == null || authentication.getName().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Authorization header is required. Please login first to get JWT token.");
+        }
+
+        try {
+            return ResponseEntity.ok(suggestions.apply(authentication.getName()));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("Access denied")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+}
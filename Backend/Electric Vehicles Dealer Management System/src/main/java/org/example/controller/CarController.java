@@ -6,6 +6,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.example.config.ConditionalGet;
+import org.example.config.ConditionalGet.Domain;
 import org.example.dto.CarResponse;
 import org.example.dto.CreateCompleteCarRequest;
 import org.example.dto.AddCarToDealerRequest;
@@ -231,6 +233,7 @@ public class CarController {
     }
 
     @GetMapping("/manufacturer-price")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(
         summary = "Get manufacturer price by model, variant, and color name",
         description = "Retrieves the manufacturer price (giá niêm yết) for a specific car identified by model name, variant name, and color name. " +
@@ -6,6 +6,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.example.config.ConditionalGet;
+import org.example.config.ConditionalGet.Domain;
 import org.example.service.CarModelService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,6 +23,7 @@ public class CarModelController {
     private final CarModelService carModelService;
 
     @GetMapping("/model-names")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(summary = "Get all model names", description = "Retrieve all available model names")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved model names"),
@@ -33,6 +36,7 @@ public class CarModelController {
     }
 
     @GetMapping("/segment")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(summary = "Get segment by model name", description = "Retrieve segment information for a specific model")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved segment"),
@@ -6,6 +6,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.config.ConditionalGet;
+import org.example.config.ConditionalGet.Domain;
 import org.example.dto.DealerVariantDetailResponse;
 import org.example.dto.VariantDetailResponse;
 import org.example.entity.UserAccount;
@@ -33,6 +35,7 @@ public class CarVariantController {
     private UserAccountRepository userAccountRepository;
 
     @GetMapping("/details")
+    @ConditionalGet({Domain.CATALOG, Domain.INVENTORY})
     @Operation(
         summary = "Get car variant details based on user role",
         description = "Returns car variant details based on user's role: " +
@@ -109,6 +112,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/search")
+    @ConditionalGet({Domain.CATALOG, Domain.INVENTORY})
     @Operation(
         summary = "Search car variants based on user role",
         description = "Search car variants based on user's role: " +
@@ -196,6 +200,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/search/variant-name")
+    @ConditionalGet({Domain.CATALOG, Domain.INVENTORY})
     @Operation(
         summary = "Search car variants by variant name based on user role",
         description = "Search car variants by specific variant name based on user's role: " +
@@ -283,6 +288,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/search/model-name")
+    @ConditionalGet({Domain.CATALOG, Domain.INVENTORY})
     @Operation(
         summary = "Search car variants by model name based on user role",
         description = "Search car variants by specific model name based on user's role: " +
@@ -370,6 +376,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/search/model-and-variant")
+    @ConditionalGet({Domain.CATALOG, Domain.INVENTORY})
     @Operation(
         summary = "Search car variants by both model name and variant name based on user role",
         description = "Search car variants by both model name and variant name simultaneously based on user's role: " +
@@ -471,6 +478,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/variant-names")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(summary = "Get all variant names", description = "Retrieve all available variant names")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved variant names"),
@@ -514,6 +522,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/variant-names/by-model")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(summary = "Get variant names by model name", description = "Retrieve all variant names for a specific car model")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved variant names for the model"),
@@ -572,6 +581,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/description")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(summary = "Get description by model name and variant name", description = "Retrieve description information for a specific model and variant combination")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved description"),
@@ -637,6 +647,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/search/status")
+    @ConditionalGet({Domain.CATALOG, Domain.INVENTORY})
     @Operation(
         summary = "Search car variants by status - Dealer Manager only",
         description = "Search car variants by status. This API is exclusively for Dealer Managers to filter their inventory by status. " +
@@ -839,6 +850,7 @@ public class CarVariantController {
     }
 
     @GetMapping("/not-available-at-dealer")
+    @ConditionalGet({Domain.CATALOG, Domain.INVENTORY})
     @Operation(
         summary = "Get cars not available at dealer - Dealer Manager only",
         description = "Retrieve all car variants that are not yet available at the current dealer manager's dealer. " +
@@ -0,0 +1,55 @@
+package org.example.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.example.service.ChangeFeedService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/changes")
+@RequiredArgsConstructor
+@Tag(name = "Change Feed", description = "Delta sync of dealer inventory, catalog, orders and promotions")
+public class ChangeFeedController {
+
+    private final ChangeFeedService changeFeedService;
+
+    @GetMapping
+    @Operation(summary = "Get changes since a token",
+            description = "Returns inventory (DEALER_CAR), catalog (CAR, VARIANT, MODEL), ORDER and PROMOTION changes " +
+                    "committed after the given token, one entry per entity with its latest operation. " +
+                    "Call without 'since' after a full load to get the starting token, then pass 'nextToken' back on the next call. " +
+                    "When 'hasMore' is true call again immediately; when 'resetRequired' is true reload everything and continue from 'nextToken'. " +
+                    "A CAR DELETE also removes that car from every dealer's inventory.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved changes"),
+            @ApiResponse(responseCode = "400", description = "Bad request - Invalid limit or user not assigned to a dealer"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token")
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<?> getChanges(
+            @Parameter(description = "Token returned as nextToken by the previous call") @RequestParam(required = false) Long since,
+            @Parameter(description = "Maximum number of log entries to read (1-1000, default 200)") @RequestParam(required = false) Integer limit) {
+        // Lấy email từ authentication (JWT subject)
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication.getName() == null || authentication.getName().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Authorization header is required. Please login first to get JWT token.");
+        }
+
+        try {
+            return ResponseEntity.ok(changeFeedService.getChanges(authentication.getName(), since, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+}
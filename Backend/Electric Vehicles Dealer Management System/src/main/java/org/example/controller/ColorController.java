@@ -6,6 +6,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.example.config.ConditionalGet;
+import org.example.config.ConditionalGet.Domain;
 import org.example.entity.UserAccount;
 import org.example.repository.UserAccountRepository;
 import org.example.service.ColorService;
@@ -27,6 +29,7 @@ public class ColorController {
     private final UserAccountRepository userAccountRepository;
 
     @GetMapping("/color-names")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(summary = "Get all color names", description = "Retrieve all available color names")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved color names"),
@@ -72,6 +75,7 @@ public class ColorController {
     }
 
     @GetMapping("/by-model-variant")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(
         summary = "Get all colors by model name and variant name",
         description = "Retrieve all available colors for a specific model and variant combination"
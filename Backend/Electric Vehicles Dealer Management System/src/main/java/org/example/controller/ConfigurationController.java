@@ -5,6 +5,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.config.ConditionalGet;
+import org.example.config.ConditionalGet.Domain;
 import org.example.dto.ConfigurationResponse;
 import org.example.dto.UpdateConfigurationRequest;
 import org.example.service.ConfigurationService;
@@ -23,6 +25,7 @@ public class ConfigurationController {
     private ConfigurationService configurationService;
 
     @GetMapping("/variant/{variantId}")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(
         summary = "Get configuration by variant ID",
         description = "Returns detailed configuration specifications for a specific car variant including battery, performance, and dimensions. " +
@@ -49,6 +52,7 @@ public class ConfigurationController {
     }
 
     @GetMapping("/variant-name")
+    @ConditionalGet(Domain.CATALOG)
     @Operation(
         summary = "Get configuration by model name and variant name",
         description = "Returns detailed configuration specifications for a specific car variant by both model name and variant name including battery, performance, and dimensions. " +
@@ -6,6 +6,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.config.ConditionalGet;
+import org.example.config.ConditionalGet.Domain;
 import org.example.dto.DealerResponse;
 import org.example.dto.VariantDetailResponse;
 import org.example.entity.UserAccount;
@@ -36,6 +38,7 @@ public class DealerController {
     private CarVariantService carVariantService;
 
     @GetMapping("/names")
+    @ConditionalGet(Domain.DEALERS)
     @Operation(
         summary = "Get all dealer names",
         description = "Returns a list of all dealer names in the system. " +
@@ -92,6 +95,7 @@ public class DealerController {
     }
 
     @GetMapping("/details")
+    @ConditionalGet(Domain.DEALERS)
     @Operation(
         summary = "Get all dealer details",
         description = "Returns detailed information of all dealers in the system including ID, name, address, phone, and email. " +
@@ -148,6 +152,7 @@ public class DealerController {
     }
 
     @GetMapping("/car-variants/{dealerName}")
+    @ConditionalGet({Domain.CATALOG, Domain.ALL_INVENTORY})
     @Operation(
         summary = "Get car variant details by dealer name",
         description = "Returns car variant details for a specific dealer including model name, variant name, " +
@@ -216,6 +221,7 @@ public class DealerController {
     }
 
     @GetMapping("/my-dealer")
+    @ConditionalGet(Domain.DEALERS)
     @Operation(
         summary = "Get current user's dealer information",
         description = "Returns the dealer information that the currently logged-in user belongs to. " +
@@ -0,0 +1,62 @@
+package org.example.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.example.service.DealerEventService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+@Tag(name = "Dealer Events", description = "Server-Sent Events push channel for order, payment and inventory updates")
+public class DealerEventController {
+
+    private final DealerEventService dealerEventService;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to dealer events",
+            description = "Opens a text/event-stream with ORDER, PAYMENT, INVENTORY and DISTRIBUTION_REQUEST events committed after the connection opened. " +
+                    "Dealer users receive events of their own dealer (DealerStaff only for orders they created); Admin and EVMStaff receive " +
+                    "events of the given dealer or of all dealers. A heartbeat comment is sent every 20 seconds. " +
+                    "Events are not replayed: after a reconnect, call GET /api/changes with the last token to catch up. " +
+                    "Browsers must send the Authorization header, so use a fetch-based EventSource client.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "400", description = "Bad request - User not assigned to a dealer"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Role cannot subscribe or dealer does not match")
+    })
+    @SecurityRequirement(name = "Bearer Authentication")
+    public ResponseEntity<SseEmitter> subscribe(
+            @Parameter(description = "Dealer to follow (Admin and EVMStaff only, default all dealers)") @RequestParam(required = false) Integer dealerId) {
+        // Lấy email từ authentication (JWT subject)
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication.getName() == null || authentication.getName().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        // EventSource không đọc body của response lỗi nên chỉ trả status
+        try {
+            return ResponseEntity.ok()
+                    .header("X-Accel-Buffering", "no")
+                    .body(dealerEventService.subscribe(authentication.getName(), dealerId));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("Access denied")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+}
@@ -1,24 +1,44 @@
 package org.example.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.dto.ImageGcStatsResponse;
+import org.example.service.ImageFileService;
+import org.example.service.ImageGarbageCollectorService;
+import org.example.service.ImageStorage;
+import org.example.service.ImageStoreService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/images")
@@ -26,30 +46,141 @@ import java.util.UUID;
 @Tag(name = "Image Management", description = "APIs để quản lý và upload ảnh")
 public class ImageController {
 
-    @Value("${car.image.base-path}")
-    private String imageBasePath;
-
     @Value("${app.file.max-image-size}")
     private long maxImageSize;
 
+    @Autowired
+    private ImageFileService imageFileService;
+
+    @Autowired
+    private ImageStoreService imageStoreService;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private ImageGarbageCollectorService imageGarbageCollectorService;
+
+    @Value("${app.image.storage.s3.redirect-downloads:false}")
+    private boolean redirectDownloads;
+
+    @Value("${app.image.upload-stream.max-concurrent:16}")
+    private int maxConcurrentStreamUploads;
+
+    @Value("${app.image.upload-stream.acquire-timeout-ms:30000}")
+    private long streamUploadAcquireTimeoutMs;
+
+    // Mỗi upload dạng luồng giữ một thread Tomcat và một file tạm suốt lúc client gửi body
+    // Fair để các request đang chờ được upload theo thứ tự đến
+    private Semaphore streamUploadPermits;
+
+    private static final Duration IMAGE_MAX_AGE = Duration.ofDays(365);
+
+    // Ngắn hơn thời hạn của presigned URL để trình duyệt không giữ redirect tới URL đã hết hạn
+    private static final Duration REDIRECT_MAX_AGE = Duration.ofMinutes(5);
+
+    // Thuộc tính request của Tomcat để gửi file bằng sendfile (giống DefaultServlet), ngưỡng như sendfileSize mặc định
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    // Client nên thử lại sau chừng này giây khi đã đủ số upload dạng luồng đồng thời
+    private static final String STREAM_UPLOAD_RETRY_AFTER_SECONDS = "5";
+
+    @PostConstruct
+    public void init() {
+        streamUploadPermits = new Semaphore(Math.max(1, maxConcurrentStreamUploads), true);
+    }
+
     @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> getImage(@PathVariable String filename) {
-        try {
-            Path filePath = Paths.get(imageBasePath).resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = determineContentType(filename);
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
+    @Operation(summary = "Lấy ảnh", description = "Truyền w để nhận ảnh thu nhỏ (chiều rộng làm tròn lên 160/320/640/1280) thay vì ảnh gốc. " +
+            "Hỗ trợ If-None-Match / If-Modified-Since (304) và Range (206) cho một khoảng byte")
+    public void getImage(@PathVariable String filename,
+                         @Parameter(description = "Chiều rộng mong muốn (pixel)") @RequestParam(required = false) Integer w,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        // Ảnh gốc trên S3: chuyển client sang presigned URL để byte ảnh không đi qua app server
+        if (redirectDownloads && (w == null || w <= 0)) {
+            Optional<String> directUrl = imageStorage.directDownloadUrl(filename);
+            if (directUrl.isPresent()) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(REDIRECT_MAX_AGE).cachePrivate().getHeaderValue());
+                response.sendRedirect(directUrl.get());
+                return;
+            }
+        }
+
+        Optional<ImageFileService.ImageFile> found = imageFileService.find(filename, w);
+        if (found.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ImageFileService.ImageFile file = found.get();
+
+        // Kiểm tra lại cache của trình duyệt chỉ dùng thông tin trong bộ nhớ, không chạm tới đĩa
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        if (webRequest.checkNotModified(file.etag(), file.lastModified())) {
+            return;
+        }
+
+        // File được trả có thể đã bị dọn (ảnh thu nhỏ bị xóa theo LRU) từ khi cache thông tin, đọc lại một lần
+        if (!Files.isReadable(file.path())) {
+            imageFileService.refresh(filename, w);
+            found = imageFileService.find(filename, w);
+            if (found.isEmpty()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            file = found.get();
+        }
+
+        response.setContentType(file.contentType());
+        // Tên file không bao giờ đổi nội dung (hash SHA-256, hoặc UUID với ảnh cũ) nên trình duyệt không cần kiểm tra lại
+        CacheControl cacheControl = file.provisional()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(IMAGE_MAX_AGE).cachePublic().immutable();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.path().getFileName() + "\"");
+
+        long start = 0;
+        long end = file.size() - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && isRangeApplicable(request, file)) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Chỉ hỗ trợ một khoảng; nhiều khoảng (multipart/byteranges) thì trả cả file, được phép theo RFC 9110
+                if (ranges.size() == 1) {
+                    HttpRange range = ranges.get(0);
+                    start = range.getRangeStart(file.size());
+                    end = range.getRangeEnd(file.size());
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.size());
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
             }
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
         }
+
+        writeFile(request, response, file, start, end);
+    }
+
+    @GetMapping("/gc/stats")
+    @Operation(summary = "Thống kê dọn ảnh", description = "Thời gian quét, số file đã kiểm tra, cách ly, xóa và dung lượng thu hồi của lần dọn ảnh mồ côi gần nhất. Chỉ dành cho Admin")
+    @PreAuthorize("hasRole('Admin')")
+    public ResponseEntity<ImageGcStatsResponse> getGcStats() {
+        return ResponseEntity.ok(imageGarbageCollectorService.getStats());
+    }
+
+    @PostMapping("/gc/run")
+    @Operation(summary = "Chạy dọn ảnh", description = "Chạy ngay việc dọn ảnh mồ côi trên thread nền (bình thường chạy lúc 03:00 mỗi ngày). Chỉ dành cho Admin")
+    @PreAuthorize("hasRole('Admin')")
+    public ResponseEntity<ImageGcStatsResponse> runGc() {
+        imageGarbageCollectorService.collect();
+        return ResponseEntity.accepted().body(imageGarbageCollectorService.getStats());
     }
 
     @PostMapping(value = "/upload-file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -58,13 +189,57 @@ public class ImageController {
         return processFileUpload(file);
     }
 
+    @PostMapping(value = "/upload-stream", consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE,
+            MediaType.IMAGE_GIF_VALUE, "image/bmp", "image/webp", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Upload ảnh dạng luồng",
+            description = "Gửi nội dung ảnh trực tiếp trong body (không dùng multipart). Ảnh được ghi thẳng vào kho ảnh trong một lượt, " +
+                    "định dạng nhận diện từ nội dung. Dùng cho upload hàng loạt. Cần đăng nhập; " +
+                    "quá số upload đồng thời cho phép thì request chờ tới lượt, chờ quá app.image.upload-stream.acquire-timeout-ms thì trả 503 kèm Retry-After")
+    public ResponseEntity<?> uploadStream(HttpServletRequest request) {
+        // Body không phải multipart nên không qua MultipartResolver, không có file tạm ở spring.servlet.multipart.location
+        long contentLength = request.getContentLengthLong();
+        if (contentLength > maxImageSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(createErrorResponse("Kích thước file không được vượt quá " + (maxImageSize / 1024 / 1024) + "MB"));
+        }
+        if (contentLength == 0) {
+            return ResponseEntity.badRequest().body(createErrorResponse("File không được để trống"));
+        }
+
+        // Upload hàng loạt xếp hàng chờ tới lượt; chỉ trả 503 khi chờ quá lâu (client chậm giữ chỗ quá lâu)
+        if (!acquireStreamUploadPermit()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, STREAM_UPLOAD_RETRY_AFTER_SECONDS)
+                    .body(createErrorResponse("Đang có quá nhiều ảnh được upload, vui lòng thử lại sau"));
+        }
+        try (InputStream body = request.getInputStream()) {
+            ImageStoreService.StoredImage stored = imageStoreService.storeStream(body, maxImageSize);
+            return ResponseEntity.ok(createUploadResponse(stored, null));
+        } catch (ImageStoreService.ImageTooLargeException e) {
+            // Body chunked không có Content-Length nên chỉ biết quá dung lượng khi đang đọc
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(createErrorResponse("Kích thước file không được vượt quá " + (maxImageSize / 1024 / 1024) + "MB"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(createErrorResponse("Lỗi khi lưu file: " + e.getMessage()));
+        } finally {
+            streamUploadPermits.release();
+        }
+    }
+
     @DeleteMapping("/{filename}")
     public ResponseEntity<?> deleteImage(@PathVariable String filename) {
         try {
-            Path filePath = Paths.get(imageBasePath).resolve(filename).normalize();
+            // Ảnh lưu theo hash nội dung nên có thể nhiều xe dùng chung một file
+            long references = imageStoreService.countReferences(filename);
+            if (references > 0) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(createErrorResponse("Ảnh đang được " + references + " xe sử dụng, không thể xóa"));
+            }
 
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+            if (imageStorage.delete(filename)) {
+                imageFileService.evict(filename);
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", true);
                 response.put("message", "Xóa ảnh thành công");
@@ -98,26 +273,12 @@ public class ImageController {
             }
 
             String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String newFilename = UUID.randomUUID() + fileExtension;
-
-            Path uploadPath = Paths.get(imageBasePath);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+            ImageStoreService.StoredImage stored;
+            try (InputStream content = file.getInputStream()) {
+                stored = imageStoreService.store(content, fileExtension);
             }
 
-            Path filePath = uploadPath.resolve(newFilename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Upload ảnh thành công");
-            response.put("filename", newFilename);
-            response.put("originalFilename", originalFilename);
-            response.put("size", file.getSize());
-            response.put("imagePath", "/api/images/" + newFilename);
-            response.put("fullPath", filePath.toString());
-
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(createUploadResponse(stored, originalFilename));
 
         } catch (IOException e) {
             return ResponseEntity.internalServerError().body(createErrorResponse("Lỗi khi lưu file: " + e.getMessage()));
@@ -126,16 +287,85 @@ public class ImageController {
         }
     }
 
-    private String determineContentType(String filename) {
-        String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
-        return switch (extension) {
-            case "webp" -> "image/webp";
-            case "jpg", "jpeg" -> "image/jpeg";
-            case "png" -> "image/png";
-            case "gif" -> "image/gif";
-            case "bmp" -> "image/bmp";
-            default -> "application/octet-stream";
-        };
+    /**
+     * Chờ tới lượt upload dạng luồng, tối đa app.image.upload-stream.acquire-timeout-ms
+     */
+    private boolean acquireStreamUploadPermit() {
+        try {
+            return streamUploadPermits.tryAcquire(streamUploadAcquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Map<String, Object> createUploadResponse(ImageStoreService.StoredImage stored, String originalFilename) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", stored.duplicate() ? "Ảnh đã tồn tại, dùng lại file cũ" : "Upload ảnh thành công");
+        response.put("filename", stored.filename());
+        response.put("originalFilename", originalFilename);
+        response.put("size", stored.size());
+        response.put("sha256", stored.sha256());
+        response.put("duplicate", stored.duplicate());
+        response.put("imagePath", "/api/images/" + stored.filename());
+        response.put("fullPath", imageStorage.localDirectory().resolve(stored.filename()).toString());
+        return response;
+    }
+
+    /**
+     * If-Range: chỉ trả một khoảng khi bản client đang giữ vẫn là bản hiện tại, ngược lại trả cả file
+     */
+    private boolean isRangeApplicable(HttpServletRequest request, ImageFileService.ImageFile file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(file.etag());
+        }
+        try {
+            // Last-Modified chỉ chính xác tới giây
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == file.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gửi byte [start, end] của file
+     * - Tomcat hỗ trợ sendfile (NIO, không TLS): giao đường dẫn cho connector, kernel chép thẳng từ page cache ra socket
+     * - Ngược lại: FileChannel.transferTo vào output stream của response, không đọc cả file vào heap
+     * File nhỏ hơn SENDFILE_MIN_SIZE ghi thẳng vì chi phí giao cho connector lớn hơn phần tiết kiệm
+     */
+    private void writeFile(HttpServletRequest request, HttpServletResponse response,
+                           ImageFileService.ImageFile file, long start, long end) throws IOException {
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.path().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
     }
 
     private boolean isValidImageFile(String filename) {
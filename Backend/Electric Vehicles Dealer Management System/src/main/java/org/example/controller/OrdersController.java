@@ -7,15 +7,21 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.example.dto.*;
+import org.example.service.ExcelExportService;
 import org.example.service.OrdersService;
 import org.example.service.InstallmentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -29,6 +35,9 @@ public class OrdersController {
     @Autowired
     private InstallmentService installmentService;
 
+    @Autowired
+    private ExcelExportService excelExportService;
+
     @GetMapping("")
     @Operation(
         summary = "Get all orders of current dealer",
@@ -83,6 +92,145 @@ public class OrdersController {
         }
     }
 
+    @GetMapping("/page")
+    @Operation(
+        summary = "Get orders of current dealer page by page",
+        description = "Returns one page of orders belonging to the dealer that the current logged-in user (DealerManager or DealerStaff) is assigned to. " +
+                     "DealerStaff only sees orders they created. " +
+                     "Orders can be filtered by status, creator name and order date range, and sorted by order date (DESC by default). " +
+                     "Pagination is cursor based: pass the 'nextCursor' of the previous page to get the next one. " +
+                     "Page size defaults to 20 and cannot exceed 100. " +
+                     "Requires JWT token in Authorization header."
+    )
+    @SecurityRequirement(name = "Bearer Authentication")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved the order page"),
+        @ApiResponse(responseCode = "400", description = "Bad request - Invalid page size, sort direction, date range or cursor"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Only DealerManager and DealerStaff can access this endpoint"),
+        @ApiResponse(responseCode = "404", description = "User not found or not assigned to any dealer"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<?> getDealerOrderPage(
+            @Parameter(description = "Filter by order status, e.g. 'Đã thanh toán'")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "Filter by creator username (contains, case-insensitive)")
+            @RequestParam(required = false) String creatorName,
+            @Parameter(description = "Order date from (inclusive), format yyyy-MM-dd")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @Parameter(description = "Order date to (inclusive), format yyyy-MM-dd")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @Parameter(description = "Sort direction by order date: ASC or DESC (default DESC)")
+            @RequestParam(required = false) String direction,
+            @Parameter(description = "Cursor returned as 'nextCursor' by the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100, default 20)")
+            @RequestParam(required = false) Integer size) {
+        try {
+            // Lấy authentication từ SecurityContext
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+            if (authentication == null || !authentication.isAuthenticated()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Authorization header is required. Please login first to get JWT token.");
+            }
+
+            // Lấy email từ authentication (JWT subject)
+            String email = authentication.getName();
+
+            if (email == null || email.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Invalid authentication. Please login again.");
+            }
+
+            // Lấy một trang orders của dealer
+            DealerOrderPageResponse page = ordersService.getOrderPageByCurrentUserDealer(
+                    status, creatorName, fromDate, toDate, direction, cursor, size, email);
+
+            return ResponseEntity.ok(page);
+
+        } catch (RuntimeException e) {
+            // Xử lý lỗi access denied hoặc user not found
+            if (e.getMessage().contains("Access denied")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+            } else if (e.getMessage().contains("not found") || e.getMessage().contains("not assigned")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("An error occurred while fetching dealer orders: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    @Operation(
+        summary = "Export order history of current dealer to Excel",
+        description = "Downloads an .xlsx file with one row per order line of the dealer that the current logged-in user (DealerManager or DealerStaff) is assigned to. " +
+                     "DealerStaff only exports orders they created. " +
+                     "Orders can be filtered by order date range. " +
+                     "Rows are spooled to compressed temporary files on the server and the file is sent once all rows are written, " +
+                     "so the download starts only after the export is complete. " +
+                     "An export is limited to app.export.order-history.max-rows order lines (default 200000); narrow the date range for larger histories. " +
+                     "Requires JWT token in Authorization header."
+    )
+    @SecurityRequirement(name = "Bearer Authentication")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Excel file"),
+        @ApiResponse(responseCode = "400", description = "Bad request - Invalid date range or too many rows to export"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Only DealerManager and DealerStaff can access this endpoint"),
+        @ApiResponse(responseCode = "404", description = "User not found or not assigned to any dealer"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<?> exportDealerOrders(
+            @Parameter(description = "Order date from (inclusive), format yyyy-MM-dd")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @Parameter(description = "Order date to (inclusive), format yyyy-MM-dd")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        try {
+            // Lấy authentication từ SecurityContext
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+            if (authentication == null || !authentication.isAuthenticated()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Authorization header is required. Please login first to get JWT token.");
+            }
+
+            // Lấy email từ authentication (JWT subject)
+            String email = authentication.getName();
+
+            if (email == null || email.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Invalid authentication. Please login again.");
+            }
+
+            // Kiểm tra quyền và số dòng trước khi bắt đầu ghi file
+            excelExportService.checkOrderHistoryExport(email, fromDate, toDate);
+
+            // Workbook được ghi vào response (chunked, không có Content-Length) sau khi đã ghi hết các dòng ra file tạm
+            StreamingResponseBody body = outputStream ->
+                    excelExportService.exportOrderHistory(email, fromDate, toDate, outputStream);
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders.xlsx\"")
+                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                    .body(body);
+
+        } catch (RuntimeException e) {
+            // Xử lý lỗi access denied hoặc user not found
+            if (e.getMessage().contains("Access denied")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+            } else if (e.getMessage().contains("not found") || e.getMessage().contains("not assigned")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("An error occurred while exporting dealer orders: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/draft")
     @Operation(
         summary = "Create a draft order",
@@ -196,6 +344,65 @@ public class OrdersController {
         }
     }
 
+    @PostMapping("/details/batch")
+    @Operation(
+        summary = "Create multiple order details at once",
+        description = "Adds several order lines to an existing order in one request (up to 100 lines). " +
+                     "Only dealer manager and dealer staff can create order details. " +
+                     "Each car is found by model name, variant name, and color name; lines for the same car are merged. " +
+                     "Unit price is automatically set from dealer price. " +
+                     "Inventory is reduced for all lines together: if any car is missing or out of stock, no line is added. " +
+                     "Order subTotal is recalculated once after all lines are added. " +
+                     "Order must belong to the current user's dealer."
+    )
+    @SecurityRequirement(name = "Bearer Authentication")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Order details created successfully"),
+        @ApiResponse(responseCode = "400", description = "Bad request - Invalid input data or validation failed"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid or missing JWT token"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Only DealerManager and DealerStaff can create order details"),
+        @ApiResponse(responseCode = "404", description = "Order not found, car not found in dealer inventory, or insufficient inventory"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<?> createOrderDetailsBatch(@RequestBody CreateOrderDetailsBatchRequest request) {
+        try {
+            // Lấy authentication từ SecurityContext
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+            if (authentication == null || !authentication.isAuthenticated()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Authorization header is required. Please login first to get JWT token.");
+            }
+
+            // Lấy email từ authentication (JWT subject)
+            String email = authentication.getName();
+
+            if (email == null || email.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Invalid authentication. Please login again.");
+            }
+
+            // Tạo nhiều order details
+            CreateOrderDetailsBatchResponse response = ordersService.createOrderDetailsBatch(request, email);
+
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+
+        } catch (RuntimeException e) {
+            // Xử lý các loại lỗi khác nhau
+            if (e.getMessage().contains("Access denied")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+            } else if (e.getMessage().contains("not found") ||
+                      e.getMessage().contains("not assigned") ||
+                      e.getMessage().contains("Insufficient inventory")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("An error occurred while creating order details: " + e.getMessage());
+        }
+    }
+
     @PutMapping("/details/{orderDetailId}")
     @Operation(
         summary = "Update order detail",
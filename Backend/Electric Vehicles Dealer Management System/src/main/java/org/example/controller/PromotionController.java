@@ -5,6 +5,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.config.ConditionalGet;
+import org.example.config.ConditionalGet.Domain;
 import org.example.dto.CreatePromotionRequest;
 import org.example.dto.PromotionResponse;
 import org.example.dto.UpdatePromotionRequest;
@@ -33,6 +35,7 @@ public class PromotionController {
     private UserAccountRepository userAccountRepository;
 
     @GetMapping
+    @ConditionalGet(Domain.PROMOTIONS)
     @Operation(
         summary = "Get all promotions for dealer manager's dealer",
         description = "Retrieves all promotions belonging to the dealer that the logged-in dealer manager is associated with. " +
@@ -105,6 +108,7 @@ public class PromotionController {
     }
 
     @GetMapping("/{id}")
+    @ConditionalGet(Domain.PROMOTIONS)
     @Operation(
         summary = "Get promotion by ID for dealer manager's dealer",
         description = "Retrieves a specific promotion by ID if it belongs to the dealer that the logged-in dealer manager is associated with. " +
@@ -366,6 +370,7 @@ public class PromotionController {
     }
 
     @GetMapping("/search/status")
+    @ConditionalGet(Domain.PROMOTIONS)
     @Operation(
         summary = "Search promotions by status for dealer manager's dealer",
         description = "Searches for promotions with specific status belonging to the dealer that the logged-in dealer manager is associated with. " +
@@ -450,6 +455,7 @@ public class PromotionController {
     }
 
     @GetMapping("/search/type")
+    @ConditionalGet(Domain.PROMOTIONS)
     @Operation(
         summary = "Search promotions by type for dealer manager's dealer",
         description = "Searches for promotions with specific type belonging to the dealer that the logged-in dealer manager is associated with. " +
@@ -534,6 +540,7 @@ public class PromotionController {
     }
 
     @GetMapping("/search")
+    @ConditionalGet(Domain.PROMOTIONS)
     @Operation(
         summary = "Search promotions by multiple criteria for dealer manager's dealer",
         description = "Searches for promotions using multiple optional criteria (type, scope, status) belonging to the dealer that the logged-in dealer manager is associated with. " +
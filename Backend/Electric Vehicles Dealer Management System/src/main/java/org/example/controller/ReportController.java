@@ -12,15 +12,21 @@ import org.example.dto.SalesReportResponse;
 import org.example.dto.RevenueByModelReportResponse;
 import org.example.dto.RevenueByStaffReportResponse;
 import org.example.dto.CarImportCostReportResponse;
+import org.example.dto.ReportCacheStatsResponse;
 import org.example.entity.UserAccount;
 import org.example.repository.UserAccountRepository;
+import org.example.service.ExcelExportService;
 import org.example.service.ReportService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -33,6 +39,7 @@ import java.time.YearMonth;
 public class ReportController {
 
     private final ReportService reportService;
+    private final ExcelExportService excelExportService;
     private final UserAccountRepository userAccountRepository;
 
     public enum PeriodType {
@@ -59,7 +66,7 @@ public class ReportController {
         @Parameter(description = "Ngày bắt đầu (format: yyyy-MM-dd'T'HH:mm:ss)", required = true)
         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
 
-        @Parameter(description = "Ngày kết thúc (format: yyyy-MM-dd'T'HH:mm:ss)", required = true)
+        @Parameter(description = "Thời điểm kết thúc, không bao gồm (format: yyyy-MM-dd'T'HH:mm:ss)", required = true)
         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate
     ) {
         if (startDate.isAfter(endDate)) {
@@ -121,7 +128,7 @@ public class ReportController {
         @Parameter(description = "Ngày bắt đầu tùy chỉnh (chỉ dùng cho CUSTOM)")
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime customStartDate,
 
-        @Parameter(description = "Ngày kết thúc tùy chỉnh (chỉ dùng cho CUSTOM)")
+        @Parameter(description = "Thời điểm kết thúc tùy chỉnh, không bao gồm (chỉ dùng cho CUSTOM)")
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime customEndDate
     ) {
         // Lấy authentication từ SecurityContext
@@ -166,7 +173,7 @@ public class ReportController {
                 }
                 YearMonth yearMonth = YearMonth.of(year, month);
                 startDate = yearMonth.atDay(1).atStartOfDay();
-                endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
+                endDate = yearMonth.plusMonths(1).atDay(1).atStartOfDay();
                 break;
 
             case QUARTERLY:
@@ -188,14 +195,13 @@ public class ReportController {
                 }
 
                 YearMonth quarterStart = YearMonth.of(year, quarterMonth);
-                YearMonth quarterEnd = YearMonth.of(year, quarterMonth + 2);
                 startDate = quarterStart.atDay(1).atStartOfDay();
-                endDate = quarterEnd.atEndOfMonth().atTime(23, 59, 59);
+                endDate = quarterStart.plusMonths(3).atDay(1).atStartOfDay();
                 break;
 
             case YEARLY:
                 startDate = LocalDate.of(year, 1, 1).atStartOfDay();
-                endDate = LocalDate.of(year, 12, 31).atTime(23, 59, 59);
+                endDate = LocalDate.of(year + 1, 1, 1).atStartOfDay();
                 break;
 
             default:
@@ -822,4 +828,104 @@ public class ReportController {
         CarImportCostReportResponse report = reportService.generateYearlyImportCostReportForDealer(year, dealerId);
         return ResponseEntity.ok(report);
     }
+
+    @GetMapping("/revenue/model/export")
+    @Operation(
+        summary = "Xuất báo cáo doanh thu theo model xe ra file Excel",
+        description = "Tải về file .xlsx báo cáo doanh thu theo từng model xe trong tháng/quý/năm của dealer mà tài khoản đang đăng nhập"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Xuất file thành công"),
+        @ApiResponse(responseCode = "400", description = "Tham số không hợp lệ"),
+        @ApiResponse(responseCode = "401", description = "Chưa xác thực"),
+        @ApiResponse(responseCode = "500", description = "Lỗi server")
+    })
+    public ResponseEntity<StreamingResponseBody> exportRevenueByModelReport(
+        @Parameter(description = "Loại kỳ báo cáo: MONTHLY, QUARTERLY, YEARLY", required = true)
+        @RequestParam PeriodType periodType,
+
+        @Parameter(description = "Năm (ví dụ: 2025)", required = true)
+        @RequestParam Integer year,
+
+        @Parameter(description = "Tháng (1-12, bắt buộc cho MONTHLY)")
+        @RequestParam(required = false) Integer month,
+
+        @Parameter(description = "Quý (1-4, bắt buộc cho QUARTERLY)")
+        @RequestParam(required = false) Integer quarter
+    ) {
+        if (year < 1900 || year > 2100) {
+            throw new IllegalArgumentException("Năm phải trong khoảng từ 1900 đến 2100");
+        }
+
+        // Lấy authentication từ SecurityContext
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        // Lấy email từ authentication (JWT subject)
+        String email = authentication.getName();
+
+        if (email == null || email.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        // Lấy thông tin user để lấy dealer ID
+        UserAccount user = userAccountRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+
+        if (user.getDealer() == null) {
+            throw new RuntimeException("User not associated with any dealer");
+        }
+
+        Integer dealerId = user.getDealer().getDealerId();
+
+        RevenueByModelReportResponse report;
+        switch (periodType) {
+            case MONTHLY:
+                if (month == null || month < 1 || month > 12) {
+                    throw new IllegalArgumentException("Với MONTHLY period, cần cung cấp month hợp lệ (1-12)");
+                }
+                report = reportService.generateRevenueByModelMonthlyReportForDealer(year, month, dealerId);
+                break;
+
+            case QUARTERLY:
+                if (quarter == null || quarter < 1 || quarter > 4) {
+                    throw new IllegalArgumentException("Với QUARTERLY period, cần cung cấp quarter hợp lệ (1-4)");
+                }
+                report = reportService.generateRevenueByModelQuarterlyReportForDealer(year, quarter, dealerId);
+                break;
+
+            case YEARLY:
+                report = reportService.generateRevenueByModelYearlyReportForDealer(year, dealerId);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Loại period không được hỗ trợ: " + periodType);
+        }
+
+        String fileName = "revenue-by-model-" + report.getStartDate() + "-" + report.getEndDate() + ".xlsx";
+        StreamingResponseBody body = outputStream -> excelExportService.exportRevenueByModelReport(report, outputStream);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(body);
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(
+        summary = "Thống kê cache báo cáo",
+        description = "Lấy số báo cáo đang được cache, số lần hit/miss, tỷ lệ hit và số báo cáo bị xóa do dữ liệu thay đổi. Chỉ dành cho Admin"
+    )
+    @PreAuthorize("hasRole('Admin')")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công"),
+        @ApiResponse(responseCode = "401", description = "Chưa xác thực"),
+        @ApiResponse(responseCode = "403", description = "Không có quyền truy cập")
+    })
+    public ResponseEntity<ReportCacheStatsResponse> getReportCacheStats() {
+        return ResponseEntity.ok(reportService.getReportCacheStats());
+    }
 }
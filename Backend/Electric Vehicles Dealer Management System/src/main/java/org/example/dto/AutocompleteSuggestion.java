@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AutocompleteSuggestion {
+    private Integer id;
+    private String name;
+    // Thông tin phụ để phân biệt các gợi ý trùng tên (model của variant, số điện thoại của customer)
+    private String detail;
+}
@@ -0,0 +1,37 @@
+package org.example.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedResponse {
+
+    private Long since;
+    private Long nextToken; // Gửi lại ở lần gọi sau: GET /api/changes?since=nextToken
+    private boolean hasMore; // Còn thay đổi sau nextToken, gọi tiếp ngay
+    private boolean resetRequired; // Token đã bị dọn hoặc không hợp lệ - tải lại toàn bộ rồi đồng bộ từ nextToken
+    private List<Change> changes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Change {
+        private Long token;
+        private String domain; // DEALER_CAR, CAR, VARIANT, MODEL, ORDER, PROMOTION
+        private Integer dealerId; // null với thay đổi danh mục dùng chung
+        private Integer entityId; // CarId (DEALER_CAR, CAR), VariantId, ModelId, OrderId, PromotionId
+        private String operation; // UPSERT, DELETE
+        private LocalDateTime changedAt;
+
+        // Trạng thái hiện tại của DEALER_CAR (chỉ có với domain DEALER_CAR và operation UPSERT)
+        private Integer quantity;
+        private BigDecimal dealerPrice;
+        private String status;
+    }
+}
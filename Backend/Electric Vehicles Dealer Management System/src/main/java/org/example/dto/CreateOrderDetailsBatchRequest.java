@@ -0,0 +1,15 @@
+package org.example.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CreateOrderDetailsBatchRequest {
+    private Integer orderId;
+    private List<OrderLineRequest> lines;
+}
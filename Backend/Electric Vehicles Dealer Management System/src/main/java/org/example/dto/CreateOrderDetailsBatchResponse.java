@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CreateOrderDetailsBatchResponse {
+    private Integer orderId;
+    private Integer linesAdded;
+    private List<OrderDetailResponse> orderDetails;
+    private BigDecimal subTotal;
+    private String message;
+}
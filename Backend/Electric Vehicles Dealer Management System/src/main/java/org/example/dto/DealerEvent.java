@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DealerEvent {
+
+    private String type; // ORDER, PAYMENT, INVENTORY, DISTRIBUTION_REQUEST
+    private String operation; // UPSERT, DELETE
+    private Integer dealerId;
+    private Integer entityId; // OrderId, PaymentId, CarId hoặc RequestId tùy type
+    private Integer orderId; // Đơn hàng liên quan (ORDER, PAYMENT)
+    private String status; // Trạng thái mới của đơn / thanh toán / yêu cầu nhập xe
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DealerOrderPageResponse {
+    private List<DealerOrderResponse> orders;
+    private Integer size;
+    private Boolean hasMore;
+    private String nextCursor;
+}
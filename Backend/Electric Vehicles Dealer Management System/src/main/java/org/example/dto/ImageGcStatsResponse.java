@@ -0,0 +1,72 @@
+package org.example.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageGcStatsResponse {
+
+    /**
+     * Có lần dọn nào đang chạy không
+     */
+    private Boolean running;
+
+    /**
+     * Thời điểm bắt đầu lần dọn gần nhất
+     */
+    private LocalDateTime lastRunStartedAt;
+
+    /**
+     * Thời gian quét thư mục ảnh của lần gần nhất (ms)
+     */
+    private Long lastScanDurationMs;
+
+    /**
+     * Tổng thời gian lần gần nhất, gồm cả cách ly và xóa theo lô (ms)
+     */
+    private Long lastRunDurationMs;
+
+    /**
+     * Số file đã kiểm tra trong lần gần nhất
+     */
+    private Long lastFilesExamined;
+
+    /**
+     * Số file không còn xe nào dùng, được chuyển vào thư mục cách ly trong lần gần nhất
+     */
+    private Long lastFilesQuarantined;
+
+    /**
+     * Số file cách ly được trả lại vì có xe dùng lại trong lần gần nhất
+     */
+    private Long lastFilesRestored;
+
+    /**
+     * Số file bị xóa hẳn trong lần gần nhất
+     */
+    private Long lastFilesPurged;
+
+    /**
+     * Dung lượng thu hồi trong lần gần nhất (byte)
+     */
+    private Long lastBytesReclaimed;
+
+    /**
+     * Số lần dọn đã chạy từ khi khởi động
+     */
+    private Long totalRuns;
+
+    /**
+     * Tổng số file bị xóa từ khi khởi động
+     */
+    private Long totalFilesPurged;
+
+    /**
+     * Tổng dung lượng thu hồi từ khi khởi động (byte)
+     */
+    private Long totalBytesReclaimed;
+}
@@ -0,0 +1,15 @@
+package org.example.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderLineRequest {
+    private String modelName;
+    private String variantName;
+    private String colorName;
+    private Integer quantity;
+}
@@ -0,0 +1,40 @@
+package org.example.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportCacheStatsResponse {
+
+    /**
+     * Số báo cáo đang được cache
+     */
+    private Integer size;
+
+    /**
+     * Số báo cáo tối đa được cache
+     */
+    private Integer maxSize;
+
+    /**
+     * Số lần lấy báo cáo có sẵn trong cache
+     */
+    private Long hits;
+
+    /**
+     * Số lần phải tính lại báo cáo
+     */
+    private Long misses;
+
+    /**
+     * Tỷ lệ hits / (hits + misses)
+     */
+    private Double hitRate;
+
+    /**
+     * Số báo cáo bị xóa do đơn hàng hoặc yêu cầu phân phối thay đổi
+     */
+    private Long invalidations;
+}
@@ -0,0 +1,51 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng nhật ký thay đổi cho API đồng bộ delta
+ * Được chèn trong cùng transaction với dữ liệu thay đổi, token đồng bộ là cột ChangeVersion (ROWVERSION)
+ * do database tự gán nên không ánh xạ vào entity, chỉ đọc qua native query của ChangeLogRepository
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "CHANGE_LOG")
+public class ChangeLog {
+
+    public enum Domain {
+        DEALER_CAR, CAR, VARIANT, MODEL, ORDER, PROMOTION
+    }
+
+    public enum Operation {
+        UPSERT, DELETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ChangeId")
+    private Long changeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "Domain", length = 20, nullable = false)
+    private Domain domain;
+
+    // null: thay đổi danh mục dùng chung cho mọi dealer
+    @Column(name = "DealerId")
+    private Integer dealerId;
+
+    @Column(name = "EntityId", nullable = false)
+    private Integer entityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "Operation", length = 10, nullable = false)
+    private Operation operation;
+
+    @Column(name = "ChangedAt", insertable = false, updatable = false)
+    private LocalDateTime changedAt;
+}
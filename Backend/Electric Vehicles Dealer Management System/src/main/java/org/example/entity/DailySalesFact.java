@@ -0,0 +1,57 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Số liệu bán hàng đã tổng hợp theo ngày hoàn thành, dealer, model và nhân viên tạo đơn
+ * Chỉ gồm đơn "Đã thanh toán"; được tính lại theo (dealer, ngày) mỗi khi đơn thay đổi
+ * OrdersCount và Revenue (TotalAmount của đơn) chỉ ghi ở một model của đơn
+ * để cộng theo dealer hoặc nhân viên không bị đếm trùng
+ * ModelId NULL là dòng của các đơn đã thanh toán nhưng chưa có chi tiết
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "DAILY_SALES_FACT")
+public class DailySalesFact {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "FactId")
+    private Long factId;
+
+    @Column(name = "SalesDate")
+    private LocalDate salesDate;
+
+    @Column(name = "DealerId")
+    private Integer dealerId;
+
+    @Column(name = "ModelId")
+    private Integer modelId;
+
+    @Column(name = "UserId")
+    private Integer userId;
+
+    @Column(name = "OrdersCount")
+    private Integer ordersCount;
+
+    @Column(name = "CarsSold")
+    private Integer carsSold;
+
+    @Column(name = "Revenue", precision = 18, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "NetRevenue", precision = 18, scale = 2)
+    private BigDecimal netRevenue;
+
+    @Column(name = "Profit", precision = 18, scale = 2)
+    private BigDecimal profit;
+
+    @Column(name = "PromotionAllocated", precision = 18, scale = 2)
+    private BigDecimal promotionAllocated;
+}
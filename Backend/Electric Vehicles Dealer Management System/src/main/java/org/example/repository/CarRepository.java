@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -76,17 +77,6 @@ public interface CarRepository extends JpaRepository<Car, Integer> {
     Optional<Car> findByVariantIdAndColorName(@Param("variantId") Integer variantId,
                                             @Param("colorName") String colorName);
 
-    @Query("SELECT c FROM Car c " +
-           "JOIN FETCH c.carVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "JOIN FETCH c.color col " +
-           "WHERE LOWER(cm.modelName) = LOWER(:modelName) " +
-           "AND LOWER(cv.variantName) = LOWER(:variantName) " +
-           "AND LOWER(col.colorName) = LOWER(:colorName)")
-    Optional<Car> findByModelNameAndVariantNameAndColorName(@Param("modelName") String modelName,
-                                                           @Param("variantName") String variantName,
-                                                           @Param("colorName") String colorName);
-
     @Query("SELECT c FROM Car c WHERE c.variantId = :variantId")
     List<Car> findByVariantId(@Param("variantId") Integer variantId);
 
@@ -95,4 +85,13 @@ public interface CarRepository extends JpaRepository<Car, Integer> {
            "FROM Car c JOIN c.dealerCars dc " +
            "WHERE c.carId = :carId AND dc.dealer.dealerId = :dealerId")
     boolean existsByCarIdAndDealerId(@Param("carId") Integer carId, @Param("dealerId") Integer dealerId);
+
+    // Số xe đang dùng một file ảnh (ảnh lưu theo hash nội dung nên nhiều xe có thể dùng chung)
+    long countByImagePath(String imagePath);
+
+    @Query("SELECT DISTINCT c.imagePath FROM Car c WHERE c.imagePath IS NOT NULL")
+    List<String> findAllImagePaths();
+
+    @Query("SELECT DISTINCT c.imagePath FROM Car c WHERE c.imagePath IN :imagePaths")
+    List<String> findImagePathsIn(@Param("imagePaths") Collection<String> imagePaths);
 }
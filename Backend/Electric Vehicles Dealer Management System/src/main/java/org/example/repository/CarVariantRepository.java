@@ -13,12 +13,6 @@ import java.util.Optional;
 @Repository
 public interface CarVariantRepository extends JpaRepository<CarVariant, Integer> {
 
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> findAllVariantsWithConfiguration();
-
     @Query("SELECT DISTINCT cv FROM CarVariant cv " +
            "JOIN FETCH cv.carModel cm " +
            "LEFT JOIN FETCH cv.configuration " +
@@ -39,21 +33,23 @@ public interface CarVariantRepository extends JpaRepository<CarVariant, Integer>
            "ORDER BY c.colorId")
     List<Object[]> findColorIdsAndPricesByVariantId(@Param("variantId") Integer variantId);
 
-    // Method cho admin/evmstaff - lấy tất cả màu trong hệ thống không cần quantity
-    @Query("SELECT DISTINCT c.colorId, c.price, c.imagePath FROM Car c " +
-           "WHERE c.variantId = :variantId " +
-           "ORDER BY c.colorId")
-    List<Object[]> findColorIdsAndPricesWithoutQuantityByVariantId(@Param("variantId") Integer variantId);
+    // Method cho admin/evmstaff - lấy tất cả màu trong hệ thống không cần quantity, theo lô nhiều variant
+    // [variantId, colorId, price, imagePath]
+    @Query("SELECT DISTINCT c.variantId, c.colorId, c.price, c.imagePath FROM Car c " +
+           "WHERE c.variantId IN :variantIds " +
+           "ORDER BY c.variantId, c.colorId")
+    List<Object[]> findColorIdsAndPricesWithoutQuantityByVariantIds(@Param("variantIds") List<Integer> variantIds);
 
-    // Method cho dealerstaff - chỉ lấy màu của dealer hiện tại
-    @Query("SELECT c.colorId, c.price, c.imagePath, dc.quantity FROM Car c " +
+    // Method cho dealerstaff - chỉ lấy màu của dealer hiện tại, theo lô nhiều variant
+    // [variantId, colorId, price, imagePath, quantity]
+    @Query("SELECT c.variantId, c.colorId, c.price, c.imagePath, dc.quantity FROM Car c " +
            "JOIN c.dealerCars dc " +
-           "WHERE c.variantId = :variantId " +
+           "WHERE c.variantId IN :variantIds " +
            "AND dc.dealer.dealerId = :dealerId " +
-           "GROUP BY c.colorId, c.price, c.imagePath, dc.quantity " +
-           "ORDER BY c.colorId")
-    List<Object[]> findColorIdsAndPricesByVariantIdAndDealerId(@Param("variantId") Integer variantId,
-                                                               @Param("dealerId") Integer dealerId);
+           "GROUP BY c.variantId, c.colorId, c.price, c.imagePath, dc.quantity " +
+           "ORDER BY c.variantId, c.colorId")
+    List<Object[]> findColorIdsAndPricesByVariantIdsAndDealerId(@Param("variantIds") List<Integer> variantIds,
+                                                                @Param("dealerId") Integer dealerId);
 
     // Method cho API getVariantDetailsByDealerName - lấy variants theo dealer name
     @Query("SELECT DISTINCT cv FROM CarVariant cv " +
@@ -65,179 +61,54 @@ public interface CarVariantRepository extends JpaRepository<CarVariant, Integer>
            "ORDER BY cm.modelName, cv.variantName")
     List<CarVariant> findVariantsByDealerNameWithConfiguration(@Param("dealerName") String dealerName);
 
-    // Method cho API getVariantDetailsByDealerName - lấy color info theo dealer name
-    @Query("SELECT c.colorId, c.price, c.imagePath, dc.quantity FROM Car c " +
+    // Method cho API getVariantDetailsByDealerName - lấy color info theo dealer name, theo lô nhiều variant
+    // [variantId, colorId, price, imagePath, quantity]
+    @Query("SELECT c.variantId, c.colorId, c.price, c.imagePath, dc.quantity FROM Car c " +
            "JOIN c.dealerCars dc " +
-           "WHERE c.variantId = :variantId " +
+           "WHERE c.variantId IN :variantIds " +
            "AND dc.dealer.dealerName = :dealerName " +
-           "GROUP BY c.colorId, c.price, c.imagePath, dc.quantity " +
-           "ORDER BY c.colorId")
-    List<Object[]> findColorIdsAndPricesByVariantIdAndDealerName(@Param("variantId") Integer variantId,
-                                                                 @Param("dealerName") String dealerName);
-
-    // Search methods cho admin/evmstaff
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "WHERE LOWER(CONCAT(cm.modelName, ' ', cv.variantName)) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchAllVariantsWithConfiguration(@Param("searchTerm") String searchTerm);
-
-    // Search methods cho dealerstaff
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "JOIN cv.cars c " +
-           "JOIN c.dealerCars dc " +
-           "WHERE dc.dealer.dealerId = :dealerId " +
-           "AND LOWER(CONCAT(cm.modelName, ' ', cv.variantName)) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByDealerIdAndTerm(@Param("dealerId") Integer dealerId,
-                                                     @Param("searchTerm") String searchTerm);
-
-    // Search methods by variant name specifically - cho admin/evmstaff
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "WHERE LOWER(cv.variantName) LIKE LOWER(CONCAT('%', :variantName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByVariantNameInSystem(@Param("variantName") String variantName);
-
-    // Search methods by variant name specifically - cho dealerstaff
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "JOIN cv.cars c " +
-           "JOIN c.dealerCars dc " +
-           "WHERE dc.dealer.dealerId = :dealerId " +
-           "AND LOWER(cv.variantName) LIKE LOWER(CONCAT('%', :variantName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByVariantNameAndDealerId(@Param("dealerId") Integer dealerId,
-                                                            @Param("variantName") String variantName);
-
-    // Search methods by model name specifically - cho admin/evmstaff
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "WHERE LOWER(cm.modelName) LIKE LOWER(CONCAT('%', :modelName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByModelNameInSystem(@Param("modelName") String modelName);
-
-    // Search methods by model name specifically - cho dealerstaff
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "JOIN cv.cars c " +
-           "JOIN c.dealerCars dc " +
-           "WHERE dc.dealer.dealerId = :dealerId " +
-           "AND LOWER(cm.modelName) LIKE LOWER(CONCAT('%', :modelName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByModelNameAndDealerId(@Param("dealerId") Integer dealerId,
-                                                          @Param("modelName") String modelName);
-
-    // Search methods by both model name and variant name - cho admin/evmstaff
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "WHERE LOWER(cm.modelName) LIKE LOWER(CONCAT('%', :modelName, '%')) " +
-           "AND LOWER(cv.variantName) LIKE LOWER(CONCAT('%', :variantName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByModelAndVariantNameInSystem(@Param("modelName") String modelName,
-                                                                 @Param("variantName") String variantName);
-
-    // Search methods by both model name and variant name - cho dealerstaff
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "JOIN cv.cars c " +
-           "JOIN c.dealerCars dc " +
-           "WHERE dc.dealer.dealerId = :dealerId " +
-           "AND LOWER(cm.modelName) LIKE LOWER(CONCAT('%', :modelName, '%')) " +
-           "AND LOWER(cv.variantName) LIKE LOWER(CONCAT('%', :variantName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByModelAndVariantNameAndDealerId(@Param("dealerId") Integer dealerId,
-                                                                    @Param("modelName") String modelName,
-                                                                    @Param("variantName") String variantName);
+           "GROUP BY c.variantId, c.colorId, c.price, c.imagePath, dc.quantity " +
+           "ORDER BY c.variantId, c.colorId")
+    List<Object[]> findColorIdsAndPricesByVariantIdsAndDealerName(@Param("variantIds") List<Integer> variantIds,
+                                                                  @Param("dealerName") String dealerName);
+
+    // Các variant dealer đang có trong kho, dùng để nạp bitmap của DealerVariantIndex
+    @Query("SELECT DISTINCT c.variantId FROM DealerCar dc " +
+           "JOIN dc.car c " +
+           "WHERE dc.dealerId = :dealerId")
+    List<Integer> findVariantIdsByDealerId(@Param("dealerId") Integer dealerId);
+
+    // Dùng để build catalog snapshot, chỉ lấy cột của CAR_VARIANT để tránh nạp configuration từng variant
+    // [variantId, modelId, variantName, description]
+    @Query("SELECT cv.variantId, cv.modelId, cv.variantName, cv.description FROM CarVariant cv")
+    List<Object[]> findAllCatalogRows();
 
     Optional<CarVariant> findByVariantNameIgnoreCaseAndModelId(String variantName, Integer modelId);
 
     boolean existsByVariantNameIgnoreCaseAndModelId(String variantName, Integer modelId);
 
-    @Query("SELECT DISTINCT cv.variantName FROM CarVariant cv ORDER BY cv.variantName")
-    List<String> findAllVariantNames();
-
-    @Query("SELECT cv.description FROM CarVariant cv WHERE cv.variantName = :variantName")
-    Optional<String> findDescriptionByVariantName(@Param("variantName") String variantName);
-
-    @Query("SELECT cv.description FROM CarVariant cv " +
-           "JOIN cv.carModel cm " +
-           "WHERE cm.modelName = :modelName AND cv.variantName = :variantName")
-    Optional<String> findDescriptionByModelNameAndVariantName(@Param("modelName") String modelName,
-                                                              @Param("variantName") String variantName);
-
-    @Query("SELECT DISTINCT cv.variantName FROM CarVariant cv " +
-           "WHERE cv.carModel.modelName = :modelName " +
-           "ORDER BY cv.variantName")
-    List<String> findVariantNamesByModelName(@Param("modelName") String modelName);
-
-    // New methods for dealer manager - lấy xe với cả manufacturer price và dealer price
-    @Query("SELECT c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status FROM Car c " +
+    // New methods for dealer manager - lấy xe với cả manufacturer price và dealer price, theo lô nhiều variant
+    // [variantId, colorId, manufacturerPrice, dealerPrice, imagePath, quantity, status]
+    @Query("SELECT c.variantId, c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status FROM Car c " +
            "JOIN c.dealerCars dc " +
-           "WHERE c.variantId = :variantId " +
+           "WHERE c.variantId IN :variantIds " +
            "AND dc.dealer.dealerId = :dealerId " +
-           "GROUP BY c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status " +
-           "ORDER BY c.colorId")
-    List<Object[]> findColorIdsAndDataByVariantIdAndDealerId(@Param("variantId") Integer variantId,
-                                                            @Param("dealerId") Integer dealerId);
+           "GROUP BY c.variantId, c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status " +
+           "ORDER BY c.variantId, c.colorId")
+    List<Object[]> findColorIdsAndDataByVariantIdsAndDealerId(@Param("variantIds") List<Integer> variantIds,
+                                                             @Param("dealerId") Integer dealerId);
 
-    // New methods for dealer staff - chỉ lấy xe có status "On Sale" với cả manufacturer price và dealer price
-    @Query("SELECT c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status FROM Car c " +
+    // New methods for dealer staff - chỉ lấy xe có status "On Sale" với cả manufacturer price và dealer price, theo lô nhiều variant
+    // [variantId, colorId, manufacturerPrice, dealerPrice, imagePath, quantity, status]
+    @Query("SELECT c.variantId, c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status FROM Car c " +
            "JOIN c.dealerCars dc " +
-           "WHERE c.variantId = :variantId " +
+           "WHERE c.variantId IN :variantIds " +
            "AND dc.dealer.dealerId = :dealerId " +
            "AND dc.status = 'On Sale' " +
-           "GROUP BY c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status " +
-           "ORDER BY c.colorId")
-    List<Object[]> findColorIdsAndDataByVariantIdAndDealerIdOnSale(@Param("variantId") Integer variantId,
-                                                                  @Param("dealerId") Integer dealerId);
-
-    // Missing methods for dealer-specific searches by variant name
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "JOIN cv.cars c " +
-           "JOIN c.dealerCars dc " +
-           "WHERE dc.dealer.dealerId = :dealerId " +
-           "AND LOWER(cv.variantName) LIKE LOWER(CONCAT('%', :variantName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByDealerIdAndVariantName(@Param("dealerId") Integer dealerId,
-                                                           @Param("variantName") String variantName);
-
-    // Missing methods for dealer-specific searches by model name
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "JOIN cv.cars c " +
-           "JOIN c.dealerCars dc " +
-           "WHERE dc.dealer.dealerId = :dealerId " +
-           "AND LOWER(cm.modelName) LIKE LOWER(CONCAT('%', :modelName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByDealerIdAndModelName(@Param("dealerId") Integer dealerId,
-                                                         @Param("modelName") String modelName);
-
-    // Missing methods for dealer-specific searches by both model and variant name
-    @Query("SELECT DISTINCT cv FROM CarVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH cv.configuration " +
-           "JOIN cv.cars c " +
-           "JOIN c.dealerCars dc " +
-           "WHERE dc.dealer.dealerId = :dealerId " +
-           "AND LOWER(cm.modelName) LIKE LOWER(CONCAT('%', :modelName, '%')) " +
-           "AND LOWER(cv.variantName) LIKE LOWER(CONCAT('%', :variantName, '%')) " +
-           "ORDER BY cm.modelName, cv.variantName")
-    List<CarVariant> searchVariantsByDealerIdAndModelAndVariantName(@Param("dealerId") Integer dealerId,
-                                                                   @Param("modelName") String modelName,
-                                                                   @Param("variantName") String variantName);
+           "GROUP BY c.variantId, c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status " +
+           "ORDER BY c.variantId, c.colorId")
+    List<Object[]> findColorIdsAndDataByVariantIdsAndDealerIdOnSale(@Param("variantIds") List<Integer> variantIds,
+                                                                   @Param("dealerId") Integer dealerId);
 
     // New method for searching by status
     @Query("SELECT DISTINCT cv FROM CarVariant cv " +
@@ -278,17 +149,18 @@ public interface CarVariantRepository extends JpaRepository<CarVariant, Integer>
         return updatedRows > 0;
     }
 
-    // New method for filtering colors by specific status
-    @Query("SELECT c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status FROM Car c " +
+    // New method for filtering colors by specific status, theo lô nhiều variant
+    // [variantId, colorId, manufacturerPrice, dealerPrice, imagePath, quantity, status]
+    @Query("SELECT c.variantId, c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status FROM Car c " +
            "JOIN c.dealerCars dc " +
-           "WHERE c.variantId = :variantId " +
+           "WHERE c.variantId IN :variantIds " +
            "AND dc.dealer.dealerId = :dealerId " +
            "AND LOWER(dc.status) = LOWER(:status) " +
-           "GROUP BY c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status " +
-           "ORDER BY c.colorId")
-    List<Object[]> findColorIdsAndDataByVariantIdAndDealerIdAndStatus(@Param("variantId") Integer variantId,
-                                                                     @Param("dealerId") Integer dealerId,
-                                                                     @Param("status") String status);
+           "GROUP BY c.variantId, c.colorId, c.price, dc.dealerPrice, c.imagePath, dc.quantity, dc.status " +
+           "ORDER BY c.variantId, c.colorId")
+    List<Object[]> findColorIdsAndDataByVariantIdsAndDealerIdAndStatus(@Param("variantIds") List<Integer> variantIds,
+                                                                      @Param("dealerId") Integer dealerId,
+                                                                      @Param("status") String status);
 
     @Query("SELECT cv FROM CarVariant cv WHERE cv.modelId = :modelId")
     List<CarVariant> findByModelId(@Param("modelId") Integer modelId);
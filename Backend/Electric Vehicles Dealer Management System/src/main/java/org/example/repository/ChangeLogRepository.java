@@ -0,0 +1,71 @@
+package org.example.repository;
+
+import org.example.entity.ChangeLog;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Đọc nhật ký CHANGE_LOG theo token (ChangeVersion đổi sang BIGINT)
+ * Các query đọc trả về Object[]: token, Domain, DealerId, EntityId, Operation, ChangedAt, sắp theo token tăng dần
+ */
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLog, Long> {
+
+    /**
+     * Token lớn nhất mà mọi thay đổi nhỏ hơn hoặc bằng nó đã commit
+     * MIN_ACTIVE_ROWVERSION() là rowversion nhỏ nhất của các transaction chưa commit (hoặc @@DBTS + 1 nếu không có)
+     */
+    @Query(value = "SELECT CAST(MIN_ACTIVE_ROWVERSION() AS BIGINT) - 1", nativeQuery = true)
+    Long findCommittedToken();
+
+    /**
+     * Thay đổi của một dealer và thay đổi danh mục dùng chung trong khoảng token (since, upTo]
+     */
+    @Query(value = "SELECT TOP (:limit) CAST(cl.ChangeVersion AS BIGINT), cl.Domain, cl.DealerId, cl.EntityId, " +
+            "cl.Operation, cl.ChangedAt " +
+            "FROM CHANGE_LOG cl " +
+            "WHERE (cl.DealerId = :dealerId OR cl.DealerId IS NULL) " +
+            "AND cl.ChangeVersion > CAST(:since AS BINARY(8)) AND cl.ChangeVersion <= CAST(:upTo AS BINARY(8)) " +
+            "ORDER BY cl.ChangeVersion",
+            nativeQuery = true)
+    List<Object[]> findDealerChanges(@Param("dealerId") Integer dealerId,
+                                     @Param("since") Long since,
+                                     @Param("upTo") Long upTo,
+                                     @Param("limit") int limit);
+
+    /**
+     * Thay đổi của mọi dealer trong khoảng token (since, upTo], dùng cho Admin / EVMStaff
+     */
+    @Query(value = "SELECT TOP (:limit) CAST(cl.ChangeVersion AS BIGINT), cl.Domain, cl.DealerId, cl.EntityId, " +
+            "cl.Operation, cl.ChangedAt " +
+            "FROM CHANGE_LOG cl " +
+            "WHERE cl.ChangeVersion > CAST(:since AS BINARY(8)) AND cl.ChangeVersion <= CAST(:upTo AS BINARY(8)) " +
+            "ORDER BY cl.ChangeVersion",
+            nativeQuery = true)
+    List<Object[]> findAllChanges(@Param("since") Long since,
+                                  @Param("upTo") Long upTo,
+                                  @Param("limit") int limit);
+
+    /**
+     * Token của dòng cũ nhất đã quá hạn lưu; sau khi dọn dẹp đây là dòng mốc, mọi dòng trước nó đã bị xóa
+     */
+    @Query(value = "SELECT TOP 1 CAST(cl.ChangeVersion AS BIGINT) FROM CHANGE_LOG cl " +
+            "WHERE cl.ChangedAt < :cutoff ORDER BY cl.ChangeVersion",
+            nativeQuery = true)
+    Long findOldestExpiredToken(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Xóa các dòng quá hạn lưu, giữ lại dòng quá hạn mới nhất làm mốc để nhận ra token đã bị dọn
+     */
+    @Modifying
+    @Query(value = "DELETE FROM CHANGE_LOG WHERE ChangedAt < :cutoff " +
+            "AND ChangeVersion < (SELECT MAX(ChangeVersion) FROM CHANGE_LOG WHERE ChangedAt < :cutoff)",
+            nativeQuery = true)
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -3,6 +3,7 @@ package org.example.repository;
 import org.example.entity.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -20,4 +21,11 @@ public interface CustomerRepository extends JpaRepository<Customer, Integer> {
 
     //Tìm customer theo id
     Optional<Customer> findByCustomerId(Integer customerId);
+
+    // Customer đã có order tại dealer, dùng để nạp gợi ý customer của AutocompleteIndex
+    // [customerId, fullName, phoneNumber]
+    @Query("SELECT DISTINCT c.customerId, c.fullName, c.phoneNumber FROM Orders o " +
+           "JOIN o.customer c " +
+           "WHERE o.dealer.dealerId = :dealerId")
+    List<Object[]> findAutocompleteRowsByDealerId(@Param("dealerId") Integer dealerId);
 }
@@ -0,0 +1,210 @@
+package org.example.repository;
+
+import org.example.entity.DailySalesFact;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Đọc/ghi bảng tổng hợp DAILY_SALES_FACT
+ * Các query đọc nhận khoảng ngày nửa mở [fromDate, toDate) trên SalesDate
+ */
+@Repository
+public interface DailySalesFactRepository extends JpaRepository<DailySalesFact, Long> {
+
+    // ===== REFRESH =====
+
+    /**
+     * Xóa số liệu tổng hợp của một dealer trong một ngày
+     * HOLDLOCK giữ khóa khoảng (DealerId, SalesDate) đến hết transaction để hai lần tính lại cùng ngày không chèn trùng
+     */
+    @Modifying
+    @Query(value = "DELETE FROM DAILY_SALES_FACT WITH (HOLDLOCK) WHERE DealerId = :dealerId AND SalesDate = :salesDate",
+            nativeQuery = true)
+    int deleteByDealerIdAndSalesDate(@Param("dealerId") Integer dealerId, @Param("salesDate") LocalDate salesDate);
+
+    /**
+     * Tính lại số liệu của một dealer trong một ngày từ ORDERS/ORDER_DETAILS
+     * OrdersCount và Revenue lấy từ mọi đơn đã thanh toán, kể cả đơn chưa có chi tiết (ghi ở dòng ModelId NULL)
+     * Khuyến mãi và giảm giá được phân bổ cho từng model theo tỷ lệ số lượng như các báo cáo cũ;
+     * đơn không có chi tiết chịu toàn bộ giảm giá trong Profit như báo cáo tính thẳng từ ORDERS
+     */
+    @Modifying
+    @Query(value = "WITH PaidOrder AS (" +
+            "    SELECT o.OrderId, o.UserId, " +
+            "           ISNULL(o.TotalAmount, 0) AS TotalAmount, " +
+            "           ISNULL(o.DiscountAmount, 0) AS DiscountAmount, " +
+            "           ISNULL(p.Value, 0) AS PromotionValue " +
+            "    FROM ORDERS o " +
+            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
+            "    WHERE o.Status = N'Đã thanh toán' " +
+            "    AND o.DealerId = :dealerId " +
+            "    AND o.CompletionDate >= :dayStart " +
+            "    AND o.CompletionDate < :dayEnd" +
+            "), OrderModel AS (" +
+            "    SELECT po.OrderId, po.UserId, cv.ModelID AS ModelId, " +
+            "           MAX(po.TotalAmount) AS TotalAmount, " +
+            "           MAX(po.DiscountAmount) AS DiscountAmount, " +
+            "           MAX(po.PromotionValue) AS PromotionValue, " +
+            "           ISNULL(SUM(od.Quantity), 0) AS Quantity, " +
+            "           ISNULL(SUM(od.FinalPrice), 0) AS FinalPrice, " +
+            "           ISNULL(SUM((od.UnitPrice - c.Price) * od.Quantity), 0) AS GrossProfit " +
+            "    FROM PaidOrder po " +
+            "    LEFT JOIN ORDER_DETAILS od ON po.OrderId = od.OrderId " +
+            "    LEFT JOIN CAR c ON od.CarId = c.CarID " +
+            "    LEFT JOIN CAR_VARIANT cv ON c.VariantID = cv.VariantID " +
+            "    GROUP BY po.OrderId, po.UserId, cv.ModelID" +
+            "), Allocated AS (" +
+            "    SELECT om.*, " +
+            "           SUM(om.Quantity) OVER (PARTITION BY om.OrderId) AS TotalQuantity, " +
+            "           CASE WHEN ROW_NUMBER() OVER (PARTITION BY om.OrderId ORDER BY om.ModelId) = 1 THEN 1 ELSE 0 END AS IsPrimary " +
+            "    FROM OrderModel om" +
+            ") " +
+            "INSERT INTO DAILY_SALES_FACT (SalesDate, DealerId, ModelId, UserId, OrdersCount, CarsSold, " +
+            "                              Revenue, NetRevenue, Profit, PromotionAllocated) " +
+            "SELECT :salesDate, :dealerId, a.ModelId, a.UserId, " +
+            "SUM(a.IsPrimary), " +
+            "SUM(a.Quantity), " +
+            "SUM(CASE WHEN a.IsPrimary = 1 THEN a.TotalAmount ELSE 0 END), " +
+            "SUM(a.FinalPrice - ISNULL(a.PromotionValue * a.Quantity / NULLIF(a.TotalQuantity, 0), 0)), " +
+            "SUM(a.GrossProfit - ISNULL(a.DiscountAmount * a.Quantity / NULLIF(a.TotalQuantity, 0), a.DiscountAmount)), " +
+            "SUM(ISNULL(a.PromotionValue * a.Quantity / NULLIF(a.TotalQuantity, 0), 0)) " +
+            "FROM Allocated a " +
+            "GROUP BY a.ModelId, a.UserId",
+            nativeQuery = true)
+    int insertAggregatedDay(@Param("dealerId") Integer dealerId,
+                            @Param("salesDate") LocalDate salesDate,
+                            @Param("dayStart") LocalDateTime dayStart,
+                            @Param("dayEnd") LocalDateTime dayEnd);
+
+    // ===== SALES SUMMARY =====
+
+    /**
+     * Báo cáo tổng quát cho dealer cụ thể trong một round trip, số liệu bán hàng đọc từ bảng tổng hợp:
+     * completedOrders, carsSold, revenue (totalAmount), profit, pendingOrders, carsDistributed
+     * [fromDate, toDate) là các ngày trọn vẹn của khoảng [startDate, endDate)
+     */
+    @Query(value = "SELECT s.completedOrders, s.carsSold, s.revenue, s.profit, " +
+            "(SELECT COUNT(*) FROM ORDERS po " +
+            " WHERE po.DealerId = :dealerId " +
+            " AND po.Status != N'Đã thanh toán' " +
+            " AND po.OrderDate >= :startDate AND po.OrderDate < :endDate) as pendingOrders, " +
+            "(SELECT COALESCE(SUM(cdr.Quantity), 0) FROM CAR_DISTRIBUTION_REQUEST cdr " +
+            " WHERE cdr.DealerID = :dealerId " +
+            " AND cdr.Status = N'Đã giao' " +
+            " AND cdr.ActualDeliveryDate >= :startDate AND cdr.ActualDeliveryDate < :endDate) as carsDistributed " +
+            "FROM (" +
+            "    SELECT ISNULL(SUM(f.OrdersCount), 0) as completedOrders, " +
+            "           ISNULL(SUM(f.CarsSold), 0) as carsSold, " +
+            "           ISNULL(SUM(f.Revenue), 0) as revenue, " +
+            "           ISNULL(SUM(f.Profit), 0) as profit " +
+            "    FROM DAILY_SALES_FACT f " +
+            "    WHERE f.DealerId = :dealerId " +
+            "    AND f.SalesDate >= :fromDate AND f.SalesDate < :toDate" +
+            ") s",
+            nativeQuery = true)
+    List<Object[]> getSalesSummaryForDealer(@Param("dealerId") Integer dealerId,
+                                            @Param("fromDate") LocalDate fromDate,
+                                            @Param("toDate") LocalDate toDate,
+                                            @Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate);
+
+    // ===== REVENUE REPORT =====
+
+    /**
+     * Doanh thu (totalAmount) theo từng ngày trong tháng cho dealer cụ thể
+     */
+    @Query(value = "SELECT DAY(f.SalesDate) as periodNumber, ISNULL(SUM(f.Revenue), 0) as revenue " +
+            "FROM DAILY_SALES_FACT f " +
+            "WHERE f.DealerId = :dealerId " +
+            "AND f.SalesDate >= :fromDate AND f.SalesDate < :toDate " +
+            "GROUP BY DAY(f.SalesDate) " +
+            "ORDER BY DAY(f.SalesDate)",
+            nativeQuery = true)
+    List<Object[]> getDailyRevenueForDealer(@Param("dealerId") Integer dealerId,
+                                            @Param("fromDate") LocalDate fromDate,
+                                            @Param("toDate") LocalDate toDate);
+
+    /**
+     * Doanh thu (totalAmount) theo từng tháng cho dealer cụ thể
+     */
+    @Query(value = "SELECT MONTH(f.SalesDate) as periodNumber, ISNULL(SUM(f.Revenue), 0) as revenue " +
+            "FROM DAILY_SALES_FACT f " +
+            "WHERE f.DealerId = :dealerId " +
+            "AND f.SalesDate >= :fromDate AND f.SalesDate < :toDate " +
+            "GROUP BY MONTH(f.SalesDate) " +
+            "ORDER BY MONTH(f.SalesDate)",
+            nativeQuery = true)
+    List<Object[]> getMonthlyRevenueForDealer(@Param("dealerId") Integer dealerId,
+                                              @Param("fromDate") LocalDate fromDate,
+                                              @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tổng doanh thu (totalAmount) trong khoảng ngày cho dealer cụ thể
+     */
+    @Query(value = "SELECT ISNULL(SUM(f.Revenue), 0) FROM DAILY_SALES_FACT f " +
+            "WHERE f.DealerId = :dealerId " +
+            "AND f.SalesDate >= :fromDate AND f.SalesDate < :toDate",
+            nativeQuery = true)
+    BigDecimal sumRevenueForDealer(@Param("dealerId") Integer dealerId,
+                                   @Param("fromDate") LocalDate fromDate,
+                                   @Param("toDate") LocalDate toDate);
+
+    // ===== REVENUE BY MODEL REPORT =====
+
+    /**
+     * Số xe và doanh thu (finalPrice - khuyến mãi phân bổ) theo model cho dealer cụ thể
+     */
+    @Query(value = "SELECT cm.ModelId, cm.ModelName, " +
+            "ISNULL(SUM(f.CarsSold), 0) as carsSold, " +
+            "ISNULL(SUM(f.NetRevenue), 0) as revenue " +
+            "FROM DAILY_SALES_FACT f " +
+            "INNER JOIN CAR_MODEL cm ON f.ModelId = cm.ModelID " +
+            "WHERE f.DealerId = :dealerId " +
+            "AND f.SalesDate >= :fromDate AND f.SalesDate < :toDate " +
+            "GROUP BY cm.ModelId, cm.ModelName " +
+            "ORDER BY revenue DESC",
+            nativeQuery = true)
+    List<Object[]> getRevenueByModelForDealer(@Param("dealerId") Integer dealerId,
+                                              @Param("fromDate") LocalDate fromDate,
+                                              @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tổng doanh thu (finalPrice - khuyến mãi phân bổ) trong khoảng ngày cho dealer cụ thể
+     */
+    @Query(value = "SELECT ISNULL(SUM(f.NetRevenue), 0) FROM DAILY_SALES_FACT f " +
+            "WHERE f.DealerId = :dealerId " +
+            "AND f.SalesDate >= :fromDate AND f.SalesDate < :toDate",
+            nativeQuery = true)
+    BigDecimal sumNetRevenueForDealer(@Param("dealerId") Integer dealerId,
+                                      @Param("fromDate") LocalDate fromDate,
+                                      @Param("toDate") LocalDate toDate);
+
+    // ===== REVENUE BY STAFF REPORT =====
+
+    /**
+     * Số xe và doanh thu (totalAmount) theo DealerStaff cho dealer cụ thể
+     */
+    @Query(value = "SELECT ua.UserId, ua.FullName, " +
+            "ISNULL(SUM(f.CarsSold), 0) as carsSold, " +
+            "ISNULL(SUM(f.Revenue), 0) as revenue " +
+            "FROM DAILY_SALES_FACT f " +
+            "INNER JOIN USER_ACCOUNT ua ON f.UserId = ua.UserId " +
+            "INNER JOIN ROLE r ON ua.RoleID = r.RoleID " +
+            "WHERE r.RoleName IN ('DealerStaff') " +
+            "AND f.DealerId = :dealerId " +
+            "AND f.SalesDate >= :fromDate AND f.SalesDate < :toDate " +
+            "GROUP BY ua.UserId, ua.FullName " +
+            "ORDER BY revenue DESC",
+            nativeQuery = true)
+    List<Object[]> getRevenueByStaffForDealer(@Param("dealerId") Integer dealerId,
+                                              @Param("fromDate") LocalDate fromDate,
+                                              @Param("toDate") LocalDate toDate);
+}
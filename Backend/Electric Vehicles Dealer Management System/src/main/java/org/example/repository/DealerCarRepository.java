@@ -11,7 +11,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DealerCarRepository extends JpaRepository<DealerCar, DealerCarId> {
+public interface DealerCarRepository extends JpaRepository<DealerCar, DealerCarId>, DealerCarRepositoryCustom {
 
     @Query("SELECT dc FROM DealerCar dc " +
            "JOIN FETCH dc.car c " +
@@ -52,25 +52,34 @@ public interface DealerCarRepository extends JpaRepository<DealerCar, DealerCarI
            "WHERE d.dealerName = :dealerName AND dc.status = 'On Sale'")
     List<DealerCar> findOnSaleDealerCarsByDealerName(@Param("dealerName") String dealerName);
 
+    @Query("SELECT dc.quantity FROM DealerCar dc WHERE dc.dealerId = :dealerId AND dc.carId = :carId")
+    Optional<Integer> findQuantityByDealerIdAndCarId(@Param("dealerId") Integer dealerId, @Param("carId") Integer carId);
+
+    /**
+     * Trừ tồn kho nguyên tử: chỉ cập nhật khi còn đủ số lượng
+     * Trả về 1 nếu trừ thành công, 0 nếu không đủ hàng hoặc không có record
+     */
+    @Query("UPDATE DealerCar dc SET dc.quantity = dc.quantity - :quantity " +
+           "WHERE dc.dealerId = :dealerId AND dc.carId = :carId AND dc.quantity >= :quantity")
+    @org.springframework.data.jpa.repository.Modifying
+    int decreaseQuantityIfAvailable(@Param("dealerId") Integer dealerId,
+                                    @Param("carId") Integer carId,
+                                    @Param("quantity") Integer quantity);
+
+    /**
+     * Cộng tồn kho nguyên tử (hoàn trả xe hoặc nhập thêm xe)
+     * Trả về 1 nếu cập nhật thành công, 0 nếu không có record
+     */
+    @Query("UPDATE DealerCar dc SET dc.quantity = dc.quantity + :quantity " +
+           "WHERE dc.dealerId = :dealerId AND dc.carId = :carId")
+    @org.springframework.data.jpa.repository.Modifying
+    int increaseQuantity(@Param("dealerId") Integer dealerId,
+                         @Param("carId") Integer carId,
+                         @Param("quantity") Integer quantity);
+
     @Query("DELETE FROM DealerCar dc WHERE dc.carId = :carId")
     @org.springframework.data.jpa.repository.Modifying
     @org.springframework.transaction.annotation.Transactional
     void deleteByCarId(@Param("carId") Integer carId);
 
-    @Query("SELECT dc FROM DealerCar dc " +
-           "JOIN FETCH dc.car c " +
-           "JOIN FETCH c.carVariant cv " +
-           "JOIN FETCH cv.carModel cm " +
-           "LEFT JOIN FETCH c.color col " +
-           "WHERE dc.dealerId = :dealerId " +
-           "AND LOWER(cm.modelName) = LOWER(:modelName) " +
-           "AND LOWER(cv.variantName) = LOWER(:variantName) " +
-           "AND LOWER(col.colorName) = LOWER(:colorName)")
-    Optional<DealerCar> findByModelVariantColorAndDealer(
-        @Param("dealerId") Integer dealerId,
-        @Param("modelName") String modelName,
-        @Param("variantName") String variantName,
-        @Param("colorName") String colorName
-    );
-
 }
@@ -0,0 +1,18 @@
+package org.example.repository;
+
+import java.util.Map;
+
+public interface DealerCarRepositoryCustom {
+
+    /**
+     * Trừ tồn kho nhiều xe của một dealer trong một câu UPDATE duy nhất
+     * Chỉ trừ những dòng còn đủ số lượng; trả về số dòng DEALER_CAR đã được cập nhật
+     */
+    int decrementQuantities(Integer dealerId, Map<Integer, Integer> quantityByCarId);
+
+    /**
+     * Đọc lại DealerCar nếu entity đã được tải trong transaction hiện tại, sau các câu UPDATE số lượng chạy thẳng
+     * trên database (không qua entity); không tải thêm dòng nào nếu entity chưa có trong persistence context
+     */
+    void refreshIfLoaded(Integer dealerId, Integer carId);
+}
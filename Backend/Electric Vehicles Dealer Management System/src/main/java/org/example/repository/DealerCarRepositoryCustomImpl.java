@@ -0,0 +1,67 @@
+package org.example.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.entity.DealerCar;
+import org.example.entity.DealerCarId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DealerCarRepositoryCustomImpl implements DealerCarRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int decrementQuantities(Integer dealerId, Map<Integer, Integer> quantityByCarId) {
+        if (quantityByCarId.isEmpty()) {
+            return 0;
+        }
+
+        // Số lượng cần trừ của từng xe: CASE CarID WHEN ? THEN ? ... END (SQL chuẩn, chạy được cả trên H2 khi test)
+        StringBuilder requested = new StringBuilder("CASE CarID");
+        StringBuilder carIds = new StringBuilder();
+        List<Object> caseParams = new ArrayList<>();
+        List<Object> idParams = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : quantityByCarId.entrySet()) {
+            requested.append(" WHEN ? THEN ?");
+            caseParams.add(entry.getKey());
+            caseParams.add(entry.getValue());
+            if (carIds.length() > 0) {
+                carIds.append(", ");
+            }
+            carIds.append("?");
+            idParams.add(entry.getKey());
+        }
+        requested.append(" END");
+
+        String sql = "UPDATE DEALER_CAR SET Quantity = Quantity - " + requested + " " +
+                "WHERE DealerID = ? " +
+                "AND CarID IN (" + carIds + ") " +
+                "AND Quantity >= " + requested;
+
+        List<Object> params = new ArrayList<>(caseParams);
+        params.add(dealerId);
+        params.addAll(idParams);
+        params.addAll(caseParams);
+        return jdbcTemplate.update(sql, params.toArray());
+    }
+
+    @Override
+    public void refreshIfLoaded(Integer dealerId, Integer carId) {
+        // Không dùng clearAutomatically: xóa cả persistence context sẽ làm các entity khác của bên gọi
+        // (order, order detail, lazy association) thành detached giữa chừng
+        // getReference trả về instance đang được quản lý nếu đã tải, ngược lại chỉ là proxy chưa khởi tạo (không chạy SELECT)
+        DealerCar reference = entityManager.getReference(DealerCar.class, new DealerCarId(carId, dealerId));
+        if (entityManager.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(reference)) {
+            entityManager.refresh(reference);
+        }
+    }
+}
@@ -10,7 +10,7 @@ import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
-public interface OrderDetailsRepository extends JpaRepository<OrderDetails, Integer> {
+public interface OrderDetailsRepository extends JpaRepository<OrderDetails, Integer>, OrderDetailsRepositoryCustom {
 
     @Query("SELECT od FROM OrderDetails od " +
            "JOIN FETCH od.car c " +
@@ -20,6 +20,18 @@ public interface OrderDetailsRepository extends JpaRepository<OrderDetails, Inte
            "WHERE od.order.orderId = :orderId")
     List<OrderDetails> findByOrderId(@Param("orderId") Integer orderId);
 
+    /**
+     * Lấy order details (kèm car, variant, model, color) của nhiều orders trong một query
+     */
+    @Query("SELECT od FROM OrderDetails od " +
+           "JOIN FETCH od.car c " +
+           "JOIN FETCH c.carVariant cv " +
+           "JOIN FETCH cv.carModel cm " +
+           "LEFT JOIN FETCH c.color " +
+           "WHERE od.order.orderId IN :orderIds " +
+           "ORDER BY od.orderDetailId")
+    List<OrderDetails> findByOrderIds(@Param("orderIds") List<Integer> orderIds);
+
     @Query("SELECT COALESCE(SUM(" +
            "CASE WHEN od.finalPrice IS NOT NULL THEN od.finalPrice " +
            "ELSE (od.unitPrice * od.quantity) END), 0) " +
@@ -0,0 +1,14 @@
+package org.example.repository;
+
+import org.example.entity.OrderDetails;
+
+import java.util.List;
+
+public interface OrderDetailsRepositoryCustom {
+
+    /**
+     * Insert nhiều order details của một order bằng một JDBC batch
+     * FinalPrice là cột tính toán trong database nên không cần insert
+     */
+    void insertOrderDetailsBatch(Integer orderId, List<OrderDetails> orderDetails);
+}
@@ -0,0 +1,30 @@
+package org.example.repository;
+
+import org.example.entity.OrderDetails;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class OrderDetailsRepositoryCustomImpl implements OrderDetailsRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertOrderDetailsBatch(Integer orderId, List<OrderDetails> orderDetails) {
+        if (orderDetails.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO ORDER_DETAILS (OrderId, CarId, Quantity, UnitPrice) VALUES (?, ?, ?, ?)";
+
+        jdbcTemplate.batchUpdate(sql, orderDetails, orderDetails.size(), (ps, detail) -> {
+            ps.setInt(1, orderId);
+            ps.setInt(2, detail.getCar().getCarId());
+            ps.setInt(3, detail.getQuantity());
+            ps.setBigDecimal(4, BigDecimal.valueOf(detail.getUnitPrice()));
+        });
+    }
+}
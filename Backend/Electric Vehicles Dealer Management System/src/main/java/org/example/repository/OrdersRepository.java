@@ -1,22 +1,30 @@
 package org.example.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.entity.Orders;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrdersRepository extends JpaRepository<Orders, Integer> {
 
     /**
-     * Lấy tất cả orders của một dealer cụ thể
+     * Lấy tất cả orders của một dealer cụ thể (kèm customer, dealer, người tạo, promotion)
      */
     @Query("SELECT o FROM Orders o " +
+           "JOIN FETCH o.customer " +
+           "JOIN FETCH o.dealer " +
+           "LEFT JOIN FETCH o.userAccount " +
+           "LEFT JOIN FETCH o.promotion " +
            "WHERE o.dealer.dealerId = :dealerId " +
            "ORDER BY o.orderDate DESC")
     List<Orders> findAllByDealerId(@Param("dealerId") Integer dealerId);
@@ -25,6 +33,10 @@ public interface OrdersRepository extends JpaRepository<Orders, Integer> {
      * Lấy tất cả orders của một dealer được tạo bởi user cụ thể
      */
     @Query("SELECT o FROM Orders o " +
+           "JOIN FETCH o.customer " +
+           "JOIN FETCH o.dealer " +
+           "LEFT JOIN FETCH o.userAccount " +
+           "LEFT JOIN FETCH o.promotion " +
            "WHERE o.dealer.dealerId = :dealerId " +
            "AND o.userAccount.userId = :userId " +
            "ORDER BY o.orderDate DESC")
@@ -34,6 +46,10 @@ public interface OrdersRepository extends JpaRepository<Orders, Integer> {
      * Lấy tất cả orders của một dealer được tạo bởi user có tên chứa keyword
      */
     @Query("SELECT o FROM Orders o " +
+           "JOIN FETCH o.customer " +
+           "JOIN FETCH o.dealer " +
+           "LEFT JOIN FETCH o.userAccount " +
+           "LEFT JOIN FETCH o.promotion " +
            "WHERE o.dealer.dealerId = :dealerId " +
            "AND LOWER(o.userAccount.username) LIKE LOWER(CONCAT('%', :creatorName, '%')) " +
            "ORDER BY o.orderDate DESC")
@@ -50,422 +66,161 @@ public interface OrdersRepository extends JpaRepository<Orders, Integer> {
            "WHERE o.orderId = :orderId")
     Orders findOrderWithDetails(@Param("orderId") Integer orderId);
 
-    // ===== SALES REPORT QUERIES =====
-
-    /**
-     * Đếm tổng đơn hàng đã thanh toán theo completedDate cho dealer cụ thể
-     */
-    @Query(value = "SELECT COUNT(*) FROM ORDERS " +
-            "WHERE Status = N'Đã thanh toán' " +
-            "AND CompletionDate BETWEEN :startDate AND :endDate " +
-            "AND DealerId = :dealerId",
-            nativeQuery = true)
-    Long countCompletedOrdersByCompletedDateRangeAndDealer(@Param("startDate") LocalDateTime startDate,
-                                                          @Param("endDate") LocalDateTime endDate,
-                                                          @Param("dealerId") Integer dealerId);
-
-    /**
-     * Đếm tổng đơn hàng chưa hoàn thành theo orderDate cho dealer cụ thể
-     */
-    @Query(value = "SELECT COUNT(*) FROM ORDERS " +
-            "WHERE Status != N'Đã thanh toán' " +
-            "AND OrderDate BETWEEN :startDate AND :endDate " +
-            "AND DealerId = :dealerId",
-            nativeQuery = true)
-    Long countPendingOrdersByOrderDateRangeAndDealer(@Param("startDate") LocalDateTime startDate,
-                                                    @Param("endDate") LocalDateTime endDate,
-                                                    @Param("dealerId") Integer dealerId);
-
-    /**
-     * Đếm tổng xe bán được từ đơn hàng đã thanh toán cho dealer cụ thể
-     */
-    @Query(value = "SELECT ISNULL(SUM(od.Quantity), 0) FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND o.CompletionDate BETWEEN :startDate AND :endDate " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    Long countTotalCarsSoldByCompletedDateRangeAndDealer(@Param("startDate") LocalDateTime startDate,
-                                                        @Param("endDate") LocalDateTime endDate,
-                                                        @Param("dealerId") Integer dealerId);
+    // ===== PAGED ORDER LISTING QUERIES =====
 
     /**
-     * Tính tổng doanh thu từ đơn hàng đã thanh toán (từ totalAmount) cho dealer cụ thể
+     * Lấy header orders của dealer (kèm customer, dealer, người tạo, promotion) theo keyset pagination, mới nhất trước
+     * Các tham số lọc null sẽ bị bỏ qua; cursorId null nghĩa là trang đầu tiên
+     * Orders không có orderDate đứng sau cùng; cursorHasDate = false nghĩa là cursor nằm trong nhóm đó
      */
-    @Query(value = "SELECT ISNULL(SUM(o.TotalAmount), 0) FROM ORDERS o " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND o.CompletionDate BETWEEN :startDate AND :endDate " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal sumTotalRevenueByCompletedDateRangeAndDealer(@Param("startDate") LocalDateTime startDate,
-                                                           @Param("endDate") LocalDateTime endDate,
-                                                           @Param("dealerId") Integer dealerId);
-
-    /**
-     * Tính tổng lợi nhuận (unitPrice - manufacturerPrice) × quantity - discountAmount theo tỷ lệ từ đơn hàng đã thanh toán cho dealer cụ thể
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "SELECT o.OrderId, o.DiscountAmount, SUM(od2.Quantity) as TotalQuantity " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND o.CompletionDate BETWEEN :startDate AND :endDate " +
-            "AND o.DealerId = :dealerId " +
-            "GROUP BY o.OrderId, o.DiscountAmount" +
-            ") " +
-            "SELECT ISNULL(SUM(" +
-            "(od.UnitPrice - c.Price) * od.Quantity - " +
-            "(ot.DiscountAmount * od.Quantity / ot.TotalQuantity)" +
-            "), 0) " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN CAR c ON od.CarId = c.CarID " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND o.CompletionDate BETWEEN :startDate AND :endDate " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal sumTotalProfitByCompletedDateRangeAndDealer(@Param("startDate") LocalDateTime startDate,
-                                                          @Param("endDate") LocalDateTime endDate,
-                                                          @Param("dealerId") Integer dealerId);
-
-    // ===== DEALER-SPECIFIC REVENUE REPORT QUERIES =====
-
-    /**
-     * Lấy doanh thu theo từng ngày trong tháng cho dealer cụ thể
-     */
-    @Query(value = "SELECT DAY(o.CompletionDate) as periodNumber, " +
-            "ISNULL(SUM(o.TotalAmount), 0) as revenue " +
-            "FROM ORDERS o " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) = :month " +
-            "AND o.DealerId = :dealerId " +
-            "GROUP BY DAY(o.CompletionDate) " +
-            "ORDER BY DAY(o.CompletionDate)",
-            nativeQuery = true)
-    List<Object[]> getDailyRevenueByMonthForDealer(@Param("year") Integer year, @Param("month") Integer month, @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy doanh thu theo từng tháng trong quý cho dealer cụ thể
-     */
-    @Query(value = "SELECT MONTH(o.CompletionDate) as periodNumber, " +
-            "ISNULL(SUM(o.TotalAmount), 0) as revenue " +
-            "FROM ORDERS o " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "AND o.DealerId = :dealerId " +
-            "GROUP BY MONTH(o.CompletionDate) " +
-            "ORDER BY MONTH(o.CompletionDate)",
-            nativeQuery = true)
-    List<Object[]> getMonthlyRevenueByQuarterForDealer(@Param("year") Integer year,
-                                             @Param("startMonth") Integer startMonth,
-                                             @Param("endMonth") Integer endMonth,
-                                             @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy doanh thu theo từng tháng trong năm cho dealer cụ thể
-     */
-    @Query(value = "SELECT MONTH(o.CompletionDate) as periodNumber, " +
-            "ISNULL(SUM(o.TotalAmount), 0) as revenue " +
-            "FROM ORDERS o " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND o.DealerId = :dealerId " +
-            "GROUP BY MONTH(o.CompletionDate) " +
-            "ORDER BY MONTH(o.CompletionDate)",
-            nativeQuery = true)
-    List<Object[]> getMonthlyRevenueByYearForDealer(@Param("year") Integer year, @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy tổng doanh thu của tháng cho dealer cụ thể
-     */
-    @Query(value = "SELECT ISNULL(SUM(o.TotalAmount), 0) " +
-            "FROM ORDERS o " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) = :month " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueByMonthForDealer(@Param("year") Integer year, @Param("month") Integer month, @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy tổng doanh thu của quý cho dealer cụ thể
-     */
-    @Query(value = "SELECT ISNULL(SUM(o.TotalAmount), 0) " +
-            "FROM ORDERS o " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueByQuarterForDealer(@Param("year") Integer year,
-                                       @Param("startMonth") Integer startMonth,
-                                       @Param("endMonth") Integer endMonth,
-                                       @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy tổng doanh thu của năm cho dealer cụ thể
-     */
-    @Query(value = "SELECT ISNULL(SUM(o.TotalAmount), 0) " +
-            "FROM ORDERS o " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueByYearForDealer(@Param("year") Integer year, @Param("dealerId") Integer dealerId);
-
-    // ===== DEALER-SPECIFIC REVENUE BY MODEL QUERIES =====
-
-    /**
-     * Lấy doanh thu theo model name trong tháng cụ thể cho dealer cụ thể (từ finalPrice - khuyến mãi phân bổ)
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND MONTH(o.CompletionDate) = :month " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT cm.ModelId, cm.ModelName, " +
-            "ISNULL(SUM(od.Quantity), 0) as carsSold, " +
-            "ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) as revenue " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN CAR c ON od.CarId = c.CarID " +
-            "INNER JOIN CAR_VARIANT cv ON c.VariantID = cv.VariantID " +
-            "INNER JOIN CAR_MODEL cm ON cv.ModelID = cm.ModelID " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) = :month " +
-            "AND o.DealerId = :dealerId " +
-            "GROUP BY cm.ModelId, cm.ModelName " +
-            "ORDER BY revenue DESC",
-            nativeQuery = true)
-    List<Object[]> getRevenueByModelByMonthForDealer(@Param("year") Integer year, @Param("month") Integer month, @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy doanh thu theo model name trong quý cụ thể cho dealer cụ thể (từ finalPrice - khuyến mãi phân bổ)
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT cm.ModelId, cm.ModelName, " +
-            "ISNULL(SUM(od.Quantity), 0) as carsSold, " +
-            "ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) as revenue " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN CAR c ON od.CarId = c.CarID " +
-            "INNER JOIN CAR_VARIANT cv ON c.VariantID = cv.VariantID " +
-            "INNER JOIN CAR_MODEL cm ON cv.ModelID = cm.ModelID " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "AND o.DealerId = :dealerId " +
-            "GROUP BY cm.ModelId, cm.ModelName " +
-            "ORDER BY revenue DESC",
-            nativeQuery = true)
-    List<Object[]> getRevenueByModelByQuarterForDealer(@Param("year") Integer year,
-                                             @Param("startMonth") Integer startMonth,
-                                             @Param("endMonth") Integer endMonth,
-                                             @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy doanh thu theo model name trong năm cụ thể cho dealer cụ thể (từ finalPrice - khuyến mãi phân bổ)
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT cm.ModelId, cm.ModelName, " +
-            "ISNULL(SUM(od.Quantity), 0) as carsSold, " +
-            "ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) as revenue " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN CAR c ON od.CarId = c.CarID " +
-            "INNER JOIN CAR_VARIANT cv ON c.VariantID = cv.VariantID " +
-            "INNER JOIN CAR_MODEL cm ON cv.ModelID = cm.ModelID " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND o.DealerId = :dealerId " +
-            "GROUP BY cm.ModelId, cm.ModelName " +
-            "ORDER BY revenue DESC",
-            nativeQuery = true)
-    List<Object[]> getRevenueByModelByYearForDealer(@Param("year") Integer year, @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy tổng doanh thu từ finalPrice - khuyến mãi phân bổ trong tháng cho dealer cụ thể
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND MONTH(o.CompletionDate) = :month " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) = :month " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueFromFinalPriceByMonthForDealer(@Param("year") Integer year, @Param("month") Integer month, @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy tổng doanh thu từ finalPrice - khuyến mãi phân bổ trong quý cho dealer cụ thể
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueFromFinalPriceByQuarterForDealer(@Param("year") Integer year,
-                                                     @Param("startMonth") Integer startMonth,
-                                                     @Param("endMonth") Integer endMonth,
-                                                     @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy tổng doanh thu từ finalPrice - khuyến mãi phân bổ trong năm cho dealer cụ thể
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueFromFinalPriceByYearForDealer(@Param("year") Integer year, @Param("dealerId") Integer dealerId);
-
-    // ===== DEALER-SPECIFIC REVENUE BY STAFF QUERIES =====
-
-    /**
-     * Lấy doanh thu theo staff trong tháng cụ thể cho dealer cụ thể (từ totalAmount)
+    @Query("SELECT o FROM Orders o " +
+           "JOIN FETCH o.customer " +
+           "JOIN FETCH o.dealer " +
+           "LEFT JOIN FETCH o.userAccount ua " +
+           "LEFT JOIN FETCH o.promotion " +
+           "WHERE o.dealer.dealerId = :dealerId " +
+           "AND (:userId IS NULL OR ua.userId = :userId) " +
+           "AND (:status IS NULL OR o.status = :status) " +
+           "AND (:creatorName IS NULL OR LOWER(ua.username) LIKE LOWER(CONCAT('%', :creatorName, '%'))) " +
+           "AND (:fromDate IS NULL OR o.orderDate >= :fromDate) " +
+           "AND (:toDate IS NULL OR o.orderDate < :toDate) " +
+           "AND (:cursorId IS NULL " +
+           "     OR (:cursorHasDate = true AND (o.orderDate < :cursorDate " +
+           "         OR (o.orderDate = :cursorDate AND o.orderId < :cursorId) OR o.orderDate IS NULL)) " +
+           "     OR (:cursorHasDate = false AND o.orderDate IS NULL AND o.orderId < :cursorId)) " +
+           "ORDER BY o.orderDate DESC NULLS LAST, o.orderId DESC")
+    List<Orders> findOrderPageByDealerDesc(@Param("dealerId") Integer dealerId,
+                                           @Param("userId") Integer userId,
+                                           @Param("status") String status,
+                                           @Param("creatorName") String creatorName,
+                                           @Param("fromDate") LocalDateTime fromDate,
+                                           @Param("toDate") LocalDateTime toDate,
+                                           @Param("cursorHasDate") boolean cursorHasDate,
+                                           @Param("cursorDate") LocalDateTime cursorDate,
+                                           @Param("cursorId") Integer cursorId,
+                                           Pageable pageable);
+
+    /**
+     * Lấy header orders của dealer theo keyset pagination, cũ nhất trước
+     * Orders không có orderDate đứng đầu tiên; cursorHasDate = false nghĩa là cursor nằm trong nhóm đó
      */
-    @Query(value = "SELECT ua.UserId, ua.FullName, " +
-            "ISNULL(SUM(od.Quantity), 0) as carsSold, " +
-            "ISNULL(SUM(DISTINCT o.TotalAmount), 0) as revenue " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN USER_ACCOUNT ua ON o.UserId = ua.UserId " +
-            "INNER JOIN ROLE r ON ua.RoleID = r.RoleID " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND r.RoleName IN ('DealerStaff') " +
-            "AND o.DealerId = :dealerId " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) = :month " +
-            "GROUP BY ua.UserId, ua.FullName " +
-            "ORDER BY revenue DESC",
-            nativeQuery = true)
-    List<Object[]> getRevenueByStaffByMonthForDealer(@Param("year") Integer year, @Param("month") Integer month, @Param("dealerId") Integer dealerId);
+    @Query("SELECT o FROM Orders o " +
+           "JOIN FETCH o.customer " +
+           "JOIN FETCH o.dealer " +
+           "LEFT JOIN FETCH o.userAccount ua " +
+           "LEFT JOIN FETCH o.promotion " +
+           "WHERE o.dealer.dealerId = :dealerId " +
+           "AND (:userId IS NULL OR ua.userId = :userId) " +
+           "AND (:status IS NULL OR o.status = :status) " +
+           "AND (:creatorName IS NULL OR LOWER(ua.username) LIKE LOWER(CONCAT('%', :creatorName, '%'))) " +
+           "AND (:fromDate IS NULL OR o.orderDate >= :fromDate) " +
+           "AND (:toDate IS NULL OR o.orderDate < :toDate) " +
+           "AND (:cursorId IS NULL " +
+           "     OR (:cursorHasDate = true AND (o.orderDate > :cursorDate " +
+           "         OR (o.orderDate = :cursorDate AND o.orderId > :cursorId))) " +
+           "     OR (:cursorHasDate = false AND (o.orderDate IS NOT NULL OR o.orderId > :cursorId))) " +
+           "ORDER BY o.orderDate ASC NULLS FIRST, o.orderId ASC")
+    List<Orders> findOrderPageByDealerAsc(@Param("dealerId") Integer dealerId,
+                                          @Param("userId") Integer userId,
+                                          @Param("status") String status,
+                                          @Param("creatorName") String creatorName,
+                                          @Param("fromDate") LocalDateTime fromDate,
+                                          @Param("toDate") LocalDateTime toDate,
+                                          @Param("cursorHasDate") boolean cursorHasDate,
+                                          @Param("cursorDate") LocalDateTime cursorDate,
+                                          @Param("cursorId") Integer cursorId,
+                                          Pageable pageable);
+
+    // ===== EXPORT QUERIES =====
+
+    /**
+     * Lịch sử đơn hàng của dealer để xuất Excel, mỗi dòng là một chi tiết đơn (đơn chưa có chi tiết vẫn có một dòng)
+     * Kết quả được đọc dần từ cursor JDBC theo từng lô fetch size nên không nạp toàn bộ vào bộ nhớ
+     * Phải gọi trong transaction và đóng Stream sau khi đọc xong
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT o.OrderId, o.OrderDate, o.CompletionDate, o.Status, " +
+            "cu.FullName as customerName, cu.PhoneNumber, ua.FullName as createdBy, o.PaymentMethod, " +
+            "cm.ModelName, cv.VariantName, col.ColorName, od.Quantity, od.UnitPrice, od.FinalPrice, " +
+            "o.SubTotal, o.DiscountAmount, o.TotalAmount " +
+            "FROM ORDERS o " +
+            "INNER JOIN CUSTOMER cu ON o.CustomerId = cu.CustomerId " +
+            "INNER JOIN USER_ACCOUNT ua ON o.UserId = ua.UserID " +
+            "LEFT JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
+            "LEFT JOIN CAR c ON od.CarId = c.CarID " +
+            "LEFT JOIN CAR_VARIANT cv ON c.VariantId = cv.VariantId " +
+            "LEFT JOIN CAR_MODEL cm ON cv.ModelId = cm.ModelId " +
+            "LEFT JOIN COLOR col ON c.ColorID = col.ColorID " +
+            "WHERE o.DealerId = :dealerId " +
+            "AND (:userId IS NULL OR o.UserId = :userId) " +
+            "AND (:fromDate IS NULL OR o.OrderDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR o.OrderDate < :toDate) " +
+            "ORDER BY o.OrderDate DESC, o.OrderId DESC, od.OrderDetailId",
+            nativeQuery = true)
+    Stream<Object[]> streamOrderHistoryForExport(@Param("dealerId") Integer dealerId,
+                                                 @Param("userId") Integer userId,
+                                                 @Param("fromDate") LocalDateTime fromDate,
+                                                 @Param("toDate") LocalDateTime toDate);
+
+    /**
+     * Số dòng mà streamOrderHistoryForExport sẽ trả về với cùng bộ lọc
+     */
+    @Query(value = "SELECT COUNT(*) " +
+            "FROM ORDERS o " +
+            "INNER JOIN CUSTOMER cu ON o.CustomerId = cu.CustomerId " +
+            "INNER JOIN USER_ACCOUNT ua ON o.UserId = ua.UserID " +
+            "LEFT JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
+            "WHERE o.DealerId = :dealerId " +
+            "AND (:userId IS NULL OR o.UserId = :userId) " +
+            "AND (:fromDate IS NULL OR o.OrderDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR o.OrderDate < :toDate)",
+            nativeQuery = true)
+    long countOrderHistoryForExport(@Param("dealerId") Integer dealerId,
+                                    @Param("userId") Integer userId,
+                                    @Param("fromDate") LocalDateTime fromDate,
+                                    @Param("toDate") LocalDateTime toDate);
 
-    /**
-     * Lấy doanh thu theo staff trong quý cụ thể cho dealer cụ thể (từ totalAmount)
-     */
-    @Query(value = "SELECT ua.UserId, ua.FullName, " +
-            "ISNULL(SUM(od.Quantity), 0) as carsSold, " +
-            "ISNULL(SUM(DISTINCT o.TotalAmount), 0) as revenue " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN USER_ACCOUNT ua ON o.UserId = ua.UserId " +
-            "INNER JOIN ROLE r ON ua.RoleID = r.RoleID " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND r.RoleName IN ('DealerStaff') " +
-            "AND o.DealerId = :dealerId " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "GROUP BY ua.UserId, ua.FullName " +
-            "ORDER BY revenue DESC",
-            nativeQuery = true)
-    List<Object[]> getRevenueByStaffByQuarterForDealer(@Param("year") Integer year,
-                                             @Param("startMonth") Integer startMonth,
-                                             @Param("endMonth") Integer endMonth,
-                                             @Param("dealerId") Integer dealerId);
+    // ===== SALES REPORT QUERIES =====
 
     /**
-     * Lấy doanh thu theo staff trong năm cụ thể cho dealer cụ thể (từ totalAmount)
-     */
-    @Query(value = "SELECT ua.UserId, ua.FullName, " +
-            "ISNULL(SUM(od.Quantity), 0) as carsSold, " +
-            "ISNULL(SUM(DISTINCT o.TotalAmount), 0) as revenue " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN USER_ACCOUNT ua ON o.UserId = ua.UserId " +
-            "INNER JOIN ROLE r ON ua.RoleID = r.RoleID " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND r.RoleName IN ('DealerStaff') " +
-            "AND o.DealerId = :dealerId " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "GROUP BY ua.UserId, ua.FullName " +
-            "ORDER BY revenue DESC",
-            nativeQuery = true)
-    List<Object[]> getRevenueByStaffByYearForDealer(@Param("year") Integer year, @Param("dealerId") Integer dealerId);
+     * Báo cáo tổng quát cho dealer cụ thể trong một round trip:
+     * completedOrders, carsSold, revenue (totalAmount), profit, pendingOrders, carsDistributed
+     * Đơn đã thanh toán chỉ được quét một lần (gom theo OrderId rồi cộng lại)
+     * Mọi điều kiện ngày dùng khoảng nửa mở [startDate, endDate) để hai kỳ liền nhau không đếm trùng
+     */
+    @Query(value = "SELECT s.completedOrders, s.carsSold, s.revenue, s.profit, " +
+            "(SELECT COUNT(*) FROM ORDERS po " +
+            " WHERE po.DealerId = :dealerId " +
+            " AND po.Status != N'Đã thanh toán' " +
+            " AND po.OrderDate >= :startDate AND po.OrderDate < :endDate) as pendingOrders, " +
+            "(SELECT COALESCE(SUM(cdr.Quantity), 0) FROM CAR_DISTRIBUTION_REQUEST cdr " +
+            " WHERE cdr.DealerID = :dealerId " +
+            " AND cdr.Status = N'Đã giao' " +
+            " AND cdr.ActualDeliveryDate >= :startDate AND cdr.ActualDeliveryDate < :endDate) as carsDistributed " +
+            "FROM (" +
+            "    SELECT COUNT(*) as completedOrders, " +
+            "           ISNULL(SUM(paid.CarsSold), 0) as carsSold, " +
+            "           ISNULL(SUM(paid.TotalAmount), 0) as revenue, " +
+            "           ISNULL(SUM(paid.GrossProfit - paid.DiscountAmount), 0) as profit " +
+            "    FROM (" +
+            "        SELECT o.OrderId, " +
+            "               ISNULL(o.TotalAmount, 0) as TotalAmount, " +
+            "               ISNULL(o.DiscountAmount, 0) as DiscountAmount, " +
+            "               ISNULL(SUM(od.Quantity), 0) as CarsSold, " +
+            "               ISNULL(SUM((od.UnitPrice - c.Price) * od.Quantity), 0) as GrossProfit " +
+            "        FROM ORDERS o " +
+            "        LEFT JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
+            "        LEFT JOIN CAR c ON od.CarId = c.CarID " +
+            "        WHERE o.DealerId = :dealerId " +
+            "        AND o.Status = N'Đã thanh toán' " +
+            "        AND o.CompletionDate >= :startDate AND o.CompletionDate < :endDate " +
+            "        GROUP BY o.OrderId, o.TotalAmount, o.DiscountAmount" +
+            "    ) paid" +
+            ") s",
+            nativeQuery = true)
+    List<Object[]> getSalesSummaryForDealer(@Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate,
+                                            @Param("dealerId") Integer dealerId);
 
     // ===== REVENUE BY MODEL QUERIES =====
 
@@ -493,88 +248,4 @@ public interface OrdersRepository extends JpaRepository<Orders, Integer> {
             "ORDER BY ua.FullName",
             nativeQuery = true)
     List<Object[]> getAllStaffByDealer(@Param("dealerId") Integer dealerId);
-
-    // ===== TOTAL REVENUE FOR STAFF REPORT QUERIES =====
-
-    /**
-     * Lấy tổng doanh thu từ finalPrice trong tháng cho dealer cụ thể (để tính tổng cho staff report)
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND MONTH(o.CompletionDate) = :month " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) = :month " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueForStaffReportByMonthForDealer(@Param("year") Integer year, @Param("month") Integer month, @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy tổng doanh thu từ finalPrice trong quý cho dealer cụ thể (để tính tổng cho staff report)
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND MONTH(o.CompletionDate) BETWEEN :startMonth AND :endMonth " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueForStaffReportByQuarterForDealer(@Param("year") Integer year,
-                                                     @Param("startMonth") Integer startMonth,
-                                                     @Param("endMonth") Integer endMonth,
-                                                     @Param("dealerId") Integer dealerId);
-
-    /**
-     * Lấy tổng doanh thu từ finalPrice trong năm cho dealer cụ thể (để tính tổng cho staff report)
-     */
-    @Query(value = "WITH OrderTotals AS (" +
-            "    SELECT o.OrderId, " +
-            "           ISNULL(p.Value, 0) as PromotionValue, " +
-            "           SUM(od2.Quantity) as TotalQuantity " +
-            "    FROM ORDERS o " +
-            "    INNER JOIN ORDER_DETAILS od2 ON o.OrderId = od2.OrderId " +
-            "    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId " +
-            "    WHERE o.Status = N'Đã thanh toán' " +
-            "    AND YEAR(o.CompletionDate) = :year " +
-            "    AND o.DealerId = :dealerId " +
-            "    GROUP BY o.OrderId, p.Value" +
-            ") " +
-            "SELECT ISNULL(SUM(od.FinalPrice - (ot.PromotionValue * od.Quantity / ot.TotalQuantity)), 0) " +
-            "FROM ORDERS o " +
-            "INNER JOIN ORDER_DETAILS od ON o.OrderId = od.OrderId " +
-            "INNER JOIN OrderTotals ot ON o.OrderId = ot.OrderId " +
-            "WHERE o.Status = N'Đã thanh toán' " +
-            "AND YEAR(o.CompletionDate) = :year " +
-            "AND o.DealerId = :dealerId",
-            nativeQuery = true)
-    BigDecimal getTotalRevenueForStaffReportByYearForDealer(@Param("year") Integer year, @Param("dealerId") Integer dealerId);
 }
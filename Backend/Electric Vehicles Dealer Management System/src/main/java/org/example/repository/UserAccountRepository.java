@@ -21,6 +21,13 @@ public interface UserAccountRepository extends JpaRepository<UserAccount, Intege
     @Query("SELECT u FROM UserAccount u JOIN FETCH u.dealer WHERE u.email = :email")
     Optional<UserAccount> findByEmailWithDealer(@Param("email") String email);
 
+    // Method để resolve user đang đăng nhập (role và dealer nếu có) trong một query
+    @Query("SELECT u FROM UserAccount u " +
+           "LEFT JOIN FETCH u.roleId " +
+           "LEFT JOIN FETCH u.dealer " +
+           "WHERE u.email = :email")
+    Optional<UserAccount> findByEmailWithRoleAndDealer(@Param("email") String email);
+
     // Method cho admin để lấy tất cả user account với thông tin role và dealer
     @Query("SELECT u FROM UserAccount u " +
            "LEFT JOIN FETCH u.roleId " +
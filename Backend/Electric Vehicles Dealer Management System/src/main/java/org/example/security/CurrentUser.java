@@ -0,0 +1,40 @@
+package org.example.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.entity.UserAccount;
+
+import java.security.Principal;
+
+/**
+ * Thông tin user đang đăng nhập, được resolve một lần trong JwtAuthenticationFilter
+ * và đặt làm principal của Authentication. getName() trả về email nên
+ * authentication.getName() ở các controller vẫn hoạt động như cũ
+ */
+@Getter
+@AllArgsConstructor
+public class CurrentUser implements Principal {
+    private final Integer userId;
+    private final String email;
+    private final String username;
+    private final String roleName;
+    private final Integer dealerId;
+    private final String dealerName;
+    private final String status;
+
+    public static CurrentUser from(UserAccount user) {
+        return new CurrentUser(
+                user.getUserId(),
+                user.getEmail(),
+                user.getUsername(),
+                user.getRoleId() != null ? user.getRoleId().getRoleName() : null,
+                user.getDealer() != null ? user.getDealer().getDealerId() : null,
+                user.getDealer() != null ? user.getDealer().getDealerName() : null,
+                user.getStatus());
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
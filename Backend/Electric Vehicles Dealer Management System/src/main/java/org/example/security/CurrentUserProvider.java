@@ -0,0 +1,90 @@
+package org.example.security;
+
+import jakarta.annotation.PostConstruct;
+import org.example.repository.UserAccountRepository;
+import org.example.util.TtlLruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Resolve user đang đăng nhập (userId, role, dealer) mà không phải query USER_ACCOUNT ở mỗi service call
+ * Thứ tự tra cứu: principal trong SecurityContext -> cache có giới hạn kích thước và TTL -> database
+ * UserAccountServiceImpl phải gọi evict khi cập nhật hoặc xóa user
+ */
+@Component
+public class CurrentUserProvider {
+
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+
+    @Value("${app.security.current-user-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.security.current-user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private TtlLruCache<String, CurrentUser> cache;
+
+    @PostConstruct
+    void init() {
+        cache = new TtlLruCache<>(maxSize);
+    }
+
+    /**
+     * Lấy user hiện tại theo email, ném lỗi nếu không tồn tại
+     */
+    public CurrentUser getByEmail(String email) {
+        return findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+    }
+
+    /**
+     * Tìm user hiện tại theo email
+     */
+    public Optional<CurrentUser> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+
+        // Principal đã được resolve trong JwtAuthenticationFilter của request này
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CurrentUser principal
+                && email.equalsIgnoreCase(principal.getEmail())) {
+            return Optional.of(principal);
+        }
+
+        String key = email.toLowerCase();
+        long now = System.currentTimeMillis();
+        CurrentUser cached = cache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<CurrentUser> loaded = userAccountRepository.findByEmailWithRoleAndDealer(email)
+                .map(CurrentUser::from);
+        loaded.ifPresent(user -> cache.put(key, user, now + ttlSeconds * 1000));
+        return loaded;
+    }
+
+    /**
+     * Xóa user khỏi cache (gọi khi user bị cập nhật hoặc xóa)
+     */
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        cache.remove(email.toLowerCase());
+    }
+
+    /**
+     * Xóa toàn bộ cache
+     */
+    public void evictAll() {
+        cache.clear();
+    }
+}
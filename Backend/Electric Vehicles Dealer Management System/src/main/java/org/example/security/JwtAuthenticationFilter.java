@@ -1,5 +1,6 @@
 package org.example.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,13 +22,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private CurrentUserProvider currentUserProvider;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -37,14 +40,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            userEmail = jwtUtil.extractEmail(jwt);
+            // Verify token một lần, lấy email và role từ cùng một claims
+            Claims claims = jwtUtil.verifyToken(jwt);
+
+            if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                String userEmail = claims.getSubject();
+                if (userEmail != null) {
+                    String role = claims.get("role", String.class);
 
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                if (jwtUtil.isTokenValid(jwt)) {
-                    String role = jwtUtil.extractRole(jwt);
+                    // Resolve userId, role, dealer một lần cho cả request; services đọc lại từ principal
+                    Object principal = currentUserProvider.findByEmail(userEmail)
+                            .<Object>map(user -> user)
+                            .orElse(userEmail);
 
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userEmail,
+                            principal,
                             null,
                             Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
                     );
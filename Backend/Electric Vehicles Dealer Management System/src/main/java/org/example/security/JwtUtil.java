@@ -2,13 +2,20 @@ package org.example.security;
 import java.util.Date;
 
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.Claims;
 
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import org.example.util.TtlLruCache;
 import org.springframework.beans.factory.annotation.Value;
 
 
@@ -20,8 +27,24 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private int claimsCacheMaxSize;
+
+    // Key và parser chỉ phụ thuộc vào secret nên được tạo một lần khi khởi động
+    private Key signingKey;
+
+    private JwtParser parser;
+
+    // Claims đã verify đến khi token hết hạn, key là SHA-256 của token
+    private TtlLruCache<String, Claims> claimsCache;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        claimsCache = new TtlLruCache<>(claimsCacheMaxSize);
     }
 
     public String generateToken(String email, String role, String dealer) {
@@ -31,10 +54,43 @@ public class JwtUtil {
                 .claim("dealer", dealer)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verify chữ ký và hạn của token một lần, trả về claims hoặc null nếu token không hợp lệ
+     * Kết quả được cache đến khi token hết hạn nên các request sau với cùng token không phải verify lại
+     */
+    public Claims verifyToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String key = hashToken(token);
+        long now = System.currentTimeMillis();
+        Claims cached = claimsCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims;
+        try {
+            // parseClaimsJws đã kiểm tra chữ ký và exp
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (Exception e) {
+            return null;
+        }
+
+        Date expirationDate = claims.getExpiration();
+        if (expirationDate == null || !expirationDate.after(new Date(now))) {
+            return null;
+        }
+
+        claimsCache.put(key, claims, expirationDate.getTime());
+        return claims;
+    }
+
     public String extractEmail(String token) {
         return extractClaims(token).getSubject();
     }
@@ -48,23 +104,23 @@ public class JwtUtil {
     }
 
     public boolean isTokenValid(String token) {
-        try {
-            extractClaims(token);
-            return !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
-        }
+        return verifyToken(token) != null;
     }
 
     private Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = verifyToken(token);
+        if (claims == null) {
+            throw new RuntimeException("Invalid or expired JWT token");
+        }
+        return claims;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractClaims(token).getExpiration().before(new Date());
+    private String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
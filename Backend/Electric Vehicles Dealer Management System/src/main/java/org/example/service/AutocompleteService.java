@@ -0,0 +1,33 @@
+package org.example.service;
+
+import org.example.dto.AutocompleteSuggestion;
+
+import java.util.List;
+
+public interface AutocompleteService {
+
+    /**
+     * Gợi ý model có tên (hoặc một từ trong tên) bắt đầu bằng prefix
+     */
+    List<AutocompleteSuggestion> suggestModels(String prefix, Integer limit);
+
+    /**
+     * Gợi ý variant, có modelName thì chỉ gợi ý variant của model đó
+     */
+    List<AutocompleteSuggestion> suggestVariants(String modelName, String prefix, Integer limit);
+
+    /**
+     * Gợi ý màu, có modelName và variantName thì chỉ gợi ý màu của variant đó
+     */
+    List<AutocompleteSuggestion> suggestColors(String modelName, String variantName, String prefix, Integer limit);
+
+    /**
+     * Gợi ý dealer theo tên
+     */
+    List<AutocompleteSuggestion> suggestDealers(String prefix, Integer limit);
+
+    /**
+     * Gợi ý customer của dealer mà user đang đăng nhập thuộc về, theo tên hoặc số điện thoại
+     */
+    List<AutocompleteSuggestion> suggestCustomers(String userEmail, String prefix, Integer limit);
+}
@@ -0,0 +1,24 @@
+package org.example.service;
+
+import org.example.dto.ChangeFeedResponse;
+import org.example.entity.ChangeLog;
+
+public interface ChangeFeedService {
+
+    /**
+     * Ghi một thay đổi vào CHANGE_LOG trong transaction hiện tại
+     * dealerId null nghĩa là thay đổi danh mục dùng chung cho mọi dealer
+     */
+    void record(ChangeLog.Domain domain, Integer dealerId, Integer entityId, ChangeLog.Operation operation);
+
+    /**
+     * Các thay đổi sau token since mà user được xem, mỗi entity chỉ xuất hiện một lần với trạng thái mới nhất
+     * since null: chỉ trả về token hiện tại để client bắt đầu đồng bộ sau khi tải toàn bộ dữ liệu
+     */
+    ChangeFeedResponse getChanges(String userEmail, Long since, Integer limit);
+
+    /**
+     * Xóa nhật ký quá hạn lưu
+     */
+    void purgeExpiredChanges();
+}
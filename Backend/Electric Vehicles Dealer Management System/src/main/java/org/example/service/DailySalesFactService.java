@@ -0,0 +1,18 @@
+package org.example.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public interface DailySalesFactService {
+
+    /**
+     * Tính lại số liệu DAILY_SALES_FACT của một dealer trong một ngày
+     */
+    void refreshDay(Integer dealerId, LocalDate salesDate);
+
+    /**
+     * Cập nhật DAILY_SALES_FACT sau khi một đơn hàng thay đổi
+     * Tính lại ngày hoàn thành cũ (nếu đơn vừa rời trạng thái "Đã thanh toán") và ngày hoàn thành mới
+     */
+    void onOrderChanged(Integer dealerId, LocalDateTime previousCompletedDate, LocalDateTime completedDate);
+}
@@ -0,0 +1,13 @@
+package org.example.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface DealerEventService {
+
+    /**
+     * Mở kết nối Server-Sent Events nhận sự kiện đơn hàng, thanh toán, tồn kho và yêu cầu nhập xe
+     * User của dealer nhận sự kiện của dealer mình (DealerStaff chỉ nhận đơn / thanh toán của đơn do mình tạo)
+     * Admin / EVMStaff nhận sự kiện của dealerId nếu truyền vào, ngược lại của mọi dealer
+     */
+    SseEmitter subscribe(String userEmail, Integer dealerId);
+}
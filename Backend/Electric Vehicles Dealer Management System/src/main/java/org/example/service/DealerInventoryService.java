@@ -0,0 +1,28 @@
+package org.example.service;
+
+import java.util.Map;
+
+public interface DealerInventoryService {
+
+    /**
+     * Giữ (trừ) số lượng xe trong kho dealer bằng một câu UPDATE có điều kiện
+     * Ném lỗi "Insufficient inventory" nếu không còn đủ xe
+     */
+    void reserve(Integer dealerId, Integer carId, Integer quantity);
+
+    /**
+     * Giữ số lượng nhiều xe cùng lúc, tất cả thành công hoặc ném lỗi
+     */
+    void reserveAll(Integer dealerId, Map<Integer, Integer> quantityByCarId);
+
+    /**
+     * Hoàn trả số lượng xe về kho dealer
+     */
+    void release(Integer dealerId, Integer carId, Integer quantity);
+
+    /**
+     * Nhập thêm xe vào kho dealer nếu dealer đã có xe này
+     * Trả về false nếu dealer chưa có record DEALER_CAR cho xe
+     */
+    boolean addStock(Integer dealerId, Integer carId, Integer quantity);
+}
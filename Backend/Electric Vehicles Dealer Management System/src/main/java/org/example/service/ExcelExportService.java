@@ -0,0 +1,28 @@
+package org.example.service;
+
+import org.example.dto.RevenueByModelReportResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+public interface ExcelExportService {
+
+    /**
+     * Kiểm tra user hiện tại có được xuất lịch sử đơn hàng hay không và số dòng không vượt giới hạn
+     * Gọi trước khi bắt đầu ghi response để lỗi quyền/tham số vẫn trả về đúng status code
+     */
+    void checkOrderHistoryExport(String currentUserEmail, LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Ghi lịch sử đơn hàng của dealer (theo orderDate trong [fromDate, toDate]) ra file .xlsx
+     * DealerStaff chỉ xuất đơn do chính mình tạo; không ghi quá app.export.order-history.max-rows dòng
+     */
+    void exportOrderHistory(String currentUserEmail, LocalDate fromDate, LocalDate toDate,
+                            OutputStream outputStream) throws IOException;
+
+    /**
+     * Ghi báo cáo doanh thu theo model ra file .xlsx
+     */
+    void exportRevenueByModelReport(RevenueByModelReportResponse report, OutputStream outputStream) throws IOException;
+}
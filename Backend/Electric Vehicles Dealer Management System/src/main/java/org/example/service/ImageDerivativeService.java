@@ -0,0 +1,24 @@
+package org.example.service;
+
+import java.nio.file.Path;
+
+public interface ImageDerivativeService {
+
+    /**
+     * File ảnh nên trả cho yêu cầu ảnh gốc với chiều rộng requestedWidth
+     * Chiều rộng được làm tròn lên một trong các kích thước cấu hình sẵn; trả về ảnh thu nhỏ đã cache,
+     * hoặc chính ảnh gốc nếu ảnh gốc đã đủ nhỏ, không đọc được hay hệ thống đang bận tạo ảnh khác
+     */
+    Path resolve(Path original, int requestedWidth);
+
+    /**
+     * Chiều rộng cấu hình sẵn mà requestedWidth được làm tròn tới, 0 nếu không thu nhỏ (requestedWidth <= 0
+     * hoặc không cấu hình kích thước nào); các chiều rộng cho cùng kết quả thì dùng chung một file
+     */
+    int normalizeWidth(int requestedWidth);
+
+    /**
+     * Xóa mọi ảnh thu nhỏ của một ảnh gốc (khi ảnh gốc bị xóa)
+     */
+    void evict(String filename);
+}
@@ -0,0 +1,31 @@
+package org.example.service;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface ImageFileService {
+
+    /**
+     * Thông tin file cần trả cho ảnh filename (ảnh thu nhỏ nếu có width), lấy từ cache trong bộ nhớ
+     * nên request kiểm tra lại cache của trình duyệt (If-None-Match / If-Modified-Since) không chạm tới đĩa
+     * Optional.empty() nếu ảnh không tồn tại hoặc tên file trỏ ra ngoài thư mục ảnh
+     */
+    Optional<ImageFile> find(String filename, Integer width);
+
+    /**
+     * Bỏ thông tin đã cache khi file không còn trên đĩa (vd. ảnh thu nhỏ bị dọn theo LRU), lần find sau đọc lại
+     */
+    void refresh(String filename, Integer width);
+
+    /**
+     * Bỏ cache và xóa ảnh thu nhỏ của một ảnh gốc đã bị xóa
+     */
+    void evict(String filename);
+
+    /**
+     * File được trả: đường dẫn thật, dung lượng, thời điểm sửa ảnh gốc (Last-Modified), ETag và content type
+     * provisional = true khi yêu cầu ảnh thu nhỏ nhưng tạm trả ảnh gốc, response này không được cache lâu
+     */
+    record ImageFile(Path path, long size, long lastModified, String etag, String contentType, boolean provisional) {
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.service;
+
+import org.example.dto.ImageGcStatsResponse;
+
+public interface ImageGarbageCollectorService {
+
+    /**
+     * Chuyển các ảnh không còn xe nào dùng vào thư mục cách ly, xóa hẳn ảnh đã cách ly đủ lâu
+     * Chạy định kỳ trên thread riêng; bỏ qua nếu lần trước chưa xong
+     */
+    void collect();
+
+    /**
+     * Số liệu của lần dọn gần nhất và tổng từ khi khởi động
+     */
+    ImageGcStatsResponse getStats();
+}
@@ -0,0 +1,58 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Nơi lưu ảnh gốc, chọn bằng app.image.storage.type: local (mặc định, thư mục car.image.base-path)
+ * hoặc s3 (bucket S3 / MinIO, car.image.base-path làm cache đọc trên đĩa của từng instance)
+ * Tên ảnh (key) là tên file, không chứa thư mục
+ */
+public interface ImageStorage {
+
+    /**
+     * Lưu file tạm đã ghi xong dưới tên filename, file tạm được chuyển đi hoặc bỏ lại cho bên gọi xóa
+     * Trả về false nếu ảnh cùng tên đã có (tên theo hash nội dung nên nội dung giống hệt), khi đó không ghi gì thêm
+     */
+    boolean save(String filename, Path tempFile) throws IOException;
+
+    /**
+     * Bản trên đĩa local để đọc / trả cho client, tải về cache nếu chưa có
+     * Optional.empty() nếu ảnh không tồn tại hoặc tên không hợp lệ
+     */
+    Optional<Path> localCopy(String filename) throws IOException;
+
+    /**
+     * Xóa ảnh, false nếu ảnh không tồn tại
+     */
+    boolean delete(String filename) throws IOException;
+
+    /**
+     * URL để client tải thẳng từ kho lưu trữ (presigned), không đi qua app server
+     * Optional.empty() nếu kho lưu trữ không hỗ trợ (local)
+     */
+    Optional<String> directDownloadUrl(String filename);
+
+    /**
+     * Thư mục local chứa ảnh (local) hoặc cache đọc của ảnh (s3); file tạm khi upload nên nằm ở đây để đổi tên được
+     */
+    Path localDirectory();
+
+    static boolean isValidName(String filename) {
+        return filename != null && !filename.isEmpty() && !filename.startsWith(".")
+                && filename.indexOf('/') < 0 && filename.indexOf('\\') < 0 && filename.indexOf(':') < 0;
+    }
+
+    static String contentType(String filename) {
+        String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
+        return switch (extension) {
+            case "webp" -> "image/webp";
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "bmp" -> "image/bmp";
+            default -> "application/octet-stream";
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImageStoreService {
+
+    /**
+     * Lưu ảnh theo SHA-256 của nội dung (tên file <hash>.<đuôi>), băm trong lúc ghi xuống đĩa
+     * Nội dung đã có thì giữ nguyên file cũ và trả lại tên đó (duplicate = true)
+     */
+    StoredImage store(InputStream content, String extension) throws IOException;
+
+    /**
+     * Lưu ảnh từ một luồng bất kỳ (body của request), định dạng nhận diện từ magic bytes đầu nội dung
+     * (JPEG, PNG, GIF, BMP, WEBP) thay vì đuôi file; đọc, băm và ghi trong một lượt
+     * IllegalArgumentException nếu nội dung không phải ảnh hỗ trợ, ImageTooLargeException nếu dài quá maxBytes
+     * (file ghi dở bị xóa)
+     */
+    StoredImage storeStream(InputStream content, long maxBytes) throws IOException;
+
+    /**
+     * Số xe (CAR.ImagePath) đang dùng ảnh, ảnh còn được tham chiếu thì không được xóa
+     */
+    long countReferences(String filename);
+
+    record StoredImage(String filename, long size, String sha256, boolean duplicate) {
+    }
+
+    /**
+     * Nội dung dài quá giới hạn, phát hiện trong lúc đọc (body chunked không có Content-Length)
+     */
+    class ImageTooLargeException extends IllegalArgumentException {
+
+        public ImageTooLargeException(long maxBytes) {
+            super("Image exceeds the maximum size of " + maxBytes + " bytes");
+        }
+    }
+}
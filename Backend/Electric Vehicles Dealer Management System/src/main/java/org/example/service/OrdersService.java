@@ -2,6 +2,7 @@ package org.example.service;
 
 import org.example.dto.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface OrdersService {
@@ -19,6 +20,15 @@ public interface OrdersService {
      */
     List<DealerOrderResponse> getOrdersByCreatorName(String creatorName, String currentUserEmail);
 
+    /**
+     * Lấy orders của dealer theo trang (keyset pagination), có lọc theo status, người tạo, khoảng ngày đặt
+     * và sắp xếp theo orderDate (ASC/DESC). Kích thước trang tối đa 100
+     */
+    DealerOrderPageResponse getOrderPageByCurrentUserDealer(String status, String creatorName,
+                                                            LocalDate fromDate, LocalDate toDate,
+                                                            String direction, String cursor, Integer size,
+                                                            String currentUserEmail);
+
     /**
      * Tạo bản nháp order cho dealer manager/staff
      */
@@ -29,6 +39,12 @@ public interface OrdersService {
      */
     CreateOrderDetailResponse createOrderDetail(CreateOrderDetailRequest request, String currentUserEmail);
 
+    /**
+     * Thêm nhiều order details vào một order trong một lần gọi
+     * Trừ tồn kho cho tất cả các dòng cùng lúc, tất cả thành công hoặc không dòng nào được thêm
+     */
+    CreateOrderDetailsBatchResponse createOrderDetailsBatch(CreateOrderDetailsBatchRequest request, String currentUserEmail);
+
     /**
      * Cập nhật subTotal trong bảng Orders sau khi thêm order detail
      */
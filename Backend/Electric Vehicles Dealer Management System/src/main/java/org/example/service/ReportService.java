@@ -5,13 +5,14 @@ import org.example.dto.RevenueReportResponse;
 import org.example.dto.RevenueByModelReportResponse;
 import org.example.dto.RevenueByStaffReportResponse;
 import org.example.dto.CarImportCostReportResponse;
+import org.example.dto.ReportCacheStatsResponse;
 
 import java.time.LocalDateTime;
 
 public interface ReportService {
 
     /**
-     * Tạo báo cáo tổng quát trong khoảng thời gian cho dealer cụ thể
+     * Tạo báo cáo tổng quát trong khoảng thời gian nửa mở [startDate, endDate) cho dealer cụ thể
      */
     SalesReportResponse generateSalesReportForDealer(LocalDateTime startDate, LocalDateTime endDate, Integer dealerId);
 
@@ -74,4 +75,9 @@ public interface ReportService {
      * Tạo báo cáo chi phí nhập xe theo năm cho dealer cụ thể
      */
     CarImportCostReportResponse generateYearlyImportCostReportForDealer(Integer year, Integer dealerId);
+
+    /**
+     * Số liệu hit/miss của cache báo cáo
+     */
+    ReportCacheStatsResponse getReportCacheStats();
 }
@@ -0,0 +1,240 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.dto.AutocompleteSuggestion;
+import org.example.entity.Customer;
+import org.example.repository.CustomerRepository;
+import org.example.repository.DealerRepository;
+import org.example.service.implementation.CatalogSnapshot.CarEntry;
+import org.example.service.implementation.CatalogSnapshot.ModelEntry;
+import org.example.service.implementation.CatalogSnapshot.VariantEntry;
+import org.example.util.AfterCommit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Các PrefixIndex phục vụ gợi ý khi gõ (typeahead) cho model, variant, màu, dealer và customer của từng dealer
+ * - Model, variant, màu: build từ catalog snapshot, build lại khi snapshot đổi phiên bản
+ * - Dealer: nạp một lần (danh sách dealer không được sửa qua API)
+ * - Customer: nạp theo dealer ở lần gợi ý đầu tiên (customer đã có order tại dealer),
+ *   sau đó chèn / sửa từng customer khi có order mới hoặc thông tin customer thay đổi
+ */
+@Component
+@RequiredArgsConstructor
+public class AutocompleteIndex {
+
+    private final CatalogCache catalogCache;
+
+    private final DealerRepository dealerRepository;
+
+    private final CustomerRepository customerRepository;
+
+    private volatile CatalogIndexes catalogIndexes;
+
+    private volatile PrefixIndex dealers;
+
+    private final Map<Integer, PrefixIndex> customersByDealerId = new ConcurrentHashMap<>();
+
+    public List<AutocompleteSuggestion> suggestModels(String prefix, int limit) {
+        return catalogIndexes().models.top(prefix, limit);
+    }
+
+    /**
+     * Gợi ý variant, có modelName thì chỉ gợi ý variant của model đó
+     */
+    public List<AutocompleteSuggestion> suggestVariants(String modelName, String prefix, int limit) {
+        CatalogIndexes current = catalogIndexes();
+        if (modelName == null) {
+            return current.variants.top(prefix, limit);
+        }
+        return current.catalog.findModelByName(modelName)
+                .map(model -> current.variantsByModelId.getOrDefault(model.modelId(), PrefixIndex.empty()).top(prefix, limit))
+                .orElse(List.of());
+    }
+
+    /**
+     * Gợi ý màu, có modelName và variantName thì chỉ gợi ý màu đang có xe của variant đó
+     */
+    public List<AutocompleteSuggestion> suggestColors(String modelName, String variantName, String prefix, int limit) {
+        CatalogIndexes current = catalogIndexes();
+        if (modelName == null || variantName == null) {
+            return current.colors.top(prefix, limit);
+        }
+        return current.catalog.findVariantByNames(modelName, variantName)
+                .map(variant -> current.colorsByVariantId.getOrDefault(variant.variantId(), PrefixIndex.empty()).top(prefix, limit))
+                .orElse(List.of());
+    }
+
+    public List<AutocompleteSuggestion> suggestDealers(String prefix, int limit) {
+        PrefixIndex current = dealers;
+        if (current == null) {
+            synchronized (this) {
+                if (dealers == null) {
+                    dealers = PrefixIndex.of(dealerRepository.findAll().stream()
+                                    .map(dealer -> AutocompleteSuggestion.builder()
+                                            .id(dealer.getDealerId())
+                                            .name(dealer.getDealerName())
+                                            .build())
+                                    .toList(),
+                            AutocompleteIndex::nameKeys);
+                }
+                current = dealers;
+            }
+        }
+        return current.top(prefix, limit);
+    }
+
+    /**
+     * Gợi ý customer của dealer theo tên hoặc số điện thoại
+     */
+    public List<AutocompleteSuggestion> suggestCustomers(Integer dealerId, String prefix, int limit) {
+        return customersByDealerId.computeIfAbsent(dealerId, this::loadCustomers).top(prefix, limit);
+    }
+
+    /**
+     * Thêm customer vào gợi ý của dealer sau khi transaction tạo order commit
+     * Dealer chưa nạp gợi ý customer thì bỏ qua, lần gợi ý đầu tiên sẽ đọc từ DB
+     */
+    public void customerOrderedAfterCommit(Integer dealerId, Customer customer) {
+        AutocompleteSuggestion suggestion = toSuggestion(customer);
+        AfterCommit.run(() -> customersByDealerId.computeIfPresent(dealerId,
+                (id, customers) -> customers.with(suggestion, customerKeys(suggestion))));
+    }
+
+    /**
+     * Cập nhật tên / số điện thoại của customer trong gợi ý của mọi dealer đã nạp sau khi transaction commit
+     */
+    public void customerUpdatedAfterCommit(Customer customer) {
+        AutocompleteSuggestion suggestion = toSuggestion(customer);
+        AfterCommit.run(() -> customersByDealerId.replaceAll((dealerId, customers) ->
+                customers.contains(suggestion.getId()) ? customers.with(suggestion, customerKeys(suggestion)) : customers));
+    }
+
+    private CatalogIndexes catalogIndexes() {
+        CatalogSnapshot catalog = catalogCache.get();
+        CatalogIndexes current = catalogIndexes;
+        if (current != null && current.catalog.getVersion() == catalog.getVersion()) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (catalogIndexes == null || catalogIndexes.catalog.getVersion() != catalog.getVersion()) {
+                catalogIndexes = new CatalogIndexes(catalog);
+            }
+            return catalogIndexes;
+        }
+    }
+
+    private PrefixIndex loadCustomers(Integer dealerId) {
+        List<AutocompleteSuggestion> customers = customerRepository.findAutocompleteRowsByDealerId(dealerId).stream()
+                .map(row -> AutocompleteSuggestion.builder()
+                        .id((Integer) row[0])
+                        .name((String) row[1])
+                        .detail((String) row[2])
+                        .build())
+                .toList();
+        return PrefixIndex.of(customers, AutocompleteIndex::customerKeys);
+    }
+
+    private static AutocompleteSuggestion toSuggestion(Customer customer) {
+        return AutocompleteSuggestion.builder()
+                .id(customer.getCustomerId())
+                .name(customer.getFullName())
+                .detail(customer.getPhoneNumber())
+                .build();
+    }
+
+    private static List<String> nameKeys(AutocompleteSuggestion suggestion) {
+        return List.of(nullToEmpty(suggestion.getName()));
+    }
+
+    // Tìm customer theo tên hoặc số điện thoại
+    private static List<String> customerKeys(AutocompleteSuggestion suggestion) {
+        return List.of(nullToEmpty(suggestion.getName()), nullToEmpty(suggestion.getDetail()));
+    }
+
+    private static String nullToEmpty(String text) {
+        return text != null ? text : "";
+    }
+
+    /**
+     * Gợi ý danh mục build từ một catalog snapshot
+     */
+    private static final class CatalogIndexes {
+        final CatalogSnapshot catalog;
+        final PrefixIndex models;
+        final PrefixIndex variants;
+        final Map<Integer, PrefixIndex> variantsByModelId;
+        final PrefixIndex colors;
+        final Map<Integer, PrefixIndex> colorsByVariantId;
+
+        CatalogIndexes(CatalogSnapshot catalog) {
+            this.catalog = catalog;
+
+            List<AutocompleteSuggestion> models = new ArrayList<>();
+            for (String modelName : catalog.getModelNames()) {
+                catalog.findModelByName(modelName).ifPresent(model -> models.add(AutocompleteSuggestion.builder()
+                        .id(model.modelId())
+                        .name(model.modelName())
+                        .detail(model.segment())
+                        .build()));
+            }
+            this.models = PrefixIndex.of(models, AutocompleteIndex::nameKeys);
+
+            // Variant tìm được theo tên variant hoặc "model variant"
+            List<AutocompleteSuggestion> variants = new ArrayList<>();
+            Map<Integer, List<AutocompleteSuggestion>> variantsByModelId = new HashMap<>();
+            Map<Integer, List<AutocompleteSuggestion>> colorsByVariantId = new HashMap<>();
+            for (VariantEntry variant : catalog.getVariants()) {
+                ModelEntry model = catalog.findModel(variant.modelId()).orElseThrow();
+                AutocompleteSuggestion suggestion = AutocompleteSuggestion.builder()
+                        .id(variant.variantId())
+                        .name(variant.variantName())
+                        .detail(model.modelName())
+                        .build();
+                variants.add(suggestion);
+                variantsByModelId.computeIfAbsent(model.modelId(), id -> new ArrayList<>()).add(suggestion);
+
+                for (CarEntry car : catalog.getCarsByVariant(variant.variantId())) {
+                    catalog.findColor(car.colorId()).ifPresent(color -> colorsByVariantId
+                            .computeIfAbsent(variant.variantId(), id -> new ArrayList<>())
+                            .add(AutocompleteSuggestion.builder()
+                                    .id(color.colorId())
+                                    .name(color.colorName())
+                                    .build()));
+                }
+            }
+            this.variants = PrefixIndex.of(variants, CatalogIndexes::variantKeys);
+            this.variantsByModelId = indexAll(variantsByModelId, CatalogIndexes::variantKeys);
+
+            List<AutocompleteSuggestion> colors = new ArrayList<>();
+            for (String colorName : catalog.getColorNames()) {
+                catalog.findColorByName(colorName).ifPresent(color -> colors.add(AutocompleteSuggestion.builder()
+                        .id(color.colorId())
+                        .name(color.colorName())
+                        .build()));
+            }
+            this.colors = PrefixIndex.of(colors, AutocompleteIndex::nameKeys);
+            this.colorsByVariantId = indexAll(colorsByVariantId, AutocompleteIndex::nameKeys);
+        }
+
+        private static List<String> variantKeys(AutocompleteSuggestion suggestion) {
+            String variantName = nullToEmpty(suggestion.getName());
+            return List.of(variantName, suggestion.getDetail() + " " + variantName);
+        }
+
+        private static Map<Integer, PrefixIndex> indexAll(
+                Map<Integer, List<AutocompleteSuggestion>> suggestionsById,
+                Function<AutocompleteSuggestion, List<String>> keyTexts) {
+            Map<Integer, PrefixIndex> indexes = new HashMap<>();
+            suggestionsById.forEach((id, suggestions) -> indexes.put(id, PrefixIndex.of(suggestions, keyTexts)));
+            return Map.copyOf(indexes);
+        }
+    }
+}
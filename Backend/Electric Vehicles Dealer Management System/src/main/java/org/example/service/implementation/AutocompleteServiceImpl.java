@@ -0,0 +1,78 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.dto.AutocompleteSuggestion;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.AutocompleteService;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Gợi ý khi gõ cho các dropdown, đọc từ AutocompleteIndex trong bộ nhớ thay vì query DISTINCT / ORDER BY mỗi lần gõ
+ */
+@Service
+@RequiredArgsConstructor
+public class AutocompleteServiceImpl implements AutocompleteService {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private static final int MAX_LIMIT = 50;
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    private final CurrentUserProvider currentUserProvider;
+
+    @Override
+    public List<AutocompleteSuggestion> suggestModels(String prefix, Integer limit) {
+        return autocompleteIndex.suggestModels(prefix, resolveLimit(limit));
+    }
+
+    @Override
+    public List<AutocompleteSuggestion> suggestVariants(String modelName, String prefix, Integer limit) {
+        return autocompleteIndex.suggestVariants(blankToNull(modelName), prefix, resolveLimit(limit));
+    }
+
+    @Override
+    public List<AutocompleteSuggestion> suggestColors(String modelName, String variantName, String prefix, Integer limit) {
+        return autocompleteIndex.suggestColors(blankToNull(modelName), blankToNull(variantName), prefix, resolveLimit(limit));
+    }
+
+    @Override
+    public List<AutocompleteSuggestion> suggestDealers(String prefix, Integer limit) {
+        return autocompleteIndex.suggestDealers(prefix, resolveLimit(limit));
+    }
+
+    @Override
+    public List<AutocompleteSuggestion> suggestCustomers(String userEmail, String prefix, Integer limit) {
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
+
+        // Check if user has dealer access role
+        String role = user.getRoleName();
+        if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
+            throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can access customer information.");
+        }
+
+        // Check if user is assigned to a dealer
+        if (user.getDealerId() == null) {
+            throw new RuntimeException("User is not assigned to any dealer");
+        }
+
+        return autocompleteIndex.suggestCustomers(user.getDealerId(), prefix, resolveLimit(limit));
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new RuntimeException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    private String blankToNull(String text) {
+        return text == null || text.trim().isEmpty() ? null : text;
+    }
+}
@@ -3,9 +3,11 @@ package org.example.service.implementation;
 import org.example.entity.Car;
 import org.example.entity.CarModel;
 import org.example.entity.CarVariant;
+import org.example.entity.ChangeLog;
 import org.example.entity.Color;
 import org.example.repository.*;
 import org.example.service.CarDeletionService;
+import org.example.service.ChangeFeedService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,6 +36,18 @@ public class CarDeletionServiceImpl implements CarDeletionService {
     @Autowired
     private DealerCarRepository dealerCarRepository;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private DealerVariantIndex dealerVariantIndex;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
     /**
      * Xóa xe theo model name, variant name, color name
      * Nếu xóa hết xe của variant đó thì tự xóa variant và configuration của variant đó
@@ -50,6 +64,11 @@ public class CarDeletionServiceImpl implements CarDeletionService {
         CarModel model = carModelRepository.findByModelNameIgnoreCase(modelName.trim())
                 .orElseThrow(() -> new RuntimeException("Model not found with name: " + modelName));
 
+        // Mọi nhánh bên dưới đều xóa dữ liệu danh mục, snapshot chỉ được build lại nếu transaction commit
+        catalogCache.refreshAfterCommit();
+        dealerVariantIndex.invalidateAfterCommit();
+        dataVersions.allInventoriesChangedAfterCommit();
+
         if (variantName != null && !variantName.trim().isEmpty()) {
             // Tìm variant theo model ID và variant name
             Optional<CarVariant> variantOpt = carVariantRepository.findByVariantNameIgnoreCaseAndModelId(
@@ -98,6 +117,7 @@ public class CarDeletionServiceImpl implements CarDeletionService {
         // Xóa tất cả dealer_car records trước
         for (Car car : carsToDelete) {
             dealerCarRepository.deleteByCarId(car.getCarId());
+            changeFeedService.record(ChangeLog.Domain.CAR, null, car.getCarId(), ChangeLog.Operation.DELETE);
         }
 
         // Xóa tất cả xe
@@ -113,12 +133,14 @@ public class CarDeletionServiceImpl implements CarDeletionService {
 
             // Xóa variant
             carVariantRepository.deleteById(variant.getVariantId());
+            changeFeedService.record(ChangeLog.Domain.VARIANT, null, variant.getVariantId(), ChangeLog.Operation.DELETE);
 
             // Kiểm tra xem model còn variant nào không
             List<CarVariant> remainingVariants = carVariantRepository.findByModelId(model.getModelId());
             if (remainingVariants.isEmpty()) {
                 // Xóa model
                 carModelRepository.deleteById(model.getModelId());
+                changeFeedService.record(ChangeLog.Domain.MODEL, null, model.getModelId(), ChangeLog.Operation.DELETE);
                 return "Deleted " + deletedCarsCount + " cars. Variant '" + variant.getVariantName() +
                        "' and model '" + model.getModelName() + "' were also deleted as they had no remaining cars/variants.";
             }
@@ -142,6 +164,7 @@ public class CarDeletionServiceImpl implements CarDeletionService {
         // Xóa tất cả dealer_car records trước
         for (Car car : carsToDelete) {
             dealerCarRepository.deleteByCarId(car.getCarId());
+            changeFeedService.record(ChangeLog.Domain.CAR, null, car.getCarId(), ChangeLog.Operation.DELETE);
         }
 
         // Xóa tất cả xe của variant
@@ -154,12 +177,14 @@ public class CarDeletionServiceImpl implements CarDeletionService {
 
         // Xóa variant
         carVariantRepository.deleteById(variant.getVariantId());
+        changeFeedService.record(ChangeLog.Domain.VARIANT, null, variant.getVariantId(), ChangeLog.Operation.DELETE);
 
         // Kiểm tra xem model còn variant nào không
         List<CarVariant> remainingVariants = carVariantRepository.findByModelId(model.getModelId());
         if (remainingVariants.isEmpty()) {
             // Xóa model
             carModelRepository.deleteById(model.getModelId());
+            changeFeedService.record(ChangeLog.Domain.MODEL, null, model.getModelId(), ChangeLog.Operation.DELETE);
             return "Deleted variant '" + variant.getVariantName() + "' with " + deletedCarsCount +
                    " cars. Model '" + model.getModelName() + "' was also deleted as it had no remaining variants.";
         }
@@ -184,6 +209,7 @@ public class CarDeletionServiceImpl implements CarDeletionService {
             // Xóa tất cả dealer_car records
             for (Car car : carsToDelete) {
                 dealerCarRepository.deleteByCarId(car.getCarId());
+                changeFeedService.record(ChangeLog.Domain.CAR, null, car.getCarId(), ChangeLog.Operation.DELETE);
             }
 
             // Xóa tất cả xe của variant
@@ -196,10 +222,12 @@ public class CarDeletionServiceImpl implements CarDeletionService {
 
             // Xóa variant
             carVariantRepository.deleteById(variant.getVariantId());
+            changeFeedService.record(ChangeLog.Domain.VARIANT, null, variant.getVariantId(), ChangeLog.Operation.DELETE);
         }
 
         // Xóa model
         carModelRepository.deleteById(model.getModelId());
+        changeFeedService.record(ChangeLog.Domain.MODEL, null, model.getModelId(), ChangeLog.Operation.DELETE);
 
         return "Deleted model '" + model.getModelName() + "' with " + totalDeletedVariants +
                " variants and " + totalDeletedCars + " cars.";
@@ -4,14 +4,18 @@ import org.example.dto.CreateDistributionRequestDto;
 import org.example.dto.DistributionRequestResponseDto;
 import org.example.entity.Car;
 import org.example.entity.CarDistributionRequest;
+import org.example.entity.ChangeLog;
 import org.example.entity.Dealer;
 import org.example.entity.DealerCar;
-import org.example.entity.UserAccount;
 import org.example.repository.CarDistributionRequestRepository;
 import org.example.repository.CarRepository;
 import org.example.repository.DealerCarRepository;
-import org.example.repository.UserAccountRepository;
+import org.example.repository.DealerRepository;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
 import org.example.service.CarDistributionRequestService;
+import org.example.service.ChangeFeedService;
+import org.example.service.DealerInventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,7 +34,7 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
     private CarDistributionRequestRepository distributionRequestRepository;
 
     @Autowired
-    private UserAccountRepository userAccountRepository;
+    private CurrentUserProvider currentUserProvider;
 
     @Autowired
     private CarRepository carRepository;
@@ -38,21 +42,45 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
     @Autowired
     private DealerCarRepository dealerCarRepository;
 
+    @Autowired
+    private DealerRepository dealerRepository;
+
+    @Autowired
+    private DealerInventoryService dealerInventoryService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private CarNameResolver carNameResolver;
+
+    @Autowired
+    private DealerVariantIndex dealerVariantIndex;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private DealerEventHub dealerEventHub;
+
     @Override
     public DistributionRequestResponseDto createDistributionRequest(String userEmail, CreateDistributionRequestDto requestDto) {
         // Tìm user theo email
-        UserAccount user = userAccountRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + userEmail));
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
 
         // Kiểm tra user có thuộc dealer nào không
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Dealer dealer = user.getDealer();
+        Dealer dealer = dealerRepository.getReferenceById(user.getDealerId());
 
-        // Tìm car theo modelName, variantName và colorName
-        Car car = carRepository.findByModelNameAndVariantNameAndColorName(
+        // Tìm car theo modelName, variantName và colorName trong catalog, không cần nạp entity Car
+        CarNameResolver.ResolvedCar resolvedCar = carNameResolver.resolveForDealer(
+                user.getDealerId(),
                 requestDto.getModelName(),
                 requestDto.getVariantName(),
                 requestDto.getColorName())
@@ -61,6 +89,7 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
                         requestDto.getModelName(),
                         requestDto.getVariantName(),
                         requestDto.getColorName())));
+        Car car = carRepository.getReferenceById(resolvedCar.carId());
 
         // Bỏ kiểm tra xe đã có tại dealer - cho phép tạo yêu cầu bổ sung số lượng
         // Đại lý có thể tạo yêu cầu cho xe mới hoặc xe đã có để bổ sung số lượng tồn kho
@@ -85,6 +114,7 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
 
         // Lưu vào database
         CarDistributionRequest savedRequest = distributionRequestRepository.save(distributionRequest);
+        dealerEventHub.distributionRequestChangedAfterCommit(savedRequest);
 
         // Chuyển đổi thành response DTO
         return convertToResponseDto(savedRequest);
@@ -93,15 +123,14 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
     @Override
     public List<DistributionRequestResponseDto> getDistributionRequestsByDealer(String userEmail) {
         // Tìm user theo email
-        UserAccount user = userAccountRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + userEmail));
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
 
         // Kiểm tra user có thuộc dealer nào không
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Integer dealerId = user.getDealer().getDealerId();
+        Integer dealerId = user.getDealerId();
 
         // Lấy tất cả requests của dealer
         List<CarDistributionRequest> requests = distributionRequestRepository.findByDealerId(dealerId);
@@ -115,15 +144,14 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
     @Override
     public List<DistributionRequestResponseDto> getDistributionRequestsByDealerAndStatus(String userEmail, String status) {
         // Tìm user theo email
-        UserAccount user = userAccountRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + userEmail));
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
 
         // Kiểm tra user có thuộc dealer nào không
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Integer dealerId = user.getDealer().getDealerId();
+        Integer dealerId = user.getDealerId();
 
         // Lấy requests theo dealer và status
         List<CarDistributionRequest> requests = distributionRequestRepository.findByDealerIdAndStatus(dealerId, status);
@@ -187,6 +215,7 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
 
         // Lưu thay đổi
         CarDistributionRequest savedRequest = distributionRequestRepository.save(distributionRequest);
+        dealerEventHub.distributionRequestChangedAfterCommit(savedRequest);
 
         // Trả về response DTO
         return convertToResponseDto(savedRequest);
@@ -228,6 +257,7 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
 
         // Lưu thay đổi
         CarDistributionRequest savedRequest = distributionRequestRepository.save(distributionRequest);
+        dealerEventHub.distributionRequestChangedAfterCommit(savedRequest);
 
         // Trả về response DTO
         return convertToResponseDto(savedRequest);
@@ -255,6 +285,7 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
 
         // Lưu thay đổi
         CarDistributionRequest savedRequest = distributionRequestRepository.save(distributionRequest);
+        dealerEventHub.distributionRequestChangedAfterCommit(savedRequest);
 
         // Trả về response DTO
         return convertToResponseDto(savedRequest);
@@ -272,14 +303,13 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
         }
 
         // Tìm user và dealer để validate
-        UserAccount user = userAccountRepository.findByEmail(dealerEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + dealerEmail));
+        CurrentUser user = currentUserProvider.getByEmail(dealerEmail);
 
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Dealer dealer = user.getDealer();
+        Dealer dealer = dealerRepository.getReferenceById(user.getDealerId());
 
         // Kiểm tra yêu cầu có phải của dealer hiện tại không
         if (!dealer.getDealerId().equals(distributionRequest.getDealer().getDealerId())) {
@@ -295,21 +325,18 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
 
         // Lưu thay đổi
         CarDistributionRequest savedRequest = distributionRequestRepository.save(distributionRequest);
+        dealerEventHub.distributionRequestChangedAfterCommit(savedRequest);
+
+        // Số xe nhập và chi phí nhập trong báo cáo của ngày giao thay đổi
+        reportCache.evict(dealer.getDealerId(), savedRequest.getActualDeliveryDate().toLocalDate());
 
         // Trả về response DTO
         return convertToResponseDto(savedRequest);
     }
 
     private void updateDealerCarInventory(Dealer dealer, Car car, Integer deliveredQuantity) {
-        // Kiểm tra xem dealer đã có xe này chưa
-        Optional<DealerCar> existingDealerCar = dealerCarRepository.findByDealerIdAndCarId(dealer.getDealerId(), car.getCarId());
-
-        if (existingDealerCar.isPresent()) {
-            // Xe đã có - cập nhật số lượng
-            DealerCar dealerCar = existingDealerCar.get();
-            dealerCar.setQuantity(dealerCar.getQuantity() + deliveredQuantity);
-            dealerCarRepository.save(dealerCar);
-        } else {
+        // Xe đã có - cộng số lượng bằng UPDATE nguyên tử để không ghi đè lượng xe vừa bán
+        if (!dealerInventoryService.addStock(dealer.getDealerId(), car.getCarId(), deliveredQuantity)) {
             // Xe mới - tạo mới record với status "Pending" và dealerPrice = 0
             DealerCar newDealerCar = new DealerCar();
 
@@ -327,16 +354,28 @@ public class CarDistributionRequestServiceImpl implements CarDistributionRequest
             newDealerCar.setStatus("Pending");
 
             dealerCarRepository.save(newDealerCar);
+            dealerVariantIndex.markStockedAfterCommit(dealer.getDealerId(), car.getVariantId());
+            dataVersions.inventoryChangedAfterCommit(dealer.getDealerId());
+            changeFeedService.record(ChangeLog.Domain.DEALER_CAR, dealer.getDealerId(), car.getCarId(), ChangeLog.Operation.UPSERT);
+            dealerEventHub.inventoryChangedAfterCommit(dealer.getDealerId(), car.getCarId());
         }
     }
 
     private DistributionRequestResponseDto convertToResponseDto(CarDistributionRequest request) {
+        // Tên xe lấy từ catalog snapshot, chỉ đọc qua entity nếu xe không còn trong danh mục
+        Car car = request.getCar();
+        CarNameResolver.ResolvedCar carNames = carNameResolver.describe(car.getCarId())
+                .orElseGet(() -> new CarNameResolver.ResolvedCar(car.getCarId(),
+                        car.getCarVariant().getCarModel().getModelName(),
+                        car.getCarVariant().getVariantName(),
+                        car.getColor().getColorName()));
+
         return DistributionRequestResponseDto.builder()
                 .requestId(request.getRequestId())
                 .dealerName(request.getDealer().getDealerName())
-                .modelName(request.getCar().getCarVariant().getCarModel().getModelName())
-                .variantName(request.getCar().getCarVariant().getVariantName())
-                .colorName(request.getCar().getColor().getColorName())
+                .modelName(carNames.modelName())
+                .variantName(carNames.variantName())
+                .colorName(carNames.colorName())
                 .quantity(request.getQuantity())
                 .requestDate(request.getRequestDate())
                 .status(request.getStatus())
@@ -1,7 +1,6 @@
 package org.example.service.implementation;
 
 import lombok.RequiredArgsConstructor;
-import org.example.repository.CarModelRepository;
 import org.example.service.CarModelService;
 import org.springframework.stereotype.Service;
 
@@ -11,16 +10,17 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CarModelServiceImpl implements CarModelService {
 
-    private final CarModelRepository carModelRepository;
+    private final CatalogCache catalogCache;
 
     @Override
     public List<String> getAllModelNames() {
-        return carModelRepository.findAllModelNames();
+        return catalogCache.get().getModelNames();
     }
 
     @Override
     public String getSegmentByModelName(String modelName) {
-        return carModelRepository.findSegmentByModelName(modelName)
+        return catalogCache.get().findModelByName(modelName)
+                .map(CatalogSnapshot.ModelEntry::segment)
                 .orElse(null);
     }
 }
@@ -0,0 +1,59 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.DealerCarId;
+import org.example.repository.DealerCarRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Chuyển (modelName, variantName, colorName) người dùng nhập thành carId bằng index trong catalog snapshot
+ * thay cho các query JOIN CAR, CAR_VARIANT, CAR_MODEL, COLOR theo 3 tên
+ * Tên không phân biệt hoa thường và chấp nhận gõ thiếu dấu (xem CatalogSnapshot.findCarByNames)
+ */
+@Component
+@RequiredArgsConstructor
+public class CarNameResolver {
+
+    private final CatalogCache catalogCache;
+
+    private final DealerCarRepository dealerCarRepository;
+
+    /**
+     * Tìm xe theo tên, trả về carId và tên chuẩn trong danh mục
+     */
+    public Optional<ResolvedCar> resolve(String modelName, String variantName, String colorName) {
+        CatalogSnapshot catalog = catalogCache.get();
+        return catalog.findCarByNames(modelName, variantName, colorName)
+                .flatMap(car -> describe(catalog, car.carId()));
+    }
+
+    /**
+     * Tìm xe theo tên cho một dealer: nếu danh mục có nhiều xe cùng (variant, color) thì chọn xe dealer đang có trong kho
+     */
+    public Optional<ResolvedCar> resolveForDealer(Integer dealerId, String modelName, String variantName, String colorName) {
+        CatalogSnapshot catalog = catalogCache.get();
+        return catalog.findCarByNames(modelName, variantName, colorName,
+                        carId -> dealerCarRepository.existsById(new DealerCarId(carId, dealerId)))
+                .flatMap(car -> describe(catalog, car.carId()));
+    }
+
+    /**
+     * Tên model, variant, màu của xe theo carId
+     */
+    public Optional<ResolvedCar> describe(Integer carId) {
+        return describe(catalogCache.get(), carId);
+    }
+
+    private Optional<ResolvedCar> describe(CatalogSnapshot catalog, Integer carId) {
+        return catalog.findCar(carId).flatMap(car -> catalog.findVariant(car.variantId())
+                .flatMap(variant -> catalog.findModel(variant.modelId())
+                        .flatMap(model -> catalog.findColor(car.colorId())
+                                .map(color -> new ResolvedCar(car.carId(), model.modelName(),
+                                        variant.variantName(), color.colorName())))));
+    }
+
+    public record ResolvedCar(Integer carId, String modelName, String variantName, String colorName) {
+    }
+}
@@ -8,10 +8,12 @@ import org.example.dto.UpdateManufacturerPriceRequest;
 import org.example.entity.Car;
 import org.example.entity.CarModel;
 import org.example.entity.CarVariant;
+import org.example.entity.ChangeLog;
 import org.example.entity.Color;
 import org.example.entity.Configuration;
 import org.example.entity.Dealer;
 import org.example.entity.DealerCar;
+import org.example.entity.DealerCarId;
 import org.example.entity.UserAccount;
 import org.example.repository.CarModelRepository;
 import org.example.repository.CarRepository;
@@ -22,15 +24,13 @@ import org.example.repository.DealerCarRepository;
 import org.example.repository.DealerRepository;
 import org.example.repository.UserAccountRepository;
 import org.example.service.CarService;
+import org.example.service.ChangeFeedService;
+import org.example.service.DealerInventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Set;
 
 @Service
 public class CarServiceImpl implements CarService {
@@ -38,6 +38,9 @@ public class CarServiceImpl implements CarService {
     @Autowired
     private DealerCarRepository dealerCarRepository;
 
+    @Autowired
+    private DealerInventoryService dealerInventoryService;
+
     @Autowired
     private UserAccountRepository userAccountRepository;
 
@@ -59,6 +62,21 @@ public class CarServiceImpl implements CarService {
     @Autowired
     private DealerRepository dealerRepository;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private DealerVariantIndex dealerVariantIndex;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private DealerEventHub dealerEventHub;
+
     @Override
     @Transactional
     public CarResponse addCompleteCarToSystem(CreateCompleteCarRequest request) {
@@ -136,6 +154,8 @@ public class CarServiceImpl implements CarService {
         car.setImagePath(request.getCar().getImagePath());
 
         Car savedCar = carRepository.save(car);
+        catalogCache.refreshAfterCommit();
+        changeFeedService.record(ChangeLog.Domain.CAR, null, savedCar.getCarId(), ChangeLog.Operation.UPSERT);
 
         // Step 7: Build and return response
         Integer powerValue = null;
@@ -180,22 +200,21 @@ public class CarServiceImpl implements CarService {
                 .orElseThrow(() -> new RuntimeException("Dealer not found: " + request.getDealerName()));
 
         // Find car by modelName, variantName and colorName
-        Car car = carRepository.findByModelNameAndVariantNameAndColorName(
-                request.getModelName(), request.getVariantName(), request.getColorName())
+        // Nếu danh mục có nhiều xe cùng (variant, color) thì cộng vào xe dealer đã có
+        CatalogSnapshot.CarEntry car = catalogCache.get().findCarByNames(
+                request.getModelName(), request.getVariantName(), request.getColorName(),
+                carId -> dealerCarRepository.existsById(new DealerCarId(carId, dealer.getDealerId())))
                 .orElseThrow(() -> new RuntimeException(
                         "Car not found with model: " + request.getModelName() +
                                 ", variant: " + request.getVariantName() +
                                 " and color: " + request.getColorName()));
 
-        // Check if dealer already has this car
-        DealerCar existingDealerCar = dealerCarRepository.findByCarIdAndDealerId(
-                car.getCarId(), dealer.getDealerId()).orElse(null);
-
-        if (existingDealerCar != null) {
-            // Dealer already has this car - add to quantity, keep existing dealer price and status
-            int newQuantity = existingDealerCar.getQuantity() + request.getQuantity();
-            existingDealerCar.setQuantity(newQuantity);
-            dealerCarRepository.save(existingDealerCar);
+        // If dealer already has this car - add to quantity atomically, keep existing dealer price and status
+        if (dealerInventoryService.addStock(dealer.getDealerId(), car.carId(), request.getQuantity())) {
+            DealerCar existingDealerCar = dealerCarRepository.findByCarIdAndDealerId(
+                    car.carId(), dealer.getDealerId())
+                    .orElseThrow(() -> new RuntimeException("Dealer car record not found"));
+            int newQuantity = existingDealerCar.getQuantity();
 
             return String.format("Successfully added %d cars to dealer %s. Total quantity now: %d. " +
                             "Model: %s %s (%s). Dealer price: %s, Status: %s (unchanged)",
@@ -206,12 +225,16 @@ public class CarServiceImpl implements CarService {
         } else {
             // Dealer doesn't have this car - create new entry with dealer price = 0 and status = "Pending"
             DealerCar newDealerCar = new DealerCar();
-            newDealerCar.setCarId(car.getCarId());
+            newDealerCar.setCarId(car.carId());
             newDealerCar.setDealerId(dealer.getDealerId());
             newDealerCar.setQuantity(request.getQuantity());
             newDealerCar.setDealerPrice(BigDecimal.ZERO); // Set dealer price to 0
             newDealerCar.setStatus("Pending"); // Set status to "Pending"
             dealerCarRepository.save(newDealerCar);
+            dealerVariantIndex.markStockedAfterCommit(dealer.getDealerId(), car.variantId());
+            dataVersions.inventoryChangedAfterCommit(dealer.getDealerId());
+            changeFeedService.record(ChangeLog.Domain.DEALER_CAR, dealer.getDealerId(), car.carId(), ChangeLog.Operation.UPSERT);
+            dealerEventHub.inventoryChangedAfterCommit(dealer.getDealerId(), car.carId());
 
             return String.format("Successfully added %d cars to dealer %s. " +
                             "Model: %s %s (%s). New car added with dealer price: 0, status: Pending",
@@ -238,8 +261,8 @@ public class CarServiceImpl implements CarService {
         }
 
         // Find car by model name, variant name, and color name
-        Car car = carRepository.findByModelNameAndVariantNameAndColorName(
-                modelName.trim(), variantName.trim(), colorName.trim())
+        Car car = catalogCache.get().findCarByNames(modelName, variantName, colorName)
+                .flatMap(entry -> carRepository.findById(entry.carId()))
                 .orElseThrow(() -> new RuntimeException(
                         "Car not found with model: " + modelName.trim() +
                                 ", variant: " + variantName.trim() +
@@ -251,6 +274,8 @@ public class CarServiceImpl implements CarService {
         // Update manufacturer price
         car.setPrice(request.getManufacturerPrice());
         carRepository.save(car);
+        catalogCache.refreshAfterCommit();
+        changeFeedService.record(ChangeLog.Domain.CAR, null, car.getCarId(), ChangeLog.Operation.UPSERT);
 
         return String.format("Successfully updated manufacturer price for car: %s %s (%s). " +
                         "Previous price: %s VND, New price: %s VND",
@@ -273,147 +298,12 @@ public class CarServiceImpl implements CarService {
         }
 
         // Find car by model name, variant name, and color name
-        Car car = carRepository.findByModelNameAndVariantNameAndColorName(
-                modelName.trim(), variantName.trim(), colorName.trim())
+        CatalogSnapshot.CarEntry car = catalogCache.get().findCarByNames(modelName, variantName, colorName)
                 .orElseThrow(() -> new RuntimeException(
                         "Car not found with model: " + modelName.trim() +
                                 ", variant: " + variantName.trim() +
                                 ", color: " + colorName.trim()));
 
-        return car.getPrice();
-    }
-
-    private List<DealerCar> performFlexibleSearchOnDealerCars(List<DealerCar> dealerCars, String searchTerm) {
-        String normalizedSearchTerm = normalizeSearchTerm(searchTerm);
-        String[] keywords = normalizedSearchTerm.toLowerCase().trim().split("\\s+");
-
-        List<DealerCar> exactResults = searchDealerCarsByTerm(dealerCars, searchTerm);
-        if (!exactResults.isEmpty()) {
-            return exactResults;
-        }
-
-        if (!normalizedSearchTerm.equals(searchTerm)) {
-            List<DealerCar> normalizedResults = searchDealerCarsByTerm(dealerCars, normalizedSearchTerm);
-            if (!normalizedResults.isEmpty()) {
-                return normalizedResults;
-            }
-        }
-
-        List<DealerCar> substringResults = searchDealerCarsBySubstrings(dealerCars, searchTerm.toLowerCase());
-        if (!substringResults.isEmpty()) {
-            return filterDealerCarsByKeywordRelevance(substringResults, keywords, searchTerm.toLowerCase());
-        }
-
-        Set<DealerCar> combinedResults = new LinkedHashSet<>();
-        for (String keyword : keywords) {
-            if (keyword.length() >= 2) {
-                List<DealerCar> keywordResults = searchDealerCarsByTerm(dealerCars, keyword);
-                combinedResults.addAll(keywordResults);
-            }
-        }
-
-        return filterDealerCarsByKeywordRelevance(new ArrayList<>(combinedResults), keywords, searchTerm.toLowerCase());
-    }
-
-    private List<DealerCar> searchDealerCarsByTerm(List<DealerCar> dealerCars, String searchTerm) {
-        return dealerCars.stream()
-                .filter(dealerCar -> {
-                    Car car = dealerCar.getCar();
-                    String modelName = car.getCarVariant().getCarModel().getModelName().toLowerCase();
-                    String variantName = car.getCarVariant().getVariantName().toLowerCase();
-                    return modelName.contains(searchTerm.toLowerCase()) || variantName.contains(searchTerm.toLowerCase());
-                })
-                .toList();
-    }
-
-    private List<DealerCar> searchDealerCarsBySubstrings(List<DealerCar> dealerCars, String searchTerm) {
-        List<DealerCar> matchingDealerCars = new ArrayList<>();
-
-        for (DealerCar dealerCar : dealerCars) {
-            Car car = dealerCar.getCar();
-            String modelName = car.getCarVariant().getCarModel().getModelName().toLowerCase();
-            String variantName = car.getCarVariant().getVariantName().toLowerCase();
-            String fullName = (modelName + variantName).replaceAll("\\s+", "");
-            String fullNameWithSpace = (modelName + " " + variantName).toLowerCase();
-
-            boolean hasMatch = false;
-            if (fullName.contains(searchTerm) && searchTerm.length() >= 3) {
-                hasMatch = true;
-            } else if (fullNameWithSpace.contains(searchTerm) && searchTerm.length() >= 3) {
-                hasMatch = true;
-            } else if (modelName.replaceAll("\\s+", "").contains(searchTerm) && searchTerm.length() >= 2) {
-                hasMatch = true;
-            } else if (variantName.replaceAll("\\s+", "").contains(searchTerm) && searchTerm.length() >= 2) {
-                hasMatch = true;
-            }
-
-            if (hasMatch) {
-                matchingDealerCars.add(dealerCar);
-            }
-        }
-
-        return matchingDealerCars;
-    }
-
-    private List<DealerCar> filterDealerCarsByKeywordRelevance(List<DealerCar> dealerCars, String[] keywords, String originalSearchTerm) {
-        return dealerCars.stream()
-                .map(dealerCar -> new DealerCarWithScore(dealerCar, calculateDealerCarRelevanceScore(dealerCar, keywords, originalSearchTerm)))
-                .filter(dealerCarWithScore -> dealerCarWithScore.score > 0)
-                .sorted((a, b) -> Integer.compare(b.score, a.score))
-                .map(dealerCarWithScore -> dealerCarWithScore.dealerCar)
-                .toList();
-    }
-
-    private int calculateDealerCarRelevanceScore(DealerCar dealerCar, String[] keywords, String originalSearchTerm) {
-        int score = 0;
-        Car car = dealerCar.getCar();
-        String modelName = car.getCarVariant().getCarModel().getModelName().toLowerCase();
-        String variantName = car.getCarVariant().getVariantName().toLowerCase();
-        String fullName = (modelName + " " + variantName).toLowerCase();
-        String fullNameNoSpace = (modelName + variantName).replaceAll("\\s+", "");
-
-        if (fullNameNoSpace.contains(originalSearchTerm) ||
-                fullName.contains(originalSearchTerm) ||
-                modelName.replaceAll("\\s+", "").contains(originalSearchTerm) ||
-                variantName.replaceAll("\\s+", "").contains(originalSearchTerm)) {
-            score += 10;
-        }
-
-        for (String keyword : keywords) {
-            String lowerKeyword = keyword.toLowerCase();
-            if (modelName.contains(lowerKeyword) || variantName.contains(lowerKeyword)) {
-                score += 2;
-            }
-            if (fullName.contains(lowerKeyword)) {
-                score++;
-            }
-        }
-
-        return score;
-    }
-
-    private static class DealerCarWithScore {
-        final DealerCar dealerCar;
-        final int score;
-
-        DealerCarWithScore(DealerCar dealerCar, int score) {
-            this.dealerCar = dealerCar;
-            this.score = score;
-        }
-    }
-
-    private String normalizeSearchTerm(String searchTerm) {
-        if (searchTerm == null || searchTerm.trim().isEmpty()) {
-            return searchTerm;
-        }
-
-        String normalized = searchTerm.toLowerCase().trim();
-        normalized = normalized.replaceAll("([a-zA-Z]+)(\\d+)", "$1 $2");
-        normalized = normalized.replaceAll("(\\d+)([a-zA-Z]+)", "$1 $2");
-        normalized = normalized.replaceAll("(vf\\d+)(eco|plus|standard|premium|luxury)", "$1 $2");
-        normalized = normalized.replaceAll("(vinfast)(\\w+)", "$1 $2");
-        normalized = normalized.replaceAll("\\s+", " ").trim();
-
-        return normalized;
+        return car.price();
     }
 }
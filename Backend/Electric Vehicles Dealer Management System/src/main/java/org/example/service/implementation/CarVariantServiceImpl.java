@@ -4,23 +4,31 @@ import org.example.dto.DealerVariantDetailResponse;
 import org.example.dto.VariantDetailResponse;
 import org.example.entity.Car;
 import org.example.entity.CarVariant;
+import org.example.entity.ChangeLog;
 import org.example.entity.Color;
 import org.example.entity.DealerCar;
-import org.example.entity.UserAccount;
+import org.example.entity.DealerCarId;
 import org.example.repository.CarRepository;
 import org.example.repository.CarVariantRepository;
 import org.example.repository.ColorRepository;
 import org.example.repository.DealerCarRepository;
-import org.example.repository.UserAccountRepository;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
 import org.example.service.CarVariantService;
+import org.example.service.ChangeFeedService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,7 +41,7 @@ public class CarVariantServiceImpl implements CarVariantService {
     private ColorRepository colorRepository;
 
     @Autowired
-    private UserAccountRepository userAccountRepository;
+    private CurrentUserProvider currentUserProvider;
 
     @Autowired
     private CarRepository carRepository;
@@ -41,99 +49,268 @@ public class CarVariantServiceImpl implements CarVariantService {
     @Autowired
     private DealerCarRepository dealerCarRepository;
 
-    private VariantDetailResponse convertToVariantDetailResponse(CarVariant carVariant, Integer dealerId) {
-        // Lấy thông tin colorId, price, imagePath và quantity từ xe thuộc dealer hiện tại
-        List<Object[]> colorIdsAndPrices = carVariantRepository.findColorIdsAndPricesByVariantIdAndDealerId(
-            carVariant.getVariantId(), dealerId);
-
-        // Tạo Map từ colorId -> (price, imagePath, quantity)
-        Map<Integer, Object[]> colorDataMap = colorIdsAndPrices.stream()
-                .collect(Collectors.toMap(
-                    row -> (Integer) row[0],  // colorId
-                    row -> new Object[]{row[1], row[2], row[3]}, // [price, imagePath, quantity]
-                    (existing, replacement) -> existing // Nếu có duplicate, giữ giá trị đầu tiên
-                ));
-
-        // Lấy thông tin màu sắc từ ColorRepository
-        List<Integer> colorIds = colorIdsAndPrices.stream()
-                .map(row -> (Integer) row[0])
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private VariantSearchIndex variantSearchIndex;
+
+    @Autowired
+    private DealerVariantIndex dealerVariantIndex;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private DealerEventHub dealerEventHub;
+
+    // Số variantId tối đa trong một câu IN (SQL Server giới hạn 2100 tham số)
+    private static final int VARIANT_ID_BATCH_SIZE = 1000;
+
+    /**
+     * Thông tin variant cần để dựng response, lấy từ entity hoặc từ catalog snapshot
+     */
+    private record VariantRow(Integer variantId, String modelName, String variantName) {
+    }
+
+    private List<VariantRow> toVariantRows(List<CarVariant> carVariants) {
+        return carVariants.stream()
+                .map(carVariant -> new VariantRow(carVariant.getVariantId(),
+                        carVariant.getCarModel().getModelName(), carVariant.getVariantName()))
+                .toList();
+    }
+
+    /**
+     * Lấy thông tin variant theo danh sách id từ catalog snapshot, giữ nguyên thứ tự
+     */
+    private List<VariantRow> toVariantRows(CatalogSnapshot catalog, List<Integer> variantIds) {
+        return variantIds.stream()
+                .flatMap(variantId -> catalog.findVariant(variantId).stream())
+                .flatMap(variant -> catalog.findModel(variant.modelId()).stream()
+                        .map(model -> new VariantRow(variant.variantId(), model.modelName(), variant.variantName())))
+                .toList();
+    }
+
+    /**
+     * Tìm variant theo từ khóa tự do qua VariantSearchIndex, kết quả xếp theo độ liên quan
+     * Nếu có dealerId thì chỉ xét các variant dealer đang có trong kho
+     */
+    private List<VariantRow> searchVariantRows(String searchTerm, Integer dealerId) {
+        Predicate<Integer> variantFilter = dealerId != null ? dealerVariantIndex.stockedBy(dealerId) : null;
+
+        List<Integer> variantIds = variantSearchIndex.search(searchTerm, processFlexibleSearchTerm(searchTerm), variantFilter);
+        return toVariantRows(catalogCache.get(), variantIds);
+    }
+
+    /**
+     * Tìm variant có tên model / tên variant chứa chuỗi cần tìm (null là không lọc theo trường đó),
+     * kết quả theo modelName, variantName
+     * Nếu có dealerId thì chỉ xét các variant dealer đang có trong kho
+     */
+    private List<VariantRow> searchVariantRowsByNames(String modelName, String variantName, Integer dealerId) {
+        Predicate<Integer> variantFilter = dealerId != null ? dealerVariantIndex.stockedBy(dealerId) : null;
+
+        List<Integer> variantIds = variantSearchIndex.searchByNames(modelName, variantName, variantFilter);
+        return toVariantRows(catalogCache.get(), variantIds);
+    }
+
+    /**
+     * Chuyển danh sách variant của dealer thành response (kèm quantity)
+     * Dữ liệu màu của cả danh sách được nạp theo lô thay vì 2 query cho mỗi variant
+     */
+    private List<VariantDetailResponse> convertToVariantDetailResponses(List<VariantRow> variants, Integer dealerId) {
+        return buildVariantDetailResponses(variants,
+                variantIds -> carVariantRepository.findColorIdsAndPricesByVariantIdsAndDealerId(variantIds, dealerId),
+                true);
+    }
+
+    /**
+     * Chuyển danh sách variant của dealer có tên dealerName thành response (kèm quantity)
+     */
+    private List<VariantDetailResponse> convertToVariantDetailResponsesByDealerName(List<VariantRow> variants, String dealerName) {
+        return buildVariantDetailResponses(variants,
+                variantIds -> carVariantRepository.findColorIdsAndPricesByVariantIdsAndDealerName(variantIds, dealerName),
+                true);
+    }
+
+    /**
+     * Chuyển danh sách variant toàn hệ thống thành response cho EVMStaff và Admin (không có quantity)
+     */
+    private List<VariantDetailResponse> convertToVariantDetailResponsesForSystem(List<VariantRow> variants) {
+        return buildVariantDetailResponses(variants,
+                carVariantRepository::findColorIdsAndPricesWithoutQuantityByVariantIds,
+                false);
+    }
+
+    /**
+     * rowLoader trả về các dòng [variantId, colorId, price, imagePath, quantity] (không có quantity nếu includeQuantity = false)
+     */
+    private List<VariantDetailResponse> buildVariantDetailResponses(List<VariantRow> variants,
+                                                                    Function<List<Integer>, List<Object[]>> rowLoader,
+                                                                    boolean includeQuantity) {
+        Map<Integer, Map<Integer, Object[]>> colorRowsByVariantId = loadColorRowsByVariantId(variants, rowLoader);
+        Map<Integer, Color> colorsById = loadColors(colorRowsByVariantId);
+
+        return variants.stream()
+                .map(variant -> {
+                    Map<Integer, Object[]> colorDataMap = colorRowsByVariantId.getOrDefault(variant.variantId(), Map.of());
+
+                    // Tạo danh sách ColorPrice
+                    List<VariantDetailResponse.ColorPrice> colorPrices = colorDataMap.entrySet().stream()
+                            .filter(entry -> colorsById.containsKey(entry.getKey()))
+                            .map(entry -> {
+                                Object[] data = entry.getValue();
+                                return VariantDetailResponse.ColorPrice.builder()
+                                        .colorName(colorsById.get(entry.getKey()).getColorName())
+                                        .manufacturerPrice((Long) data[2])
+                                        .imagePath(toImageUrl((String) data[3]))
+                                        // Không trả về quantity cho EVMStaff và Admin
+                                        .quantity(includeQuantity ? (Integer) data[4] : null)
+                                        .build();
+                            })
+                            .sorted(Comparator.comparing(VariantDetailResponse.ColorPrice::getColorName))
+                            .toList();
+
+                    return VariantDetailResponse.builder()
+                            .variantId(variant.variantId())
+                            .modelName(variant.modelName())
+                            .variantName(variant.variantName())
+                            .colorPrices(colorPrices)
+                            .build();
+                })
+                .toList();
+    }
+
+    /**
+     * Nạp dữ liệu màu của tất cả variant theo lô IN-list rồi nhóm theo variantId -> colorId
+     * Nếu một màu có nhiều dòng thì giữ dòng đầu tiên như trước
+     */
+    private Map<Integer, Map<Integer, Object[]>> loadColorRowsByVariantId(List<VariantRow> variants,
+                                                                          Function<List<Integer>, List<Object[]>> rowLoader) {
+        List<Integer> variantIds = variants.stream()
+                .map(VariantRow::variantId)
                 .distinct()
                 .toList();
 
-        List<Color> colors = colorRepository.findByColorIds(colorIds);
-
-        // Tạo danh sách ColorPrice
-        List<VariantDetailResponse.ColorPrice> colorPrices = colors.stream()
-                .filter(color -> colorDataMap.containsKey(color.getColorId()))
-                .map(color -> {
-                    Object[] data = colorDataMap.get(color.getColorId());
-                    String imageName = (String) data[1];
-                    // Xây dựng URL để truy cập ảnh qua HTTP
-                    String imageUrl = null;
-                    if (imageName != null && !imageName.isEmpty()) {
-                        imageUrl = "/api/images/" + imageName;
+        Map<Integer, Map<Integer, Object[]>> colorRowsByVariantId = new HashMap<>();
+        for (int from = 0; from < variantIds.size(); from += VARIANT_ID_BATCH_SIZE) {
+            List<Integer> batch = variantIds.subList(from, Math.min(from + VARIANT_ID_BATCH_SIZE, variantIds.size()));
+            for (Object[] row : rowLoader.apply(batch)) {
+                colorRowsByVariantId
+                        .computeIfAbsent((Integer) row[0], variantId -> new LinkedHashMap<>())
+                        .putIfAbsent((Integer) row[1], row);
+            }
+        }
+        return colorRowsByVariantId;
+    }
+
+    /**
+     * Lấy thông tin màu sắc của tất cả variant bằng một query
+     */
+    private Map<Integer, Color> loadColors(Map<Integer, Map<Integer, Object[]>> colorRowsByVariantId) {
+        List<Integer> colorIds = colorRowsByVariantId.values().stream()
+                .flatMap(colorDataMap -> colorDataMap.keySet().stream())
+                .distinct()
+                .toList();
+
+        if (colorIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return colorRepository.findByColorIds(colorIds).stream()
+                .collect(Collectors.toMap(Color::getColorId, color -> color));
+    }
+
+    /**
+     * Dựng response cho toàn bộ variant trong hệ thống (không có quantity) từ catalog snapshot
+     * Mỗi màu lấy xe có carId nhỏ nhất như khi đọc từ DB
+     */
+    private List<VariantDetailResponse> buildVariantDetailResponsesFromCatalog(CatalogSnapshot catalog) {
+        return catalog.getVariants().stream()
+                .map(variant -> {
+                    Map<Integer, CatalogSnapshot.CarEntry> carsByColorId = new LinkedHashMap<>();
+                    for (CatalogSnapshot.CarEntry car : catalog.getCarsByVariant(variant.variantId())) {
+                        carsByColorId.putIfAbsent(car.colorId(), car);
                     }
-                    return VariantDetailResponse.ColorPrice.builder()
-                            .colorName(color.getColorName())
-                            .manufacturerPrice((Long) data[0])
-                            .imagePath(imageUrl)
-                            .quantity((Integer) data[2])
+
+                    List<VariantDetailResponse.ColorPrice> colorPrices = carsByColorId.values().stream()
+                            .filter(car -> catalog.findColor(car.colorId()).isPresent())
+                            .map(car -> VariantDetailResponse.ColorPrice.builder()
+                                    .colorName(catalog.findColor(car.colorId()).get().colorName())
+                                    .manufacturerPrice(car.price())
+                                    .imagePath(toImageUrl(car.imagePath()))
+                                    .quantity(null)
+                                    .build())
+                            .sorted(Comparator.comparing(VariantDetailResponse.ColorPrice::getColorName))
+                            .toList();
+
+                    return VariantDetailResponse.builder()
+                            .variantId(variant.variantId())
+                            .modelName(catalog.findModel(variant.modelId()).get().modelName())
+                            .variantName(variant.variantName())
+                            .colorPrices(colorPrices)
                             .build();
                 })
-                .sorted(Comparator.comparing(VariantDetailResponse.ColorPrice::getColorName))
                 .toList();
+    }
 
-        return VariantDetailResponse.builder()
-                .variantId(carVariant.getVariantId())
-                .modelName(carVariant.getCarModel().getModelName())
-                .variantName(carVariant.getVariantName())
-                .colorPrices(colorPrices)
-                .build();
+    /**
+     * Xây dựng URL để truy cập ảnh qua HTTP
+     */
+    private String toImageUrl(String imageName) {
+        if (imageName != null && !imageName.isEmpty()) {
+            return "/api/images/" + imageName;
+        }
+        return null;
+    }
+
+    /**
+     * Convert giá (Long hoặc BigDecimal) sang BigDecimal
+     */
+    private BigDecimal toBigDecimal(Object price) {
+        if (price instanceof Long) {
+            return BigDecimal.valueOf((Long) price);
+        } else if (price instanceof BigDecimal) {
+            return (BigDecimal) price;
+        }
+        return null;
     }
 
     @Override
     public List<VariantDetailResponse> getVariantDetailsByCurrentDealer(String userEmail) {
         // Tìm user theo email
-        UserAccount user = userAccountRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + userEmail));
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
 
         // Kiểm tra user có thuộc dealer nào không
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Integer dealerId = user.getDealer().getDealerId();
+        Integer dealerId = user.getDealerId();
 
         // Lấy car variants theo dealer ID với configuration
         List<CarVariant> carVariants = carVariantRepository.findVariantsByDealerIdWithConfiguration(dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToVariantDetailResponse(cv, dealerId))
-                .toList();
+        return convertToVariantDetailResponses(toVariantRows(carVariants), dealerId);
     }
 
     @Override
     public List<VariantDetailResponse> searchVariantsByCurrentDealer(String userEmail, String searchTerm) {
         // Tìm user theo email
-        UserAccount user = userAccountRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + userEmail));
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
 
         // Kiểm tra user có thuộc dealer nào không
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Integer dealerId = user.getDealer().getDealerId();
-
-        // Xử lý search term linh hoạt để xử lý khoảng trắng và search không đầy đủ
-        String processedSearchTerm = processFlexibleSearchTerm(searchTerm);
+        Integer dealerId = user.getDealerId();
 
-        // Lấy car variants theo dealer ID và search term với configuration
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndTerm(dealerId, processedSearchTerm);
-
-        return carVariants.stream()
-                .map(cv -> convertToVariantDetailResponse(cv, dealerId))
-                .toList();
+        // Tìm trong index các variant dealer đang có, search term được xử lý linh hoạt (khoảng trắng, viết tắt)
+        return convertToVariantDetailResponses(searchVariantRows(searchTerm, dealerId), dealerId);
     }
 
     private String processFlexibleSearchTerm(String searchTerm) {
@@ -248,25 +425,14 @@ public class CarVariantServiceImpl implements CarVariantService {
     // Methods for Admin/EVMStaff to view all variants in system
     @Override
     public List<VariantDetailResponse> getAllVariantDetailsInSystem() {
-        // Lấy tất cả car variants trong hệ thống với configuration
-        List<CarVariant> carVariants = carVariantRepository.findAllVariantsWithConfiguration();
-
-        return carVariants.stream()
-                .map(this::convertToVariantDetailResponseForSystemWithoutQuantity)
-                .toList();
+        // Danh mục toàn hệ thống không phụ thuộc dealer nên đọc thẳng từ catalog snapshot
+        return buildVariantDetailResponsesFromCatalog(catalogCache.get());
     }
 
     @Override
     public List<VariantDetailResponse> searchVariantsInSystem(String searchTerm) {
-        // Xử lý search term linh hoạt
-        String processedSearchTerm = processFlexibleSearchTerm(searchTerm);
-
-        // Lấy tất cả car variants theo search term với configuration (toàn hệ thống)
-        List<CarVariant> carVariants = carVariantRepository.searchAllVariantsWithConfiguration(processedSearchTerm);
-
-        return carVariants.stream()
-                .map(this::convertToVariantDetailResponseForSystemWithoutQuantity)
-                .toList();
+        // Tìm trong index toàn bộ variant của hệ thống
+        return convertToVariantDetailResponsesForSystem(searchVariantRows(searchTerm, null));
     }
 
     @Override
@@ -274,228 +440,121 @@ public class CarVariantServiceImpl implements CarVariantService {
         // Lấy car variants theo dealer name với configuration
         List<CarVariant> carVariants = carVariantRepository.findVariantsByDealerNameWithConfiguration(dealerName);
 
-        return carVariants.stream()
-                .map(cv -> convertToVariantDetailResponseByDealerName(cv, dealerName))
-                .toList();
-    }
-
-    private VariantDetailResponse convertToVariantDetailResponseByDealerName(CarVariant carVariant, String dealerName) {
-        // Lấy thông tin colorId, price, imagePath và quantity từ xe thuộc dealer có tên này
-        List<Object[]> colorIdsAndPrices = carVariantRepository.findColorIdsAndPricesByVariantIdAndDealerName(
-            carVariant.getVariantId(), dealerName);
-
-        // Tạo Map từ colorId -> (price, imagePath, quantity)
-        Map<Integer, Object[]> colorDataMap = colorIdsAndPrices.stream()
-                .collect(Collectors.toMap(
-                    row -> (Integer) row[0],  // colorId
-                    row -> new Object[]{row[1], row[2], row[3]}, // [price, imagePath, quantity]
-                    (existing, replacement) -> existing // Nếu có duplicate, giữ giá trị đầu tiên
-                ));
-
-        // Lấy thông tin màu sắc từ ColorRepository
-        List<Integer> colorIds = colorIdsAndPrices.stream()
-                .map(row -> (Integer) row[0])
-                .distinct()
-                .toList();
-
-        List<Color> colors = colorRepository.findByColorIds(colorIds);
-
-        // Tạo danh sách ColorPrice
-        List<VariantDetailResponse.ColorPrice> colorPrices = colors.stream()
-                .filter(color -> colorDataMap.containsKey(color.getColorId()))
-                .map(color -> {
-                    Object[] data = colorDataMap.get(color.getColorId());
-                    String imageName = (String) data[1];
-                    // Xây dựng URL để truy cập ảnh qua HTTP
-                    String imageUrl = null;
-                    if (imageName != null && !imageName.isEmpty()) {
-                        imageUrl = "/api/images/" + imageName;
-                    }
-                    return VariantDetailResponse.ColorPrice.builder()
-                            .colorName(color.getColorName())
-                            .manufacturerPrice((Long) data[0])
-                            .imagePath(imageUrl)
-                            .quantity((Integer) data[2])
-                            .build();
-                })
-                .sorted(Comparator.comparing(VariantDetailResponse.ColorPrice::getColorName))
-                .toList();
-
-        return VariantDetailResponse.builder()
-                .variantId(carVariant.getVariantId())
-                .modelName(carVariant.getCarModel().getModelName())
-                .variantName(carVariant.getVariantName())
-                .colorPrices(colorPrices)
-                .build();
-    }
-
-    // Method for EVMStaff and Admin - no quantity information needed
-    private VariantDetailResponse convertToVariantDetailResponseForSystemWithoutQuantity(CarVariant carVariant) {
-        // Lấy thông tin colorId, price, imagePath từ tất cả xe trong hệ thống (không cần quantity)
-        List<Object[]> colorIdsAndPrices = carVariantRepository.findColorIdsAndPricesWithoutQuantityByVariantId(carVariant.getVariantId());
-
-        // Tạo Map từ colorId -> (price, imagePath)
-        Map<Integer, Object[]> colorDataMap = colorIdsAndPrices.stream()
-                .collect(Collectors.toMap(
-                    row -> (Integer) row[0],  // colorId
-                    row -> new Object[]{row[1], row[2]}, // [price, imagePath]
-                    (existing, replacement) -> existing
-                ));
-
-        // Lấy thông tin màu sắc từ ColorRepository
-        List<Integer> colorIds = colorIdsAndPrices.stream()
-                .map(row -> (Integer) row[0])
-                .distinct()
-                .toList();
-
-        List<Color> colors = colorRepository.findByColorIds(colorIds);
-
-        // Tạo danh sách ColorPrice không có quantity
-        List<VariantDetailResponse.ColorPrice> colorPrices = colors.stream()
-                .filter(color -> colorDataMap.containsKey(color.getColorId()))
-                .map(color -> {
-                    Object[] data = colorDataMap.get(color.getColorId());
-                    String imageName = (String) data[1];
-                    // Xây dựng URL để truy cập ảnh qua HTTP
-                    String imageUrl = null;
-                    if (imageName != null && !imageName.isEmpty()) {
-                        imageUrl = "/api/images/" + imageName;
-                    }
-
-                    return VariantDetailResponse.ColorPrice.builder()
-                            .colorName(color.getColorName())
-                            .manufacturerPrice((Long) data[0])
-                            .imagePath(imageUrl)
-                            .quantity(null) // Không trả về quantity cho EVMStaff và Admin
-                            .build();
-                })
-                .sorted(Comparator.comparing(VariantDetailResponse.ColorPrice::getColorName))
-                .toList();
-
-        return VariantDetailResponse.builder()
-                .variantId(carVariant.getVariantId())
-                .modelName(carVariant.getCarModel().getModelName())
-                .variantName(carVariant.getVariantName())
-                .colorPrices(colorPrices)
-                .build();
+        return convertToVariantDetailResponsesByDealerName(toVariantRows(carVariants), dealerName);
     }
 
     // New methods for searching by variant name specifically
     @Override
     public List<VariantDetailResponse> searchVariantsByVariantNameInSystem(String variantName) {
-        // Lấy tất cả car variants theo variant name với configuration (toàn hệ thống)
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByVariantNameInSystem(variantName);
+        // Lấy tất cả car variants theo variant name (toàn hệ thống)
+        List<VariantRow> variants = searchVariantRowsByNames(null, variantName, null);
 
-        return carVariants.stream()
-                .map(this::convertToVariantDetailResponseForSystemWithoutQuantity)
-                .toList();
+        return convertToVariantDetailResponsesForSystem(variants);
     }
 
     @Override
     public List<VariantDetailResponse> searchVariantsByVariantNameAndCurrentDealer(String userEmail, String variantName) {
         // Tìm user theo email
-        UserAccount user = userAccountRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + userEmail));
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
 
         // Kiểm tra user có thuộc dealer nào không
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Integer dealerId = user.getDealer().getDealerId();
+        Integer dealerId = user.getDealerId();
 
-        // Lấy car variants theo dealer ID và variant name với configuration
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByVariantNameAndDealerId(dealerId, variantName);
+        // Lấy car variants theo dealer ID và variant name
+        List<VariantRow> variants = searchVariantRowsByNames(null, variantName, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToVariantDetailResponse(cv, dealerId))
-                .toList();
+        return convertToVariantDetailResponses(variants, dealerId);
     }
 
     // New methods for searching by model name specifically
     @Override
     public List<VariantDetailResponse> searchVariantsByModelNameInSystem(String modelName) {
-        // Lấy tất cả car variants theo model name với configuration (toàn hệ thống)
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByModelNameInSystem(modelName);
+        // Lấy tất cả car variants theo model name (toàn hệ thống)
+        List<VariantRow> variants = searchVariantRowsByNames(modelName, null, null);
 
-        return carVariants.stream()
-                .map(this::convertToVariantDetailResponseForSystemWithoutQuantity)
-                .toList();
+        return convertToVariantDetailResponsesForSystem(variants);
     }
 
     @Override
     public List<VariantDetailResponse> searchVariantsByModelNameAndCurrentDealer(String userEmail, String modelName) {
         // Tìm user theo email
-        UserAccount user = userAccountRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + userEmail));
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
 
         // Kiểm tra user có thuộc dealer nào không
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Integer dealerId = user.getDealer().getDealerId();
+        Integer dealerId = user.getDealerId();
 
-        // Lấy car variants theo dealer ID và model name với configuration
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByModelNameAndDealerId(dealerId, modelName);
+        // Lấy car variants theo dealer ID và model name
+        List<VariantRow> variants = searchVariantRowsByNames(modelName, null, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToVariantDetailResponse(cv, dealerId))
-                .toList();
+        return convertToVariantDetailResponses(variants, dealerId);
     }
 
     // New methods for searching by both model name and variant name
     @Override
     public List<VariantDetailResponse> searchVariantsByModelAndVariantNameInSystem(String modelName, String variantName) {
         // Lấy car variants theo cả model name và variant name trong toàn hệ thống
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByModelAndVariantNameInSystem(modelName, variantName);
+        List<VariantRow> variants = searchVariantRowsByNames(modelName, variantName, null);
 
-        return carVariants.stream()
-                .map(this::convertToVariantDetailResponseForSystemWithoutQuantity)
-                .toList();
+        return convertToVariantDetailResponsesForSystem(variants);
     }
 
     @Override
     public List<VariantDetailResponse> searchVariantsByModelAndVariantNameAndCurrentDealer(String userEmail, String modelName, String variantName) {
         // Tìm user theo email
-        UserAccount user = userAccountRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + userEmail));
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
 
         // Kiểm tra user có thuộc dealer nào không
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User not associated with any dealer");
         }
 
-        Integer dealerId = user.getDealer().getDealerId();
+        Integer dealerId = user.getDealerId();
 
-        // Lấy car variants theo dealer ID, model name và variant name với configuration
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByModelAndVariantNameAndDealerId(dealerId, modelName, variantName);
+        // Lấy car variants theo dealer ID, model name và variant name
+        List<VariantRow> variants = searchVariantRowsByNames(modelName, variantName, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToVariantDetailResponse(cv, dealerId))
-                .toList();
+        return convertToVariantDetailResponses(variants, dealerId);
     }
 
     @Override
     public List<String> getAllVariantNames() {
-        return carVariantRepository.findAllVariantNames();
+        return catalogCache.get().getVariantNames();
     }
 
     @Override
     public String getDescriptionByVariantName(String variantName) {
-        return carVariantRepository.findDescriptionByVariantName(variantName)
+        return catalogCache.get().findVariantsByName(variantName).stream()
+                .map(CatalogSnapshot.VariantEntry::description)
+                .findFirst()
                 .orElse(null);
     }
 
     @Override
     public String getDescriptionByModelNameAndVariantName(String modelName, String variantName) {
-        return carVariantRepository.findDescriptionByModelNameAndVariantName(modelName, variantName)
+        return catalogCache.get().findVariantByNames(modelName, variantName)
+                .map(CatalogSnapshot.VariantEntry::description)
                 .orElse(null);
     }
 
     @Override
     public List<String> getVariantNamesByModelName(String modelName) {
-        return carVariantRepository.findVariantNamesByModelName(modelName);
+        // getVariants() đã sắp theo variantName trong từng model
+        CatalogSnapshot catalog = catalogCache.get();
+        return catalog.findModelByName(modelName)
+                .map(model -> catalog.getVariants().stream()
+                        .filter(variant -> model.modelId().equals(variant.modelId()))
+                        .map(CatalogSnapshot.VariantEntry::variantName)
+                        .distinct()
+                        .toList())
+                .orElse(List.of());
     }
 
     @Override
@@ -503,9 +562,7 @@ public class CarVariantServiceImpl implements CarVariantService {
         // Lấy tất cả xe của dealer (bao gồm cả pending và on sale) - cho dealer manager
         List<CarVariant> carVariants = carVariantRepository.findVariantsByDealerIdWithConfiguration(dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, false))
-                .toList();
+        return convertToDealerVariantDetailResponses(toVariantRows(carVariants), dealerId, false);
     }
 
     @Override
@@ -513,249 +570,161 @@ public class CarVariantServiceImpl implements CarVariantService {
         // Lấy chỉ xe có status "On Sale" - cho dealer staff
         List<CarVariant> carVariants = carVariantRepository.findVariantsByDealerIdWithConfiguration(dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, true))
-                .toList();
+        return convertToDealerVariantDetailResponses(toVariantRows(carVariants), dealerId, true);
     }
 
-    private DealerVariantDetailResponse convertToDealerVariantDetailResponse(CarVariant carVariant, Integer dealerId, boolean onSaleOnly) {
-        // Lấy thông tin colorId, manufacturerPrice, dealerPrice, imagePath, quantity và status từ xe thuộc dealer hiện tại
-        List<Object[]> colorIdsAndData;
+    /**
+     * Chuyển danh sách variant của dealer thành response cho DealerManager (onSaleOnly = false)
+     * hoặc DealerStaff (onSaleOnly = true, chỉ xe "On Sale" và chỉ giá dealer)
+     */
+    private List<DealerVariantDetailResponse> convertToDealerVariantDetailResponses(List<VariantRow> variants, Integer dealerId, boolean onSaleOnly) {
         if (onSaleOnly) {
             // Chỉ lấy xe có status "On Sale" cho dealer staff
-            colorIdsAndData = carVariantRepository.findColorIdsAndDataByVariantIdAndDealerIdOnSale(
-                carVariant.getVariantId(), dealerId);
-        } else {
-            // Lấy tất cả xe cho dealer manager
-            colorIdsAndData = carVariantRepository.findColorIdsAndDataByVariantIdAndDealerId(
-                carVariant.getVariantId(), dealerId);
+            return buildDealerVariantDetailResponses(variants,
+                    variantIds -> carVariantRepository.findColorIdsAndDataByVariantIdsAndDealerIdOnSale(variantIds, dealerId),
+                    true);
         }
+        // Lấy tất cả xe cho dealer manager
+        return buildDealerVariantDetailResponses(variants,
+                variantIds -> carVariantRepository.findColorIdsAndDataByVariantIdsAndDealerId(variantIds, dealerId),
+                false);
+    }
+
+    /**
+     * Chuyển danh sách variant khi search theo status, chỉ gồm màu có status được yêu cầu
+     * Luôn trả về format của dealer manager (cả 2 giá)
+     */
+    private List<DealerVariantDetailResponse> convertToDealerVariantDetailResponsesByStatus(List<VariantRow> variants, Integer dealerId, String status) {
+        return buildDealerVariantDetailResponses(variants,
+                variantIds -> carVariantRepository.findColorIdsAndDataByVariantIdsAndDealerIdAndStatus(variantIds, dealerId, status),
+                false);
+    }
+
+    /**
+     * rowLoader trả về các dòng [variantId, colorId, manufacturerPrice, dealerPrice, imagePath, quantity, status]
+     */
+    private List<DealerVariantDetailResponse> buildDealerVariantDetailResponses(List<VariantRow> variants,
+                                                                                Function<List<Integer>, List<Object[]>> rowLoader,
+                                                                                boolean dealerStaffView) {
+        Map<Integer, Map<Integer, Object[]>> colorRowsByVariantId = loadColorRowsByVariantId(variants, rowLoader);
+        Map<Integer, Color> colorsById = loadColors(colorRowsByVariantId);
+
+        return variants.stream()
+                .map(variant -> {
+                    Map<Integer, Object[]> colorDataMap = colorRowsByVariantId.getOrDefault(variant.variantId(), Map.of());
+
+                    // Tạo danh sách DealerColorPrice
+                    List<DealerVariantDetailResponse.DealerColorPrice> colorPrices = colorDataMap.entrySet().stream()
+                            .filter(entry -> colorsById.containsKey(entry.getKey()))
+                            .map(entry -> {
+                                Object[] data = entry.getValue();
+                                String colorName = colorsById.get(entry.getKey()).getColorName();
+                                String imageUrl = toImageUrl((String) data[4]);
+                                BigDecimal manufacturerPrice = toBigDecimal(data[2]);
+                                BigDecimal dealerPrice = toBigDecimal(data[3]);
+                                Integer quantity = (Integer) data[5];
+                                String colorStatus = (String) data[6];
+
+                                // Phân biệt giữa Dealer Manager và Dealer Staff
+                                if (dealerStaffView) {
+                                    // Dealer Staff - chỉ xem giá dealer, không xem giá niêm yết
+                                    return DealerVariantDetailResponse.DealerColorPrice.forDealerStaff(
+                                        colorName, dealerPrice, imageUrl, quantity, colorStatus);
+                                }
+                                // Dealer Manager - xem cả giá niêm yết và giá dealer
+                                return DealerVariantDetailResponse.DealerColorPrice.forDealerManager(
+                                    colorName, manufacturerPrice, dealerPrice, imageUrl, quantity, colorStatus);
+                            })
+                            .sorted(Comparator.comparing(DealerVariantDetailResponse.DealerColorPrice::getColorName))
+                            .toList();
 
-        // Tạo Map từ colorId -> (manufacturerPrice, dealerPrice, imagePath, quantity, status)
-        Map<Integer, Object[]> colorDataMap = colorIdsAndData.stream()
-                .collect(Collectors.toMap(
-                    row -> (Integer) row[0],  // colorId
-                    row -> new Object[]{row[1], row[2], row[3], row[4], row[5]}, // [manufacturerPrice, dealerPrice, imagePath, quantity, status]
-                    (existing, replacement) -> existing // Nếu có duplicate, giữ giá trị đầu tiên
-                ));
-
-        // Lấy thông tin màu sắc từ ColorRepository
-        List<Integer> colorIds = colorIdsAndData.stream()
-                .map(row -> (Integer) row[0])
-                .distinct()
-                .toList();
-
-        List<Color> colors = colorRepository.findByColorIds(colorIds);
-
-        // Tạo danh sách DealerColorPrice
-        List<DealerVariantDetailResponse.DealerColorPrice> colorPrices = colors.stream()
-                .filter(color -> colorDataMap.containsKey(color.getColorId()))
-                .map(color -> {
-                    Object[] data = colorDataMap.get(color.getColorId());
-                    String imageName = (String) data[2];
-                    // Xây dựng URL để truy cập ảnh qua HTTP
-                    String imageUrl = null;
-                    if (imageName != null && !imageName.isEmpty()) {
-                        imageUrl = "/api/images/" + imageName;
-                    }
-
-                    // Convert Long manufacturer price to BigDecimal
-                    BigDecimal manufacturerPrice = null;
-                    if (data[0] != null) {
-                        if (data[0] instanceof Long) {
-                            manufacturerPrice = BigDecimal.valueOf((Long) data[0]);
-                        } else if (data[0] instanceof BigDecimal) {
-                            manufacturerPrice = (BigDecimal) data[0];
-                        }
-                    }
-
-                    BigDecimal dealerPrice = (BigDecimal) data[1];
-                    Integer quantity = (Integer) data[3];
-                    String status = (String) data[4];
-
-                    // Phân biệt giữa Dealer Manager và Dealer Staff
-                    if (onSaleOnly) {
-                        // Dealer Staff - chỉ xem giá dealer, không xem giá niêm yết
-                        return DealerVariantDetailResponse.DealerColorPrice.forDealerStaff(
-                            color.getColorName(), dealerPrice, imageUrl, quantity, status);
-                    } else {
-                        // Dealer Manager - xem cả giá niêm yết và giá dealer
-                        return DealerVariantDetailResponse.DealerColorPrice.forDealerManager(
-                            color.getColorName(), manufacturerPrice, dealerPrice, imageUrl, quantity, status);
-                    }
+                    return DealerVariantDetailResponse.builder()
+                            .variantId(variant.variantId())
+                            .modelName(variant.modelName())
+                            .variantName(variant.variantName())
+                            .colorPrices(colorPrices)
+                            .build();
                 })
-                .sorted(Comparator.comparing(DealerVariantDetailResponse.DealerColorPrice::getColorName))
                 .toList();
-
-        return DealerVariantDetailResponse.builder()
-                .variantId(carVariant.getVariantId())
-                .modelName(carVariant.getCarModel().getModelName())
-                .variantName(carVariant.getVariantName())
-                .colorPrices(colorPrices)
-                .build();
     }
 
     // Missing method implementations for dealer-specific searches
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsForManager(Integer dealerId, String searchTerm) {
-        String processedSearchTerm = processFlexibleSearchTerm(searchTerm);
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndTerm(dealerId, processedSearchTerm);
-
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, false))
-                .toList();
+        return convertToDealerVariantDetailResponses(searchVariantRows(searchTerm, dealerId), dealerId, false);
     }
 
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsForStaff(Integer dealerId, String searchTerm) {
-        String processedSearchTerm = processFlexibleSearchTerm(searchTerm);
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndTerm(dealerId, processedSearchTerm);
-
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, true))
-                .toList();
+        return convertToDealerVariantDetailResponses(searchVariantRows(searchTerm, dealerId), dealerId, true);
     }
 
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsByVariantNameForManager(Integer dealerId, String variantName) {
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndVariantName(dealerId, variantName);
+        List<VariantRow> variants = searchVariantRowsByNames(null, variantName, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, false))
-                .toList();
+        return convertToDealerVariantDetailResponses(variants, dealerId, false);
     }
 
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsByVariantNameForStaff(Integer dealerId, String variantName) {
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndVariantName(dealerId, variantName);
+        List<VariantRow> variants = searchVariantRowsByNames(null, variantName, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, true))
-                .toList();
+        return convertToDealerVariantDetailResponses(variants, dealerId, true);
     }
 
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsByModelNameForManager(Integer dealerId, String modelName) {
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndModelName(dealerId, modelName);
+        List<VariantRow> variants = searchVariantRowsByNames(modelName, null, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, false))
-                .toList();
+        return convertToDealerVariantDetailResponses(variants, dealerId, false);
     }
 
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsByModelNameForStaff(Integer dealerId, String modelName) {
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndModelName(dealerId, modelName);
+        List<VariantRow> variants = searchVariantRowsByNames(modelName, null, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, true))
-                .toList();
+        return convertToDealerVariantDetailResponses(variants, dealerId, true);
     }
 
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsByModelAndVariantNameForManager(Integer dealerId, String modelName, String variantName) {
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndModelAndVariantName(dealerId, modelName, variantName);
+        List<VariantRow> variants = searchVariantRowsByNames(modelName, variantName, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, false))
-                .toList();
+        return convertToDealerVariantDetailResponses(variants, dealerId, false);
     }
 
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsByModelAndVariantNameForStaff(Integer dealerId, String modelName, String variantName) {
-        List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndModelAndVariantName(dealerId, modelName, variantName);
+        List<VariantRow> variants = searchVariantRowsByNames(modelName, variantName, dealerId);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponse(cv, dealerId, true))
-                .toList();
+        return convertToDealerVariantDetailResponses(variants, dealerId, true);
     }
 
     @Override
     public List<DealerVariantDetailResponse> searchDealerVariantsByStatusForManager(Integer dealerId, String status) {
         List<CarVariant> carVariants = carVariantRepository.searchVariantsByDealerIdAndStatus(dealerId, status);
 
-        return carVariants.stream()
-                .map(cv -> convertToDealerVariantDetailResponseByStatus(cv, dealerId, status))
-                .toList();
-    }
-
-    // New method specifically for converting variants when searching by status
-    private DealerVariantDetailResponse convertToDealerVariantDetailResponseByStatus(CarVariant carVariant, Integer dealerId, String status) {
-        // Lấy thông tin màu chỉ với status cụ thể được yêu cầu
-        List<Object[]> colorIdsAndData = carVariantRepository.findColorIdsAndDataByVariantIdAndDealerIdAndStatus(
-                carVariant.getVariantId(), dealerId, status);
-
-        // Tạo Map từ colorId -> (manufacturerPrice, dealerPrice, imagePath, quantity, status)
-        Map<Integer, Object[]> colorDataMap = colorIdsAndData.stream()
-                .collect(Collectors.toMap(
-                    row -> (Integer) row[0],  // colorId
-                    row -> new Object[]{row[1], row[2], row[3], row[4], row[5]}, // [manufacturerPrice, dealerPrice, imagePath, quantity, status]
-                    (existing, replacement) -> existing // Nếu có duplicate, giữ giá trị đầu tiên
-                ));
-
-        // Lấy thông tin màu sắc từ ColorRepository
-        List<Integer> colorIds = colorIdsAndData.stream()
-                .map(row -> (Integer) row[0])
-                .distinct()
-                .toList();
-
-        List<Color> colors = colorRepository.findByColorIds(colorIds);
-
-        // Tạo danh sách DealerColorPrice chỉ với những màu có status được yêu cầu
-        List<DealerVariantDetailResponse.DealerColorPrice> colorPrices = colors.stream()
-                .filter(color -> colorDataMap.containsKey(color.getColorId()))
-                .map(color -> {
-                    Object[] data = colorDataMap.get(color.getColorId());
-                    String imageName = (String) data[2];
-                    // Xây dựng URL để truy cập ảnh qua HTTP
-                    String imageUrl = null;
-                    if (imageName != null && !imageName.isEmpty()) {
-                        imageUrl = "/api/images/" + imageName;
-                    }
-
-                    // Convert Long manufacturer price to BigDecimal
-                    BigDecimal manufacturerPrice = null;
-                    if (data[0] != null) {
-                        if (data[0] instanceof Long) {
-                            manufacturerPrice = BigDecimal.valueOf((Long) data[0]);
-                        } else if (data[0] instanceof BigDecimal) {
-                            manufacturerPrice = (BigDecimal) data[0];
-                        }
-                    }
-
-                    // Convert dealer price to BigDecimal with proper type checking
-                    BigDecimal dealerPrice = null;
-                    if (data[1] != null) {
-                        if (data[1] instanceof Long) {
-                            dealerPrice = BigDecimal.valueOf((Long) data[1]);
-                        } else if (data[1] instanceof BigDecimal) {
-                            dealerPrice = (BigDecimal) data[1];
-                        }
-                    }
-
-                    Integer quantity = (Integer) data[3];
-                    String colorStatus = (String) data[4];
-
-                    // For search by status, always return dealer manager format (both prices)
-                    return DealerVariantDetailResponse.DealerColorPrice.forDealerManager(
-                        color.getColorName(), manufacturerPrice, dealerPrice, imageUrl, quantity, colorStatus);
-                })
-                .sorted(Comparator.comparing(DealerVariantDetailResponse.DealerColorPrice::getColorName))
-                .toList();
-
-        return DealerVariantDetailResponse.builder()
-                .variantId(carVariant.getVariantId())
-                .modelName(carVariant.getCarModel().getModelName())
-                .variantName(carVariant.getVariantName())
-                .colorPrices(colorPrices)
-                .build();
+        return convertToDealerVariantDetailResponsesByStatus(toVariantRows(carVariants), dealerId, status);
     }
 
     @Override
+    @Transactional
     public boolean updateDealerCarPriceAndStatus(Integer dealerId, String modelName, String variantName,
                                                String colorName, java.math.BigDecimal dealerPrice, String status) {
-        return carVariantRepository.updateDealerCarPriceAndStatus(dealerId, modelName, variantName,
-                                                                 colorName, dealerPrice, status);
+        boolean updated = carVariantRepository.updateDealerCarPriceAndStatus(dealerId, modelName, variantName,
+                                                                            colorName, dealerPrice, status);
+        if (updated) {
+            dataVersions.inventoryChangedAfterCommit(dealerId);
+            // Câu UPDATE sửa mọi xe trùng tên dealer đang có, nên ghi nhận từng xe
+            catalogCache.get().findCarsByNames(modelName, variantName, colorName).stream()
+                    .filter(car -> dealerCarRepository.existsById(new DealerCarId(car.carId(), dealerId)))
+                    .forEach(car -> {
+                        changeFeedService.record(ChangeLog.Domain.DEALER_CAR, dealerId, car.carId(), ChangeLog.Operation.UPSERT);
+                        dealerEventHub.inventoryChangedAfterCommit(dealerId, car.carId());
+                    });
+        }
+        return updated;
     }
 
     @Override
@@ -0,0 +1,147 @@
+package org.example.service.implementation;
+
+import org.example.entity.Configuration;
+import org.example.repository.CarModelRepository;
+import org.example.repository.CarRepository;
+import org.example.repository.CarVariantRepository;
+import org.example.repository.ColorRepository;
+import org.example.repository.ConfigurationRepository;
+import org.example.service.implementation.CatalogSnapshot.CarEntry;
+import org.example.service.implementation.CatalogSnapshot.ColorEntry;
+import org.example.service.implementation.CatalogSnapshot.ConfigurationEntry;
+import org.example.service.implementation.CatalogSnapshot.ModelEntry;
+import org.example.service.implementation.CatalogSnapshot.VariantEntry;
+import org.example.util.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giữ catalog snapshot hiện tại trong bộ nhớ
+ * Danh mục xe rất ít thay đổi nên các màn hình danh mục đọc từ snapshot thay vì query SQL Server
+ * Mỗi lần CarServiceImpl, ConfigurationServiceImpl hoặc CarDeletionServiceImpl sửa danh mục,
+ * snapshot mới được build sau khi transaction commit rồi thay thế snapshot cũ trong một lần gán
+ */
+@Component
+public class CatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    private final CarModelRepository carModelRepository;
+
+    private final CarVariantRepository carVariantRepository;
+
+    private final ConfigurationRepository configurationRepository;
+
+    private final ColorRepository colorRepository;
+
+    private final CarRepository carRepository;
+
+    private final TransactionTemplate readTransaction;
+
+    private final AtomicLong versions = new AtomicLong();
+
+    // null khi chưa nạp hoặc lần build lại gần nhất bị lỗi, lần đọc tiếp theo sẽ nạp lại
+    private volatile CatalogSnapshot snapshot;
+
+    public CatalogCache(CarModelRepository carModelRepository,
+                        CarVariantRepository carVariantRepository,
+                        ConfigurationRepository configurationRepository,
+                        ColorRepository colorRepository,
+                        CarRepository carRepository,
+                        PlatformTransactionManager transactionManager) {
+        this.carModelRepository = carModelRepository;
+        this.carVariantRepository = carVariantRepository;
+        this.configurationRepository = configurationRepository;
+        this.colorRepository = colorRepository;
+        this.carRepository = carRepository;
+
+        // Build trong transaction read-only riêng, không dùng lại persistence context của transaction vừa commit
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Snapshot hiện tại, nạp từ DB ở lần gọi đầu tiên
+     */
+    public CatalogSnapshot get() {
+        CatalogSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Build lại snapshot sau khi transaction hiện tại commit (hoặc ngay lập tức nếu không có transaction)
+     * Nếu transaction rollback thì giữ nguyên snapshot cũ
+     */
+    public void refreshAfterCommit() {
+        AfterCommit.run(this::refresh);
+    }
+
+    /**
+     * Các lần build lại chạy tuần tự nên lần build sau luôn đọc dữ liệu mới hơn lần trước
+     */
+    private synchronized void refresh() {
+        try {
+            snapshot = load();
+        } catch (RuntimeException e) {
+            // Dữ liệu đã commit, không để lỗi build snapshot làm hỏng request
+            // Bỏ snapshot cũ để lần đọc sau nạp lại thay vì trả dữ liệu cũ
+            snapshot = null;
+            logger.error("Failed to rebuild catalog snapshot", e);
+        }
+    }
+
+    private CatalogSnapshot load() {
+        CatalogSnapshot loaded = readTransaction.execute(status -> {
+            List<ModelEntry> models = carModelRepository.findAll().stream()
+                    .map(model -> new ModelEntry(model.getModelId(), model.getModelName(), model.getSegment()))
+                    .toList();
+
+            List<VariantEntry> variants = carVariantRepository.findAllCatalogRows().stream()
+                    .map(row -> new VariantEntry((Integer) row[0], (Integer) row[1], (String) row[2], (String) row[3]))
+                    .toList();
+
+            List<ConfigurationEntry> configurations = configurationRepository.findAll().stream()
+                    .map(this::toConfigurationEntry)
+                    .toList();
+
+            List<ColorEntry> colors = colorRepository.findAll().stream()
+                    .map(color -> new ColorEntry(color.getColorId(), color.getColorName()))
+                    .toList();
+
+            List<CarEntry> cars = carRepository.findAll().stream()
+                    .map(car -> new CarEntry(car.getCarId(), car.getVariantId(), car.getColorId(),
+                            car.getProductionYear(), car.getPrice(), car.getImagePath()))
+                    .toList();
+
+            return new CatalogSnapshot(versions.incrementAndGet(), models, variants, configurations, colors, cars);
+        });
+
+        logger.info("Loaded catalog snapshot version {}", loaded.getVersion());
+        return loaded;
+    }
+
+    private ConfigurationEntry toConfigurationEntry(Configuration config) {
+        return new ConfigurationEntry(config.getConfigId(), config.getVariantId(),
+                config.getBatteryCapacity(), config.getBatteryType(),
+                config.getFullChargeTime(), config.getRangeKm(), config.getPower(), config.getTorque(),
+                config.getLengthMm(), config.getWidthMm(), config.getHeightMm(), config.getWheelbaseMm(),
+                config.getWeightKg(), config.getTrunkVolumeL(), config.getSeats());
+    }
+}
@@ -0,0 +1,335 @@
+package org.example.service.implementation;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Ảnh chụp bất biến của danh mục xe (CAR_MODEL, CAR_VARIANT, CONFIGURATION, COLOR, CAR)
+ * Các map chỉ được tạo trong constructor và không bao giờ bị sửa nên nhiều thread đọc cùng lúc không cần khóa
+ * Khi danh mục thay đổi, CatalogCache tạo snapshot mới rồi thay cả snapshot (copy-on-write)
+ * Tên được tra cứu không phân biệt hoa thường giống các query LOWER(...) = LOWER(...) cũ,
+ * riêng tra cứu xe theo (model, variant, color) còn chấp nhận tên gõ thiếu dấu tiếng Việt
+ * CAR không chặn trùng (variant, color) ở dữ liệu cũ nên mỗi khóa giữ tất cả xe, sắp theo carId
+ */
+public final class CatalogSnapshot {
+
+    // Sắp xếp tên theo kiểu không phân biệt hoa thường như collation CI của SQL Server
+    private static final Comparator<String> NAME_ORDER = String.CASE_INSENSITIVE_ORDER;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+    private final long version;
+
+    private final Map<Integer, ModelEntry> modelsById;
+
+    private final Map<Integer, VariantEntry> variantsById;
+
+    private final Map<Integer, ConfigurationEntry> configurationsByVariantId;
+
+    private final Map<Integer, ColorEntry> colorsById;
+
+    private final Map<Integer, CarEntry> carsById;
+
+    private final Map<String, ModelEntry> modelsByName;
+
+    private final Map<VariantKey, VariantEntry> variantsByModelAndName;
+
+    private final Map<String, List<VariantEntry>> variantsByName;
+
+    private final Map<String, ColorEntry> colorsByName;
+
+    private final Map<CarKey, List<CarEntry>> carsByVariantAndColor;
+
+    // (model, variant, color) đã bỏ dấu -> xe, chỉ giữ các khóa không trùng giữa nhiều (variant, color)
+    private final Map<FoldedCarKey, List<CarEntry>> carsByFoldedNames;
+
+    // Xe của từng variant, sắp theo colorId
+    private final Map<Integer, List<CarEntry>> carsByVariantId;
+
+    // Variant sắp theo modelName, variantName
+    private final List<VariantEntry> orderedVariants;
+
+    private final List<String> modelNames;
+
+    private final List<String> variantNames;
+
+    private final List<String> colorNames;
+
+    public CatalogSnapshot(long version, List<ModelEntry> models, List<VariantEntry> variants,
+                           List<ConfigurationEntry> configurations, List<ColorEntry> colors, List<CarEntry> cars) {
+        this.version = version;
+
+        Map<Integer, ModelEntry> modelsById = new HashMap<>();
+        Map<String, ModelEntry> modelsByName = new HashMap<>();
+        for (ModelEntry model : models) {
+            modelsById.put(model.modelId(), model);
+            modelsByName.putIfAbsent(normalize(model.modelName()), model);
+        }
+
+        Map<Integer, VariantEntry> variantsById = new HashMap<>();
+        Map<VariantKey, VariantEntry> variantsByModelAndName = new HashMap<>();
+        Map<String, List<VariantEntry>> variantsByName = new HashMap<>();
+        for (VariantEntry variant : variants) {
+            variantsById.put(variant.variantId(), variant);
+            variantsByModelAndName.putIfAbsent(new VariantKey(variant.modelId(), normalize(variant.variantName())), variant);
+            variantsByName.computeIfAbsent(normalize(variant.variantName()), name -> new ArrayList<>()).add(variant);
+        }
+
+        Map<Integer, ConfigurationEntry> configurationsByVariantId = new HashMap<>();
+        for (ConfigurationEntry configuration : configurations) {
+            if (configuration.variantId() != null) {
+                configurationsByVariantId.putIfAbsent(configuration.variantId(), configuration);
+            }
+        }
+
+        Map<Integer, ColorEntry> colorsById = new HashMap<>();
+        Map<String, ColorEntry> colorsByName = new HashMap<>();
+        for (ColorEntry color : colors) {
+            colorsById.put(color.colorId(), color);
+            colorsByName.putIfAbsent(normalize(color.colorName()), color);
+        }
+
+        Map<Integer, CarEntry> carsById = new HashMap<>();
+        Map<CarKey, List<CarEntry>> carsByVariantAndColor = new HashMap<>();
+        Map<Integer, List<CarEntry>> carsByVariantId = new HashMap<>();
+        for (CarEntry car : cars) {
+            carsById.put(car.carId(), car);
+            if (car.variantId() == null || car.colorId() == null) {
+                continue;
+            }
+            carsByVariantAndColor.computeIfAbsent(new CarKey(car.variantId(), car.colorId()), key -> new ArrayList<>()).add(car);
+            carsByVariantId.computeIfAbsent(car.variantId(), variantId -> new ArrayList<>()).add(car);
+        }
+        carsByVariantAndColor.replaceAll((key, keyCars) -> keyCars.stream()
+                .sorted(Comparator.comparing(CarEntry::carId))
+                .toList());
+
+        Map<FoldedCarKey, List<CarEntry>> carsByFoldedNames = new HashMap<>();
+        Set<FoldedCarKey> ambiguousFoldedKeys = new HashSet<>();
+        for (List<CarEntry> keyCars : carsByVariantAndColor.values()) {
+            CarEntry car = keyCars.get(0);
+            VariantEntry variant = variantsById.get(car.variantId());
+            ModelEntry model = variant != null ? modelsById.get(variant.modelId()) : null;
+            ColorEntry color = colorsById.get(car.colorId());
+            if (model == null || color == null) {
+                continue;
+            }
+            FoldedCarKey key = new FoldedCarKey(fold(model.modelName()), fold(variant.variantName()), fold(color.colorName()));
+            if (carsByFoldedNames.putIfAbsent(key, keyCars) != null) {
+                ambiguousFoldedKeys.add(key);
+            }
+        }
+        // Hai xe chỉ khác nhau ở dấu thì không đoán, bắt buộc gõ đúng tên
+        carsByFoldedNames.keySet().removeAll(ambiguousFoldedKeys);
+
+        carsByVariantId.replaceAll((variantId, variantCars) -> variantCars.stream()
+                .sorted(Comparator.comparing(CarEntry::colorId).thenComparing(CarEntry::carId))
+                .toList());
+        variantsByName.replaceAll((name, namedVariants) -> List.copyOf(namedVariants));
+
+        // Giống JOIN với CAR_MODEL trong query cũ: variant không có model thì không hiển thị
+        List<VariantEntry> orderedVariants = variants.stream()
+                .filter(variant -> modelsById.containsKey(variant.modelId()))
+                .sorted(Comparator.<VariantEntry, String>comparing(variant -> modelsById.get(variant.modelId()).modelName(), NAME_ORDER)
+                        .thenComparing(VariantEntry::variantName, NAME_ORDER))
+                .toList();
+
+        this.modelsById = Map.copyOf(modelsById);
+        this.variantsById = Map.copyOf(variantsById);
+        this.configurationsByVariantId = Map.copyOf(configurationsByVariantId);
+        this.colorsById = Map.copyOf(colorsById);
+        this.carsById = Map.copyOf(carsById);
+        this.modelsByName = Map.copyOf(modelsByName);
+        this.variantsByModelAndName = Map.copyOf(variantsByModelAndName);
+        this.variantsByName = Map.copyOf(variantsByName);
+        this.colorsByName = Map.copyOf(colorsByName);
+        this.carsByVariantAndColor = Map.copyOf(carsByVariantAndColor);
+        this.carsByFoldedNames = Map.copyOf(carsByFoldedNames);
+        this.carsByVariantId = Map.copyOf(carsByVariantId);
+        this.orderedVariants = orderedVariants;
+        this.modelNames = sortedDistinct(models.stream().map(ModelEntry::modelName).toList());
+        this.variantNames = sortedDistinct(variants.stream().map(VariantEntry::variantName).toList());
+        this.colorNames = sortedDistinct(colors.stream().map(ColorEntry::colorName).toList());
+    }
+
+    /**
+     * Số phiên bản của snapshot, tăng mỗi lần danh mục được build lại
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Optional<ModelEntry> findModel(Integer modelId) {
+        return Optional.ofNullable(modelId != null ? modelsById.get(modelId) : null);
+    }
+
+    public Optional<ModelEntry> findModelByName(String modelName) {
+        return Optional.ofNullable(modelsByName.get(normalize(modelName)));
+    }
+
+    public Optional<VariantEntry> findVariant(Integer variantId) {
+        return Optional.ofNullable(variantId != null ? variantsById.get(variantId) : null);
+    }
+
+    public Optional<VariantEntry> findVariantByNames(String modelName, String variantName) {
+        return findModelByName(modelName)
+                .map(model -> variantsByModelAndName.get(new VariantKey(model.modelId(), normalize(variantName))));
+    }
+
+    /**
+     * Các variant có tên variantName (có thể thuộc nhiều model)
+     */
+    public List<VariantEntry> findVariantsByName(String variantName) {
+        return variantsByName.getOrDefault(normalize(variantName), List.of());
+    }
+
+    public Optional<ConfigurationEntry> findConfiguration(Integer variantId) {
+        return Optional.ofNullable(variantId != null ? configurationsByVariantId.get(variantId) : null);
+    }
+
+    public Optional<ColorEntry> findColor(Integer colorId) {
+        return Optional.ofNullable(colorId != null ? colorsById.get(colorId) : null);
+    }
+
+    public Optional<ColorEntry> findColorByName(String colorName) {
+        return Optional.ofNullable(colorsByName.get(normalize(colorName)));
+    }
+
+    public Optional<CarEntry> findCar(Integer carId) {
+        return Optional.ofNullable(carId != null ? carsById.get(carId) : null);
+    }
+
+    /**
+     * Tìm xe theo tên model, variant, màu (không phân biệt hoa thường)
+     * Không khớp chính xác thì so theo tên đã bỏ dấu, ví dụ "Do" khớp với "Đỏ"
+     * Nếu có nhiều xe cùng (variant, color) thì lấy xe có carId nhỏ nhất
+     */
+    public Optional<CarEntry> findCarByNames(String modelName, String variantName, String colorName) {
+        return findCarsByNames(modelName, variantName, colorName).stream().findFirst();
+    }
+
+    /**
+     * Như findCarByNames nhưng khi có nhiều xe cùng (variant, color) thì ưu tiên xe thỏa preferred
+     * (ví dụ xe dealer đang có trong kho), không có xe nào thỏa thì lấy xe có carId nhỏ nhất
+     * preferred chỉ được gọi khi có từ hai xe trở lên
+     */
+    public Optional<CarEntry> findCarByNames(String modelName, String variantName, String colorName,
+                                             Predicate<Integer> preferred) {
+        List<CarEntry> candidates = findCarsByNames(modelName, variantName, colorName);
+        if (candidates.size() <= 1) {
+            return candidates.stream().findFirst();
+        }
+        return candidates.stream()
+                .filter(car -> preferred.test(car.carId()))
+                .findFirst()
+                .or(() -> Optional.of(candidates.get(0)));
+    }
+
+    /**
+     * Tất cả xe khớp tên model, variant, màu, sắp theo carId
+     */
+    public List<CarEntry> findCarsByNames(String modelName, String variantName, String colorName) {
+        List<CarEntry> exact = findColorByName(colorName)
+                .flatMap(color -> findVariantByNames(modelName, variantName)
+                        .map(variant -> carsByVariantAndColor.get(new CarKey(variant.variantId(), color.colorId()))))
+                .orElse(null);
+        if (exact != null) {
+            return exact;
+        }
+        return carsByFoldedNames.getOrDefault(
+                new FoldedCarKey(fold(modelName), fold(variantName), fold(colorName)), List.of());
+    }
+
+    /**
+     * Xe của variant, sắp theo colorId
+     */
+    public List<CarEntry> getCarsByVariant(Integer variantId) {
+        return variantId != null ? carsByVariantId.getOrDefault(variantId, List.of()) : List.of();
+    }
+
+    /**
+     * Tất cả variant có model, sắp theo modelName rồi variantName
+     */
+    public List<VariantEntry> getVariants() {
+        return orderedVariants;
+    }
+
+    public List<String> getModelNames() {
+        return modelNames;
+    }
+
+    public List<String> getVariantNames() {
+        return variantNames;
+    }
+
+    public List<String> getColorNames() {
+        return colorNames;
+    }
+
+    /**
+     * Chuẩn hóa tên để làm khóa tra cứu
+     */
+    static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Chuẩn hóa tên rồi bỏ dấu tiếng Việt và gộp khoảng trắng
+     */
+    static String fold(String name) {
+        String decomposed = Normalizer.normalize(normalize(name), Normalizer.Form.NFD);
+        String withoutMarks = COMBINING_MARKS.matcher(decomposed).replaceAll("").replace('đ', 'd');
+        return WHITESPACES.matcher(withoutMarks).replaceAll(" ");
+    }
+
+    private static List<String> sortedDistinct(List<String> names) {
+        TreeSet<String> sorted = new TreeSet<>(NAME_ORDER);
+        for (String name : names) {
+            if (name != null) {
+                sorted.add(name);
+            }
+        }
+        return List.copyOf(sorted);
+    }
+
+    public record ModelEntry(Integer modelId, String modelName, String segment) {
+    }
+
+    public record VariantEntry(Integer variantId, Integer modelId, String variantName, String description) {
+    }
+
+    public record ConfigurationEntry(Integer configId, Integer variantId, Double batteryCapacity, String batteryType,
+                                     int fullChargeTime, int rangeKm, Double power, Double torque,
+                                     int lengthMm, int widthMm, int heightMm, int wheelbaseMm,
+                                     int weightKg, int trunkVolumeL, int seats) {
+    }
+
+    public record ColorEntry(Integer colorId, String colorName) {
+    }
+
+    public record CarEntry(Integer carId, Integer variantId, Integer colorId, Integer productionYear,
+                           Long price, String imagePath) {
+    }
+
+    private record VariantKey(Integer modelId, String variantName) {
+    }
+
+    private record CarKey(Integer variantId, Integer colorId) {
+    }
+
+    private record FoldedCarKey(String modelName, String variantName, String colorName) {
+    }
+}
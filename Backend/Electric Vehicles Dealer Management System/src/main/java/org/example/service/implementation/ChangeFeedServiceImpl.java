@@ -0,0 +1,236 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.dto.ChangeFeedResponse;
+import org.example.entity.ChangeLog;
+import org.example.entity.DealerCar;
+import org.example.entity.DealerCarId;
+import org.example.repository.ChangeLogRepository;
+import org.example.repository.DealerCarRepository;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.ChangeFeedService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * API đồng bộ delta: client tải toàn bộ dữ liệu một lần, sau đó chỉ hỏi "thay đổi gì từ token X"
+ * - Ghi: mỗi thay đổi DEALER_CAR / danh mục / đơn hàng / khuyến mãi chèn một dòng CHANGE_LOG trong cùng transaction
+ * - Đọc: chỉ trả các dòng có token <= MIN_ACTIVE_ROWVERSION() - 1, transaction chèn trước nhưng commit sau
+ *   luôn có token lớn hơn token đã trả cho client nên không bị bỏ sót (đúng cả khi chạy nhiều instance)
+ * - Dòng cũ hơn RETENTION_DAYS ngày bị dọn, client giữ token cũ hơn sẽ nhận resetRequired và tải lại toàn bộ
+ */
+@Service
+@RequiredArgsConstructor
+public class ChangeFeedServiceImpl implements ChangeFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedServiceImpl.class);
+
+    private static final int DEFAULT_LIMIT = 200;
+
+    private static final int MAX_LIMIT = 1000;
+
+    private static final int RETENTION_DAYS = 30;
+
+    // Khóa resource của transaction hiện tại, lưu các thay đổi đã ghi để không chèn trùng trong một transaction
+    private static final Object RECORDED_KEY = new Object();
+
+    private final ChangeLogRepository changeLogRepository;
+
+    private final DealerCarRepository dealerCarRepository;
+
+    private final CurrentUserProvider currentUserProvider;
+
+    @Override
+    @Transactional
+    public void record(ChangeLog.Domain domain, Integer dealerId, Integer entityId, ChangeLog.Operation operation) {
+        // Cùng entity được ghi nhiều lần trong một transaction (vd. cập nhật tổng tiền sau mỗi dòng đơn) chỉ cần một dòng
+        ChangeKey key = new ChangeKey(domain.name(), dealerId, entityId);
+        if (recordedInTransaction().put(key, operation) == operation) {
+            return;
+        }
+
+        ChangeLog change = new ChangeLog();
+        change.setDomain(domain);
+        change.setDealerId(dealerId);
+        change.setEntityId(entityId);
+        change.setOperation(operation);
+        changeLogRepository.save(change);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ChangeFeedResponse getChanges(String userEmail, Long since, Integer limit) {
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
+
+        // Admin / EVMStaff xem thay đổi của mọi dealer, user của dealer chỉ xem dealer mình và danh mục chung
+        Integer dealerId = user.getDealerId();
+        if (dealerId == null && !"Admin".equals(user.getRoleName()) && !"EVMStaff".equals(user.getRoleName())) {
+            throw new RuntimeException("User is not assigned to any dealer");
+        }
+
+        int pageSize = resolveLimit(limit);
+        long committedToken = changeLogRepository.findCommittedToken();
+
+        if (since == null) {
+            return emptyResponse(null, committedToken, false);
+        }
+        if (since < 0 || since > committedToken || isPurged(since)) {
+            return emptyResponse(since, committedToken, true);
+        }
+
+        // Đọc thêm một dòng để biết còn trang sau hay không
+        List<Object[]> rows = dealerId != null
+                ? changeLogRepository.findDealerChanges(dealerId, since, committedToken, pageSize + 1)
+                : changeLogRepository.findAllChanges(since, committedToken, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        long nextToken = hasMore ? ((Number) rows.get(rows.size() - 1)[0]).longValue() : committedToken;
+
+        // Mỗi entity chỉ giữ thay đổi mới nhất, thứ tự theo token của thay đổi đó
+        Map<ChangeKey, ChangeFeedResponse.Change> latest = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            ChangeFeedResponse.Change change = toChange(row);
+            ChangeKey key = new ChangeKey(change.getDomain(), change.getDealerId(), change.getEntityId());
+            latest.remove(key);
+            latest.put(key, change);
+        }
+        List<ChangeFeedResponse.Change> changes = new ArrayList<>(latest.values());
+        attachDealerCars(changes);
+
+        return ChangeFeedResponse.builder()
+                .since(since)
+                .nextToken(nextToken)
+                .hasMore(hasMore)
+                .resetRequired(false)
+                .changes(changes)
+                .build();
+    }
+
+    /**
+     * Scheduled to run every day at 00:30:00, after the promotion status update
+     */
+    @Override
+    @Scheduled(cron = "0 30 0 * * ?")
+    @Transactional
+    public void purgeExpiredChanges() {
+        int deleted = changeLogRepository.deleteExpired(LocalDateTime.now().minusDays(RETENTION_DAYS));
+        logger.info("Purged {} change log entries older than {} days", deleted, RETENTION_DAYS);
+    }
+
+    /**
+     * Token đã bị dọn nếu nhỏ hơn dòng quá hạn cũ nhất còn giữ (dòng mốc sau lần dọn gần nhất)
+     */
+    private boolean isPurged(long since) {
+        Long oldestExpiredToken = changeLogRepository.findOldestExpiredToken(
+                LocalDateTime.now().minusDays(RETENTION_DAYS));
+        return oldestExpiredToken != null && since < oldestExpiredToken;
+    }
+
+    /**
+     * Gắn số lượng, giá và trạng thái hiện tại của DEALER_CAR để client cập nhật tồn kho không cần gọi thêm API
+     * Dòng không còn tồn tại (xe đã bị xóa khỏi danh mục) được trả về như DELETE
+     */
+    private void attachDealerCars(List<ChangeFeedResponse.Change> changes) {
+        List<DealerCarId> ids = changes.stream()
+                .filter(change -> ChangeLog.Domain.DEALER_CAR.name().equals(change.getDomain()))
+                .filter(change -> ChangeLog.Operation.UPSERT.name().equals(change.getOperation()))
+                .map(change -> new DealerCarId(change.getEntityId(), change.getDealerId()))
+                .toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Map<DealerCarId, DealerCar> dealerCars = dealerCarRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(dc -> new DealerCarId(dc.getCarId(), dc.getDealerId()), Function.identity()));
+        for (ChangeFeedResponse.Change change : changes) {
+            if (!ChangeLog.Domain.DEALER_CAR.name().equals(change.getDomain())
+                    || !ChangeLog.Operation.UPSERT.name().equals(change.getOperation())) {
+                continue;
+            }
+            DealerCar dealerCar = dealerCars.get(new DealerCarId(change.getEntityId(), change.getDealerId()));
+            if (dealerCar == null) {
+                change.setOperation(ChangeLog.Operation.DELETE.name());
+                continue;
+            }
+            change.setQuantity(dealerCar.getQuantity());
+            change.setDealerPrice(dealerCar.getDealerPrice());
+            change.setStatus(dealerCar.getStatus());
+        }
+    }
+
+    private ChangeFeedResponse.Change toChange(Object[] row) {
+        return ChangeFeedResponse.Change.builder()
+                .token(((Number) row[0]).longValue())
+                .domain((String) row[1])
+                .dealerId(row[2] != null ? ((Number) row[2]).intValue() : null)
+                .entityId(((Number) row[3]).intValue())
+                .operation((String) row[4])
+                .changedAt(toLocalDateTime(row[5]))
+                .build();
+    }
+
+    private LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private ChangeFeedResponse emptyResponse(Long since, long nextToken, boolean resetRequired) {
+        return ChangeFeedResponse.builder()
+                .since(since)
+                .nextToken(nextToken)
+                .hasMore(false)
+                .resetRequired(resetRequired)
+                .changes(List.of())
+                .build();
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new RuntimeException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<ChangeKey, ChangeLog.Operation> recordedInTransaction() {
+        Map<ChangeKey, ChangeLog.Operation> recorded =
+                (Map<ChangeKey, ChangeLog.Operation>) TransactionSynchronizationManager.getResource(RECORDED_KEY);
+        if (recorded == null) {
+            recorded = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(RECORDED_KEY, recorded);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RECORDED_KEY);
+                }
+            });
+        }
+        return recorded;
+    }
+
+    private record ChangeKey(String domain, Integer dealerId, Integer entityId) {
+    }
+}
@@ -1,21 +1,22 @@
 package org.example.service.implementation;
 
 import lombok.RequiredArgsConstructor;
-import org.example.repository.ColorRepository;
 import org.example.service.ColorService;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
 
 @Service
 @RequiredArgsConstructor
 public class ColorServiceImpl implements ColorService {
 
-    private final ColorRepository colorRepository;
+    private final CatalogCache catalogCache;
 
     @Override
     public List<String> getAllColorNames() {
-        return colorRepository.findAllColorNames();
+        return catalogCache.get().getColorNames();
     }
 
     @Override
@@ -27,6 +28,14 @@ public class ColorServiceImpl implements ColorService {
             throw new RuntimeException("Variant name is required and cannot be empty");
         }
 
-        return colorRepository.findColorNamesByModelNameAndVariantName(modelName.trim(), variantName.trim());
+        // Màu của các xe thuộc variant, sắp theo tên và bỏ trùng không phân biệt hoa thường
+        CatalogSnapshot catalog = catalogCache.get();
+        TreeSet<String> colorNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        catalog.findVariantByNames(modelName, variantName).ifPresent(variant ->
+                catalog.getCarsByVariant(variant.variantId()).stream()
+                        .map(car -> catalog.findColor(car.colorId()).map(CatalogSnapshot.ColorEntry::colorName).orElse(null))
+                        .filter(Objects::nonNull)
+                        .forEach(colorNames::add));
+        return List.copyOf(colorNames);
     }
 }
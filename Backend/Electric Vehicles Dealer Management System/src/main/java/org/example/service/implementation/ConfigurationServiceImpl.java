@@ -2,108 +2,65 @@ package org.example.service.implementation;
 
 import org.example.dto.ConfigurationResponse;
 import org.example.dto.UpdateConfigurationRequest;
-import org.example.entity.CarVariant;
+import org.example.entity.ChangeLog;
 import org.example.entity.Configuration;
-import org.example.repository.CarVariantRepository;
 import org.example.repository.ConfigurationRepository;
+import org.example.service.ChangeFeedService;
 import org.example.service.ConfigurationService;
+import org.example.service.implementation.CatalogSnapshot.ConfigurationEntry;
+import org.example.service.implementation.CatalogSnapshot.VariantEntry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-
-import java.util.List;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class ConfigurationServiceImpl implements ConfigurationService {
 
     @Autowired
-    private CarVariantRepository carVariantRepository;
+    private ConfigurationRepository configurationRepository;
 
     @Autowired
-    private ConfigurationRepository configurationRepository;
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
 
     @Override
     public ConfigurationResponse getConfigurationByVariantId(Integer variantId) {
-        // Tìm variant với configuration
-        CarVariant carVariant = carVariantRepository.findById(variantId)
+        // Tìm variant với configuration trong catalog snapshot
+        CatalogSnapshot catalog = catalogCache.get();
+        VariantEntry variant = catalog.findVariant(variantId)
                 .orElseThrow(() -> new RuntimeException("Variant not found with ID: " + variantId));
 
-        Configuration config = carVariant.getConfiguration();
-
-        if (config == null) {
-            throw new RuntimeException("Configuration not found for variant ID: " + variantId);
-        }
+        ConfigurationEntry config = catalog.findConfiguration(variant.variantId())
+                .orElseThrow(() -> new RuntimeException("Configuration not found for variant ID: " + variantId));
 
-        return ConfigurationResponse.builder()
-                .configId(config.getConfigId())
-                .variantId(carVariant.getVariantId())
-                .modelName(carVariant.getCarModel().getModelName())
-                .variantName(carVariant.getVariantName())
-                .batteryCapacity(config.getBatteryCapacity())
-                .batteryType(config.getBatteryType())
-                .fullChargeTime(config.getFullChargeTime())
-                .rangeKm(config.getRangeKm())
-                .power(config.getPower())
-                .torque(config.getTorque())
-                .lengthMm(config.getLengthMm())
-                .widthMm(config.getWidthMm())
-                .heightMm(config.getHeightMm())
-                .wheelbaseMm(config.getWheelbaseMm())
-                .weightKg(config.getWeightKg())
-                .trunkVolumeL(config.getTrunkVolumeL())
-                .seats(config.getSeats())
-                .build();
+        return toConfigurationResponse(catalog, variant, config);
     }
 
     @Override
     public ConfigurationResponse getConfigurationByModelNameAndVariantName(String modelName, String variantName) {
         // Tìm variant theo cả model name và variant name
-        CarVariant carVariant = carVariantRepository.findAll().stream()
-                .filter(v -> v.getCarModel().getModelName().equalsIgnoreCase(modelName)
-                        && v.getVariantName().equalsIgnoreCase(variantName))
-                .findFirst()
+        CatalogSnapshot catalog = catalogCache.get();
+        VariantEntry variant = catalog.findVariantByNames(modelName, variantName)
                 .orElseThrow(() -> new RuntimeException("Variant not found with model: " + modelName + " and variant: " + variantName));
 
-        Configuration config = carVariant.getConfiguration();
-
-        if (config == null) {
-            throw new RuntimeException("Configuration not found for model: " + modelName + " and variant: " + variantName);
-        }
+        ConfigurationEntry config = catalog.findConfiguration(variant.variantId())
+                .orElseThrow(() -> new RuntimeException("Configuration not found for model: " + modelName + " and variant: " + variantName));
 
-        return ConfigurationResponse.builder()
-                .configId(config.getConfigId())
-                .variantId(carVariant.getVariantId())
-                .modelName(carVariant.getCarModel().getModelName())
-                .variantName(carVariant.getVariantName())
-                .batteryCapacity(config.getBatteryCapacity())
-                .batteryType(config.getBatteryType())
-                .fullChargeTime(config.getFullChargeTime())
-                .rangeKm(config.getRangeKm())
-                .power(config.getPower())
-                .torque(config.getTorque())
-                .lengthMm(config.getLengthMm())
-                .widthMm(config.getWidthMm())
-                .heightMm(config.getHeightMm())
-                .wheelbaseMm(config.getWheelbaseMm())
-                .weightKg(config.getWeightKg())
-                .trunkVolumeL(config.getTrunkVolumeL())
-                .seats(config.getSeats())
-                .build();
+        return toConfigurationResponse(catalog, variant, config);
     }
 
     @Override
+    @Transactional
     public ConfigurationResponse updateConfigurationByModelNameAndVariantName(String modelName, String variantName, UpdateConfigurationRequest request) {
-        // Tìm variant theo cả model name và variant name
-        CarVariant carVariant = carVariantRepository.findAll().stream()
-                .filter(v -> v.getCarModel().getModelName().equalsIgnoreCase(modelName)
-                        && v.getVariantName().equalsIgnoreCase(variantName))
-                .findFirst()
+        // Tìm variant theo cả model name và variant name trong catalog snapshot, chỉ nạp configuration cần sửa
+        CatalogSnapshot catalog = catalogCache.get();
+        VariantEntry variant = catalog.findVariantByNames(modelName, variantName)
                 .orElseThrow(() -> new RuntimeException("Variant not found with model: " + modelName + " and variant: " + variantName));
 
-        Configuration config = carVariant.getConfiguration();
-
-        if (config == null) {
-            throw new RuntimeException("Configuration not found for model: " + modelName + " and variant: " + variantName);
-        }
+        Configuration config = configurationRepository.findByVariantId(variant.variantId())
+                .orElseThrow(() -> new RuntimeException("Configuration not found for model: " + modelName + " and variant: " + variantName));
 
         // Cập nhật các trường configuration nếu có giá trị mới
         if (request.getBatteryCapacity() != null) {
@@ -148,13 +105,15 @@ public class ConfigurationServiceImpl implements ConfigurationService {
 
         // Lưu configuration đã cập nhật
         configurationRepository.save(config);
+        catalogCache.refreshAfterCommit();
+        changeFeedService.record(ChangeLog.Domain.VARIANT, null, variant.variantId(), ChangeLog.Operation.UPSERT);
 
         // Trả về response với dữ liệu đã cập nhật
         return ConfigurationResponse.builder()
                 .configId(config.getConfigId())
-                .variantId(carVariant.getVariantId())
-                .modelName(carVariant.getCarModel().getModelName())
-                .variantName(carVariant.getVariantName())
+                .variantId(variant.variantId())
+                .modelName(catalog.findModel(variant.modelId()).map(CatalogSnapshot.ModelEntry::modelName).orElse(null))
+                .variantName(variant.variantName())
                 .batteryCapacity(config.getBatteryCapacity())
                 .batteryType(config.getBatteryType())
                 .fullChargeTime(config.getFullChargeTime())
@@ -170,4 +129,26 @@ public class ConfigurationServiceImpl implements ConfigurationService {
                 .seats(config.getSeats())
                 .build();
     }
+
+    private ConfigurationResponse toConfigurationResponse(CatalogSnapshot catalog, VariantEntry variant, ConfigurationEntry config) {
+        return ConfigurationResponse.builder()
+                .configId(config.configId())
+                .variantId(variant.variantId())
+                .modelName(catalog.findModel(variant.modelId()).map(CatalogSnapshot.ModelEntry::modelName).orElse(null))
+                .variantName(variant.variantName())
+                .batteryCapacity(config.batteryCapacity())
+                .batteryType(config.batteryType())
+                .fullChargeTime(config.fullChargeTime())
+                .rangeKm(config.rangeKm())
+                .power(config.power())
+                .torque(config.torque())
+                .lengthMm(config.lengthMm())
+                .widthMm(config.widthMm())
+                .heightMm(config.heightMm())
+                .wheelbaseMm(config.wheelbaseMm())
+                .weightKg(config.weightKg())
+                .trunkVolumeL(config.trunkVolumeL())
+                .seats(config.seats())
+                .build();
+    }
 }
@@ -7,9 +7,9 @@ import org.example.dto.UpdateCustomerResponse;
 import org.example.dto.CustomerResponse;
 import org.example.dto.CustomerListResponse;
 import org.example.entity.Customer;
-import org.example.entity.UserAccount;
 import org.example.repository.CustomerRepository;
-import org.example.repository.UserAccountRepository;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
 import org.example.service.CustomerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -27,7 +27,10 @@ public class CustomerServiceImpl implements CustomerService {
     private CustomerRepository customerRepository;
 
     @Autowired
-    private UserAccountRepository userAccountRepository;
+    private CurrentUserProvider currentUserProvider;
+
+    @Autowired
+    private AutocompleteIndex autocompleteIndex;
 
     /**
      * Tạo customer mới
@@ -162,21 +165,16 @@ public class CustomerServiceImpl implements CustomerService {
         validateUpdateCustomerRequest(request);
 
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can update customer information.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
@@ -219,6 +217,7 @@ public class CustomerServiceImpl implements CustomerService {
 
         // Lưu vào database
         Customer updatedCustomer = customerRepository.save(customer);
+        autocompleteIndex.customerUpdatedAfterCommit(updatedCustomer);
 
         // Trả về response
         return UpdateCustomerResponse.builder()
@@ -233,21 +232,16 @@ public class CustomerServiceImpl implements CustomerService {
      */
     public CustomerResponse getCustomerById(Integer customerId, String email) {
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can access customer information.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
@@ -285,25 +279,20 @@ public class CustomerServiceImpl implements CustomerService {
         }
 
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can search customer information.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
-        Integer dealerId = user.getDealer().getDealerId();
+        Integer dealerId = user.getDealerId();
 
         // Tìm customer theo phone number và dealer ID
         Optional<Customer> optionalCustomer = customerRepository.findByPhoneNumberAndDealerId(cleanPhoneNumber, dealerId);
@@ -327,26 +316,21 @@ public class CustomerServiceImpl implements CustomerService {
      */
     public CustomerListResponse getAllCustomersByDealer(String email) {
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can access customer information.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
         // Lấy tất cả khách hàng của đại lý
-        List<Customer> customers = customerRepository.findByDealerId(user.getDealer().getDealerId());
+        List<Customer> customers = customerRepository.findByDealerId(user.getDealerId());
 
         // Chuyển đổi thành CustomerResponse list
         List<CustomerResponse> customerResponses = customers.stream()
@@ -0,0 +1,58 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.repository.DailySalesFactRepository;
+import org.example.repository.OrdersRepository;
+import org.example.service.DailySalesFactService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Duy trì bảng DAILY_SALES_FACT để các báo cáo tháng/quý/năm chỉ đọc tối đa 365 ngày/dealer
+ * thay vì quét lại toàn bộ ORDERS và ORDER_DETAILS
+ * Mỗi lần cập nhật chỉ tính lại đúng một (dealer, ngày) nên luôn khớp với dữ liệu gốc,
+ * kể cả khi đơn bị chuyển khỏi "Đã thanh toán" hoặc sửa chi tiết sau khi thanh toán
+ */
+@Service
+@RequiredArgsConstructor
+public class DailySalesFactServiceImpl implements DailySalesFactService {
+
+    private final DailySalesFactRepository dailySalesFactRepository;
+    private final OrdersRepository ordersRepository;
+    private final ReportCache reportCache;
+
+    @Override
+    @Transactional
+    public void refreshDay(Integer dealerId, LocalDate salesDate) {
+        if (dealerId == null || salesDate == null) {
+            return;
+        }
+
+        // Đẩy thay đổi đang chờ của ORDERS/ORDER_DETAILS xuống database trước khi tổng hợp lại
+        ordersRepository.flush();
+
+        dailySalesFactRepository.deleteByDealerIdAndSalesDate(dealerId, salesDate);
+        dailySalesFactRepository.insertAggregatedDay(dealerId, salesDate,
+                salesDate.atStartOfDay(), salesDate.plusDays(1).atStartOfDay());
+
+        // Báo cáo đã cache có khoảng chứa ngày này không còn đúng
+        reportCache.evict(dealerId, salesDate);
+    }
+
+    @Override
+    @Transactional
+    public void onOrderChanged(Integer dealerId, LocalDateTime previousCompletedDate, LocalDateTime completedDate) {
+        LocalDate previousDay = previousCompletedDate != null ? previousCompletedDate.toLocalDate() : null;
+        LocalDate currentDay = completedDate != null ? completedDate.toLocalDate() : null;
+
+        if (previousDay != null && !previousDay.equals(currentDay)) {
+            refreshDay(dealerId, previousDay);
+        }
+        if (currentDay != null) {
+            refreshDay(dealerId, currentDay);
+        }
+    }
+}
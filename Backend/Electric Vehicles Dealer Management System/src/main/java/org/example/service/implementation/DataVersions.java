@@ -0,0 +1,82 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.util.AfterCommit;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ đếm phiên bản của từng nhóm dữ liệu, dùng để tạo ETag cho các API đọc (xem ConditionalGetInterceptor)
+ * - Danh mục xe: phiên bản của catalog snapshot (CatalogCache build lại sau mỗi lần sửa danh mục)
+ * - Tồn kho DEALER_CAR: theo từng dealer và tổng toàn hệ thống
+ * - Promotion: theo từng dealer
+ * Bộ đếm tăng sau khi transaction ghi commit: request đọc trước lúc tăng có thể trả dữ liệu mới kèm phiên bản cũ,
+ * lần đọc sau sẽ nhận phiên bản mới; ngược lại tăng trước commit có thể gắn phiên bản mới cho dữ liệu cũ mãi mãi
+ */
+@Component
+@RequiredArgsConstructor
+public class DataVersions {
+
+    private final CatalogCache catalogCache;
+
+    // Phân biệt các lần khởi động / các instance, bộ đếm trong bộ nhớ bắt đầu lại từ 0
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // Tăng khi tồn kho của bất kỳ dealer nào đổi
+    private final AtomicLong totalInventory = new AtomicLong();
+
+    // Tăng khi thay đổi ảnh hưởng tồn kho của mọi dealer (xóa xe khỏi danh mục)
+    private final AtomicLong inventoryResets = new AtomicLong();
+
+    private final Map<Integer, AtomicLong> inventoryByDealerId = new ConcurrentHashMap<>();
+
+    private final Map<Integer, AtomicLong> promotionsByDealerId = new ConcurrentHashMap<>();
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long catalog() {
+        return catalogCache.get().getVersion();
+    }
+
+    public long totalInventory() {
+        return totalInventory.get();
+    }
+
+    /**
+     * Phiên bản tồn kho của một dealer, đổi khi tồn kho của dealer đó đổi hoặc tồn kho mọi dealer bị đặt lại
+     */
+    public String inventory(Integer dealerId) {
+        return inventoryResets.get() + "." + counter(inventoryByDealerId, dealerId).get();
+    }
+
+    public long promotions(Integer dealerId) {
+        return counter(promotionsByDealerId, dealerId).get();
+    }
+
+    public void inventoryChangedAfterCommit(Integer dealerId) {
+        AfterCommit.run(() -> {
+            counter(inventoryByDealerId, dealerId).incrementAndGet();
+            totalInventory.incrementAndGet();
+        });
+    }
+
+    public void allInventoriesChangedAfterCommit() {
+        AfterCommit.run(() -> {
+            inventoryResets.incrementAndGet();
+            totalInventory.incrementAndGet();
+        });
+    }
+
+    public void promotionsChangedAfterCommit(Integer dealerId) {
+        AfterCommit.run(() -> counter(promotionsByDealerId, dealerId).incrementAndGet());
+    }
+
+    private static AtomicLong counter(Map<Integer, AtomicLong> counters, Integer dealerId) {
+        return counters.computeIfAbsent(dealerId, id -> new AtomicLong());
+    }
+}
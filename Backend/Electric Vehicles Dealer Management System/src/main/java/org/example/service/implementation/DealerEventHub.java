@@ -0,0 +1,325 @@
+package org.example.service.implementation;
+
+import jakarta.annotation.PreDestroy;
+import org.example.dto.DealerEvent;
+import org.example.entity.CarDistributionRequest;
+import org.example.entity.ChangeLog;
+import org.example.entity.Orders;
+import org.example.entity.Payment;
+import org.example.security.CurrentUser;
+import org.example.util.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Đẩy sự kiện đơn hàng, thanh toán, tồn kho và yêu cầu nhập xe tới các màn hình đang mở qua Server-Sent Events
+ * - SseEmitter chạy trên async servlet: kết nối đang rảnh không giữ thread Tomcat nào, chỉ tốn socket và một hàng đợi nhỏ
+ * - Sự kiện phát sau khi transaction commit; thread của request chỉ đưa sự kiện vào hàng đợi của từng kết nối
+ * - Kết nối có sự kiện chờ gửi mới mượn một thread gửi và trả lại ngay khi hàng đợi rỗng, nên kết nối rảnh không tốn thread
+ *   còn một client chậm chỉ giữ thread của chính nó, không chặn việc gửi cho các kết nối khác
+ * - Kết nối để đầy hàng đợi hoặc có lệnh ghi bị treo quá SEND_TIMEOUT_MS (client đọc không kịp hoặc bị treo) bị bỏ,
+ *   EventSource tự kết nối lại và bù phần thiếu qua /api/changes thay vì giữ sự kiện không giới hạn trong bộ nhớ
+ * - Heartbeat định kỳ giữ kết nối qua proxy và phát hiện client đã ngắt
+ */
+@Component
+public class DealerEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealerEventHub.class);
+
+    private static final long CONNECTION_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+
+    private static final long RECONNECT_DELAY_MS = Duration.ofSeconds(5).toMillis();
+
+    // Số sự kiện tối đa chờ gửi cho một kết nối
+    private static final int BUFFER_CAPACITY = 64;
+
+    // Số thread gửi tối đa, tức số kết nối được gửi cùng lúc; thread rảnh quá 60 giây thì dừng
+    private static final int MAX_SENDER_THREADS = 256;
+
+    // Một lệnh ghi lâu hơn mức này thì coi như client bị treo
+    private static final long SEND_TIMEOUT_MS = Duration.ofSeconds(10).toMillis();
+
+    private final Map<Integer, Set<Subscription>> subscriptionsByDealerId = new ConcurrentHashMap<>();
+
+    // Admin / EVMStaff theo dõi mọi dealer
+    private final Set<Subscription> allDealerSubscriptions = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong eventIds = new AtomicLong();
+
+    // Không có hàng đợi: mỗi lần rút hàng đợi của một kết nối chạy trên thread riêng, hết thread thì bỏ kết nối đó
+    private final ThreadPoolExecutor sender = new ThreadPoolExecutor(0, MAX_SENDER_THREADS,
+            60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "dealer-event-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Mở kết nối cho user, dealerId null nghĩa là nhận sự kiện của mọi dealer
+     */
+    SseEmitter subscribe(CurrentUser user, Integer dealerId) {
+        SseEmitter emitter = new SseEmitter(CONNECTION_TIMEOUT_MS);
+        Set<Subscription> group = dealerId != null
+                ? subscriptionsByDealerId.computeIfAbsent(dealerId, id -> ConcurrentHashMap.newKeySet())
+                : allDealerSubscriptions;
+        Subscription subscription = new Subscription(user.getUserId(), "DealerStaff".equals(user.getRoleName()),
+                emitter, group);
+
+        emitter.onCompletion(subscription::remove);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.remove());
+        group.add(subscription);
+
+        // Gửi ngay để client nhận header response và thời gian chờ trước khi kết nối lại
+        subscription.offer(SseEmitter.event().comment("connected").reconnectTime(RECONNECT_DELAY_MS).build());
+        return emitter;
+    }
+
+    public void orderChangedAfterCommit(Orders order) {
+        DealerEvent event = DealerEvent.builder()
+                .type("ORDER")
+                .operation(ChangeLog.Operation.UPSERT.name())
+                .dealerId(order.getDealer().getDealerId())
+                .entityId(order.getOrderId())
+                .orderId(order.getOrderId())
+                .status(order.getStatus())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        publishAfterCommit(event, ownerOf(order));
+    }
+
+    public void paymentChangedAfterCommit(Payment payment, ChangeLog.Operation operation) {
+        Orders order = payment.getOrder();
+        DealerEvent event = DealerEvent.builder()
+                .type("PAYMENT")
+                .operation(operation.name())
+                .dealerId(order.getDealer().getDealerId())
+                .entityId(payment.getPaymentId())
+                .orderId(order.getOrderId())
+                .status(payment.getStatus())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        publishAfterCommit(event, ownerOf(order));
+    }
+
+    public void inventoryChangedAfterCommit(Integer dealerId, Integer carId) {
+        DealerEvent event = DealerEvent.builder()
+                .type("INVENTORY")
+                .operation(ChangeLog.Operation.UPSERT.name())
+                .dealerId(dealerId)
+                .entityId(carId)
+                .occurredAt(LocalDateTime.now())
+                .build();
+        publishAfterCommit(event, null);
+    }
+
+    public void distributionRequestChangedAfterCommit(CarDistributionRequest request) {
+        DealerEvent event = DealerEvent.builder()
+                .type("DISTRIBUTION_REQUEST")
+                .operation(ChangeLog.Operation.UPSERT.name())
+                .dealerId(request.getDealer().getDealerId())
+                .entityId(request.getRequestId())
+                .status(request.getStatus())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        publishAfterCommit(event, null);
+    }
+
+    /**
+     * Scheduled to run every 20 seconds, below the usual 30-60s idle timeout of proxies and load balancers
+     * Also drops connections whose current write has been blocked longer than SEND_TIMEOUT_MS
+     */
+    @Scheduled(fixedRate = 20000)
+    public void sendHeartbeats() {
+        Set<DataWithMediaType> heartbeat = SseEmitter.event().comment("heartbeat").build();
+        long now = System.currentTimeMillis();
+        forEachSubscription(subscription -> {
+            if (subscription.isSendBlocked(now)) {
+                logger.debug("Closing event stream: write blocked for more than {} ms", SEND_TIMEOUT_MS);
+                subscription.close();
+            } else {
+                subscription.offerIfIdle(heartbeat);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        forEachSubscription(Subscription::close);
+        sender.shutdownNow();
+    }
+
+    private void publishAfterCommit(DealerEvent event, Integer ownerUserId) {
+        AfterCommit.run(() -> publish(event, ownerUserId));
+    }
+
+    private void publish(DealerEvent event, Integer ownerUserId) {
+        // Build một lần rồi dùng chung cho mọi kết nối, SseEventBuilder không build lại được
+        Set<DataWithMediaType> message = SseEmitter.event()
+                .id(Long.toString(eventIds.incrementAndGet()))
+                .name(event.getType())
+                .data(event, MediaType.APPLICATION_JSON)
+                .build();
+
+        for (Subscription subscription : subscriptionsByDealerId.getOrDefault(event.getDealerId(), Set.of())) {
+            if (subscription.accepts(ownerUserId)) {
+                subscription.offer(message);
+            }
+        }
+        for (Subscription subscription : allDealerSubscriptions) {
+            subscription.offer(message);
+        }
+    }
+
+    private void forEachSubscription(Consumer<Subscription> action) {
+        subscriptionsByDealerId.values().forEach(group -> group.forEach(action));
+        allDealerSubscriptions.forEach(action);
+    }
+
+    private static Integer ownerOf(Orders order) {
+        return order.getUserAccount() != null ? order.getUserAccount().getUserId() : null;
+    }
+
+    /**
+     * Một kết nối SSE với hàng đợi giới hạn; tại mỗi thời điểm chỉ một thread gửi rút hàng đợi của kết nối
+     */
+    private final class Subscription {
+
+        private final Integer userId;
+
+        // DealerStaff chỉ nhận sự kiện đơn hàng / thanh toán của đơn do mình tạo
+        private final boolean ownOrdersOnly;
+
+        private final SseEmitter emitter;
+
+        private final Set<Subscription> group;
+
+        private final BlockingQueue<Set<DataWithMediaType>> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        // Thời điểm bắt đầu lệnh ghi đang chạy, 0 nếu không ghi
+        private volatile long sendingSince;
+
+        private volatile boolean closed;
+
+        private Subscription(Integer userId, boolean ownOrdersOnly, SseEmitter emitter, Set<Subscription> group) {
+            this.userId = userId;
+            this.ownOrdersOnly = ownOrdersOnly;
+            this.emitter = emitter;
+            this.group = group;
+        }
+
+        boolean accepts(Integer ownerUserId) {
+            return !ownOrdersOnly || ownerUserId == null || ownerUserId.equals(userId);
+        }
+
+        void offer(Set<DataWithMediaType> message) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(message)) {
+                logger.debug("Closing event stream of user {}: {} events pending", userId, BUFFER_CAPACITY);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void offerIfIdle(Set<DataWithMediaType> message) {
+            if (buffer.isEmpty()) {
+                offer(message);
+            }
+        }
+
+        boolean isSendBlocked(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > SEND_TIMEOUT_MS;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            remove();
+            buffer.clear();
+            // Thread đang ghi giữ khóa của emitter: để drain đóng emitter khi lệnh ghi trả về
+            // (hoặc ném lỗi khi hết write timeout của container) thay vì chặn thread gọi close()
+            if (draining.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+
+        void remove() {
+            closed = true;
+            group.remove(this);
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                // Hết thread gửi (quá nhiều client chậm cùng lúc) hoặc đang tắt ứng dụng
+                if (!sender.isShutdown()) {
+                    logger.debug("Closing event stream of user {}: all {} sender threads busy", userId, MAX_SENDER_THREADS);
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            boolean failed = false;
+            try {
+                Set<DataWithMediaType> message;
+                while (!closed && (message = buffer.poll()) != null) {
+                    sendingSince = System.currentTimeMillis();
+                    emitter.send(message);
+                    sendingSince = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client đã ngắt kết nối, container sẽ báo completion / error cho emitter
+                failed = true;
+                remove();
+            } finally {
+                sendingSince = 0;
+                draining.set(false);
+            }
+            if (closed) {
+                // Kết nối bị close() trong lúc ghi: lệnh ghi đã trả về nên đóng được emitter
+                if (!failed) {
+                    emitter.complete();
+                }
+                return;
+            }
+            // Sự kiện vào hàng đợi ngay sau vòng lặp cuối nhưng trước khi bỏ cờ draining
+            if (!buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
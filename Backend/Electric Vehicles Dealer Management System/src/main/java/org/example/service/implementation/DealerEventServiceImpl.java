@@ -0,0 +1,44 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.DealerEventService;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Kiểm tra quyền rồi mở kết nối SSE trên DealerEventHub, dealer và vai trò lấy từ JWT của user
+ */
+@Service
+@RequiredArgsConstructor
+public class DealerEventServiceImpl implements DealerEventService {
+
+    private final DealerEventHub dealerEventHub;
+
+    private final CurrentUserProvider currentUserProvider;
+
+    @Override
+    public SseEmitter subscribe(String userEmail, Integer dealerId) {
+        CurrentUser user = currentUserProvider.getByEmail(userEmail);
+        String role = user.getRoleName();
+
+        if ("Admin".equals(role) || "EVMStaff".equals(role)) {
+            return dealerEventHub.subscribe(user, dealerId);
+        }
+
+        if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
+            throw new RuntimeException("Access denied. Only dealer users, Admin and EVMStaff can subscribe to events.");
+        }
+
+        // Check if user is assigned to a dealer
+        if (user.getDealerId() == null) {
+            throw new RuntimeException("User is not assigned to any dealer");
+        }
+        if (dealerId != null && !dealerId.equals(user.getDealerId())) {
+            throw new RuntimeException("Access denied. Dealer users can only subscribe to their own dealer.");
+        }
+
+        return dealerEventHub.subscribe(user, user.getDealerId());
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.entity.ChangeLog;
+import org.example.repository.DealerCarRepository;
+import org.example.service.ChangeFeedService;
+import org.example.service.DealerInventoryService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Quản lý tồn kho DEALER_CAR an toàn khi nhiều nhân viên bán cùng lúc
+ * Mọi thay đổi số lượng đều là câu UPDATE nguyên tử trên database (quantity = quantity +/- n),
+ * không đọc - kiểm tra - ghi trong Java nên hai giao dịch không thể cùng bán chiếc xe cuối cùng
+ * Sau mỗi câu UPDATE, DealerCar đã tải trong transaction (nếu có) được đọc lại để không giữ số lượng cũ
+ */
+@Service
+@RequiredArgsConstructor
+public class DealerInventoryServiceImpl implements DealerInventoryService {
+
+    private final DealerCarRepository dealerCarRepository;
+
+    private final DataVersions dataVersions;
+
+    private final ChangeFeedService changeFeedService;
+
+    private final DealerEventHub dealerEventHub;
+
+    @Override
+    @Transactional
+    public void reserve(Integer dealerId, Integer carId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Quantity must be greater than 0");
+        }
+
+        int updatedRows = dealerCarRepository.decreaseQuantityIfAvailable(dealerId, carId, quantity);
+        if (updatedRows == 0) {
+            Integer available = dealerCarRepository.findQuantityByDealerIdAndCarId(dealerId, carId)
+                    .orElseThrow(() -> new RuntimeException("Dealer car record not found"));
+            throw new RuntimeException(
+                    String.format("Insufficient inventory. Available: %d, Requested: %d", available, quantity));
+        }
+        dealerCarRepository.refreshIfLoaded(dealerId, carId);
+        dataVersions.inventoryChangedAfterCommit(dealerId);
+        changeFeedService.record(ChangeLog.Domain.DEALER_CAR, dealerId, carId, ChangeLog.Operation.UPSERT);
+        dealerEventHub.inventoryChangedAfterCommit(dealerId, carId);
+    }
+
+    @Override
+    @Transactional
+    public void reserveAll(Integer dealerId, Map<Integer, Integer> quantityByCarId) {
+        if (quantityByCarId.isEmpty()) {
+            return;
+        }
+
+        int updatedRows = dealerCarRepository.decrementQuantities(dealerId, quantityByCarId);
+        if (updatedRows != quantityByCarId.size()) {
+            // Ném lỗi để rollback các dòng đã trừ trong cùng câu UPDATE
+            throw new RuntimeException("Insufficient inventory. Dealer stock changed while adding order lines, please try again.");
+        }
+        dataVersions.inventoryChangedAfterCommit(dealerId);
+        for (Integer carId : quantityByCarId.keySet()) {
+            dealerCarRepository.refreshIfLoaded(dealerId, carId);
+            changeFeedService.record(ChangeLog.Domain.DEALER_CAR, dealerId, carId, ChangeLog.Operation.UPSERT);
+            dealerEventHub.inventoryChangedAfterCommit(dealerId, carId);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void release(Integer dealerId, Integer carId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            return;
+        }
+
+        int updatedRows = dealerCarRepository.increaseQuantity(dealerId, carId, quantity);
+        if (updatedRows == 0) {
+            throw new RuntimeException("Dealer car record not found for carId: " + carId);
+        }
+        dealerCarRepository.refreshIfLoaded(dealerId, carId);
+        dataVersions.inventoryChangedAfterCommit(dealerId);
+        changeFeedService.record(ChangeLog.Domain.DEALER_CAR, dealerId, carId, ChangeLog.Operation.UPSERT);
+        dealerEventHub.inventoryChangedAfterCommit(dealerId, carId);
+    }
+
+    @Override
+    @Transactional
+    public boolean addStock(Integer dealerId, Integer carId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new RuntimeException("Quantity must be greater than 0");
+        }
+
+        boolean added = dealerCarRepository.increaseQuantity(dealerId, carId, quantity) > 0;
+        if (added) {
+            dealerCarRepository.refreshIfLoaded(dealerId, carId);
+            dataVersions.inventoryChangedAfterCommit(dealerId);
+            changeFeedService.record(ChangeLog.Domain.DEALER_CAR, dealerId, carId, ChangeLog.Operation.UPSERT);
+            dealerEventHub.inventoryChangedAfterCommit(dealerId, carId);
+        }
+        return added;
+    }
+}
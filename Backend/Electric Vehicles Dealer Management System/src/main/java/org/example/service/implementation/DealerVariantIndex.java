@@ -0,0 +1,62 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.example.repository.CarVariantRepository;
+import org.example.util.AfterCommit;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Bitmap các variant mỗi dealer đang có trong kho (có record DEALER_CAR, kể cả quantity = 0), bit thứ i ứng với variantId = i
+ * Dùng để lọc kết quả của VariantSearchIndex theo dealer thay vì JOIN CAR_VARIANT, CAR, DEALER_CAR mỗi lần tìm kiếm
+ * Bitmap của một dealer được nạp ở lần tìm kiếm đầu tiên, sau đó cập nhật tại chỗ khi dealer nhận xe mới
+ */
+@Component
+@RequiredArgsConstructor
+public class DealerVariantIndex {
+
+    private final CarVariantRepository carVariantRepository;
+
+    // Bitmap đã đưa vào map không bị sửa nữa, mỗi lần cập nhật thay bằng bản copy
+    private final Map<Integer, BitSet> stockedVariants = new ConcurrentHashMap<>();
+
+    /**
+     * Điều kiện "dealer đang có variant này", dùng làm variantFilter của VariantSearchIndex
+     */
+    public Predicate<Integer> stockedBy(Integer dealerId) {
+        BitSet variants = stockedVariants.computeIfAbsent(dealerId, this::load);
+        return variantId -> variantId != null && variantId >= 0 && variants.get(variantId);
+    }
+
+    /**
+     * Đánh dấu dealer có variant sau khi transaction tạo record DEALER_CAR mới commit
+     * Dealer chưa nạp bitmap thì bỏ qua, lần tìm kiếm đầu tiên sẽ đọc từ DB
+     */
+    public void markStockedAfterCommit(Integer dealerId, Integer variantId) {
+        AfterCommit.run(() -> stockedVariants.computeIfPresent(dealerId, (id, variants) -> {
+            BitSet updated = (BitSet) variants.clone();
+            updated.set(variantId);
+            return updated;
+        }));
+    }
+
+    /**
+     * Bỏ toàn bộ bitmap sau khi transaction xóa record DEALER_CAR commit
+     * Xóa xe khỏi danh mục rất hiếm nên nạp lại từ DB thay vì tính xem dealer nào còn variant nào
+     */
+    public void invalidateAfterCommit() {
+        AfterCommit.run(stockedVariants::clear);
+    }
+
+    private BitSet load(Integer dealerId) {
+        BitSet variants = new BitSet();
+        for (Integer variantId : carVariantRepository.findVariantIdsByDealerId(dealerId)) {
+            variants.set(variantId);
+        }
+        return variants;
+    }
+}
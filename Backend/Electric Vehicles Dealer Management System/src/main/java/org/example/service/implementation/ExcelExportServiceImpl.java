@@ -0,0 +1,232 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.example.dto.RevenueByModelReportResponse;
+import org.example.repository.OrdersRepository;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.ExcelExportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Xuất báo cáo và lịch sử đơn hàng ra .xlsx bằng SXSSF
+ * SXSSF chỉ giữ ROW_ACCESS_WINDOW dòng trong heap, các dòng cũ hơn được ghi ra file tạm (nén)
+ * nên heap không tăng theo số dòng xuất; file .xlsx chỉ được ghi ra response sau khi đã ghi hết các dòng,
+ * vì vậy số dòng của một lần xuất lịch sử đơn hàng bị giới hạn để giới hạn dung lượng file tạm
+ */
+@Service
+@RequiredArgsConstructor
+public class ExcelExportServiceImpl implements ExcelExportService {
+
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    // Dòng đầu của mỗi sheet là header
+    private static final int MAX_DATA_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+
+    private static final String[] ORDER_HISTORY_HEADERS = {
+            "Mã đơn", "Ngày tạo", "Ngày hoàn thành", "Trạng thái", "Khách hàng", "Số điện thoại",
+            "Nhân viên tạo", "Phương thức thanh toán", "Model", "Phiên bản", "Màu", "Số lượng",
+            "Đơn giá", "Thành tiền", "Tạm tính đơn", "Giảm giá đơn", "Tổng tiền đơn"
+    };
+
+    private static final String[] REVENUE_BY_MODEL_HEADERS = {
+            "Mã model", "Model", "Số xe bán", "Doanh thu"
+    };
+
+    private final OrdersRepository ordersRepository;
+    private final CurrentUserProvider currentUserProvider;
+
+    @Value("${app.export.order-history.max-rows:200000}")
+    private long maxOrderHistoryRows;
+
+    @Override
+    public void checkOrderHistoryExport(String currentUserEmail, LocalDate fromDate, LocalDate toDate) {
+        CurrentUser currentUser = resolveOrderExportUser(currentUserEmail, fromDate, toDate);
+
+        long rowCount = ordersRepository.countOrderHistoryForExport(currentUser.getDealerId(),
+                exportUserId(currentUser), startOf(fromDate), endOf(toDate));
+        if (rowCount > maxOrderHistoryRows) {
+            throw new RuntimeException(String.format(
+                    "Export has %d rows, the limit is %d. Please narrow the date range.", rowCount, maxOrderHistoryRows));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOrderHistory(String currentUserEmail, LocalDate fromDate, LocalDate toDate,
+                                   OutputStream outputStream) throws IOException {
+        CurrentUser currentUser = resolveOrderExportUser(currentUserEmail, fromDate, toDate);
+
+        SXSSFWorkbook workbook = newWorkbook();
+        try (Stream<Object[]> rows = ordersRepository.streamOrderHistoryForExport(
+                currentUser.getDealerId(), exportUserId(currentUser), startOf(fromDate), endOf(toDate))) {
+            CellStyle headerStyle = headerStyle(workbook);
+            CellStyle dateStyle = dateStyle(workbook);
+
+            int sheetNumber = 1;
+            SXSSFSheet sheet = createSheet(workbook, "Orders", ORDER_HISTORY_HEADERS, headerStyle);
+            int rowIndex = 1;
+            long written = 0;
+
+            // Đơn mới phát sinh sau lần đếm trong checkOrderHistoryExport cũng không làm vượt giới hạn
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext() && written < maxOrderHistoryRows) {
+                // Vượt giới hạn dòng của một sheet thì sang sheet mới
+                if (rowIndex > MAX_DATA_ROWS_PER_SHEET) {
+                    sheetNumber++;
+                    sheet = createSheet(workbook, "Orders " + sheetNumber, ORDER_HISTORY_HEADERS, headerStyle);
+                    rowIndex = 1;
+                }
+                writeRow(sheet.createRow(rowIndex++), iterator.next(), dateStyle);
+                written++;
+            }
+
+            workbook.write(outputStream);
+        } finally {
+            disposeWorkbook(workbook);
+        }
+    }
+
+    @Override
+    public void exportRevenueByModelReport(RevenueByModelReportResponse report, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = newWorkbook();
+        try {
+            CellStyle headerStyle = headerStyle(workbook);
+            SXSSFSheet sheet = createSheet(workbook, "Revenue by model", REVENUE_BY_MODEL_HEADERS, headerStyle);
+
+            int rowIndex = 1;
+            for (RevenueByModelReportResponse.ModelRevenueDetail detail : report.getModelRevenueDetails()) {
+                writeRow(sheet.createRow(rowIndex++), new Object[]{
+                        detail.getModelId(), detail.getModelName(), detail.getCarsSold(), detail.getRevenue()
+                }, null);
+            }
+
+            Row totalRow = sheet.createRow(rowIndex);
+            writeRow(totalRow, new Object[]{
+                    null, "Tổng (" + report.getStartDate() + " - " + report.getEndDate() + ")",
+                    report.getTotalCarsSold(), report.getTotalRevenue()
+            }, null);
+            totalRow.getCell(1).setCellStyle(headerStyle);
+
+            workbook.write(outputStream);
+        } finally {
+            disposeWorkbook(workbook);
+        }
+    }
+
+    /**
+     * Kiểm tra role, dealer và khoảng ngày giống màn hình danh sách orders
+     */
+    private CurrentUser resolveOrderExportUser(String currentUserEmail, LocalDate fromDate, LocalDate toDate) {
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
+
+        String roleName = currentUser.getRoleName();
+        if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
+            throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can export dealer orders.");
+        }
+
+        if (currentUser.getDealerId() == null) {
+            throw new RuntimeException("User is not assigned to any dealer.");
+        }
+
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new RuntimeException("From date must be before or equal to to date");
+        }
+
+        return currentUser;
+    }
+
+    /**
+     * DealerStaff chỉ được xuất orders do chính mình tạo
+     */
+    private Integer exportUserId(CurrentUser currentUser) {
+        return "DealerStaff".equals(currentUser.getRoleName()) ? currentUser.getUserId() : null;
+    }
+
+    private LocalDateTime startOf(LocalDate fromDate) {
+        return fromDate != null ? fromDate.atStartOfDay() : null;
+    }
+
+    private LocalDateTime endOf(LocalDate toDate) {
+        return toDate != null ? toDate.plusDays(1).atStartOfDay() : null;
+    }
+
+    private SXSSFWorkbook newWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    private void disposeWorkbook(SXSSFWorkbook workbook) throws IOException {
+        // Xóa file tạm của SXSSF
+        workbook.dispose();
+        workbook.close();
+    }
+
+    private SXSSFSheet createSheet(SXSSFWorkbook workbook, String name, String[] headers, CellStyle headerStyle) {
+        SXSSFSheet sheet = workbook.createSheet(name);
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+            // Độ rộng cố định, autoSizeColumn phải đọc lại toàn bộ dòng nên không dùng được với SXSSF
+            sheet.setColumnWidth(i, 20 * 256);
+        }
+        sheet.createFreezePane(0, 1);
+        return sheet;
+    }
+
+    private void writeRow(Row row, Object[] values, CellStyle dateStyle) {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+
+            Cell cell = row.createCell(i);
+            if (value instanceof Number number) {
+                cell.setCellValue(number.doubleValue());
+            } else if (value instanceof LocalDateTime dateTime) {
+                cell.setCellValue(dateTime);
+                cell.setCellStyle(dateStyle);
+            } else if (value instanceof Date date) {
+                cell.setCellValue(date);
+                cell.setCellStyle(dateStyle);
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+
+    private CellStyle headerStyle(SXSSFWorkbook workbook) {
+        Font font = workbook.createFont();
+        font.setBold(true);
+        CellStyle style = workbook.createCellStyle();
+        style.setFont(font);
+        return style;
+    }
+
+    private CellStyle dateStyle(SXSSFWorkbook workbook) {
+        CellStyle style = workbook.createCellStyle();
+        style.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+        return style;
+    }
+}
@@ -0,0 +1,396 @@
+package org.example.service.implementation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.service.ImageDerivativeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Ảnh thu nhỏ cho các thẻ xe trong danh mục: ảnh gốc upload có thể tới 10MB, thẻ xe chỉ cần vài chục KB
+ * - Chỉ tạo theo các chiều rộng cấu hình sẵn để URL tùy ý không làm đầy ổ đĩa
+ * - Tạo một lần trên nhóm thread giới hạn (hàng đợi có giới hạn, cùng một ảnh chỉ tạo một lần dù nhiều request đồng thời)
+ * - Lưu trên đĩa, giới hạn tổng dung lượng theo LRU; thứ tự truy cập nạp lại từ thời gian sửa file khi khởi động
+ * JDK không có bộ mã hóa WebP nên ảnh thu nhỏ là JPEG (PNG nếu ảnh gốc PNG/GIF để giữ nền trong suốt);
+ * ảnh gốc ImageIO không đọc được (WebP) được trả nguyên
+ */
+@Service
+public class ImageDerivativeServiceImpl implements ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeServiceImpl.class);
+
+    private static final int QUEUE_CAPACITY = 32;
+
+    // Request chờ tối đa chừng này, quá thì trả ảnh gốc và để ảnh thu nhỏ tiếp tục được tạo cho lần sau
+    private static final long GENERATE_TIMEOUT_SECONDS = 10;
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private static final String DERIVATIVE_SUFFIX = "_w";
+
+    @Value("${app.image.derivative-dir:uploads/derivatives}")
+    private String derivativeDirPath;
+
+    @Value("${app.image.derivative-cache.max-size-mb:512}")
+    private long maxCacheSizeMb;
+
+    @Value("${app.image.derivative-widths:160,320,640,1280}")
+    private int[] widths;
+
+    @Value("${app.image.derivative-workers:2}")
+    private int workerCount;
+
+    private Path derivativeDir;
+
+    private ThreadPoolExecutor workers;
+
+    // Ảnh thu nhỏ đang được tạo, theo tên file đích
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    // Tên ảnh thu nhỏ không cần tạo: ảnh gốc đã đủ nhỏ, hỏng hoặc ImageIO không đọc được
+    private final Set<String> servedAsOriginal = ConcurrentHashMap.newKeySet();
+
+    // LRU theo thứ tự truy cập: tên file -> dung lượng, mọi thao tác đồng bộ trên chính map
+    private final LinkedHashMap<String, Long> cachedFiles = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long cachedBytes;
+
+    @PostConstruct
+    public void init() throws IOException {
+        widths = Arrays.stream(widths).filter(width -> width > 0).sorted().distinct().toArray();
+        derivativeDir = Paths.get(derivativeDirPath).toAbsolutePath().normalize();
+        Files.createDirectories(derivativeDir);
+
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivative-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        loadCachedFiles();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public Path resolve(Path original, int requestedWidth) {
+        if (widths.length == 0) {
+            return original;
+        }
+        int width = roundUpWidth(requestedWidth);
+        String name = derivativeName(original.getFileName().toString(), width);
+        if (servedAsOriginal.contains(name)) {
+            return original;
+        }
+
+        Path target = derivativeDir.resolve(name);
+        if (isFresh(target, original)) {
+            synchronized (cachedFiles) {
+                cachedFiles.get(name);
+            }
+            return target;
+        }
+
+        CompletableFuture<Path> generation = inFlight.computeIfAbsent(name, key -> submit(original, width, target));
+        if (generation == null) {
+            // Hàng đợi đầy: trả ảnh gốc thay vì chặn request
+            return original;
+        }
+        try {
+            Path generated = generation.get(GENERATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return generated != null ? generated : original;
+        } catch (TimeoutException e) {
+            return original;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return original;
+        } catch (ExecutionException e) {
+            logger.warn("Failed to create {}: {}", name, e.getCause().getMessage());
+            return original;
+        }
+    }
+
+    @Override
+    public void evict(String filename) {
+        for (int width : widths) {
+            String name = derivativeName(filename, width);
+            servedAsOriginal.remove(name);
+            synchronized (cachedFiles) {
+                Long size = cachedFiles.remove(name);
+                if (size != null) {
+                    cachedBytes -= size;
+                }
+            }
+            deleteQuietly(derivativeDir.resolve(name));
+        }
+    }
+
+    private CompletableFuture<Path> submit(Path original, int width, Path target) {
+        String name = target.getFileName().toString();
+        try {
+            // Bỏ khỏi inFlight trên thread tạo ảnh, không gọi lại map ngay trong computeIfAbsent
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return generate(original, width, target);
+                } finally {
+                    inFlight.remove(name);
+                }
+            }, workers);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Đọc ảnh gốc (lấy mẫu thưa khi ảnh lớn hơn nhiều lần để không giải nén toàn bộ 10MB vào bộ nhớ),
+     * thu nhỏ rồi ghi ra file tạm và đổi tên để request khác không đọc phải file ghi dở
+     */
+    private Path generate(Path original, int width, Path target) {
+        String name = target.getFileName().toString();
+        try {
+            BufferedImage source = read(original, width);
+            if (source == null) {
+                servedAsOriginal.add(name);
+                return null;
+            }
+
+            boolean png = name.endsWith(".png");
+            BufferedImage resized = resize(source, width, png);
+            Path temp = Files.createTempFile(derivativeDir, "tmp-", ".part");
+            try {
+                write(resized, temp, png);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                deleteQuietly(temp);
+            }
+
+            recordCached(name, Files.size(target));
+            return target;
+        } catch (IOException e) {
+            logger.warn("Cannot create {} from {}: {}", name, original.getFileName(), e.getMessage());
+            servedAsOriginal.add(name);
+            return null;
+        }
+    }
+
+    /**
+     * null nếu ImageIO không đọc được định dạng hoặc ảnh gốc không rộng hơn chiều rộng cần
+     */
+    private BufferedImage read(Path original, int width) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                if (sourceWidth <= width) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = sourceWidth / (width * 2);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Thu nhỏ từng bước một nửa với nội suy bilinear, cho ảnh mịn hơn một lần thu nhỏ lớn mà nhanh hơn bicubic
+     */
+    private BufferedImage resize(BufferedImage source, int width, boolean keepAlpha) {
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+        int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                if (!keepAlpha) {
+                    // JPEG không có kênh alpha, nền trong suốt thành nền trắng
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, currentWidth, currentHeight);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private void write(BufferedImage image, Path file, boolean png) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(png ? "png" : "jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (!png) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+        }
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Chiều rộng cấu hình nhỏ nhất không nhỏ hơn chiều rộng yêu cầu, hoặc chiều rộng lớn nhất
+     */
+    @Override
+    public int normalizeWidth(int requestedWidth) {
+        return requestedWidth > 0 && widths.length > 0 ? roundUpWidth(requestedWidth) : 0;
+    }
+
+    private int roundUpWidth(int requestedWidth) {
+        for (int width : widths) {
+            if (width >= requestedWidth) {
+                return width;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    /**
+     * abc.jpg -> abc_w320.jpg; ảnh gốc PNG/GIF -> abc_w320.png để giữ nền trong suốt
+     */
+    private String derivativeName(String filename, int width) {
+        int dot = filename.lastIndexOf('.');
+        String baseName = dot > 0 ? filename.substring(0, dot) : filename;
+        String extension = dot > 0 ? filename.substring(dot + 1).toLowerCase() : "";
+        String format = extension.equals("png") || extension.equals("gif") ? "png" : "jpg";
+        return baseName + DERIVATIVE_SUFFIX + width + "." + format;
+    }
+
+    private boolean isFresh(Path derivative, Path original) {
+        try {
+            return Files.exists(derivative)
+                    && Files.getLastModifiedTime(derivative).compareTo(Files.getLastModifiedTime(original)) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void recordCached(String name, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (cachedFiles) {
+            Long previous = cachedFiles.put(name, size);
+            cachedBytes += size - (previous != null ? previous : 0);
+
+            // Xóa các file lâu không dùng nhất cho tới khi dưới giới hạn, không xóa file vừa tạo
+            long maxBytes = maxCacheSizeMb * 1024 * 1024;
+            Iterator<Map.Entry<String, Long>> eldest = cachedFiles.entrySet().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(name)) {
+                    continue;
+                }
+                cachedBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        evicted.forEach(evictedName -> deleteQuietly(derivativeDir.resolve(evictedName)));
+    }
+
+    /**
+     * Nạp các ảnh thu nhỏ đã có trên đĩa, file sửa gần nhất coi như dùng gần nhất; xóa file tạm còn sót
+     */
+    private void loadCachedFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(derivativeDir)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+
+        List<Path> derivatives = files.stream()
+                .filter(file -> {
+                    if (file.getFileName().toString().endsWith(".part")) {
+                        deleteQuietly(file);
+                        return false;
+                    }
+                    return true;
+                })
+                .sorted(Comparator.comparing(this::lastModifiedMillis))
+                .toList();
+        for (Path file : derivatives) {
+            recordCached(file.getFileName().toString(), Files.size(file));
+        }
+        logger.info("Loaded {} image derivatives ({} KB) from {}", cachedFiles.size(), cachedBytes / 1024, derivativeDir);
+    }
+
+    private long lastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Cannot delete {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.service.implementation;
+
+import org.example.service.ImageDerivativeService;
+import org.example.service.ImageFileService;
+import org.example.service.ImageStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cache thông tin file ảnh (đường dẫn, dung lượng, thời điểm sửa, ETag) trong bộ nhớ
+ * - Tên ảnh là SHA-256 của nội dung (ảnh upload trước đây là UUID), nội dung của một tên không đổi
+ *   nên thông tin cache chỉ cần bỏ khi ảnh bị xóa
+ * - Khóa cache theo chiều rộng đã làm tròn về kích thước cấu hình sẵn, nên ?w=300 và ?w=320 dùng chung một dòng
+ * - Khi ảnh thu nhỏ chưa có (đang tạo / hệ thống bận) thì ảnh gốc được trả tạm, thông tin đó chỉ giữ ít phút
+ *   để lần sau nhận ảnh thu nhỏ
+ * - Giới hạn số dòng theo LRU; cache chỉ trong một instance, ETag giống nhau giữa các instance vì lấy từ file
+ */
+@Service
+public class ImageFileServiceImpl implements ImageFileService {
+
+    private static final long FALLBACK_TTL_MS = Duration.ofMinutes(2).toMillis();
+
+    @Value("${app.image.metadata-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    // LRU theo thứ tự truy cập: filename@chiều rộng đã làm tròn -> thông tin file, mọi thao tác đồng bộ trên chính map
+    private final LinkedHashMap<String, CachedFile> cachedFiles = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedFile> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    @Override
+    public Optional<ImageFile> find(String filename, Integer width) {
+        int normalizedWidth = normalizeWidth(width);
+        String key = cacheKey(filename, normalizedWidth);
+        synchronized (cachedFiles) {
+            CachedFile cached = cachedFiles.get(key);
+            if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+                return Optional.of(cached.file());
+            }
+        }
+
+        Optional<CachedFile> loaded = load(filename, normalizedWidth);
+        loaded.ifPresent(cached -> {
+            synchronized (cachedFiles) {
+                cachedFiles.put(key, cached);
+            }
+        });
+        return loaded.map(CachedFile::file);
+    }
+
+    @Override
+    public void refresh(String filename, Integer width) {
+        synchronized (cachedFiles) {
+            cachedFiles.remove(cacheKey(filename, normalizeWidth(width)));
+        }
+    }
+
+    @Override
+    public void evict(String filename) {
+        String prefix = filename + "@";
+        synchronized (cachedFiles) {
+            cachedFiles.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        imageDerivativeService.evict(filename);
+    }
+
+    private Optional<CachedFile> load(String filename, int width) {
+        try {
+            Optional<Path> localCopy = imageStorage.localCopy(filename);
+            if (localCopy.isEmpty()) {
+                return Optional.empty();
+            }
+            Path original = localCopy.get();
+            BasicFileAttributes originalAttributes = Files.readAttributes(original, BasicFileAttributes.class);
+            if (!originalAttributes.isRegularFile()) {
+                return Optional.empty();
+            }
+
+            boolean resize = width > 0;
+            Path served = resize ? imageDerivativeService.resolve(original, width) : original;
+            long size = served.equals(original) ? originalAttributes.size() : Files.size(served);
+            long lastModified = originalAttributes.lastModifiedTime().toMillis();
+
+            // ETag theo file được trả (gốc hoặc kích thước thu nhỏ) và thời điểm sửa ảnh gốc
+            String servedName = served.getFileName().toString();
+            String etag = "\"" + servedName + "-" + lastModified + "\"";
+            // Ảnh gốc nhỏ hơn chiều rộng yêu cầu cũng rơi vào đây; khi đó client chỉ kiểm tra lại (304) thường hơn
+            boolean provisional = resize && served.equals(original);
+            ImageFile file = new ImageFile(served.toRealPath(), size, lastModified, etag,
+                    ImageStorage.contentType(servedName), provisional);
+
+            long expiresAt = provisional ? System.currentTimeMillis() + FALLBACK_TTL_MS : Long.MAX_VALUE;
+            return Optional.of(new CachedFile(file, expiresAt));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read image " + filename + ": " + e.getMessage(), e);
+        }
+    }
+
+    private int normalizeWidth(Integer width) {
+        return width != null ? imageDerivativeService.normalizeWidth(width) : 0;
+    }
+
+    private static String cacheKey(String filename, int normalizedWidth) {
+        return filename + "@" + normalizedWidth;
+    }
+
+    private record CachedFile(ImageFile file, long expiresAt) {
+    }
+}
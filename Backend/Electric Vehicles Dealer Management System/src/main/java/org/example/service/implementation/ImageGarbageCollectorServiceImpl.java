@@ -0,0 +1,414 @@
+package org.example.service.implementation;
+
+import jakarta.annotation.PreDestroy;
+import org.example.dto.ImageGcStatsResponse;
+import org.example.repository.CarRepository;
+import org.example.service.ImageFileService;
+import org.example.service.ImageGarbageCollectorService;
+import org.example.service.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Dọn ảnh không còn xe nào dùng trong thư mục ảnh (xe bị xóa, ảnh upload rồi không gắn vào xe)
+ * - Tên ảnh trong CAR.ImagePath được nạp một lần vào HashSet, thư mục được stat song song trên ForkJoinPool riêng
+ * - Ảnh mới hơn min-age-hours bị bỏ qua: ảnh vừa upload chưa kịp gắn vào xe; ảnh trùng vừa upload lại
+ *   (không ghi lại file) nhận ra qua dấu trong .claims của LocalImageStorage, được kiểm tra cả sau khi cách ly
+ * - Ảnh mồ côi không bị xóa ngay mà chuyển vào .quarantine; sau quarantine-days ngày mới xóa hẳn,
+ *   trong thời gian đó ảnh có xe dùng lại được trả về chỗ cũ
+ * - Cách ly / xóa theo lô batch-size file, kiểm tra lại tham chiếu trong DB cho từng lô và nghỉ batch-pause-ms
+ *   giữa các lô để không dồn I/O lên đĩa đang phục vụ ảnh
+ * - Chạy trên thread riêng vì thread @Scheduled dùng chung với heartbeat SSE và các job khác
+ * Chỉ áp dụng cho app.image.storage.type=local; với s3 thư mục local chỉ là cache
+ */
+@Service
+public class ImageGarbageCollectorServiceImpl implements ImageGarbageCollectorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageGarbageCollectorServiceImpl.class);
+
+    private static final String QUARANTINE_DIR = ".quarantine";
+
+    @Value("${app.image.storage.type:local}")
+    private String storageType;
+
+    @Value("${app.image.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.image.gc.min-age-hours:24}")
+    private long minAgeHours;
+
+    @Value("${app.image.gc.quarantine-days:7}")
+    private long quarantineDays;
+
+    @Value("${app.image.gc.scan-threads:4}")
+    private int scanThreads;
+
+    @Value("${app.image.gc.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.image.gc.batch-pause-ms:1000}")
+    private long batchPauseMs;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private ImageFileService imageFileService;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-gc");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile RunStats lastRun;
+
+    private final LongAdder totalRuns = new LongAdder();
+
+    private final LongAdder totalFilesPurged = new LongAdder();
+
+    private final LongAdder totalBytesReclaimed = new LongAdder();
+
+    /**
+     * Scheduled to run every day at 03:00:00, outside business hours
+     */
+    @Override
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void collect() {
+        if (!enabled || !"local".equals(storageType)) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Image garbage collection is still running, skipping this run");
+            return;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    logger.error("Image garbage collection failed: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Đang tắt ứng dụng
+            running.set(false);
+        }
+    }
+
+    @Override
+    public ImageGcStatsResponse getStats() {
+        RunStats run = lastRun;
+        return ImageGcStatsResponse.builder()
+                .running(running.get())
+                .lastRunStartedAt(run != null ? run.startedAt() : null)
+                .lastScanDurationMs(run != null ? run.scanDurationMs() : null)
+                .lastRunDurationMs(run != null ? run.runDurationMs() : null)
+                .lastFilesExamined(run != null ? run.filesExamined() : null)
+                .lastFilesQuarantined(run != null ? run.filesQuarantined() : null)
+                .lastFilesRestored(run != null ? run.filesRestored() : null)
+                .lastFilesPurged(run != null ? run.filesPurged() : null)
+                .lastBytesReclaimed(run != null ? run.bytesReclaimed() : null)
+                .totalRuns(totalRuns.sum())
+                .totalFilesPurged(totalFilesPurged.sum())
+                .totalBytesReclaimed(totalBytesReclaimed.sum())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.nanoTime();
+
+        Path imageDir = imageStorage.localDirectory();
+        Path quarantineDir = imageDir.resolve(QUARANTINE_DIR);
+        Files.createDirectories(quarantineDir);
+
+        Path claimsDir = imageDir.resolve(LocalImageStorage.CLAIMS_DIR);
+        Files.createDirectories(claimsDir);
+
+        Set<String> referenced = new HashSet<>(carRepository.findAllImagePaths());
+        long cutoff = System.currentTimeMillis() - Duration.ofHours(minAgeHours).toMillis();
+        Map<String, Long> claims = loadClaims(claimsDir);
+        ScanResult scan = scan(imageDir, referenced, claims, cutoff);
+        long scanDurationMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+        Counts counts = new Counts();
+        quarantine(quarantineDir, claimsDir, cutoff, scan.orphans(), counts);
+        deleteStaleTempFiles(scan.staleTempFiles(), counts);
+        purgeQuarantine(imageDir, quarantineDir, counts);
+        deleteExpiredClaims(claimsDir, claims, cutoff);
+
+        long runDurationMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        lastRun = new RunStats(startedAt, scanDurationMs, runDurationMs, scan.filesExamined(),
+                counts.quarantined, counts.restored, counts.purged, counts.bytesReclaimed);
+        totalRuns.increment();
+        totalFilesPurged.add(counts.purged);
+        totalBytesReclaimed.add(counts.bytesReclaimed);
+
+        logger.info("Image garbage collection: examined {} files in {} ms, quarantined {}, restored {}, purged {} ({} KB) in {} ms",
+                scan.filesExamined(), scanDurationMs, counts.quarantined, counts.restored, counts.purged,
+                counts.bytesReclaimed / 1024, runDurationMs);
+    }
+
+    /**
+     * Đọc thuộc tính các file trong thư mục ảnh song song; chỉ thu thập, chưa di chuyển / xóa gì
+     */
+    private ScanResult scan(Path imageDir, Set<String> referenced, Map<String, Long> claims, long cutoff)
+            throws IOException, InterruptedException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(imageDir)) {
+            entries = stream.toList();
+        }
+
+        AtomicLong examined = new AtomicLong();
+        Queue<ImageEntry> orphans = new ConcurrentLinkedQueue<>();
+        Queue<ImageEntry> staleTempFiles = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(scanThreads);
+        try {
+            pool.submit(() -> entries.parallelStream().forEach(path -> {
+                String name = path.getFileName().toString();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    // File vừa bị xóa / đổi tên trong lúc quét
+                    return;
+                }
+                if (!attributes.isRegularFile()) {
+                    return;
+                }
+                examined.incrementAndGet();
+                if (attributes.lastModifiedTime().toMillis() >= cutoff) {
+                    return;
+                }
+                if (name.startsWith(".")) {
+                    // File tạm upload / tải về bị bỏ dở
+                    staleTempFiles.add(new ImageEntry(path, attributes.size()));
+                } else if (!referenced.contains(name) && claims.getOrDefault(name, 0L) < cutoff) {
+                    orphans.add(new ImageEntry(path, attributes.size()));
+                }
+            })).get();
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot scan " + imageDir + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return new ScanResult(examined.get(), new ArrayList<>(orphans), new ArrayList<>(staleTempFiles));
+    }
+
+    private void quarantine(Path quarantineDir, Path claimsDir, long cutoff, List<ImageEntry> orphans, Counts counts)
+            throws IOException, InterruptedException {
+        List<List<ImageEntry>> batches = batches(orphans);
+        for (int i = 0; i < batches.size(); i++) {
+            pauseBefore(i);
+            List<ImageEntry> batch = batches.get(i);
+            // Xe có thể vừa được tạo với ảnh này sau khi nạp danh sách tham chiếu
+            Set<String> stillReferenced = new HashSet<>(carRepository.findImagePathsIn(names(batch)));
+            for (ImageEntry orphan : batch) {
+                String name = orphan.path().getFileName().toString();
+                if (stillReferenced.contains(name)) {
+                    continue;
+                }
+                Path target = quarantineDir.resolve(name);
+                try {
+                    Files.move(orphan.path(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                // Ảnh trùng được upload lại ngay trước khi cách ly: LocalImageStorage.save đã ghi dấu rồi thấy file còn,
+                // nên phải trả ảnh về; nếu nó đã thấy file mất thì đã lưu bản mới và bản cách ly bị bỏ
+                if (isClaimedSince(claimsDir, name, cutoff)) {
+                    try {
+                        // Không REPLACE_EXISTING: bản mới (cùng nội dung) đã được lưu thì giữ bản mới
+                        Files.move(target, orphan.path());
+                    } catch (FileAlreadyExistsException e) {
+                        Files.deleteIfExists(target);
+                    }
+                    continue;
+                }
+                // Thời điểm sửa của file cách ly = thời điểm cách ly, dùng để tính hạn xóa
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+                imageFileService.evict(name);
+                counts.quarantined++;
+            }
+        }
+    }
+
+    /**
+     * Tên ảnh -> thời điểm ghi dấu gần nhất
+     */
+    private Map<String, Long> loadClaims(Path claimsDir) throws IOException {
+        Map<String, Long> claims = new HashMap<>();
+        try (Stream<Path> stream = Files.list(claimsDir)) {
+            for (Path marker : stream.toList()) {
+                try {
+                    claims.put(marker.getFileName().toString(), Files.getLastModifiedTime(marker).toMillis());
+                } catch (NoSuchFileException e) {
+                    // Dấu vừa bị xóa
+                }
+            }
+        }
+        return claims;
+    }
+
+    private boolean isClaimedSince(Path claimsDir, String name, long cutoff) throws IOException {
+        try {
+            return Files.getLastModifiedTime(claimsDir.resolve(name)).toMillis() >= cutoff;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Dấu cũ hơn min-age-hours không còn tác dụng (ảnh đã được bảo vệ bởi tham chiếu hoặc đã quá hạn chờ gắn vào xe)
+     */
+    private void deleteExpiredClaims(Path claimsDir, Map<String, Long> claims, long cutoff) throws IOException {
+        for (Map.Entry<String, Long> claim : claims.entrySet()) {
+            // Kiểm tra lại vì dấu có thể vừa được ghi lại trong lúc GC chạy
+            if (claim.getValue() < cutoff && !isClaimedSince(claimsDir, claim.getKey(), cutoff)) {
+                Files.deleteIfExists(claimsDir.resolve(claim.getKey()));
+            }
+        }
+    }
+
+    private void deleteStaleTempFiles(List<ImageEntry> staleTempFiles, Counts counts)
+            throws IOException, InterruptedException {
+        List<List<ImageEntry>> batches = batches(staleTempFiles);
+        for (int i = 0; i < batches.size(); i++) {
+            pauseBefore(i);
+            for (ImageEntry entry : batches.get(i)) {
+                if (Files.deleteIfExists(entry.path())) {
+                    counts.purged++;
+                    counts.bytesReclaimed += entry.size();
+                }
+            }
+        }
+    }
+
+    /**
+     * File cách ly có xe dùng lại thì trả về thư mục ảnh; không ai dùng và đã quá quarantine-days ngày thì xóa hẳn
+     */
+    private void purgeQuarantine(Path imageDir, Path quarantineDir, Counts counts)
+            throws IOException, InterruptedException {
+        List<ImageEntry> quarantined = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(quarantineDir)) {
+            for (Path path : stream.toList()) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isRegularFile()) {
+                    quarantined.add(new ImageEntry(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+
+        long expiredBefore = System.currentTimeMillis() - Duration.ofDays(quarantineDays).toMillis();
+        List<List<ImageEntry>> batches = batches(quarantined);
+        for (int i = 0; i < batches.size(); i++) {
+            pauseBefore(i);
+            List<ImageEntry> batch = batches.get(i);
+            Set<String> referenced = new HashSet<>(carRepository.findImagePathsIn(names(batch)));
+            for (ImageEntry entry : batch) {
+                String name = entry.path().getFileName().toString();
+                if (referenced.contains(name)) {
+                    Path original = imageDir.resolve(name);
+                    if (Files.exists(original)) {
+                        // Ảnh đã được upload lại trong lúc cách ly
+                        Files.deleteIfExists(entry.path());
+                    } else {
+                        Files.move(entry.path(), original, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                    counts.restored++;
+                } else if (entry.lastModified() < expiredBefore && Files.deleteIfExists(entry.path())) {
+                    counts.purged++;
+                    counts.bytesReclaimed += entry.size();
+                }
+            }
+        }
+    }
+
+    private void pauseBefore(int batchIndex) throws InterruptedException {
+        if (batchIndex > 0 && batchPauseMs > 0) {
+            Thread.sleep(batchPauseMs);
+        }
+    }
+
+    private <T> List<List<T>> batches(List<T> items) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchSize) {
+            batches.add(items.subList(from, Math.min(items.size(), from + batchSize)));
+        }
+        return batches;
+    }
+
+    private static List<String> names(List<ImageEntry> entries) {
+        return entries.stream().map(entry -> entry.path().getFileName().toString()).toList();
+    }
+
+    private record ImageEntry(Path path, long size, long lastModified) {
+
+        ImageEntry(Path path, long size) {
+            this(path, size, 0);
+        }
+    }
+
+    private record ScanResult(long filesExamined, List<ImageEntry> orphans, List<ImageEntry> staleTempFiles) {
+    }
+
+    private record RunStats(LocalDateTime startedAt, long scanDurationMs, long runDurationMs, long filesExamined,
+                            long filesQuarantined, long filesRestored, long filesPurged, long bytesReclaimed) {
+    }
+
+    // Chỉ dùng trên thread image-gc
+    private static final class Counts {
+        private long quarantined;
+        private long restored;
+        private long purged;
+        private long bytesReclaimed;
+    }
+}
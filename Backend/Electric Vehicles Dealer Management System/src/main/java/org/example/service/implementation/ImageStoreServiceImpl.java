@@ -0,0 +1,205 @@
+package org.example.service.implementation;
+
+import org.example.repository.CarRepository;
+import org.example.service.ImageStorage;
+import org.example.service.ImageStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Kho ảnh đánh địa chỉ theo nội dung: cùng một ảnh upload nhiều lần (mỗi màu / phiên bản một lần) chỉ lưu một file
+ * - Nội dung được băm SHA-256 ngay trong lần ghi duy nhất ra file tạm trong thư mục ảnh local,
+ *   rồi giao cho ImageStorage lưu dưới tên <hash>.<đuôi> (đổi tên với local, upload lên bucket với s3)
+ * - Upload dạng luồng (storeStream): body request ghi thẳng ra file tạm đó, định dạng kiểm tra bằng magic bytes,
+ *   băm và giới hạn dung lượng ngay trong lúc đọc, không qua file tạm multipart
+ * - Ảnh đã có: xóa file tạm, file cũ giữ nguyên (cùng ETag / Last-Modified nên cache trình duyệt vẫn dùng được)
+ * - Số tham chiếu lấy từ CAR.ImagePath thay vì bộ đếm riêng, nên không lệch khi xe bị sửa / xóa ngoài luồng upload
+ */
+@Service
+public class ImageStoreServiceImpl implements ImageStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageStoreServiceImpl.class);
+
+    // Đủ cho magic bytes của mọi định dạng và phần đầu BITMAPINFOHEADER của BMP
+    private static final int HEADER_LENGTH = 32;
+
+    // Kích thước DIB header có trường planes / bit count ở offset 26 / 28 (BITMAPINFOHEADER trở lên, OS/2 2.x)
+    private static final Set<Long> BMP_INFO_HEADER_SIZES = Set.of(16L, 40L, 52L, 56L, 64L, 108L, 124L);
+
+    private static final int BMP_CORE_HEADER_SIZE = 12;
+
+    private static final Set<Integer> BMP_BIT_COUNTS = Set.of(1, 2, 4, 8, 16, 24, 32);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Override
+    public StoredImage store(InputStream content, String extension) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(imageStorage.localDirectory(), ".upload-", ".part");
+        try {
+            long size;
+            try (DigestInputStream input = new DigestInputStream(content, digest)) {
+                size = Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return save(temp, size, digest, normalizeExtension(extension));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public StoredImage storeStream(InputStream content, long maxBytes) throws IOException {
+        byte[] header = content.readNBytes(HEADER_LENGTH);
+        String extension = detectExtension(header);
+        if (extension == null) {
+            throw new IllegalArgumentException("Content is not a supported image (JPG, PNG, GIF, BMP, WEBP)");
+        }
+
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(imageStorage.localDirectory(), ".upload-", ".part");
+        try {
+            long size = header.length;
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                digest.update(header);
+                output.write(header);
+
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    size += read;
+                    // Dừng ngay khi vượt giới hạn, không cần Content-Length (body chunked)
+                    if (size > maxBytes) {
+                        throw new ImageTooLargeException(maxBytes);
+                    }
+                    digest.update(buffer, 0, read);
+                    output.write(buffer, 0, read);
+                }
+            }
+            return save(temp, size, digest, extension);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public long countReferences(String filename) {
+        return carRepository.countByImagePath(filename);
+    }
+
+    private StoredImage save(Path temp, long size, MessageDigest digest, String extension) throws IOException {
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        String filename = sha256 + "." + extension;
+        if (!imageStorage.save(filename, temp)) {
+            return new StoredImage(filename, size, sha256, true);
+        }
+        logger.debug("Stored image {} ({} bytes)", filename, size);
+        return new StoredImage(filename, size, sha256, false);
+    }
+
+    /**
+     * Đuôi file theo magic bytes, null nếu không phải định dạng ảnh được chấp nhận
+     */
+    private String detectExtension(byte[] header) {
+        if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return "jpg";
+        }
+        if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "png";
+        }
+        if (startsWith(header, 0, 'G', 'I', 'F', '8', '7', 'a') || startsWith(header, 0, 'G', 'I', 'F', '8', '9', 'a')) {
+            return "gif";
+        }
+        if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')) {
+            return "webp";
+        }
+        if (isBmp(header)) {
+            return "bmp";
+        }
+        return null;
+    }
+
+    /**
+     * "BM" chỉ là 2 byte nên kiểm tra thêm file header và DIB header: kích thước DIB header hợp lệ,
+     * planes = 1, số bit mỗi pixel chuẩn và vùng pixel nằm sau các header
+     */
+    private static boolean isBmp(byte[] header) {
+        if (!startsWith(header, 0, 'B', 'M') || header.length < 30) {
+            return false;
+        }
+        long dibHeaderSize = uint32(header, 14);
+        int planes;
+        int bitCount;
+        if (dibHeaderSize == BMP_CORE_HEADER_SIZE) {
+            planes = uint16(header, 22);
+            bitCount = uint16(header, 24);
+        } else if (BMP_INFO_HEADER_SIZES.contains(dibHeaderSize)) {
+            // Chiều cao âm là ảnh lưu từ trên xuống, chỉ không được bằng 0
+            if (uint32(header, 18) == 0 || uint32(header, 22) == 0) {
+                return false;
+            }
+            planes = uint16(header, 26);
+            bitCount = uint16(header, 28);
+        } else {
+            return false;
+        }
+        long pixelDataOffset = uint32(header, 10);
+        return planes == 1 && BMP_BIT_COUNTS.contains(bitCount) && pixelDataOffset >= 14 + dibHeaderSize;
+    }
+
+    private static int uint16(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    private static long uint32(byte[] data, int offset) {
+        return uint16(data, offset) | (long) uint16(data, offset + 2) << 16;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... expected) {
+        if (data.length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((data[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * .JPEG / .jpeg / jpg -> jpg để cùng nội dung không thành hai file chỉ vì khác đuôi
+     */
+    private String normalizeExtension(String extension) {
+        String normalized = extension.startsWith(".") ? extension.substring(1) : extension;
+        normalized = normalized.toLowerCase();
+        return normalized.equals("jpeg") ? "jpg" : normalized;
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
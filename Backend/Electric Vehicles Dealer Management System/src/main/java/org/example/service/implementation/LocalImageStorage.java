@@ -0,0 +1,100 @@
+package org.example.service.implementation;
+
+import jakarta.annotation.PostConstruct;
+import org.example.service.ImageStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+/**
+ * Lưu ảnh trong thư mục car.image.base-path của máy chạy ứng dụng (chỉ dùng được khi chạy một instance)
+ * Mỗi lần lưu (kể cả khi ảnh đã có) ghi dấu .claims/<tên ảnh> với thời điểm sửa là lúc lưu;
+ * ảnh trùng không được ghi lại nên thời điểm sửa của nó cũ, ImageGarbageCollectorServiceImpl dựa vào dấu này
+ * để không dọn ảnh vừa được upload lại mà chưa kịp gắn vào xe (không sửa chính file ảnh vì ETag lấy từ thời điểm sửa)
+ */
+@Service
+@ConditionalOnProperty(name = "app.image.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalImageStorage implements ImageStorage {
+
+    static final String CLAIMS_DIR = ".claims";
+
+    @Value("${car.image.base-path}")
+    private String imageBasePath;
+
+    private Path baseDir;
+
+    private Path claimsDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        baseDir = Paths.get(imageBasePath).toAbsolutePath().normalize();
+        Files.createDirectories(baseDir);
+        claimsDir = baseDir.resolve(CLAIMS_DIR);
+        Files.createDirectories(claimsDir);
+    }
+
+    @Override
+    public boolean save(String filename, Path tempFile) throws IOException {
+        Path target = resolve(filename).orElseThrow(() -> new IllegalArgumentException("Invalid image name: " + filename));
+        // Ghi dấu trước khi kiểm tra file: GC kiểm tra dấu sau khi cách ly, nên hoặc GC thấy dấu và trả ảnh về,
+        // hoặc ở đây thấy ảnh đã bị cách ly và lưu lại bản mới
+        claim(filename);
+        if (Files.exists(target)) {
+            return false;
+        }
+        try {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // Cùng ảnh được upload đồng thời, request kia đã đổi tên trước
+            return false;
+        }
+    }
+
+    private void claim(String filename) throws IOException {
+        Path marker = claimsDir.resolve(filename);
+        try {
+            Files.createFile(marker);
+        } catch (FileAlreadyExistsException e) {
+            Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+    }
+
+    @Override
+    public Optional<Path> localCopy(String filename) {
+        return resolve(filename).filter(Files::isRegularFile);
+    }
+
+    @Override
+    public boolean delete(String filename) throws IOException {
+        Optional<Path> file = resolve(filename);
+        return file.isPresent() && Files.deleteIfExists(file.get());
+    }
+
+    @Override
+    public Optional<String> directDownloadUrl(String filename) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Path localDirectory() {
+        return baseDir;
+    }
+
+    private Optional<Path> resolve(String filename) {
+        if (!ImageStorage.isValidName(filename)) {
+            return Optional.empty();
+        }
+        Path file = baseDir.resolve(filename).normalize();
+        return file.getParent().equals(baseDir) ? Optional.of(file) : Optional.empty();
+    }
+}
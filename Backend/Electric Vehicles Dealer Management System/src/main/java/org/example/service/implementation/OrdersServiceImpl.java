@@ -7,16 +7,31 @@ import org.example.repository.UserAccountRepository;
 import org.example.repository.CustomerRepository;
 import org.example.repository.OrderDetailsRepository;
 import org.example.repository.DealerCarRepository;
+import org.example.repository.DealerRepository;
 import org.example.repository.PromotionRepository;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.ChangeFeedService;
+import org.example.service.DailySalesFactService;
+import org.example.service.DealerInventoryService;
 import org.example.service.OrdersService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +43,9 @@ public class OrdersServiceImpl implements OrdersService {
     @Autowired
     private UserAccountRepository userAccountRepository;
 
+    @Autowired
+    private CurrentUserProvider currentUserProvider;
+
     @Autowired
     private CustomerRepository customerRepository;
 
@@ -37,9 +55,41 @@ public class OrdersServiceImpl implements OrdersService {
     @Autowired
     private DealerCarRepository dealerCarRepository;
 
+    @Autowired
+    private DealerRepository dealerRepository;
+
     @Autowired
     private PromotionRepository promotionRepository;
 
+    @Autowired
+    private DealerInventoryService dealerInventoryService;
+
+    @Autowired
+    private DailySalesFactService dailySalesFactService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private AutocompleteIndex autocompleteIndex;
+
+    @Autowired
+    private CarNameResolver carNameResolver;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private DealerEventHub dealerEventHub;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final int ORDER_ID_BATCH_SIZE = 1000;
+
+    private static final int MAX_ORDER_LINES_PER_BATCH = 100;
+
     /**
      * Lấy tất cả orders của dealer mà user đang đăng nhập thuộc về
      * DealerManager: Lấy tất cả orders của dealer
@@ -48,10 +98,9 @@ public class OrdersServiceImpl implements OrdersService {
     @Transactional(readOnly = true)
     public List<DealerOrderResponse> getOrdersByCurrentUserDealer(String currentUserEmail) {
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -59,11 +108,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
         List<Orders> orders;
 
         // Lấy orders dựa trên role
@@ -75,14 +124,8 @@ public class OrdersServiceImpl implements OrdersService {
             orders = ordersRepository.findAllByDealerIdAndUserId(dealerId, currentUser.getUserId());
         }
 
-        // Convert sang DTO với order details
-        return orders.stream()
-                .map(order -> {
-                    // Fetch order details riêng
-                    Orders orderWithDetails = ordersRepository.findOrderWithDetails(order.getOrderId());
-                    return convertToOrderResponse(orderWithDetails);
-                })
-                .collect(Collectors.toList());
+        // Convert sang DTO với order details (nạp details theo lô, không query từng order)
+        return convertToOrderResponses(orders);
     }
 
     /**
@@ -97,10 +140,9 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager
         if (!"DealerManager".equals(roleName)) {
@@ -108,22 +150,164 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Lấy orders theo tên người tạo
         List<Orders> orders = ordersRepository.findAllByDealerIdAndCreatorName(dealerId, creatorName.trim());
 
-        // Convert sang DTO với order details
+        // Convert sang DTO với order details (nạp details theo lô, không query từng order)
+        return convertToOrderResponses(orders);
+    }
+
+    /**
+     * Lấy orders của dealer theo trang (keyset pagination), có lọc và sắp xếp
+     * DealerManager: Lấy orders của toàn dealer
+     * DealerStaff: Chỉ lấy orders được tạo bởi user đó
+     * Mỗi trang chỉ tốn 2 query: header orders và order details của cả trang
+     * Orders không có orderDate được xếp sau cùng khi DESC và đầu tiên khi ASC
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public DealerOrderPageResponse getOrderPageByCurrentUserDealer(String status, String creatorName,
+                                                                   LocalDate fromDate, LocalDate toDate,
+                                                                   String direction, String cursor, Integer size,
+                                                                   String currentUserEmail) {
+        // Lấy thông tin user hiện tại
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
+
+        String roleName = currentUser.getRoleName();
+
+        // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
+        if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
+            throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can access dealer orders.");
+        }
+
+        // Kiểm tra user có thuộc dealer nào không
+        if (currentUser.getDealerId() == null) {
+            throw new RuntimeException("User is not assigned to any dealer.");
+        }
+
+        // Validate tham số phân trang
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new RuntimeException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        boolean ascending;
+        if (direction == null || direction.trim().isEmpty() || "DESC".equalsIgnoreCase(direction.trim())) {
+            ascending = false;
+        } else if ("ASC".equalsIgnoreCase(direction.trim())) {
+            ascending = true;
+        } else {
+            throw new RuntimeException("Invalid sort direction. Supported values: ASC, DESC");
+        }
+
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new RuntimeException("From date must be before or equal to to date");
+        }
+
+        Integer dealerId = currentUser.getDealerId();
+        // DealerStaff chỉ được xem orders do chính mình tạo
+        Integer userId = "DealerStaff".equals(roleName) ? currentUser.getUserId() : null;
+        String statusFilter = status == null || status.trim().isEmpty() ? null : status.trim();
+        String creatorFilter = creatorName == null || creatorName.trim().isEmpty() ? null : creatorName.trim();
+        LocalDateTime fromDateTime = fromDate != null ? fromDate.atStartOfDay() : null;
+        LocalDateTime toDateTime = toDate != null ? toDate.plusDays(1).atStartOfDay() : null;
+
+        // Giải mã cursor của trang trước (null = trang đầu tiên)
+        LocalDateTime cursorDate = null;
+        Integer cursorId = null;
+        boolean cursorHasDate = false;
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            String[] cursorParts = decodeOrderCursor(cursor.trim());
+            cursorHasDate = !cursorParts[0].isEmpty();
+            cursorDate = cursorHasDate ? LocalDateTime.parse(cursorParts[0]) : null;
+            cursorId = Integer.valueOf(cursorParts[1]);
+        }
+
+        // Lấy thêm 1 bản ghi để biết còn trang sau hay không
+        PageRequest pageRequest = PageRequest.of(0, pageSize + 1);
+        List<Orders> orders = ascending
+                ? ordersRepository.findOrderPageByDealerAsc(dealerId, userId, statusFilter, creatorFilter,
+                        fromDateTime, toDateTime, cursorHasDate, cursorDate, cursorId, pageRequest)
+                : ordersRepository.findOrderPageByDealerDesc(dealerId, userId, statusFilter, creatorFilter,
+                        fromDateTime, toDateTime, cursorHasDate, cursorDate, cursorId, pageRequest);
+
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) {
+            orders = orders.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Orders lastOrder = orders.get(orders.size() - 1);
+            nextCursor = encodeOrderCursor(lastOrder.getOrderDate(), lastOrder.getOrderId());
+        }
+
+        return DealerOrderPageResponse.builder()
+                .orders(convertToOrderResponses(orders))
+                .size(orders.size())
+                .hasMore(hasMore)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Mã hóa vị trí (orderDate, orderId) của bản ghi cuối trang thành cursor
+     * orderDate null được mã hóa thành phần ngày rỗng
+     */
+    private String encodeOrderCursor(LocalDateTime orderDate, Integer orderId) {
+        String raw = (orderDate != null ? orderDate.toString() : "") + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giải mã cursor thành [orderDate, orderId], orderDate là chuỗi rỗng nếu bản ghi không có ngày đặt
+     */
+    private String[] decodeOrderCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            if (!parts[0].isEmpty()) {
+                LocalDateTime.parse(parts[0]);
+            }
+            Integer.valueOf(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Convert danh sách Orders sang DTO, nạp order details của tất cả orders theo lô
+     * (mỗi lô tối đa ORDER_ID_BATCH_SIZE id để không vượt giới hạn tham số của SQL Server)
+     */
+    private List<DealerOrderResponse> convertToOrderResponses(List<Orders> orders) {
+        if (orders.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Integer> orderIds = orders.stream()
+                .map(Orders::getOrderId)
+                .collect(Collectors.toList());
+
+        Map<Integer, List<OrderDetails>> detailsByOrderId = new HashMap<>();
+        for (int from = 0; from < orderIds.size(); from += ORDER_ID_BATCH_SIZE) {
+            List<Integer> batch = orderIds.subList(from, Math.min(from + ORDER_ID_BATCH_SIZE, orderIds.size()));
+            for (OrderDetails detail : orderDetailsRepository.findByOrderIds(batch)) {
+                detailsByOrderId.computeIfAbsent(detail.getOrder().getOrderId(), k -> new ArrayList<>()).add(detail);
+            }
+        }
+
         return orders.stream()
-                .map(order -> {
-                    // Fetch order details riêng
-                    Orders orderWithDetails = ordersRepository.findOrderWithDetails(order.getOrderId());
-                    return convertToOrderResponse(orderWithDetails);
-                })
+                .map(order -> convertToOrderResponse(order, detailsByOrderId.get(order.getOrderId())))
                 .collect(Collectors.toList());
     }
 
@@ -131,6 +315,13 @@ public class OrdersServiceImpl implements OrdersService {
      * Convert Orders entity sang DealerOrderResponse DTO
      */
     private DealerOrderResponse convertToOrderResponse(Orders order) {
+        return convertToOrderResponse(order, order.getOrderDetails());
+    }
+
+    /**
+     * Convert Orders entity sang DealerOrderResponse DTO với danh sách order details đã nạp sẵn
+     */
+    private DealerOrderResponse convertToOrderResponse(Orders order, List<OrderDetails> orderDetails) {
         // Customer Info
         CustomerInfoResponse customerInfo = null;
         if (order.getCustomer() != null) {
@@ -176,8 +367,8 @@ public class OrdersServiceImpl implements OrdersService {
 
         // Order Details
         List<OrderDetailResponse> orderDetailResponses = null;
-        if (order.getOrderDetails() != null && !order.getOrderDetails().isEmpty()) {
-            orderDetailResponses = order.getOrderDetails().stream()
+        if (orderDetails != null && !orderDetails.isEmpty()) {
+            orderDetailResponses = orderDetails.stream()
                     .map(this::convertToOrderDetailResponse)
                     .collect(Collectors.toList());
         }
@@ -238,10 +429,9 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -249,11 +439,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Dealer dealer = currentUser.getDealer();
+        Dealer dealer = dealerRepository.getReferenceById(currentUser.getDealerId());
 
         // Kiểm tra customer có tồn tại không
         Customer customer = customerRepository.findByCustomerId(request.getCustomerId())
@@ -263,7 +453,7 @@ public class OrdersServiceImpl implements OrdersService {
         Orders draftOrder = new Orders();
         draftOrder.setCustomer(customer);
         draftOrder.setDealer(dealer);
-        draftOrder.setUserAccount(currentUser); // Lưu thông tin người dùng tạo đơn
+        draftOrder.setUserAccount(userAccountRepository.getReferenceById(currentUser.getUserId())); // Lưu thông tin người dùng tạo đơn
         draftOrder.setOrderDate(LocalDateTime.now());
         draftOrder.setSubTotal(BigDecimal.ZERO);
         draftOrder.setDiscountAmount(BigDecimal.ZERO);
@@ -273,6 +463,13 @@ public class OrdersServiceImpl implements OrdersService {
 
         // Lưu vào database
         Orders savedOrder = ordersRepository.save(draftOrder);
+        recordOrderChange(savedOrder);
+
+        // Số đơn chưa hoàn thành trong báo cáo của ngày tạo đơn thay đổi
+        reportCache.evict(dealer.getDealerId(), savedOrder.getOrderDate().toLocalDate());
+
+        // Customer có order tại dealer nên xuất hiện trong gợi ý customer của dealer
+        autocompleteIndex.customerOrderedAfterCommit(dealer.getDealerId(), customer);
 
         // Trả về response
         return CreateDraftOrderResponse.builder()
@@ -296,10 +493,9 @@ public class OrdersServiceImpl implements OrdersService {
         validateCreateOrderDetailRequest(request);
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -307,11 +503,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Kiểm tra order có tồn tại không và thuộc dealer hiện tại
         Orders order = ordersRepository.findById(request.getOrderId())
@@ -321,22 +517,20 @@ public class OrdersServiceImpl implements OrdersService {
             throw new RuntimeException("Access denied. This order does not belong to your dealer.");
         }
 
-        // Tìm car dựa trên modelName, variantName, colorName trong dealer
-        DealerCar dealerCar = dealerCarRepository.findByModelVariantColorAndDealer(
+        // Tìm car dựa trên modelName, variantName, colorName trong catalog, sau đó đọc kho dealer theo khóa chính
+        String notFoundMessage = String.format("Car not found in dealer inventory. Model: %s, Variant: %s, Color: %s",
+                request.getModelName(), request.getVariantName(), request.getColorName());
+        CarNameResolver.ResolvedCar resolvedCar = carNameResolver.resolveForDealer(
                 dealerId,
                 request.getModelName(),
                 request.getVariantName(),
                 request.getColorName())
-                .orElseThrow(() -> new RuntimeException(
-                        String.format("Car not found in dealer inventory. Model: %s, Variant: %s, Color: %s",
-                                request.getModelName(), request.getVariantName(), request.getColorName())));
+                .orElseThrow(() -> new RuntimeException(notFoundMessage));
+        DealerCar dealerCar = dealerCarRepository.findById(new DealerCarId(resolvedCar.carId(), dealerId))
+                .orElseThrow(() -> new RuntimeException(notFoundMessage));
 
-        // Kiểm tra số lượng trong kho
-        if (dealerCar.getQuantity() < request.getQuantity()) {
-            throw new RuntimeException(
-                    String.format("Insufficient inventory. Available: %d, Requested: %d",
-                            dealerCar.getQuantity(), request.getQuantity()));
-        }
+        // Trừ số lượng trong kho dealer bằng UPDATE có điều kiện (ném lỗi nếu không còn đủ xe)
+        dealerInventoryService.reserve(dealerId, dealerCar.getCarId(), request.getQuantity());
 
         // Tạo order detail
         OrderDetails orderDetail = new OrderDetails();
@@ -362,10 +556,6 @@ public class OrdersServiceImpl implements OrdersService {
                     .multiply(BigDecimal.valueOf(refreshedOrderDetail.getQuantity()));
         }
 
-        // Cập nhật số lượng trong kho dealer
-        dealerCar.setQuantity(dealerCar.getQuantity() - request.getQuantity());
-        dealerCarRepository.save(dealerCar);
-
         // Cập nhật subTotal trong bảng Orders
         updateOrderSubTotal(order.getOrderId());
 
@@ -374,9 +564,9 @@ public class OrdersServiceImpl implements OrdersService {
                 .orderDetailId(refreshedOrderDetail.getOrderDetailId())
                 .orderId(refreshedOrderDetail.getOrder().getOrderId())
                 .carId(refreshedOrderDetail.getCar().getCarId())
-                .modelName(dealerCar.getCar().getCarVariant().getCarModel().getModelName())
-                .variantName(dealerCar.getCar().getCarVariant().getVariantName())
-                .colorName(dealerCar.getCar().getColor().getColorName())
+                .modelName(resolvedCar.modelName())
+                .variantName(resolvedCar.variantName())
+                .colorName(resolvedCar.colorName())
                 .quantity(refreshedOrderDetail.getQuantity())
                 .unitPrice(BigDecimal.valueOf(refreshedOrderDetail.getUnitPrice()))
                 .finalPrice(finalPrice) // Sử dụng finalPrice đã tính toán
@@ -384,6 +574,169 @@ public class OrdersServiceImpl implements OrdersService {
                 .build();
     }
 
+    /**
+     * Thêm nhiều order details vào một order trong một lần gọi (đơn hàng khách fleet)
+     * Tra cứu xe của các dòng trong catalog snapshot, đọc kho dealer theo khóa chính bằng một query,
+     * trừ tồn kho bằng một câu UPDATE, insert order details bằng một JDBC batch và chỉ tính lại subTotal một lần
+     */
+    @Transactional
+    public CreateOrderDetailsBatchResponse createOrderDetailsBatch(CreateOrderDetailsBatchRequest request, String currentUserEmail) {
+        // Validate input
+        validateCreateOrderDetailsBatchRequest(request);
+
+        // Lấy thông tin user hiện tại
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
+
+        String roleName = currentUser.getRoleName();
+
+        // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
+        if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
+            throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can create order details.");
+        }
+
+        // Kiểm tra user có thuộc dealer nào không
+        if (currentUser.getDealerId() == null) {
+            throw new RuntimeException("User is not assigned to any dealer.");
+        }
+
+        Integer dealerId = currentUser.getDealerId();
+
+        // Kiểm tra order có tồn tại không và thuộc dealer hiện tại
+        Orders order = ordersRepository.findById(request.getOrderId())
+                .orElseThrow(() -> new RuntimeException("Order not found with ID: " + request.getOrderId()));
+
+        if (!order.getDealer().getDealerId().equals(dealerId)) {
+            throw new RuntimeException("Access denied. This order does not belong to your dealer.");
+        }
+
+        // Đổi tên xe của từng dòng thành carId và gộp các dòng trùng xe để mỗi xe chỉ trừ kho một lần
+        Map<Integer, OrderLineRequest> linesByCarId = new LinkedHashMap<>();
+        for (OrderLineRequest line : request.getLines()) {
+            CarNameResolver.ResolvedCar resolvedCar = carNameResolver.resolveForDealer(
+                    dealerId, line.getModelName(), line.getVariantName(), line.getColorName())
+                    .orElseThrow(() -> new RuntimeException(
+                            String.format("Car not found in dealer inventory. Model: %s, Variant: %s, Color: %s",
+                                    line.getModelName(), line.getVariantName(), line.getColorName())));
+            OrderLineRequest merged = linesByCarId.get(resolvedCar.carId());
+            if (merged == null) {
+                linesByCarId.put(resolvedCar.carId(), OrderLineRequest.builder()
+                        .modelName(resolvedCar.modelName())
+                        .variantName(resolvedCar.variantName())
+                        .colorName(resolvedCar.colorName())
+                        .quantity(line.getQuantity())
+                        .build());
+            } else {
+                merged.setQuantity(merged.getQuantity() + line.getQuantity());
+            }
+        }
+
+        // Đọc kho dealer của tất cả xe theo khóa chính bằng một query
+        List<DealerCarId> dealerCarIds = linesByCarId.keySet().stream()
+                .map(carId -> new DealerCarId(carId, dealerId))
+                .collect(Collectors.toList());
+
+        Map<Integer, DealerCar> dealerCarsByCarId = new HashMap<>();
+        for (DealerCar dealerCar : dealerCarRepository.findAllById(dealerCarIds)) {
+            dealerCarsByCarId.put(dealerCar.getCarId(), dealerCar);
+        }
+
+        // Kiểm tra từng dòng và chuẩn bị order details
+        Map<Integer, Integer> quantityByCarId = new LinkedHashMap<>();
+        List<OrderDetails> newOrderDetails = new ArrayList<>();
+        for (Map.Entry<Integer, OrderLineRequest> entry : linesByCarId.entrySet()) {
+            OrderLineRequest line = entry.getValue();
+            DealerCar dealerCar = dealerCarsByCarId.get(entry.getKey());
+            if (dealerCar == null) {
+                throw new RuntimeException(
+                        String.format("Car not found in dealer inventory. Model: %s, Variant: %s, Color: %s",
+                                line.getModelName(), line.getVariantName(), line.getColorName()));
+            }
+
+            // Kiểm tra số lượng trong kho
+            if (dealerCar.getQuantity() < line.getQuantity()) {
+                throw new RuntimeException(
+                        String.format("Insufficient inventory for %s %s %s. Available: %d, Requested: %d",
+                                line.getModelName(), line.getVariantName(), line.getColorName(),
+                                dealerCar.getQuantity(), line.getQuantity()));
+            }
+
+            OrderDetails orderDetail = new OrderDetails();
+            orderDetail.setOrder(order);
+            orderDetail.setCar(dealerCar.getCar());
+            orderDetail.setQuantity(line.getQuantity());
+            // Set unit price từ dealer price
+            orderDetail.setUnitPrice(dealerCar.getDealerPrice().doubleValue());
+            newOrderDetails.add(orderDetail);
+
+            quantityByCarId.put(dealerCar.getCarId(), line.getQuantity());
+        }
+
+        // Trừ tồn kho của tất cả xe bằng một câu UPDATE; nếu có xe không còn đủ hàng thì rollback toàn bộ
+        dealerInventoryService.reserveAll(dealerId, quantityByCarId);
+
+        // Insert tất cả order details bằng một JDBC batch
+        orderDetailsRepository.insertOrderDetailsBatch(order.getOrderId(), newOrderDetails);
+
+        // Cập nhật subTotal trong bảng Orders một lần cho cả batch
+        updateOrderSubTotal(order.getOrderId());
+
+        // Đọc lại order details của order để lấy finalPrice được tính toán từ database
+        List<OrderDetailResponse> orderDetailResponses = orderDetailsRepository.findByOrderId(order.getOrderId()).stream()
+                .map(this::convertToOrderDetailResponse)
+                .collect(Collectors.toList());
+
+        return CreateOrderDetailsBatchResponse.builder()
+                .orderId(order.getOrderId())
+                .linesAdded(newOrderDetails.size())
+                .orderDetails(orderDetailResponses)
+                .subTotal(order.getSubTotal())
+                .message("Order details created successfully")
+                .build();
+    }
+
+    /**
+     * Validate request thêm nhiều order details
+     */
+    private void validateCreateOrderDetailsBatchRequest(CreateOrderDetailsBatchRequest request) {
+        if (request == null) {
+            throw new RuntimeException("Create order details request cannot be null");
+        }
+
+        if (request.getOrderId() == null) {
+            throw new RuntimeException("Order ID is required");
+        }
+
+        if (request.getLines() == null || request.getLines().isEmpty()) {
+            throw new RuntimeException("At least one order line is required");
+        }
+
+        if (request.getLines().size() > MAX_ORDER_LINES_PER_BATCH) {
+            throw new RuntimeException("Too many order lines. Maximum per request: " + MAX_ORDER_LINES_PER_BATCH);
+        }
+
+        for (OrderLineRequest line : request.getLines()) {
+            if (line == null) {
+                throw new RuntimeException("Order line cannot be null");
+            }
+
+            if (line.getModelName() == null || line.getModelName().trim().isEmpty()) {
+                throw new RuntimeException("Model name is required");
+            }
+
+            if (line.getVariantName() == null || line.getVariantName().trim().isEmpty()) {
+                throw new RuntimeException("Variant name is required");
+            }
+
+            if (line.getColorName() == null || line.getColorName().trim().isEmpty()) {
+                throw new RuntimeException("Color name is required");
+            }
+
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new RuntimeException("Quantity must be greater than 0");
+            }
+        }
+    }
+
     /**
      * Validate request tạo order detail
      */
@@ -429,6 +782,26 @@ public class OrdersServiceImpl implements OrdersService {
 
         // Lưu thay đổi
         ordersRepository.save(order);
+        recordOrderChange(order);
+        refreshSalesFactIfPaid(order);
+    }
+
+    /**
+     * Ghi thay đổi đơn hàng vào nhật ký đồng bộ delta và đẩy sự kiện tới các màn hình đang mở sau khi commit
+     */
+    private void recordOrderChange(Orders order) {
+        changeFeedService.record(ChangeLog.Domain.ORDER, order.getDealer().getDealerId(), order.getOrderId(),
+                ChangeLog.Operation.UPSERT);
+        dealerEventHub.orderChangedAfterCommit(order);
+    }
+
+    /**
+     * Tính lại DAILY_SALES_FACT khi đơn đã thanh toán bị sửa chi tiết hoặc khuyến mãi
+     */
+    private void refreshSalesFactIfPaid(Orders order) {
+        if ("Đã thanh toán".equals(order.getStatus())) {
+            dailySalesFactService.onOrderChanged(order.getDealer().getDealerId(), null, order.getCompletedDate());
+        }
     }
 
     /**
@@ -437,10 +810,9 @@ public class OrdersServiceImpl implements OrdersService {
     @Transactional
     public void deleteOrderDetail(Integer orderDetailId, String currentUserEmail) {
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -448,11 +820,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Tìm order detail
         OrderDetails orderDetail = orderDetailsRepository.findById(orderDetailId)
@@ -468,13 +840,8 @@ public class OrdersServiceImpl implements OrdersService {
         Integer quantityToReturn = orderDetail.getQuantity();
         Integer orderId = orderDetail.getOrder().getOrderId();
 
-        // Tìm DealerCar để hoàn trả số lượng
-        DealerCar dealerCar = dealerCarRepository.findByCarIdAndDealerId(carId, dealerId)
-                .orElseThrow(() -> new RuntimeException("Dealer car record not found"));
-
         // Hoàn trả số lượng xe về kho dealer
-        dealerCar.setQuantity(dealerCar.getQuantity() + quantityToReturn);
-        dealerCarRepository.save(dealerCar);
+        dealerInventoryService.release(dealerId, carId, quantityToReturn);
 
         // Xóa order detail
         orderDetailsRepository.delete(orderDetail);
@@ -492,10 +859,9 @@ public class OrdersServiceImpl implements OrdersService {
         validateUpdateOrderDetailRequest(request);
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -503,11 +869,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Tìm order detail
         OrderDetails orderDetail = orderDetailsRepository.findById(orderDetailId)
@@ -523,26 +889,16 @@ public class OrdersServiceImpl implements OrdersService {
         Integer newQuantity = request.getQuantity();
         Integer quantityDifference = newQuantity - oldQuantity;
 
-        // Tìm DealerCar để kiểm tra và cập nhật tồn kho
+        // Cập nhật tồn kho dealer bằng UPDATE nguyên tử
+        // Nếu tăng số lượng: trừ thêm từ kho (ném lỗi nếu không còn đủ xe)
+        // Nếu giảm số lượng: hoàn trả về kho
         Integer carId = orderDetail.getCar().getCarId();
-        DealerCar dealerCar = dealerCarRepository.findByCarIdAndDealerId(carId, dealerId)
-                .orElseThrow(() -> new RuntimeException("Dealer car record not found"));
-
-        // Kiểm tra tồn kho nếu tăng số lượng
         if (quantityDifference > 0) {
-            if (dealerCar.getQuantity() < quantityDifference) {
-                throw new RuntimeException(
-                    String.format("Insufficient inventory. Available: %d, Additional needed: %d",
-                    dealerCar.getQuantity(), quantityDifference));
-            }
+            dealerInventoryService.reserve(dealerId, carId, quantityDifference);
+        } else if (quantityDifference < 0) {
+            dealerInventoryService.release(dealerId, carId, -quantityDifference);
         }
 
-        // Cập nhật tồn kho dealer
-        // Nếu tăng số lượng: trừ thêm từ kho
-        // Nếu giảm số lượng: hoàn trả về kho
-        dealerCar.setQuantity(dealerCar.getQuantity() - quantityDifference);
-        dealerCarRepository.save(dealerCar);
-
         // Cập nhật order detail
         orderDetail.setQuantity(newQuantity);
         OrderDetails savedOrderDetail = orderDetailsRepository.save(orderDetail);
@@ -602,10 +958,9 @@ public class OrdersServiceImpl implements OrdersService {
         validateUpdateOrderPromotionRequest(orderId, request);
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -613,11 +968,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Tìm order và kiểm tra thuộc dealer hiện tại
         Orders order = ordersRepository.findById(orderId)
@@ -639,6 +994,8 @@ public class OrdersServiceImpl implements OrdersService {
             order.setDiscountAmount(BigDecimal.ZERO);
 
             Orders savedOrder = ordersRepository.save(order);
+            recordOrderChange(savedOrder);
+            refreshSalesFactIfPaid(savedOrder);
 
             return UpdateOrderPromotionResponse.builder()
                     .orderId(savedOrder.getOrderId())
@@ -699,6 +1056,8 @@ public class OrdersServiceImpl implements OrdersService {
 
         // Lưu order
         Orders savedOrder = ordersRepository.save(order);
+        recordOrderChange(savedOrder);
+        refreshSalesFactIfPaid(savedOrder);
 
         // Trả về response
         return UpdateOrderPromotionResponse.builder()
@@ -739,10 +1098,9 @@ public class OrdersServiceImpl implements OrdersService {
         validateUpdateOrderPaymentMethodRequest(orderId, request);
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -750,11 +1108,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Tìm order và kiểm tra thuộc dealer hiện tại
         Orders order = ordersRepository.findById(orderId)
@@ -769,6 +1127,7 @@ public class OrdersServiceImpl implements OrdersService {
 
         // Lưu order
         Orders savedOrder = ordersRepository.save(order);
+        recordOrderChange(savedOrder);
 
         // Trả về response
         return UpdateOrderPaymentMethodResponse.builder()
@@ -826,10 +1185,9 @@ public class OrdersServiceImpl implements OrdersService {
         validateUpdateOrderStatusRequest(orderId, request);
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -837,11 +1195,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Tìm order và kiểm tra thuộc dealer hiện tại
         Orders order = ordersRepository.findById(orderId)
@@ -853,6 +1211,7 @@ public class OrdersServiceImpl implements OrdersService {
 
         // Lưu status cũ để trả về trong response
         String oldStatus = order.getStatus();
+        LocalDateTime oldCompletedDate = order.getCompletedDate();
 
         // Xử lý hoàn trả xe về kho khi đơn hàng bị hủy
         if ("Đã hủy".equals(request.getStatus()) && !"Đã hủy".equals(oldStatus)) {
@@ -863,13 +1222,8 @@ public class OrdersServiceImpl implements OrdersService {
                 Integer carId = orderDetail.getCar().getCarId();
                 Integer quantityToReturn = orderDetail.getQuantity();
 
-                // Tìm DealerCar để hoàn trả số lượng
-                DealerCar dealerCar = dealerCarRepository.findByCarIdAndDealerId(carId, dealerId)
-                        .orElseThrow(() -> new RuntimeException("Dealer car record not found for carId: " + carId));
-
                 // Hoàn trả số lượng xe về kho dealer
-                dealerCar.setQuantity(dealerCar.getQuantity() + quantityToReturn);
-                dealerCarRepository.save(dealerCar);
+                dealerInventoryService.release(dealerId, carId, quantityToReturn);
             }
         }
 
@@ -887,6 +1241,16 @@ public class OrdersServiceImpl implements OrdersService {
 
         // Lưu order
         Orders savedOrder = ordersRepository.save(order);
+        recordOrderChange(savedOrder);
+
+        // Cập nhật số liệu báo cáo khi đơn vào hoặc rời trạng thái "Đã thanh toán"
+        if ("Đã thanh toán".equals(oldStatus) || "Đã thanh toán".equals(savedOrder.getStatus())) {
+            dailySalesFactService.onOrderChanged(dealerId, oldCompletedDate, savedOrder.getCompletedDate());
+            // Số đơn chưa hoàn thành được tính theo ngày tạo đơn
+            if (savedOrder.getOrderDate() != null) {
+                reportCache.evict(dealerId, savedOrder.getOrderDate().toLocalDate());
+            }
+        }
 
         // Trả về response
         return UpdateOrderStatusResponse.builder()
@@ -952,10 +1316,9 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -963,11 +1326,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Tìm order với đầy đủ thông tin order details
         Orders order = ordersRepository.findOrderWithDetails(orderId);
@@ -997,10 +1360,9 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -1008,11 +1370,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Tìm order để kiểm tra quyền truy cập
         Orders order = ordersRepository.findById(orderId)
@@ -1044,10 +1406,9 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Lấy thông tin user hiện tại
-        UserAccount currentUser = userAccountRepository.findByEmail(currentUserEmail)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + currentUserEmail));
+        CurrentUser currentUser = currentUserProvider.getByEmail(currentUserEmail);
 
-        String roleName = currentUser.getRoleId().getRoleName();
+        String roleName = currentUser.getRoleName();
 
         // Kiểm tra role - chỉ cho phép DealerManager và DealerStaff
         if (!"DealerManager".equals(roleName) && !"DealerStaff".equals(roleName)) {
@@ -1055,11 +1416,11 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         // Kiểm tra user có thuộc dealer nào không
-        if (currentUser.getDealer() == null) {
+        if (currentUser.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer.");
         }
 
-        Integer dealerId = currentUser.getDealer().getDealerId();
+        Integer dealerId = currentUser.getDealerId();
 
         // Tìm order và kiểm tra quyền truy cập
         Orders order = ordersRepository.findById(orderId)
@@ -1,12 +1,15 @@
 package org.example.service.implementation;
 
 import org.example.dto.*;
+import org.example.entity.ChangeLog;
 import org.example.entity.Orders;
 import org.example.entity.Payment;
-import org.example.entity.UserAccount;
 import org.example.repository.OrdersRepository;
 import org.example.repository.PaymentRepository;
-import org.example.repository.UserAccountRepository;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.ChangeFeedService;
+import org.example.service.DailySalesFactService;
 import org.example.service.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -27,7 +30,19 @@ public class PaymentServiceImpl implements PaymentService {
     private OrdersRepository ordersRepository;
 
     @Autowired
-    private UserAccountRepository userAccountRepository;
+    private CurrentUserProvider currentUserProvider;
+
+    @Autowired
+    private DailySalesFactService dailySalesFactService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private DealerEventHub dealerEventHub;
 
     /**
      * Tạo hóa đơn thanh toán mới cho "Trả thẳng"
@@ -40,21 +55,16 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can create payments.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
@@ -67,7 +77,7 @@ public class PaymentServiceImpl implements PaymentService {
         Orders order = orderOpt.get();
 
         // Check if order belongs to user's dealer
-        if (!order.getDealer().getDealerId().equals(user.getDealer().getDealerId())) {
+        if (!order.getDealer().getDealerId().equals(user.getDealerId())) {
             throw new RuntimeException("Access denied. Order does not belong to your dealer.");
         }
 
@@ -120,6 +130,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         // Save payment
         Payment savedPayment = paymentRepository.save(payment);
+        dealerEventHub.paymentChangedAfterCommit(savedPayment, ChangeLog.Operation.UPSERT);
 
         // Create response
         CreatePaymentResponse response = new CreatePaymentResponse();
@@ -146,21 +157,16 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can update payment methods.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
@@ -173,7 +179,7 @@ public class PaymentServiceImpl implements PaymentService {
         Payment payment = paymentOpt.get();
 
         // Check if payment's order belongs to user's dealer
-        if (!payment.getOrder().getDealer().getDealerId().equals(user.getDealer().getDealerId())) {
+        if (!payment.getOrder().getDealer().getDealerId().equals(user.getDealerId())) {
             throw new RuntimeException("Access denied. Payment does not belong to your dealer.");
         }
 
@@ -192,6 +198,7 @@ public class PaymentServiceImpl implements PaymentService {
 
         // Save updated payment
         Payment updatedPayment = paymentRepository.save(payment);
+        dealerEventHub.paymentChangedAfterCommit(updatedPayment, ChangeLog.Operation.UPSERT);
 
         // Create response
         UpdatePaymentMethodResponse response = new UpdatePaymentMethodResponse();
@@ -218,21 +225,16 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can update payment statuses.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
@@ -245,7 +247,7 @@ public class PaymentServiceImpl implements PaymentService {
         Payment payment = paymentOpt.get();
 
         // Check if payment's order belongs to user's dealer
-        if (!payment.getOrder().getDealer().getDealerId().equals(user.getDealer().getDealerId())) {
+        if (!payment.getOrder().getDealer().getDealerId().equals(user.getDealerId())) {
             throw new RuntimeException("Access denied. Payment does not belong to your dealer.");
         }
 
@@ -255,6 +257,7 @@ public class PaymentServiceImpl implements PaymentService {
             payment.setNote(request.getNote());
         }
         Payment updatedPayment = paymentRepository.save(payment);
+        dealerEventHub.paymentChangedAfterCommit(updatedPayment, ChangeLog.Operation.UPSERT);
 
         Orders order = updatedPayment.getOrder();
         String orderPaymentMethod = order.getPaymentMethod();
@@ -267,9 +270,21 @@ public class PaymentServiceImpl implements PaymentService {
                 (orderPaymentMethod.toLowerCase().contains("trả thẳng") ||
                  orderPaymentMethod.toLowerCase().contains("tiền mặt"))) {
 
+                LocalDateTime oldCompletedDate = order.getCompletedDate();
+
                 order.setStatus("Đã thanh toán");
                 order.setCompletedDate(LocalDateTime.now());
                 ordersRepository.save(order);
+                changeFeedService.record(ChangeLog.Domain.ORDER, order.getDealer().getDealerId(), order.getOrderId(), ChangeLog.Operation.UPSERT);
+                dealerEventHub.orderChangedAfterCommit(order);
+
+                // Cập nhật số liệu báo cáo; nếu đơn đã thanh toán từ trước thì tính lại cả ngày cũ
+                dailySalesFactService.onOrderChanged(order.getDealer().getDealerId(),
+                        oldCompletedDate, order.getCompletedDate());
+                // Số đơn chưa hoàn thành được tính theo ngày tạo đơn
+                if (order.getOrderDate() != null) {
+                    reportCache.evict(order.getDealer().getDealerId(), order.getOrderDate().toLocalDate());
+                }
                 orderStatusMessage = "Order status automatically updated to 'Đã thanh toán' for 'Trả thẳng' payment method.";
 
             }
@@ -306,21 +321,16 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can delete payments.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
@@ -333,12 +343,13 @@ public class PaymentServiceImpl implements PaymentService {
         Payment payment = paymentOpt.get();
 
         // Check if payment's order belongs to user's dealer
-        if (!payment.getOrder().getDealer().getDealerId().equals(user.getDealer().getDealerId())) {
+        if (!payment.getOrder().getDealer().getDealerId().equals(user.getDealerId())) {
             throw new RuntimeException("Access denied. Payment does not belong to your dealer.");
         }
 
         // Delete payment
         paymentRepository.delete(payment);
+        dealerEventHub.paymentChangedAfterCommit(payment, ChangeLog.Operation.DELETE);
     }
 
     /**
@@ -351,21 +362,16 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         // Find user by email
-        Optional<UserAccount> userOpt = userAccountRepository.findByEmail(email);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found with email: " + email);
-        }
-
-        UserAccount user = userOpt.get();
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user has dealer access role
-        String role = user.getRoleId().getRoleName();
+        String role = user.getRoleName();
         if (!"DealerManager".equals(role) && !"DealerStaff".equals(role)) {
             throw new RuntimeException("Access denied. Only DealerManager and DealerStaff can view payments.");
         }
 
         // Check if user is assigned to a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not assigned to any dealer");
         }
 
@@ -378,7 +384,7 @@ public class PaymentServiceImpl implements PaymentService {
         Orders order = orderOpt.get();
 
         // Check if order belongs to user's dealer
-        if (!order.getDealer().getDealerId().equals(user.getDealer().getDealerId())) {
+        if (!order.getDealer().getDealerId().equals(user.getDealerId())) {
             throw new RuntimeException("Access denied. Order does not belong to your dealer.");
         }
 
@@ -0,0 +1,157 @@
+package org.example.service.implementation;
+
+import org.example.dto.AutocompleteSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Mảng khóa đã sắp xếp cho gợi ý theo tiền tố, tìm vị trí bắt đầu bằng binary search rồi đọc tối đa limit gợi ý
+ * Mỗi gợi ý có một khóa cho mỗi từ trong tên (tên đã bỏ dấu, lowercase) nên gõ "an" khớp được "Nguyễn Văn An"
+ * Bất biến: thêm / sửa / xóa gợi ý trả về index mới, index cũ vẫn đọc được an toàn từ nhiều thread
+ */
+final class PrefixIndex {
+
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator.comparing(Entry::key)
+            .thenComparing(entry -> entry.suggestion().getName(), Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+    private static final PrefixIndex EMPTY = new PrefixIndex(new Entry[0], Map.of());
+
+    // Sắp theo khóa, cùng khóa thì theo tên
+    private final Entry[] entries;
+
+    // id gợi ý -> số khóa của gợi ý trong entries, để kiểm tra id có trong index mà không duyệt mảng
+    private final Map<Integer, Integer> keyCountsById;
+
+    private PrefixIndex(Entry[] entries, Map<Integer, Integer> keyCountsById) {
+        this.entries = entries;
+        this.keyCountsById = keyCountsById;
+    }
+
+    static PrefixIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build index từ danh sách gợi ý, keyTexts trả về các chuỗi dùng để tìm của mỗi gợi ý (tên, số điện thoại...)
+     */
+    static PrefixIndex of(List<AutocompleteSuggestion> suggestions,
+                          Function<AutocompleteSuggestion, List<String>> keyTexts) {
+        List<Entry> entries = new ArrayList<>();
+        Map<Integer, Integer> keyCountsById = new HashMap<>();
+        for (AutocompleteSuggestion suggestion : suggestions) {
+            List<Entry> suggestionEntries = entriesOf(suggestion, keyTexts.apply(suggestion));
+            entries.addAll(suggestionEntries);
+            keyCountsById.merge(suggestion.getId(), suggestionEntries.size(), Integer::sum);
+        }
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, ENTRY_ORDER);
+        return new PrefixIndex(sorted, Collections.unmodifiableMap(keyCountsById));
+    }
+
+    /**
+     * Tối đa limit gợi ý có khóa bắt đầu bằng prefix, mỗi gợi ý xuất hiện một lần
+     */
+    List<AutocompleteSuggestion> top(String prefix, int limit) {
+        String key = CatalogSnapshot.fold(prefix);
+        List<AutocompleteSuggestion> result = new ArrayList<>(Math.min(limit, entries.length));
+        Set<Integer> seen = new HashSet<>();
+        for (int i = lowerBound(key); i < entries.length && result.size() < limit; i++) {
+            Entry entry = entries[i];
+            if (!entry.key().startsWith(key)) {
+                break;
+            }
+            if (seen.add(entry.suggestion().getId())) {
+                result.add(entry.suggestion());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Index mới có thêm gợi ý (thay gợi ý cũ cùng id nếu có), chèn từng khóa vào đúng vị trí thay vì sắp xếp lại
+     * Chỉ so id từng entry khi gợi ý đã có trong index, và dừng so khi đã bỏ đủ số khóa cũ
+     */
+    PrefixIndex with(AutocompleteSuggestion suggestion, List<String> keyTexts) {
+        List<Entry> added = entriesOf(suggestion, keyTexts);
+        added.sort(ENTRY_ORDER);
+
+        Integer id = suggestion.getId();
+        int remaining = keyCountsById.getOrDefault(id, 0);
+        Entry[] merged = new Entry[entries.length + added.size()];
+        int size = 0;
+        int next = 0;
+        for (Entry entry : entries) {
+            if (remaining > 0 && entry.suggestion().getId().equals(id)) {
+                remaining--;
+                continue;
+            }
+            while (next < added.size() && ENTRY_ORDER.compare(added.get(next), entry) < 0) {
+                merged[size++] = added.get(next++);
+            }
+            merged[size++] = entry;
+        }
+        while (next < added.size()) {
+            merged[size++] = added.get(next++);
+        }
+
+        Map<Integer, Integer> keyCountsById = new HashMap<>(this.keyCountsById);
+        keyCountsById.put(id, added.size());
+        return new PrefixIndex(Arrays.copyOf(merged, size), Collections.unmodifiableMap(keyCountsById));
+    }
+
+    boolean contains(Integer id) {
+        return keyCountsById.containsKey(id);
+    }
+
+    /**
+     * Vị trí khóa đầu tiên không nhỏ hơn key
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle].key().compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static List<Entry> entriesOf(AutocompleteSuggestion suggestion, List<String> keyTexts) {
+        Set<String> keys = new HashSet<>();
+        for (String text : keyTexts) {
+            String folded = CatalogSnapshot.fold(text);
+            if (folded.isEmpty()) {
+                continue;
+            }
+            // Khóa bắt đầu tại mỗi từ: "nguyen van an", "van an", "an"
+            keys.add(folded);
+            for (int i = folded.indexOf(' '); i >= 0; i = folded.indexOf(' ', i + 1)) {
+                if (i + 1 < folded.length()) {
+                    keys.add(folded.substring(i + 1));
+                }
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            entries.add(new Entry(key, suggestion));
+        }
+        return entries;
+    }
+
+    private record Entry(String key, AutocompleteSuggestion suggestion) {
+    }
+}
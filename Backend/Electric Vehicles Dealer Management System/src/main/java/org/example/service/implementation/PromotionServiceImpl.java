@@ -3,10 +3,13 @@ package org.example.service.implementation;
 import org.example.dto.CreatePromotionRequest;
 import org.example.dto.PromotionResponse;
 import org.example.dto.UpdatePromotionRequest;
+import org.example.entity.ChangeLog;
 import org.example.entity.Promotion;
-import org.example.entity.UserAccount;
+import org.example.repository.DealerRepository;
 import org.example.repository.PromotionRepository;
-import org.example.repository.UserAccountRepository;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.ChangeFeedService;
 import org.example.service.PromotionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -23,23 +26,31 @@ public class PromotionServiceImpl implements PromotionService {
     private PromotionRepository promotionRepository;
 
     @Autowired
-    private UserAccountRepository userAccountRepository;
+    private DealerRepository dealerRepository;
+
+    @Autowired
+    private CurrentUserProvider currentUserProvider;
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
 
     /**
      * Lấy tất cả promotions của dealer mà user đang đăng nhập thuộc về
      */
     public List<PromotionResponse> getPromotionsByDealerManager(String email) {
         // Find user by email
-        UserAccount user = userAccountRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user is a dealer manager and has a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not associated with any dealer");
         }
 
         // Get all promotions for the dealer
-        List<Promotion> promotions = promotionRepository.findByDealerId(user.getDealer().getDealerId());
+        List<Promotion> promotions = promotionRepository.findByDealerId(user.getDealerId());
 
         // Convert to response DTOs
         return promotions.stream()
@@ -52,11 +63,10 @@ public class PromotionServiceImpl implements PromotionService {
      */
     public PromotionResponse getPromotionByIdForDealerManager(Integer promotionId, String email) {
         // Find user by email
-        UserAccount user = userAccountRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user is a dealer manager and has a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not associated with any dealer");
         }
 
@@ -65,7 +75,7 @@ public class PromotionServiceImpl implements PromotionService {
                 .orElseThrow(() -> new RuntimeException("Promotion not found with ID: " + promotionId));
 
         // Check if promotion belongs to the user's dealer
-        if (!promotion.getDealer().getDealerId().equals(user.getDealer().getDealerId())) {
+        if (!promotion.getDealer().getDealerId().equals(user.getDealerId())) {
             throw new RuntimeException("Access denied. This promotion does not belong to your dealer.");
         }
 
@@ -95,11 +105,10 @@ public class PromotionServiceImpl implements PromotionService {
      */
     public PromotionResponse updatePromotionForDealerManager(Integer promotionId, UpdatePromotionRequest request, String email) {
         // Find user by email
-        UserAccount user = userAccountRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user is a dealer manager and has a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not associated with any dealer");
         }
 
@@ -108,7 +117,7 @@ public class PromotionServiceImpl implements PromotionService {
                 .orElseThrow(() -> new RuntimeException("Promotion not found with ID: " + promotionId));
 
         // Check if promotion belongs to the user's dealer
-        if (!promotion.getDealer().getDealerId().equals(user.getDealer().getDealerId())) {
+        if (!promotion.getDealer().getDealerId().equals(user.getDealerId())) {
             throw new RuntimeException("Access denied. This promotion does not belong to your dealer.");
         }
 
@@ -179,6 +188,8 @@ public class PromotionServiceImpl implements PromotionService {
 
         // Save updated promotion
         Promotion updatedPromotion = promotionRepository.save(promotion);
+        dataVersions.promotionsChangedAfterCommit(user.getDealerId());
+        changeFeedService.record(ChangeLog.Domain.PROMOTION, user.getDealerId(), updatedPromotion.getPromotionId(), ChangeLog.Operation.UPSERT);
 
         return convertToResponse(updatedPromotion);
     }
@@ -188,11 +199,10 @@ public class PromotionServiceImpl implements PromotionService {
      */
     public PromotionResponse createPromotionForDealerManager(CreatePromotionRequest request, String email) {
         // Find user by email
-        UserAccount user = userAccountRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user is a dealer manager and has a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not associated with any dealer");
         }
 
@@ -221,10 +231,12 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setStatus(status);
         promotion.setStartDate(request.getStartDate());
         promotion.setEndDate(request.getEndDate());
-        promotion.setDealer(user.getDealer());
+        promotion.setDealer(dealerRepository.getReferenceById(user.getDealerId()));
 
         // Save promotion
         Promotion savedPromotion = promotionRepository.save(promotion);
+        dataVersions.promotionsChangedAfterCommit(user.getDealerId());
+        changeFeedService.record(ChangeLog.Domain.PROMOTION, user.getDealerId(), savedPromotion.getPromotionId(), ChangeLog.Operation.UPSERT);
 
         return convertToResponse(savedPromotion);
     }
@@ -234,11 +246,10 @@ public class PromotionServiceImpl implements PromotionService {
      */
     public List<PromotionResponse> searchPromotionsByStatus(String email, String status) {
         // Find user by email
-        UserAccount user = userAccountRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user is a dealer manager and has a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not associated with any dealer");
         }
 
@@ -252,7 +263,7 @@ public class PromotionServiceImpl implements PromotionService {
 
         // Use existing repository method for status search
         List<Promotion> promotions = promotionRepository.findByDealerIdAndStatus(
-                user.getDealer().getDealerId(), normalizedStatus);
+                user.getDealerId(), normalizedStatus);
 
         // Convert to response DTOs
         return promotions.stream()
@@ -265,11 +276,10 @@ public class PromotionServiceImpl implements PromotionService {
      */
     public List<PromotionResponse> searchPromotionsByType(String email, String type) {
         // Find user by email
-        UserAccount user = userAccountRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user is a dealer manager and has a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not associated with any dealer");
         }
 
@@ -279,7 +289,7 @@ public class PromotionServiceImpl implements PromotionService {
         }
 
         // Get all promotions for the dealer and filter by type
-        List<Promotion> promotions = promotionRepository.findByDealerId(user.getDealer().getDealerId());
+        List<Promotion> promotions = promotionRepository.findByDealerId(user.getDealerId());
 
         // Filter promotions by type (case insensitive)
         String normalizedType = type.trim();
@@ -299,16 +309,15 @@ public class PromotionServiceImpl implements PromotionService {
      */
     public List<PromotionResponse> searchPromotionsMultiCriteria(String email, String type, String status) {
         // Find user by email
-        UserAccount user = userAccountRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user is a dealer manager and has a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not associated with any dealer");
         }
 
         // Get all promotions for the dealer
-        List<Promotion> promotions = promotionRepository.findByDealerId(user.getDealer().getDealerId());
+        List<Promotion> promotions = promotionRepository.findByDealerId(user.getDealerId());
 
         // Apply filters based on provided parameters
         List<Promotion> filteredPromotions = promotions.stream()
@@ -359,11 +368,10 @@ public class PromotionServiceImpl implements PromotionService {
      */
     public String deletePromotionForDealerManager(Integer promotionId, String email) {
         // Find user by email
-        UserAccount user = userAccountRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        CurrentUser user = currentUserProvider.getByEmail(email);
 
         // Check if user is a dealer manager and has a dealer
-        if (user.getDealer() == null) {
+        if (user.getDealerId() == null) {
             throw new RuntimeException("User is not associated with any dealer");
         }
 
@@ -372,11 +380,13 @@ public class PromotionServiceImpl implements PromotionService {
                 .orElseThrow(() -> new RuntimeException("Promotion not found with ID: " + promotionId));
 
         // Check if promotion belongs to the user's dealer
-        if (!promotion.getDealer().getDealerId().equals(user.getDealer().getDealerId())) {
+        if (!promotion.getDealer().getDealerId().equals(user.getDealerId())) {
             throw new RuntimeException("Access denied. This promotion does not belong to your dealer.");
         }
 
         promotionRepository.delete(promotion);
+        dataVersions.promotionsChangedAfterCommit(user.getDealerId());
+        changeFeedService.record(ChangeLog.Domain.PROMOTION, user.getDealerId(), promotion.getPromotionId(), ChangeLog.Operation.DELETE);
         return "Promotion with ID " + promotionId + " has been deleted successfully.";
     }
 }
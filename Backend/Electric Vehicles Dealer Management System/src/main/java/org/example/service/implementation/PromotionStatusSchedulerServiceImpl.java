@@ -1,7 +1,9 @@
 package org.example.service.implementation;
 
+import org.example.entity.ChangeLog;
 import org.example.entity.Promotion;
 import org.example.repository.PromotionRepository;
+import org.example.service.ChangeFeedService;
 import org.example.service.PromotionStatusSchedulerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +23,12 @@ public class PromotionStatusSchedulerServiceImpl implements PromotionStatusSched
     @Autowired
     private PromotionRepository promotionRepository;
 
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
     /**
      * Runs when the server starts up to update all promotion statuses
      */
@@ -70,6 +78,9 @@ public class PromotionStatusSchedulerServiceImpl implements PromotionStatusSched
                 if (!newStatus.equals(oldStatus)) {
                     promotion.setStatus(newStatus);
                     promotionRepository.save(promotion);
+                    dataVersions.promotionsChangedAfterCommit(promotion.getDealer().getDealerId());
+                    changeFeedService.record(ChangeLog.Domain.PROMOTION, promotion.getDealer().getDealerId(),
+                            promotion.getPromotionId(), ChangeLog.Operation.UPSERT);
                     updatedCount++;
 
                     logger.debug("Updated promotion ID {} ({}): {} -> {}",
@@ -0,0 +1,153 @@
+package org.example.service.implementation;
+
+import jakarta.annotation.PostConstruct;
+import org.example.dto.ReportCacheStatsResponse;
+import org.example.util.AfterCommit;
+import org.example.util.TtlLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả báo cáo theo (loại báo cáo, dealer, khoảng thời gian)
+ * Khi số liệu của một dealer trong một ngày thay đổi, mọi báo cáo của dealer có khoảng chứa ngày đó bị xóa
+ * Kỳ đã đóng (kết thúc trước hôm nay) gần như không đổi nên được giữ lâu,
+ * kỳ đang mở chỉ giữ trong thời gian ngắn để bù cho các thay đổi không đi qua service (model/staff mới, sửa tay DB)
+ * Mỗi dealer có một số thế hệ tăng sau mỗi lần xóa, báo cáo tính xong chỉ được lưu nếu thế hệ không đổi trong lúc tính
+ */
+@Component
+public class ReportCache {
+
+    @Value("${app.report-cache.max-size:1000}")
+    private int maxSize;
+
+    @Value("${app.report-cache.open-period-ttl-seconds:300}")
+    private long openPeriodTtlSeconds;
+
+    @Value("${app.report-cache.closed-period-ttl-hours:24}")
+    private long closedPeriodTtlHours;
+
+    // Các thao tác cần kiểm tra thế hệ cùng lúc với ghi cache đều đồng bộ trên chính cache
+    private TtlLruCache<Key, Object> cache;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    // Thế hệ theo dealer, chỉ tăng (trong khóa cache) khi báo cáo của dealer bị xóa
+    private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        cache = new TtlLruCache<>(maxSize);
+    }
+
+    /**
+     * Lấy báo cáo từ cache, nếu chưa có hoặc đã hết hạn thì tính bằng loader rồi lưu lại
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String reportType, Integer dealerId, LocalDateTime start, LocalDateTime end, Supplier<T> loader) {
+        Key key = new Key(reportType, dealerId, start, end);
+        long now = System.currentTimeMillis();
+        Object cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            return (T) cached;
+        }
+        misses.increment();
+
+        // Lấy thế hệ trước khi tính: nếu có evict chạy xen giữa thì kết quả có thể dựa trên dữ liệu cũ
+        long generation = generation(dealerId);
+        T value = loader.get();
+        if (value != null) {
+            put(key, value, now, generation);
+        }
+        return value;
+    }
+
+    /**
+     * Xóa các báo cáo của dealer có khoảng thời gian chứa ngày bị thay đổi
+     * Nếu đang trong transaction thì xóa thêm một lần sau commit để không giữ lại
+     * kết quả được tính từ dữ liệu cũ trong lúc transaction chưa commit
+     */
+    public void evict(Integer dealerId, LocalDate day) {
+        if (dealerId == null || day == null) {
+            return;
+        }
+
+        evictNow(dealerId, day);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            AfterCommit.run(() -> evictNow(dealerId, day));
+        }
+    }
+
+    /**
+     * Số liệu hit/miss của cache
+     */
+    public ReportCacheStatsResponse getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        int size = cache.size();
+
+        return ReportCacheStatsResponse.builder()
+                .size(size)
+                .maxSize(maxSize)
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(requests > 0 ? (double) hitCount / requests : 0.0)
+                .invalidations(invalidations.sum())
+                .build();
+    }
+
+    private void put(Key key, Object value, long now, long generation) {
+        // Kỳ đã đóng khi thời điểm kết thúc không sau đầu ngày hôm nay
+        boolean closedPeriod = !key.end.isAfter(LocalDate.now().atStartOfDay());
+        long ttlMillis = closedPeriod ? closedPeriodTtlHours * 3_600_000L : openPeriodTtlSeconds * 1000L;
+
+        synchronized (cache) {
+            if (generation != generation(key.dealerId)) {
+                return;
+            }
+            cache.put(key, value, now + ttlMillis);
+        }
+    }
+
+    private void evictNow(Integer dealerId, LocalDate day) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+        synchronized (cache) {
+            generations.computeIfAbsent(dealerId, id -> new AtomicLong()).incrementAndGet();
+            cache.removeIf(key -> {
+                boolean affected = dealerId.equals(key.dealerId)
+                        && key.start.isBefore(dayEnd) && key.end.isAfter(dayStart);
+                if (affected) {
+                    invalidations.increment();
+                }
+                return affected;
+            });
+        }
+    }
+
+    private long generation(Integer dealerId) {
+        // Báo cáo toàn hệ thống (dealerId null) không bị evict theo dealer nên không cần thế hệ
+        if (dealerId == null) {
+            return 0L;
+        }
+        AtomicLong counter = generations.get(dealerId);
+        return counter != null ? counter.get() : 0L;
+    }
+
+    private record Key(String reportType, Integer dealerId, LocalDateTime start, LocalDateTime end) {
+    }
+}
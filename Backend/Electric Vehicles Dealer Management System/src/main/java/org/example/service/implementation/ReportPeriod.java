@@ -0,0 +1,41 @@
+package org.example.service.implementation;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Kỳ báo cáo dạng khoảng nửa mở [fromDate, toDate)
+ * Các query báo cáo so sánh trực tiếp cột ngày với start()/end() thay vì YEAR()/MONTH()
+ * để SQL Server dùng được index seek trên cột ngày
+ */
+record ReportPeriod(LocalDate fromDate, LocalDate toDate) {
+
+    static ReportPeriod ofMonth(int year, int month) {
+        LocalDate fromDate = LocalDate.of(year, month, 1);
+        return new ReportPeriod(fromDate, fromDate.plusMonths(1));
+    }
+
+    static ReportPeriod ofQuarter(int year, int quarter) {
+        LocalDate fromDate = LocalDate.of(year, (quarter - 1) * 3 + 1, 1);
+        return new ReportPeriod(fromDate, fromDate.plusMonths(3));
+    }
+
+    static ReportPeriod ofYear(int year) {
+        LocalDate fromDate = LocalDate.of(year, 1, 1);
+        return new ReportPeriod(fromDate, fromDate.plusYears(1));
+    }
+
+    /**
+     * Thời điểm bắt đầu (bao gồm)
+     */
+    LocalDateTime start() {
+        return fromDate.atStartOfDay();
+    }
+
+    /**
+     * Thời điểm kết thúc (không bao gồm)
+     */
+    LocalDateTime end() {
+        return toDate.atStartOfDay();
+    }
+}
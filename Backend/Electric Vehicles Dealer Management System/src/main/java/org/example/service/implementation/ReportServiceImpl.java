@@ -6,6 +6,8 @@ import org.example.dto.RevenueReportResponse;
 import org.example.dto.RevenueByModelReportResponse;
 import org.example.dto.RevenueByStaffReportResponse;
 import org.example.dto.CarImportCostReportResponse;
+import org.example.dto.ReportCacheStatsResponse;
+import org.example.repository.DailySalesFactRepository;
 import org.example.repository.OrdersRepository;
 import org.example.repository.CarDistributionRequestRepository;
 import org.example.service.ReportService;
@@ -13,6 +15,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,67 +28,76 @@ public class ReportServiceImpl implements ReportService {
 
     private final OrdersRepository ordersRepository;
     private final CarDistributionRequestRepository carDistributionRequestRepository;
+    private final DailySalesFactRepository dailySalesFactRepository;
+    private final ReportCache reportCache;
 
     /**
-     * Tạo báo cáo tổng quát trong khoảng thời gian cho dealer cụ thể
+     * Tạo báo cáo tổng quát trong khoảng thời gian nửa mở [startDate, endDate) cho dealer cụ thể
      */
     public SalesReportResponse generateSalesReportForDealer(LocalDateTime startDate, LocalDateTime endDate, Integer dealerId) {
+        return reportCache.get("SALES", dealerId, startDate, endDate,
+            () -> loadSalesReportForDealer(startDate, endDate, dealerId));
+    }
 
-        // Tổng đơn hàng đã thanh toán (tính theo completedDate) cho dealer cụ thể
-        Long totalCompletedOrders = ordersRepository.countCompletedOrdersByCompletedDateRangeAndDealer(
-            startDate, endDate, dealerId
-        );
-
-        // Tổng đơn hàng chưa hoàn thành (tính theo orderDate) cho dealer cụ thể
-        Long totalPendingOrders = ordersRepository.countPendingOrdersByOrderDateRangeAndDealer(
-            startDate, endDate, dealerId
-        );
-
-        // Tổng xe bán được từ đơn hàng đã thanh toán cho dealer cụ thể
-        Long totalCarsSold = ordersRepository.countTotalCarsSoldByCompletedDateRangeAndDealer(
-            startDate, endDate, dealerId
-        );
-
-        // Tổng doanh thu từ đơn hàng đã thanh toán cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.sumTotalRevenueByCompletedDateRangeAndDealer(
-            startDate, endDate, dealerId
-        );
-
-        // Tổng lợi nhuận (dealer price - manufacturer price) cho dealer cụ thể
-        BigDecimal totalProfit = ordersRepository.sumTotalProfitByCompletedDateRangeAndDealer(
-            startDate, endDate, dealerId
-        );
-
-        // Tổng số xe nhập vào từ các yêu cầu phân phối đã giao cho dealer cụ thể
-        Long totalCarsDistributed = carDistributionRequestRepository.sumTotalCarsDistributedByDeliveryDateRangeAndDealer(
-            startDate, endDate, dealerId
-        );
+    private SalesReportResponse loadSalesReportForDealer(LocalDateTime startDate, LocalDateTime endDate, Integer dealerId) {
+        // Một query trả về đủ 6 chỉ số: completedOrders, carsSold, revenue, profit, pendingOrders, carsDistributed
+        List<Object[]> rows;
+        if (isWholeDayRange(startDate, endDate)) {
+            // Khoảng trọn ngày (tháng/quý/năm): số liệu bán hàng đọc từ bảng tổng hợp DAILY_SALES_FACT
+            rows = dailySalesFactRepository.getSalesSummaryForDealer(
+                dealerId, startDate.toLocalDate(), endDate.toLocalDate(), startDate, endDate
+            );
+        } else {
+            rows = ordersRepository.getSalesSummaryForDealer(startDate, endDate, dealerId);
+        }
+        Object[] summary = rows.get(0);
 
         return SalesReportResponse.builder()
-            .totalCompletedOrders(totalCompletedOrders != null ? totalCompletedOrders : 0L)
-            .totalPendingOrders(totalPendingOrders != null ? totalPendingOrders : 0L)
-            .totalCarsSold(totalCarsSold != null ? totalCarsSold : 0L)
-            .totalRevenue(totalRevenue != null ? totalRevenue : BigDecimal.ZERO)
-            .totalProfit(totalProfit != null ? totalProfit : BigDecimal.ZERO)
-            .totalCarsDistributed(totalCarsDistributed != null ? totalCarsDistributed : 0L)
+            .totalCompletedOrders(toLong(summary[0]))
+            .totalCarsSold(toLong(summary[1]))
+            .totalRevenue(summary[2] != null ? (BigDecimal) summary[2] : BigDecimal.ZERO)
+            .totalProfit(summary[3] != null ? (BigDecimal) summary[3] : BigDecimal.ZERO)
+            .totalPendingOrders(toLong(summary[4]))
+            .totalCarsDistributed(toLong(summary[5]))
             .build();
     }
 
+    private Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * Khoảng [startDate, endDate) có bắt đầu và kết thúc đúng lúc 00:00 hay không
+     * (các báo cáo tháng/quý/năm đều như vậy nên đọc được từ số liệu tổng hợp theo ngày)
+     */
+    private boolean isWholeDayRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                && endDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                && endDate.isAfter(startDate);
+    }
+
     // ===== DEALER-SPECIFIC REVENUE REPORT METHODS =====
 
     /**
      * Tạo báo cáo doanh thu theo tháng cho dealer cụ thể
      */
     public RevenueReportResponse generateMonthlyRevenueReportForDealer(Integer year, Integer month, Integer dealerId) {
-        // Lấy tổng doanh thu của tháng cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueByMonthForDealer(year, month, dealerId);
-
-        // Lấy doanh thu theo từng ngày trong tháng cho dealer cụ thể
-        List<Object[]> dailyRevenueData = ordersRepository.getDailyRevenueByMonthForDealer(year, month, dealerId);
+        ReportPeriod period = ReportPeriod.ofMonth(year, month);
+        return reportCache.get("MONTHLY_REVENUE", dealerId, period.start(), period.end(),
+            () -> loadMonthlyRevenueReportForDealer(year, month, dealerId));
+    }
 
+    private RevenueReportResponse loadMonthlyRevenueReportForDealer(Integer year, Integer month, Integer dealerId) {
         // Xác định số ngày trong tháng
         YearMonth yearMonth = YearMonth.of(year, month);
         int daysInMonth = yearMonth.lengthOfMonth();
+        ReportPeriod period = ReportPeriod.ofMonth(year, month);
+
+        // Lấy tổng doanh thu của tháng cho dealer cụ thể
+        BigDecimal totalRevenue = dailySalesFactRepository.sumRevenueForDealer(dealerId, period.fromDate(), period.toDate());
+
+        // Lấy doanh thu theo từng ngày trong tháng cho dealer cụ thể
+        List<Object[]> dailyRevenueData = dailySalesFactRepository.getDailyRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Tạo map để dễ dàng tra cứu doanh thu theo ngày
         Map<Integer, BigDecimal> revenueMap = new HashMap<>();
@@ -119,15 +131,23 @@ public class ReportServiceImpl implements ReportService {
      * Tạo báo cáo doanh thu theo quý cho dealer cụ thể
      */
     public RevenueReportResponse generateQuarterlyRevenueReportForDealer(Integer year, Integer quarter, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofQuarter(year, quarter);
+        return reportCache.get("QUARTERLY_REVENUE", dealerId, period.start(), period.end(),
+            () -> loadQuarterlyRevenueReportForDealer(year, quarter, dealerId));
+    }
+
+    private RevenueReportResponse loadQuarterlyRevenueReportForDealer(Integer year, Integer quarter, Integer dealerId) {
         // Tính tháng bắt đầu và kết thúc của quý
         int startMonth = (quarter - 1) * 3 + 1;
         int endMonth = startMonth + 2;
 
+        ReportPeriod period = ReportPeriod.ofQuarter(year, quarter);
+
         // Lấy tổng doanh thu của quý cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueByQuarterForDealer(year, startMonth, endMonth, dealerId);
+        BigDecimal totalRevenue = dailySalesFactRepository.sumRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Lấy doanh thu theo từng tháng trong quý cho dealer cụ thể
-        List<Object[]> monthlyRevenueData = ordersRepository.getMonthlyRevenueByQuarterForDealer(year, startMonth, endMonth, dealerId);
+        List<Object[]> monthlyRevenueData = dailySalesFactRepository.getMonthlyRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Tạo map để dễ dàng tra cứu doanh thu theo tháng
         Map<Integer, BigDecimal> revenueMap = new HashMap<>();
@@ -165,11 +185,19 @@ public class ReportServiceImpl implements ReportService {
      * Tạo báo cáo doanh thu theo năm cho dealer cụ thể
      */
     public RevenueReportResponse generateYearlyRevenueReportForDealer(Integer year, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofYear(year);
+        return reportCache.get("YEARLY_REVENUE", dealerId, period.start(), period.end(),
+            () -> loadYearlyRevenueReportForDealer(year, dealerId));
+    }
+
+    private RevenueReportResponse loadYearlyRevenueReportForDealer(Integer year, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofYear(year);
+
         // Lấy tổng doanh thu của năm cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueByYearForDealer(year, dealerId);
+        BigDecimal totalRevenue = dailySalesFactRepository.sumRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Lấy doanh thu theo từng tháng trong năm cho dealer cụ thể
-        List<Object[]> monthlyRevenueData = ordersRepository.getMonthlyRevenueByYearForDealer(year, dealerId);
+        List<Object[]> monthlyRevenueData = dailySalesFactRepository.getMonthlyRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Tạo map để dễ dàng tra cứu doanh thu theo tháng
         Map<Integer, BigDecimal> revenueMap = new HashMap<>();
@@ -207,11 +235,19 @@ public class ReportServiceImpl implements ReportService {
      * Tạo báo cáo doanh thu theo model theo tháng cho dealer cụ thể
      */
     public RevenueByModelReportResponse generateRevenueByModelMonthlyReportForDealer(Integer year, Integer month, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofMonth(year, month);
+        return reportCache.get("REVENUE_BY_MODEL_MONTHLY", dealerId, period.start(), period.end(),
+            () -> loadRevenueByModelMonthlyReportForDealer(year, month, dealerId));
+    }
+
+    private RevenueByModelReportResponse loadRevenueByModelMonthlyReportForDealer(Integer year, Integer month, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofMonth(year, month);
+
         // Lấy doanh thu theo model trong tháng cho dealer cụ thể
-        List<Object[]> modelRevenueData = ordersRepository.getRevenueByModelByMonthForDealer(year, month, dealerId);
+        List<Object[]> modelRevenueData = dailySalesFactRepository.getRevenueByModelForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Lấy tổng doanh thu từ finalPrice trong tháng cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueFromFinalPriceByMonthForDealer(year, month, dealerId);
+        BigDecimal totalRevenue = dailySalesFactRepository.sumNetRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         return buildRevenueByModelReportForDealer(modelRevenueData, totalRevenue, "MONTHLY",
                                        year + "-" + String.format("%02d", month) + "-01",
@@ -223,15 +259,23 @@ public class ReportServiceImpl implements ReportService {
      * Tạo báo cáo doanh thu theo model theo quý cho dealer cụ thể
      */
     public RevenueByModelReportResponse generateRevenueByModelQuarterlyReportForDealer(Integer year, Integer quarter, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofQuarter(year, quarter);
+        return reportCache.get("REVENUE_BY_MODEL_QUARTERLY", dealerId, period.start(), period.end(),
+            () -> loadRevenueByModelQuarterlyReportForDealer(year, quarter, dealerId));
+    }
+
+    private RevenueByModelReportResponse loadRevenueByModelQuarterlyReportForDealer(Integer year, Integer quarter, Integer dealerId) {
         // Tính tháng bắt đầu và kết thúc của quý
         int startMonth = (quarter - 1) * 3 + 1;
         int endMonth = startMonth + 2;
 
+        ReportPeriod period = ReportPeriod.ofQuarter(year, quarter);
+
         // Lấy doanh thu theo model trong quý cho dealer cụ thể
-        List<Object[]> modelRevenueData = ordersRepository.getRevenueByModelByQuarterForDealer(year, startMonth, endMonth, dealerId);
+        List<Object[]> modelRevenueData = dailySalesFactRepository.getRevenueByModelForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Lấy tổng doanh thu từ finalPrice trong quý cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueFromFinalPriceByQuarterForDealer(year, startMonth, endMonth, dealerId);
+        BigDecimal totalRevenue = dailySalesFactRepository.sumNetRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         return buildRevenueByModelReportForDealer(modelRevenueData, totalRevenue, "QUARTERLY",
                                        year + "-" + String.format("%02d", startMonth) + "-01",
@@ -243,11 +287,19 @@ public class ReportServiceImpl implements ReportService {
      * Tạo báo cáo doanh thu theo model theo năm cho dealer cụ thể
      */
     public RevenueByModelReportResponse generateRevenueByModelYearlyReportForDealer(Integer year, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofYear(year);
+        return reportCache.get("REVENUE_BY_MODEL_YEARLY", dealerId, period.start(), period.end(),
+            () -> loadRevenueByModelYearlyReportForDealer(year, dealerId));
+    }
+
+    private RevenueByModelReportResponse loadRevenueByModelYearlyReportForDealer(Integer year, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofYear(year);
+
         // Lấy doanh thu theo model trong năm cho dealer cụ thể
-        List<Object[]> modelRevenueData = ordersRepository.getRevenueByModelByYearForDealer(year, dealerId);
+        List<Object[]> modelRevenueData = dailySalesFactRepository.getRevenueByModelForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Lấy tổng doanh thu từ finalPrice trong năm cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueFromFinalPriceByYearForDealer(year, dealerId);
+        BigDecimal totalRevenue = dailySalesFactRepository.sumNetRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         return buildRevenueByModelReportForDealer(modelRevenueData, totalRevenue, "YEARLY",
                                        year + "-01-01", year + "-12-31", dealerId);
@@ -315,11 +367,19 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public RevenueByStaffReportResponse generateRevenueByStaffMonthlyReportForDealer(Integer year, Integer month, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofMonth(year, month);
+        return reportCache.get("REVENUE_BY_STAFF_MONTHLY", dealerId, period.start(), period.end(),
+            () -> loadRevenueByStaffMonthlyReportForDealer(year, month, dealerId));
+    }
+
+    private RevenueByStaffReportResponse loadRevenueByStaffMonthlyReportForDealer(Integer year, Integer month, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofMonth(year, month);
+
         // Lấy doanh thu theo staff trong tháng cho dealer cụ thể
-        List<Object[]> staffRevenueData = ordersRepository.getRevenueByStaffByMonthForDealer(year, month, dealerId);
+        List<Object[]> staffRevenueData = dailySalesFactRepository.getRevenueByStaffForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Lấy tổng doanh thu từ finalPrice trong tháng cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueForStaffReportByMonthForDealer(year, month, dealerId);
+        BigDecimal totalRevenue = dailySalesFactRepository.sumNetRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         return buildRevenueByStaffReportForDealer(staffRevenueData, totalRevenue, "MONTHLY",
                                        year + "-" + String.format("%02d", month) + "-01",
@@ -329,15 +389,23 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public RevenueByStaffReportResponse generateRevenueByStaffQuarterlyReportForDealer(Integer year, Integer quarter, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofQuarter(year, quarter);
+        return reportCache.get("REVENUE_BY_STAFF_QUARTERLY", dealerId, period.start(), period.end(),
+            () -> loadRevenueByStaffQuarterlyReportForDealer(year, quarter, dealerId));
+    }
+
+    private RevenueByStaffReportResponse loadRevenueByStaffQuarterlyReportForDealer(Integer year, Integer quarter, Integer dealerId) {
         // Tính tháng bắt đầu và kết thúc của quý
         int startMonth = (quarter - 1) * 3 + 1;
         int endMonth = startMonth + 2;
 
+        ReportPeriod period = ReportPeriod.ofQuarter(year, quarter);
+
         // Lấy doanh thu theo staff trong quý cho dealer cụ thể
-        List<Object[]> staffRevenueData = ordersRepository.getRevenueByStaffByQuarterForDealer(year, startMonth, endMonth, dealerId);
+        List<Object[]> staffRevenueData = dailySalesFactRepository.getRevenueByStaffForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Lấy tổng doanh thu từ finalPrice trong quý cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueForStaffReportByQuarterForDealer(year, startMonth, endMonth, dealerId);
+        BigDecimal totalRevenue = dailySalesFactRepository.sumNetRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         return buildRevenueByStaffReportForDealer(staffRevenueData, totalRevenue, "QUARTERLY",
                                        year + "-" + String.format("%02d", startMonth) + "-01",
@@ -347,11 +415,19 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public RevenueByStaffReportResponse generateRevenueByStaffYearlyReportForDealer(Integer year, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofYear(year);
+        return reportCache.get("REVENUE_BY_STAFF_YEARLY", dealerId, period.start(), period.end(),
+            () -> loadRevenueByStaffYearlyReportForDealer(year, dealerId));
+    }
+
+    private RevenueByStaffReportResponse loadRevenueByStaffYearlyReportForDealer(Integer year, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofYear(year);
+
         // Lấy doanh thu theo staff trong năm cho dealer cụ thể
-        List<Object[]> staffRevenueData = ordersRepository.getRevenueByStaffByYearForDealer(year, dealerId);
+        List<Object[]> staffRevenueData = dailySalesFactRepository.getRevenueByStaffForDealer(dealerId, period.fromDate(), period.toDate());
 
         // Lấy tổng doanh thu từ finalPrice trong năm cho dealer cụ thể
-        BigDecimal totalRevenue = ordersRepository.getTotalRevenueForStaffReportByYearForDealer(year, dealerId);
+        BigDecimal totalRevenue = dailySalesFactRepository.sumNetRevenueForDealer(dealerId, period.fromDate(), period.toDate());
 
         return buildRevenueByStaffReportForDealer(staffRevenueData, totalRevenue, "YEARLY",
                                        year + "-01-01", year + "-12-31", dealerId);
@@ -419,7 +495,14 @@ public class ReportServiceImpl implements ReportService {
      * Tạo báo cáo chi phí nhập xe theo tháng cho dealer cụ thể
      */
     public CarImportCostReportResponse generateMonthlyImportCostReportForDealer(Integer year, Integer month, Integer dealerId) {
-        List<Object[]> dailyData = carDistributionRequestRepository.findDailyImportCostInMonthForDealer(year, month, dealerId);
+        ReportPeriod period = ReportPeriod.ofMonth(year, month);
+        return reportCache.get("MONTHLY_IMPORT_COST", dealerId, period.start(), period.end(),
+            () -> loadMonthlyImportCostReportForDealer(year, month, dealerId));
+    }
+
+    private CarImportCostReportResponse loadMonthlyImportCostReportForDealer(Integer year, Integer month, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofMonth(year, month);
+        List<Object[]> dailyData = carDistributionRequestRepository.findDailyImportCostForDealer(dealerId, period.start(), period.end());
 
         List<CarImportCostReportResponse.ImportCostDetail> importCostDetails = new ArrayList<>();
         BigDecimal totalImportCost = BigDecimal.ZERO;
@@ -471,10 +554,17 @@ public class ReportServiceImpl implements ReportService {
      * Tạo báo cáo chi phí nhập xe theo quý cho dealer cụ thể
      */
     public CarImportCostReportResponse generateQuarterlyImportCostReportForDealer(Integer year, Integer quarter, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofQuarter(year, quarter);
+        return reportCache.get("QUARTERLY_IMPORT_COST", dealerId, period.start(), period.end(),
+            () -> loadQuarterlyImportCostReportForDealer(year, quarter, dealerId));
+    }
+
+    private CarImportCostReportResponse loadQuarterlyImportCostReportForDealer(Integer year, Integer quarter, Integer dealerId) {
         int startMonth = (quarter - 1) * 3 + 1;
         int endMonth = startMonth + 2;
 
-        List<Object[]> monthlyData = carDistributionRequestRepository.findMonthlyImportCostInQuarterForDealer(year, startMonth, endMonth, dealerId);
+        ReportPeriod period = ReportPeriod.ofQuarter(year, quarter);
+        List<Object[]> monthlyData = carDistributionRequestRepository.findMonthlyImportCostForDealer(dealerId, period.start(), period.end());
 
         List<CarImportCostReportResponse.ImportCostDetail> importCostDetails = new ArrayList<>();
         BigDecimal totalImportCost = BigDecimal.ZERO;
@@ -523,7 +613,14 @@ public class ReportServiceImpl implements ReportService {
      * Tạo báo cáo chi phí nhập xe theo năm cho dealer cụ thể
      */
     public CarImportCostReportResponse generateYearlyImportCostReportForDealer(Integer year, Integer dealerId) {
-        List<Object[]> monthlyData = carDistributionRequestRepository.findMonthlyImportCostInYearForDealer(year, dealerId);
+        ReportPeriod period = ReportPeriod.ofYear(year);
+        return reportCache.get("YEARLY_IMPORT_COST", dealerId, period.start(), period.end(),
+            () -> loadYearlyImportCostReportForDealer(year, dealerId));
+    }
+
+    private CarImportCostReportResponse loadYearlyImportCostReportForDealer(Integer year, Integer dealerId) {
+        ReportPeriod period = ReportPeriod.ofYear(year);
+        List<Object[]> monthlyData = carDistributionRequestRepository.findMonthlyImportCostForDealer(dealerId, period.start(), period.end());
 
         List<CarImportCostReportResponse.ImportCostDetail> importCostDetails = new ArrayList<>();
         BigDecimal totalImportCost = BigDecimal.ZERO;
@@ -566,4 +663,9 @@ public class ReportServiceImpl implements ReportService {
                 .importCostDetails(importCostDetails)
                 .build();
     }
+
+    @Override
+    public ReportCacheStatsResponse getReportCacheStats() {
+        return reportCache.getStats();
+    }
 }
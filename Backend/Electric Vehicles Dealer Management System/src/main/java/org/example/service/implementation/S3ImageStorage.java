@@ -0,0 +1,385 @@
+package org.example.service.implementation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.service.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Lưu ảnh trong bucket S3 hoặc dịch vụ tương thích S3 (MinIO, ...) để chạy nhiều instance sau load balancer
+ * - Upload: file tạm được đẩy lên bằng PutObject, file lớn hơn MULTIPART_THRESHOLD chia part bằng multipart upload
+ * - Đọc: car.image.base-path là cache đọc trên đĩa của instance, tải object về lần đầu rồi phục vụ bằng sendfile;
+ *   tên ảnh không đổi nội dung nên bản cache không cần kiểm tra lại, dung lượng cache giới hạn theo LRU
+ * - Tải trực tiếp: presigned URL GET có hạn, client lấy ảnh thẳng từ bucket không qua app server
+ * Ảnh bị xóa trên instance khác vẫn còn trong cache của instance này tới khi bị đẩy ra theo LRU
+ */
+@Service
+@ConditionalOnProperty(name = "app.image.storage.type", havingValue = "s3")
+public class S3ImageStorage implements ImageStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3ImageStorage.class);
+
+    // S3 yêu cầu mỗi part (trừ part cuối) tối thiểu 5MB
+    private static final long MULTIPART_THRESHOLD = 16L * 1024 * 1024;
+
+    private static final int PART_SIZE = 8 * 1024 * 1024;
+
+    @Value("${car.image.base-path}")
+    private String imageBasePath;
+
+    @Value("${app.image.storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.image.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.image.storage.s3.bucket}")
+    private String bucket;
+
+    @Value("${app.image.storage.s3.access-key}")
+    private String accessKey;
+
+    @Value("${app.image.storage.s3.secret-key}")
+    private String secretKey;
+
+    // MinIO và phần lớn dịch vụ tự host cần path-style (http://host/bucket/key)
+    @Value("${app.image.storage.s3.path-style-access:true}")
+    private boolean pathStyleAccess;
+
+    @Value("${app.image.storage.s3.key-prefix:car-images/}")
+    private String keyPrefix;
+
+    @Value("${app.image.storage.s3.presign-ttl-minutes:15}")
+    private long presignTtlMinutes;
+
+    @Value("${app.image.storage.cache.max-size-mb:2048}")
+    private long maxCacheSizeMb;
+
+    private S3Client client;
+
+    private S3Presigner presigner;
+
+    private Path cacheDir;
+
+    // LRU theo thứ tự truy cập: tên file -> dung lượng, mọi thao tác đồng bộ trên chính map
+    private final LinkedHashMap<String, Long> cachedFiles = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long cachedBytes;
+
+    @PostConstruct
+    public void init() throws IOException {
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration configuration = S3Configuration.builder()
+                .pathStyleAccessEnabled(pathStyleAccess)
+                .build();
+
+        S3ClientBuilder clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        S3Presigner.Builder presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        if (!endpoint.isBlank()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        client = clientBuilder.build();
+        presigner = presignerBuilder.build();
+
+        cacheDir = Paths.get(imageBasePath).toAbsolutePath().normalize();
+        Files.createDirectories(cacheDir);
+        loadCachedFiles();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        presigner.close();
+        client.close();
+    }
+
+    @Override
+    public boolean save(String filename, Path tempFile) throws IOException {
+        requireValidName(filename);
+        Path cached = cacheDir.resolve(filename);
+        if (Files.exists(cached) || exists(filename)) {
+            return false;
+        }
+
+        long size = Files.size(tempFile);
+        try {
+            if (size > MULTIPART_THRESHOLD) {
+                uploadMultipart(filename, tempFile, size);
+            } else {
+                client.putObject(PutObjectRequest.builder()
+                                .bucket(bucket)
+                                .key(key(filename))
+                                .contentType(ImageStorage.contentType(filename))
+                                .build(),
+                        RequestBody.fromFile(tempFile));
+            }
+            // Thời điểm sửa của bản cache = LastModified của object, để mọi instance trả cùng ETag / Last-Modified
+            Instant lastModified = client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key(filename)).build())
+                    .lastModified();
+            Files.setLastModifiedTime(tempFile, FileTime.from(lastModified));
+        } catch (S3Exception e) {
+            throw new IOException("Cannot upload " + filename + " to bucket " + bucket + ": " + e.getMessage(), e);
+        }
+
+        // Giữ luôn bản vừa upload làm cache, lần đọc đầu tiên không phải tải lại
+        Files.move(tempFile, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordCached(filename, size);
+        return true;
+    }
+
+    @Override
+    public Optional<Path> localCopy(String filename) throws IOException {
+        if (!ImageStorage.isValidName(filename)) {
+            return Optional.empty();
+        }
+        Path cached = cacheDir.resolve(filename);
+        if (Files.isRegularFile(cached)) {
+            synchronized (cachedFiles) {
+                cachedFiles.get(filename);
+            }
+            return Optional.of(cached);
+        }
+
+        // Tải về file tạm rồi đổi tên để request khác không đọc phải file tải dở
+        Path temp = cacheDir.resolve(".download-" + UUID.randomUUID() + ".part");
+        try {
+            GetObjectResponse response = client.getObject(
+                    GetObjectRequest.builder().bucket(bucket).key(key(filename)).build(),
+                    ResponseTransformer.toFile(temp));
+            Files.setLastModifiedTime(temp, FileTime.from(response.lastModified()));
+            Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("Cannot download " + filename + " from bucket " + bucket + ": " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        recordCached(filename, Files.size(cached));
+        return Optional.of(cached);
+    }
+
+    @Override
+    public boolean delete(String filename) throws IOException {
+        if (!ImageStorage.isValidName(filename)) {
+            return false;
+        }
+        boolean existed = exists(filename);
+        try {
+            client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key(filename)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Cannot delete " + filename + " from bucket " + bucket + ": " + e.getMessage(), e);
+        }
+        synchronized (cachedFiles) {
+            Long size = cachedFiles.remove(filename);
+            if (size != null) {
+                cachedBytes -= size;
+            }
+        }
+        return Files.deleteIfExists(cacheDir.resolve(filename)) || existed;
+    }
+
+    @Override
+    public Optional<String> directDownloadUrl(String filename) {
+        if (!ImageStorage.isValidName(filename)) {
+            return Optional.empty();
+        }
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key(filename))
+                .responseCacheControl("public, max-age=" + Duration.ofMinutes(presignTtlMinutes).toSeconds())
+                .build();
+        return Optional.of(presigner.presignGetObject(GetObjectPresignRequest.builder()
+                        .signatureDuration(Duration.ofMinutes(presignTtlMinutes))
+                        .getObjectRequest(request)
+                        .build())
+                .url()
+                .toString());
+    }
+
+    @Override
+    public Path localDirectory() {
+        return cacheDir;
+    }
+
+    private boolean exists(String filename) throws IOException {
+        try {
+            client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key(filename)).build());
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Cannot check " + filename + " in bucket " + bucket + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Đọc tuần tự từng part PART_SIZE byte từ file và đẩy lên; lỗi giữa chừng thì hủy upload để bucket không giữ part thừa
+     */
+    private void uploadMultipart(String filename, Path file, long size) throws IOException {
+        String key = key(filename);
+        String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(ImageStorage.contentType(filename))
+                        .build())
+                .uploadId();
+        try (InputStream input = Files.newInputStream(file)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            byte[] buffer = new byte[PART_SIZE];
+            long remaining = size;
+            for (int partNumber = 1; remaining > 0; partNumber++) {
+                int length = (int) Math.min(PART_SIZE, remaining);
+                int read = input.readNBytes(buffer, 0, length);
+                if (read != length) {
+                    // File bị cắt ngắn trong lúc upload, không gửi phần đuôi cũ còn trong buffer
+                    throw new IOException("Unexpected end of " + file + ": expected " + size + " bytes, got "
+                            + (size - remaining + read));
+                }
+                String etag = client.uploadPart(UploadPartRequest.builder()
+                                        .bucket(bucket)
+                                        .key(key)
+                                        .uploadId(uploadId)
+                                        .partNumber(partNumber)
+                                        .contentLength((long) read)
+                                        .build(),
+                                RequestBody.fromBytes(read == PART_SIZE ? buffer : Arrays.copyOf(buffer, read)))
+                        .eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+                remaining -= read;
+            }
+            client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            throw e;
+        }
+    }
+
+    private String key(String filename) {
+        return keyPrefix + filename;
+    }
+
+    private void requireValidName(String filename) {
+        if (!ImageStorage.isValidName(filename)) {
+            throw new IllegalArgumentException("Invalid image name: " + filename);
+        }
+    }
+
+    private void recordCached(String filename, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (cachedFiles) {
+            Long previous = cachedFiles.put(filename, size);
+            cachedBytes += size - (previous != null ? previous : 0);
+
+            // Xóa các file lâu không dùng nhất cho tới khi dưới giới hạn, không xóa file vừa thêm
+            long maxBytes = maxCacheSizeMb * 1024 * 1024;
+            Iterator<Map.Entry<String, Long>> eldest = cachedFiles.entrySet().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(filename)) {
+                    continue;
+                }
+                cachedBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String name : evicted) {
+            try {
+                Files.deleteIfExists(cacheDir.resolve(name));
+            } catch (IOException e) {
+                logger.warn("Cannot delete cached image {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Nạp các ảnh đã cache trên đĩa, file sửa gần nhất coi như dùng gần nhất; xóa file tạm còn sót
+     */
+    private void loadCachedFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        List<Path> cached = new ArrayList<>();
+        for (Path file : files) {
+            if (file.getFileName().toString().startsWith(".")) {
+                Files.deleteIfExists(file);
+            } else {
+                cached.add(file);
+            }
+        }
+        cached.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        for (Path file : cached) {
+            recordCached(file.getFileName().toString(), Files.size(file));
+        }
+        logger.info("Image storage: bucket {} at {}, {} cached images ({} MB) in {}",
+                bucket, endpoint.isBlank() ? "AWS " + region : endpoint,
+                cachedFiles.size(), cachedBytes / 1024 / 1024, cacheDir);
+    }
+}
@@ -11,7 +11,9 @@ import org.example.entity.UserAccount;
 import org.example.repository.DealerRepository;
 import org.example.repository.RoleRepository;
 import org.example.repository.UserAccountRepository;
+import org.example.security.CurrentUserProvider;
 import org.example.service.UserAccountService;
+import org.example.util.AfterCommit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -32,6 +34,9 @@ public class UserAccountServiceImpl implements UserAccountService {
     @Autowired
     private DealerRepository dealerRepository;
 
+    @Autowired
+    private CurrentUserProvider currentUserProvider;
+
     /**
      * Lấy tất cả user accounts với thông tin role và dealer
      */
@@ -169,6 +174,8 @@ public class UserAccountServiceImpl implements UserAccountService {
             throw new RuntimeException("Cannot update Admin account. Admin accounts are protected from modifications.");
         }
 
+        String previousEmail = existingUser.getEmail();
+
         // Validate input
         validateUpdateUserRequest(request);
 
@@ -242,6 +249,14 @@ public class UserAccountServiceImpl implements UserAccountService {
         // Lưu thay đổi
         UserAccount updatedUser = userAccountRepository.save(existingUser);
 
+        // Xóa cache user hiện tại để role, dealer, status mới có hiệu lực ngay
+        // Chỉ xóa sau khi commit, nếu không request khác có thể nạp lại bản cũ vào cache trước khi commit
+        String updatedEmail = updatedUser.getEmail();
+        AfterCommit.run(() -> {
+            currentUserProvider.evict(previousEmail);
+            currentUserProvider.evict(updatedEmail);
+        });
+
         // Convert sang response DTO
         return convertToUserAccountResponse(updatedUser);
     }
@@ -261,6 +276,8 @@ public class UserAccountServiceImpl implements UserAccountService {
 
         // Xóa user account
         userAccountRepository.deleteById(userId);
+        String deletedEmail = existingUser.getEmail();
+        AfterCommit.run(() -> currentUserProvider.evict(deletedEmail));
     }
 
     /**
@@ -487,6 +504,8 @@ public class UserAccountServiceImpl implements UserAccountService {
 
         // Lưu thay đổi
         UserAccount updatedUser = userAccountRepository.save(currentUser);
+        String updatedEmail = updatedUser.getEmail();
+        AfterCommit.run(() -> currentUserProvider.evict(updatedEmail));
 
         // Convert sang response DTO
         return convertToUserAccountResponse(updatedUser);
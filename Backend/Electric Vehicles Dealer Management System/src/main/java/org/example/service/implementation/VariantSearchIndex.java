@@ -0,0 +1,322 @@
+package org.example.service.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Index tìm kiếm variant theo tên model + variant (tìm tự do hoặc tìm chuỗi con theo từng trường)
+ * Tên của mỗi variant được chuẩn hóa một lần khi build (lowercase, bản bỏ khoảng trắng),
+ * chuỗi con dài từ 3 ký tự được lọc qua inverted index trigram thay vì duyệt toàn bộ danh sách
+ * Index được build lại từ catalog snapshot khi snapshot đổi phiên bản
+ */
+@Component
+@RequiredArgsConstructor
+public class VariantSearchIndex {
+
+    private static final int GRAM_SIZE = 3;
+
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+    private static final Pattern LETTERS_THEN_DIGITS = Pattern.compile("([a-z]+)(\\d+)");
+
+    private static final Pattern DIGITS_THEN_LETTERS = Pattern.compile("(\\d+)([a-z]+)");
+
+    private static final Pattern VF_MODEL_THEN_VARIANT = Pattern.compile("(vf\\d+)(eco|plus|standard|premium|luxury)");
+
+    private static final Pattern BRAND_THEN_NAME = Pattern.compile("(vinfast)(\\w+)");
+
+    private final CatalogCache catalogCache;
+
+    private volatile Index index;
+
+    /**
+     * Tìm variant theo từ khóa người dùng nhập, trả về variantId xếp theo độ liên quan giảm dần
+     * (cùng điểm thì theo modelName, variantName)
+     * Thử lần lượt: khớp nguyên cụm, cụm đã tách chữ/số, chuỗi bỏ khoảng trắng, từng từ khóa;
+     * dừng ở bước đầu tiên có kết quả
+     *
+     * @param searchTerm    từ khóa gốc
+     * @param expandedTerm  từ khóa đã mở rộng viết tắt (ví dụ "vf3eco" -> "vf3 eco"), so với "model variant"
+     * @param variantFilter chỉ xét các variant thỏa điều kiện (ví dụ variant dealer đang có)
+     */
+    public List<Integer> search(String searchTerm, String expandedTerm, Predicate<Integer> variantFilter) {
+        String term = normalize(searchTerm);
+        if (term.isEmpty()) {
+            return List.of();
+        }
+        String expanded = expandedTerm != null ? normalize(expandedTerm) : term;
+        String splitTerm = splitLettersAndDigits(term);
+        String[] keywords = splitTerm.split(" ");
+        String compactTerm = term.replace(" ", "");
+
+        Index current = current();
+        Predicate<Document> allowed = document -> variantFilter == null || variantFilter.test(document.variantId);
+
+        List<Document> matches = current.find(expanded, allowed, document -> document.fullName.contains(expanded));
+        matches.addAll(current.find(term, allowed.and(document -> !document.fullName.contains(expanded)),
+                document -> document.modelName.contains(term) || document.variantName.contains(term)));
+
+        if (matches.isEmpty() && !splitTerm.equals(term)) {
+            matches = current.find(splitTerm, allowed,
+                    document -> document.modelName.contains(splitTerm) || document.variantName.contains(splitTerm)
+                            || document.fullName.contains(splitTerm));
+        }
+
+        if (matches.isEmpty()) {
+            // Giống bộ lọc cũ: bỏ khoảng trắng cần ít nhất 3 ký tự, riêng model hoặc variant cần ít nhất 2 ký tự
+            matches = current.find(compactTerm, allowed,
+                    document -> (compactTerm.length() >= 3 && document.compactFullName.contains(compactTerm))
+                            || (compactTerm.length() >= 2 && (document.compactModelName.contains(compactTerm)
+                            || document.compactVariantName.contains(compactTerm))));
+            matches.removeIf(document -> score(document, keywords, compactTerm) <= 0);
+        }
+
+        if (matches.isEmpty()) {
+            List<Document> keywordMatches = new ArrayList<>();
+            for (Document document : current.documents) {
+                if (allowed.test(document) && Arrays.stream(keywords).anyMatch(keyword -> keyword.length() >= 2
+                        && (document.modelName.contains(keyword) || document.variantName.contains(keyword)))) {
+                    keywordMatches.add(document);
+                }
+            }
+            matches = keywordMatches;
+        }
+
+        return matches.stream()
+                .sorted(Comparator.comparingInt((Document document) -> score(document, keywords, compactTerm)).reversed()
+                        .thenComparingInt(document -> document.position))
+                .map(document -> document.variantId)
+                .toList();
+    }
+
+    /**
+     * Thay cho LOWER(modelName) LIKE '%modelName%' AND LOWER(variantName) LIKE '%variantName%',
+     * trả về variantId theo thứ tự modelName, variantName
+     * Điều kiện null thì bỏ qua (không lọc theo trường đó)
+     *
+     * @param modelName     chuỗi con của tên model
+     * @param variantName   chuỗi con của tên variant
+     * @param variantFilter chỉ xét các variant thỏa điều kiện (ví dụ variant dealer đang có)
+     */
+    public List<Integer> searchByNames(String modelName, String variantName, Predicate<Integer> variantFilter) {
+        String modelTerm = modelName != null ? normalize(modelName) : "";
+        String variantTerm = variantName != null ? normalize(variantName) : "";
+
+        // Chuỗi con của tên model hay tên variant cũng là chuỗi con của tên đầy đủ nên lọc chung qua posting list
+        return current().find(new String[]{modelTerm, variantTerm},
+                        document -> variantFilter == null || variantFilter.test(document.variantId),
+                        document -> document.modelName.contains(modelTerm) && document.variantName.contains(variantTerm))
+                .stream()
+                .map(document -> document.variantId)
+                .toList();
+    }
+
+    private Index current() {
+        CatalogSnapshot catalog = catalogCache.get();
+        Index current = index;
+        if (current != null && current.version == catalog.getVersion()) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (index == null || index.version != catalog.getVersion()) {
+                index = new Index(catalog);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Điểm liên quan giống cách tính cũ: +10 nếu khớp cả cụm, +2 mỗi từ khóa có trong model/variant,
+     * +1 mỗi từ khóa có trong tên đầy đủ
+     */
+    private static int score(Document document, String[] keywords, String compactTerm) {
+        int score = 0;
+        if (document.compactFullName.contains(compactTerm)
+                || document.compactModelName.contains(compactTerm)
+                || document.compactVariantName.contains(compactTerm)) {
+            score += 10;
+        }
+
+        for (String keyword : keywords) {
+            if (document.modelName.contains(keyword) || document.variantName.contains(keyword)) {
+                score += 2;
+            }
+            if (document.fullName.contains(keyword)) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return WHITESPACES.matcher(text.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+
+    /**
+     * Tách chữ và số dính liền (ví dụ "vf3eco" -> "vf 3 eco")
+     */
+    private static String splitLettersAndDigits(String term) {
+        String split = LETTERS_THEN_DIGITS.matcher(term).replaceAll("$1 $2");
+        split = DIGITS_THEN_LETTERS.matcher(split).replaceAll("$1 $2");
+        split = VF_MODEL_THEN_VARIANT.matcher(split).replaceAll("$1 $2");
+        split = BRAND_THEN_NAME.matcher(split).replaceAll("$1 $2");
+        return WHITESPACES.matcher(split).replaceAll(" ").trim();
+    }
+
+    /**
+     * Tên đã chuẩn hóa của một variant
+     */
+    private static final class Document {
+        final Integer variantId;
+        final int position;
+        final String modelName;
+        final String variantName;
+        final String fullName;
+        final String compactModelName;
+        final String compactVariantName;
+        final String compactFullName;
+
+        Document(Integer variantId, int position, String modelName, String variantName) {
+            this.variantId = variantId;
+            this.position = position;
+            this.modelName = normalize(modelName);
+            this.variantName = normalize(variantName);
+            this.fullName = this.modelName + " " + this.variantName;
+            this.compactModelName = this.modelName.replace(" ", "");
+            this.compactVariantName = this.variantName.replace(" ", "");
+            this.compactFullName = this.compactModelName + this.compactVariantName;
+        }
+    }
+
+    /**
+     * Danh sách document theo thứ tự modelName, variantName và posting list trigram -> vị trí document
+     * Trigram lấy từ cả tên đầy đủ lẫn tên bỏ khoảng trắng nên mọi chuỗi con của các tên đều lọc được qua index
+     */
+    private static final class Index {
+        final long version;
+        final Document[] documents;
+        final Map<String, int[]> postings;
+
+        Index(CatalogSnapshot catalog) {
+            this.version = catalog.getVersion();
+
+            List<CatalogSnapshot.VariantEntry> variants = catalog.getVariants();
+            this.documents = new Document[variants.size()];
+            Map<String, List<Integer>> postingLists = new HashMap<>();
+            for (int i = 0; i < variants.size(); i++) {
+                CatalogSnapshot.VariantEntry variant = variants.get(i);
+                String modelName = catalog.findModel(variant.modelId()).map(CatalogSnapshot.ModelEntry::modelName).orElse("");
+                Document document = new Document(variant.variantId(), i, modelName, variant.variantName());
+                documents[i] = document;
+
+                for (String text : List.of(document.fullName, document.compactFullName)) {
+                    for (int start = 0; start + GRAM_SIZE <= text.length(); start++) {
+                        List<Integer> postingList = postingLists.computeIfAbsent(
+                                text.substring(start, start + GRAM_SIZE), gram -> new ArrayList<>());
+                        if (postingList.isEmpty() || postingList.get(postingList.size() - 1) != i) {
+                            postingList.add(i);
+                        }
+                    }
+                }
+            }
+
+            Map<String, int[]> postings = new HashMap<>();
+            postingLists.forEach((gram, postingList) ->
+                    postings.put(gram, postingList.stream().mapToInt(Integer::intValue).toArray()));
+            this.postings = Map.copyOf(postings);
+        }
+
+        /**
+         * Các document thỏa điều kiện, chỉ kiểm tra những document chứa đủ trigram của chuỗi cần tìm
+         * Chuỗi ngắn hơn 3 ký tự không có trigram nên kiểm tra toàn bộ
+         */
+        List<Document> find(String text, Predicate<Document> allowed, Predicate<Document> matcher) {
+            return find(new String[]{text}, allowed, matcher);
+        }
+
+        /**
+         * Như trên với nhiều chuỗi cùng phải có mặt, kết quả theo thứ tự vị trí document
+         */
+        List<Document> find(String[] texts, Predicate<Document> allowed, Predicate<Document> matcher) {
+            int[] positions = null;
+            for (String text : texts) {
+                if (text.length() >= GRAM_SIZE) {
+                    int[] textCandidates = candidates(text);
+                    positions = positions == null ? textCandidates : intersect(positions, textCandidates);
+                }
+            }
+
+            List<Document> result = new ArrayList<>();
+            if (positions == null) {
+                for (Document document : documents) {
+                    if (allowed.test(document) && matcher.test(document)) {
+                        result.add(document);
+                    }
+                }
+                return result;
+            }
+
+            for (int position : positions) {
+                Document document = documents[position];
+                if (allowed.test(document) && matcher.test(document)) {
+                    result.add(document);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Giao các posting list của mọi trigram trong chuỗi, bắt đầu từ list ngắn nhất
+         */
+        private int[] candidates(String text) {
+            List<int[]> lists = new ArrayList<>();
+            for (int start = 0; start + GRAM_SIZE <= text.length(); start++) {
+                int[] postingList = postings.get(text.substring(start, start + GRAM_SIZE));
+                if (postingList == null) {
+                    return new int[0];
+                }
+                lists.add(postingList);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.length));
+
+            int[] result = lists.get(0);
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = intersect(result, lists.get(i));
+            }
+            return result;
+        }
+
+        private static int[] intersect(int[] left, int[] right) {
+            int[] result = new int[Math.min(left.length, right.length)];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < left.length && j < right.length) {
+                if (left[i] < right[j]) {
+                    i++;
+                } else if (left[i] > right[j]) {
+                    j++;
+                } else {
+                    result[size++] = left[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+    }
+}
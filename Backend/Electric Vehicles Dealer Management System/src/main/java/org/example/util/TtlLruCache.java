@@ -0,0 +1,75 @@
+package org.example.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Cache trong bộ nhớ có giới hạn số entry, mỗi entry có thời điểm hết hạn riêng
+ * Khi vượt giới hạn: bỏ các entry hết hạn trước, sau đó bỏ entry ít dùng nhất (LRU theo thứ tự truy cập)
+ * Mọi method đồng bộ trên chính instance nên bên gọi có thể synchronized (cache) để gộp nhiều thao tác
+ */
+public class TtlLruCache<K, V> {
+
+    private final int maxSize;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    public TtlLruCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Lấy value còn hạn, entry đã hết hạn bị xóa và trả về null
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Lưu value đến thời điểm expiresAt (epoch millis)
+     */
+    public synchronized void put(K key, V value, long expiresAt) {
+        entries.put(key, new Entry<>(value, expiresAt));
+        if (entries.size() > maxSize) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (entries.size() > maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Xóa các entry có key thỏa điều kiện
+     */
+    public synchronized void removeIf(Predicate<K> condition) {
+        entries.keySet().removeIf(condition);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
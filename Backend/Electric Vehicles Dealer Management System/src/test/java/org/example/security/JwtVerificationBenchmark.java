@@ -0,0 +1,95 @@
+package org.example.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí xác thực JWT của JwtAuthenticationFilter cho mỗi request
+ * legacyFourParses: cách cũ, tạo key + parser và parse token 4 lần (extractEmail, isTokenValid x2, extractRole)
+ * sharedParser: parse 1 lần bằng parser dùng chung, không cache claims (request đầu tiên của một token)
+ * cachedVerifier: JwtUtil.verifyToken hiện tại, token đã có trong cache claims
+ * Chạy: mvn test-compile rồi chạy main() của class này (classpath test)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "VerySecretKeyChangeMeAndMakeItLonger123";
+
+    private JwtUtil jwtUtil;
+
+    private JwtParser sharedParser;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheMaxSize", 10_000);
+        jwtUtil.init();
+        token = jwtUtil.generateToken("staff@dealer.test", "DealerStaff", "Dealer 1");
+        jwtUtil.verifyToken(token);
+        sharedParser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build();
+    }
+
+    @Benchmark
+    public String legacyFourParses() {
+        String email = legacyParse(token).getSubject();
+        boolean valid = legacyParse(token) != null && !legacyParse(token).getExpiration().before(new Date());
+        String role = legacyParse(token).get("role", String.class);
+        return valid ? email + role : null;
+    }
+
+    @Benchmark
+    public String sharedParser() {
+        Claims claims = sharedParser.parseClaimsJws(token).getBody();
+        return claims.getSubject() + claims.get("role", String.class);
+    }
+
+    @Benchmark
+    public String cachedVerifier() {
+        Claims claims = jwtUtil.verifyToken(token);
+        return claims.getSubject() + claims.get("role", String.class);
+    }
+
+    private Claims legacyParse(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
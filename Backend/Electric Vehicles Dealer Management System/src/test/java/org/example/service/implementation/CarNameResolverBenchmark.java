@@ -0,0 +1,178 @@
+package org.example.service.implementation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tra carId theo (modelName, variantName, colorName) trên danh mục 10.000 xe
+ * joinQuery: câu JOIN CAR, CAR_VARIANT, CAR_MODEL, COLOR theo LOWER(tên) như CarRepository cũ, chạy trên H2 in-memory
+ * catalogSnapshot: CatalogSnapshot.findCarByNames mà CarNameResolver dùng
+ * H2 chạy cùng JVM nên joinQuery chưa tính round trip mạng tới SQL Server; chênh lệch thực tế còn lớn hơn
+ * Chạy: mvn test-compile rồi chạy main() của class này (classpath test)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CarNameResolverBenchmark {
+
+    private static final int MODELS = 50;
+    private static final int VARIANTS_PER_MODEL = 20;
+    private static final int COLORS = 10;
+    private static final int LOOKUPS = 1024;
+
+    private static final String[] COLOR_NAMES = {
+            "Trắng", "Đen", "Đỏ", "Xanh dương", "Xanh lá", "Bạc", "Xám", "Vàng", "Nâu", "Cam"
+    };
+
+    private static final String JOIN_QUERY = "SELECT c.CarID FROM CAR c " +
+            "JOIN CAR_VARIANT cv ON c.VariantId = cv.VariantId " +
+            "JOIN CAR_MODEL cm ON cv.ModelId = cm.ModelId " +
+            "JOIN COLOR col ON c.ColorID = col.ColorID " +
+            "WHERE LOWER(cm.ModelName) = LOWER(?) " +
+            "AND LOWER(cv.VariantName) = LOWER(?) " +
+            "AND LOWER(col.ColorName) = LOWER(?)";
+
+    private Connection connection;
+
+    private PreparedStatement joinStatement;
+
+    private CatalogSnapshot snapshot;
+
+    // Tên người dùng nhập: khác hoa thường với danh mục
+    private final String[][] lookups = new String[LOOKUPS][];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        List<CatalogSnapshot.ModelEntry> models = new ArrayList<>();
+        List<CatalogSnapshot.VariantEntry> variants = new ArrayList<>();
+        List<CatalogSnapshot.ColorEntry> colors = new ArrayList<>();
+        List<CatalogSnapshot.CarEntry> cars = new ArrayList<>();
+
+        for (int colorId = 1; colorId <= COLORS; colorId++) {
+            colors.add(new CatalogSnapshot.ColorEntry(colorId, COLOR_NAMES[colorId - 1]));
+        }
+        int variantId = 0;
+        int carId = 0;
+        for (int modelId = 1; modelId <= MODELS; modelId++) {
+            models.add(new CatalogSnapshot.ModelEntry(modelId, "VF " + modelId, "SUV"));
+            for (int v = 1; v <= VARIANTS_PER_MODEL; v++) {
+                variantId++;
+                variants.add(new CatalogSnapshot.VariantEntry(variantId, modelId, "Phiên bản " + v, null));
+                for (int colorId = 1; colorId <= COLORS; colorId++) {
+                    carId++;
+                    cars.add(new CatalogSnapshot.CarEntry(carId, variantId, colorId, 2025, 500_000_000L, null));
+                }
+            }
+        }
+        snapshot = new CatalogSnapshot(1L, models, variants, List.of(), colors, cars);
+
+        connection = DriverManager.getConnection("jdbc:h2:mem:car_name_benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE CAR_MODEL (ModelId INT PRIMARY KEY, ModelName NVARCHAR(100), Segment NVARCHAR(100))");
+            statement.execute("CREATE TABLE CAR_VARIANT (VariantId INT PRIMARY KEY, ModelId INT, VariantName NVARCHAR(100))");
+            statement.execute("CREATE TABLE COLOR (ColorID INT PRIMARY KEY, ColorName NVARCHAR(50))");
+            statement.execute("CREATE TABLE CAR (CarID INT PRIMARY KEY, VariantId INT, ColorID INT)");
+            statement.execute("CREATE INDEX IX_CAR_VARIANT_ModelId ON CAR_VARIANT (ModelId)");
+            statement.execute("CREATE INDEX IX_CAR_VariantId ON CAR (VariantId)");
+        }
+        insertAll("INSERT INTO CAR_MODEL VALUES (?, ?, ?)", models,
+                (ps, m) -> { ps.setInt(1, m.modelId()); ps.setString(2, m.modelName()); ps.setString(3, m.segment()); });
+        insertAll("INSERT INTO CAR_VARIANT VALUES (?, ?, ?)", variants,
+                (ps, v) -> { ps.setInt(1, v.variantId()); ps.setInt(2, v.modelId()); ps.setString(3, v.variantName()); });
+        insertAll("INSERT INTO COLOR VALUES (?, ?)", colors,
+                (ps, c) -> { ps.setInt(1, c.colorId()); ps.setString(2, c.colorName()); });
+        insertAll("INSERT INTO CAR VALUES (?, ?, ?)", cars,
+                (ps, c) -> { ps.setInt(1, c.carId()); ps.setInt(2, c.variantId()); ps.setInt(3, c.colorId()); });
+        joinStatement = connection.prepareStatement(JOIN_QUERY);
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            int model = 1 + (i * 7) % MODELS;
+            int variant = 1 + (i * 13) % VARIANTS_PER_MODEL;
+            String color = COLOR_NAMES[(i * 3) % COLORS];
+            lookups[i] = new String[]{"vf " + model, "PHIÊN BẢN " + variant, color.toLowerCase()};
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        joinStatement.close();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public Integer joinQuery() throws SQLException {
+        String[] names = nextLookup();
+        joinStatement.setString(1, names[0]);
+        joinStatement.setString(2, names[1]);
+        joinStatement.setString(3, names[2]);
+        try (ResultSet resultSet = joinStatement.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : null;
+        }
+    }
+
+    @Benchmark
+    public Integer catalogSnapshot() {
+        String[] names = nextLookup();
+        return snapshot.findCarByNames(names[0], names[1], names[2])
+                .map(CatalogSnapshot.CarEntry::carId)
+                .orElse(null);
+    }
+
+    private String[] nextLookup() {
+        String[] names = lookups[next];
+        next = (next + 1) % LOOKUPS;
+        return names;
+    }
+
+    private <T> void insertAll(String sql, List<T> rows, RowBinder<T> binder) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (T row : rows) {
+                binder.bind(statement, row);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CarNameResolverBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.service.implementation;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.dto.VariantDetailResponse;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.ChangeFeedService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Số câu SQL khi dựng danh sách variant của dealer không được tăng theo số variant
+ * (trước đây mỗi variant tốn thêm 2 query màu / giá)
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(CarVariantServiceImpl.class)
+class CarVariantServiceImplQueryCountTest {
+
+    private static final int SMALL_DEALER_ID = 1;
+    private static final int LARGE_DEALER_ID = 2;
+    private static final int SMALL_DEALER_VARIANTS = 2;
+    private static final int LARGE_DEALER_VARIANTS = 40;
+    private static final int COLORS = 3;
+
+    // Variant của dealer, màu của các variant, thông tin màu
+    private static final long EXPECTED_QUERIES = 3;
+
+    @Autowired
+    private CarVariantServiceImpl carVariantService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private CurrentUserProvider currentUserProvider;
+
+    @MockitoBean
+    private CatalogCache catalogCache;
+
+    @MockitoBean
+    private VariantSearchIndex variantSearchIndex;
+
+    @MockitoBean
+    private DealerVariantIndex dealerVariantIndex;
+
+    @MockitoBean
+    private DataVersions dataVersions;
+
+    @MockitoBean
+    private ChangeFeedService changeFeedService;
+
+    @MockitoBean
+    private DealerEventHub dealerEventHub;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO CAR_MODEL (ModelId, ModelName, Segment) VALUES (1, 'VF8', 'SUV')");
+        for (int colorId = 1; colorId <= COLORS; colorId++) {
+            jdbcTemplate.update("INSERT INTO COLOR (ColorID, ColorName) VALUES (?, ?)", colorId, "Color " + colorId);
+        }
+        jdbcTemplate.update("INSERT INTO DEALER (DealerID, DealerName) VALUES (?, 'Small dealer')", SMALL_DEALER_ID);
+        jdbcTemplate.update("INSERT INTO DEALER (DealerID, DealerName) VALUES (?, 'Large dealer')", LARGE_DEALER_ID);
+
+        int carId = 0;
+        for (int variantId = 1; variantId <= LARGE_DEALER_VARIANTS; variantId++) {
+            jdbcTemplate.update("INSERT INTO CAR_VARIANT (VariantId, VariantName, ModelId) VALUES (?, ?, 1)",
+                    variantId, String.format("Variant %02d", variantId));
+            for (int colorId = 1; colorId <= COLORS; colorId++) {
+                carId++;
+                jdbcTemplate.update("INSERT INTO CAR (CarID, VariantId, ColorID, ProductionYear, Price, ImagePath) "
+                        + "VALUES (?, ?, ?, 2025, ?, ?)", carId, variantId, colorId, 1_000_000_000L, carId + ".jpg");
+                jdbcTemplate.update("INSERT INTO DEALER_CAR (DealerID, CarID, Quantity, DealerPrice, Status) "
+                        + "VALUES (?, ?, 5, 1100000000, 'On Sale')", LARGE_DEALER_ID, carId);
+                if (variantId <= SMALL_DEALER_VARIANTS) {
+                    jdbcTemplate.update("INSERT INTO DEALER_CAR (DealerID, CarID, Quantity, DealerPrice, Status) "
+                            + "VALUES (?, ?, 2, 1100000000, 'On Sale')", SMALL_DEALER_ID, carId);
+                }
+            }
+        }
+    }
+
+    @Test
+    void variantListingQueryCountDoesNotGrowWithVariantCount() {
+        long smallDealerQueries = countQueries(SMALL_DEALER_ID, SMALL_DEALER_VARIANTS);
+        long largeDealerQueries = countQueries(LARGE_DEALER_ID, LARGE_DEALER_VARIANTS);
+
+        assertEquals(EXPECTED_QUERIES, smallDealerQueries);
+        assertEquals(smallDealerQueries, largeDealerQueries);
+    }
+
+    private long countQueries(int dealerId, int expectedVariants) {
+        String email = "staff" + dealerId + "@example.com";
+        when(currentUserProvider.getByEmail(email))
+                .thenReturn(new CurrentUser(dealerId, email, "staff", "DealerStaff", dealerId, null, "Active"));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<VariantDetailResponse> variants = carVariantService.getVariantDetailsByCurrentDealer(email);
+
+        long queries = statistics.getPrepareStatementCount();
+        assertEquals(expectedVariants, variants.size());
+        assertTrue(variants.stream().allMatch(variant -> variant.getColorPrices().size() == COLORS));
+        return queries;
+    }
+}
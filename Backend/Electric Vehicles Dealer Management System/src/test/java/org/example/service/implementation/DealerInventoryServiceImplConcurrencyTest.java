@@ -0,0 +1,240 @@
+package org.example.service.implementation;
+
+import org.example.entity.DealerCar;
+import org.example.entity.DealerCarId;
+import org.example.repository.DealerCarRepository;
+import org.example.service.ChangeFeedService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hàng trăm nhân viên cùng bán / hoàn trả xe: tồn kho không được âm và không được bán quá số xe có
+ * Mỗi lời gọi chạy trong transaction riêng (test không bọc transaction) để các UPDATE thực sự tranh chấp nhau
+ * Mỗi test in ra throughput (ops/sec) của lần chạy
+ */
+@DataJpaTest(properties = "spring.datasource.hikari.maximum-pool-size=" + DealerInventoryServiceImplConcurrencyTest.POOL_SIZE)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(DealerInventoryServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DealerInventoryServiceImplConcurrencyTest {
+
+    private static final int DEALER_ID = 1;
+    private static final int CAR_ID = 1;
+    private static final int SECOND_CAR_ID = 2;
+    private static final int THIRD_CAR_ID = 3;
+    private static final int THREADS = 200;
+    static final String POOL_SIZE = "50";
+
+    @Autowired
+    private DealerInventoryServiceImpl dealerInventoryService;
+
+    @Autowired
+    private DealerCarRepository dealerCarRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private DataVersions dataVersions;
+
+    @MockitoBean
+    private ChangeFeedService changeFeedService;
+
+    @MockitoBean
+    private DealerEventHub dealerEventHub;
+
+    @BeforeEach
+    void setUp() {
+        // Test chỉ quan tâm DEALER_CAR, không tạo DEALER / CAR / CAR_VARIANT
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        jdbcTemplate.update("DELETE FROM DEALER_CAR");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM DEALER_CAR");
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+    }
+
+    @Test
+    void concurrentReservesNeverOversell() throws Exception {
+        int stock = 200;
+        int attempts = 1000;
+        insertStock(stock);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently("reserve", attempts, i -> {
+            try {
+                dealerInventoryService.reserve(DEALER_ID, CAR_ID, 1);
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().startsWith("Insufficient inventory"), e.getMessage());
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(stock, succeeded.get());
+        assertEquals(attempts - stock, rejected.get());
+        assertEquals(0, currentQuantity());
+    }
+
+    @Test
+    void concurrentReservesAndReleasesKeepQuantityConsistent() throws Exception {
+        int stock = 10;
+        int operations = 1000;
+        insertStock(stock);
+
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        runConcurrently("reserve/release", operations, i -> {
+            if (i % 2 == 0) {
+                try {
+                    dealerInventoryService.reserve(DEALER_ID, CAR_ID, 2);
+                    reserved.addAndGet(2);
+                } catch (RuntimeException e) {
+                    assertTrue(e.getMessage().startsWith("Insufficient inventory"), e.getMessage());
+                }
+            } else {
+                dealerInventoryService.release(DEALER_ID, CAR_ID, 1);
+                released.incrementAndGet();
+            }
+        });
+
+        int quantity = currentQuantity();
+        assertTrue(quantity >= 0, "Quantity must never go negative: " + quantity);
+        assertEquals(stock - reserved.get() + released.get(), quantity);
+    }
+
+    @Test
+    void concurrentReserveAllWithOverlappingLinesNeverOversells() throws Exception {
+        int stock = 100;
+        int attempts = 600;
+        insertStock(CAR_ID, stock);
+        insertStock(SECOND_CAR_ID, stock);
+        insertStock(THIRD_CAR_ID, stock);
+
+        // Ba loại đơn dùng chung xe với nhau: (1, 2), (2, 3), (1, 3)
+        List<Map<Integer, Integer>> orders = List.of(
+                Map.of(CAR_ID, 1, SECOND_CAR_ID, 1),
+                Map.of(SECOND_CAR_ID, 1, THIRD_CAR_ID, 2),
+                Map.of(CAR_ID, 2, THIRD_CAR_ID, 1));
+        AtomicInteger[] succeededByOrder = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+        runConcurrently("reserveAll", attempts, i -> {
+            try {
+                dealerInventoryService.reserveAll(DEALER_ID, orders.get(i % orders.size()));
+                succeededByOrder[i % orders.size()].incrementAndGet();
+            } catch (RuntimeException e) {
+                // Đơn bị từ chối phải rollback toàn bộ các dòng của nó, kiểm tra bằng số lượng còn lại bên dưới
+            }
+        });
+
+        for (int carId : List.of(CAR_ID, SECOND_CAR_ID, THIRD_CAR_ID)) {
+            int reservedForCar = 0;
+            for (int order = 0; order < orders.size(); order++) {
+                reservedForCar += orders.get(order).getOrDefault(carId, 0) * succeededByOrder[order].get();
+            }
+            int quantity = currentQuantity(carId);
+            assertTrue(quantity >= 0, "Quantity must never go negative: " + quantity);
+            assertEquals(stock - reservedForCar, quantity);
+        }
+    }
+
+    @Test
+    void reserveRefreshesDealerCarAlreadyLoadedInTransaction() {
+        insertStock(5);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            DealerCar loaded = dealerCarRepository.findById(new DealerCarId(CAR_ID, DEALER_ID)).orElseThrow();
+            assertEquals(5, loaded.getQuantity());
+
+            dealerInventoryService.reserve(DEALER_ID, CAR_ID, 3);
+            assertEquals(2, loaded.getQuantity());
+
+            dealerInventoryService.release(DEALER_ID, CAR_ID, 1);
+            assertEquals(3, dealerCarRepository.findById(new DealerCarId(CAR_ID, DEALER_ID)).orElseThrow().getQuantity());
+        });
+    }
+
+    private void insertStock(int quantity) {
+        insertStock(CAR_ID, quantity);
+    }
+
+    private void insertStock(int carId, int quantity) {
+        jdbcTemplate.update("INSERT INTO DEALER_CAR (DealerID, CarID, Quantity, DealerPrice, Status) VALUES (?, ?, ?, ?, ?)",
+                DEALER_ID, carId, quantity, BigDecimal.valueOf(500_000_000L), "On Sale");
+    }
+
+    private int currentQuantity() {
+        return currentQuantity(CAR_ID);
+    }
+
+    private int currentQuantity(int carId) {
+        return jdbcTemplate.queryForObject("SELECT Quantity FROM DEALER_CAR WHERE DealerID = ? AND CarID = ?",
+                Integer.class, DEALER_ID, carId);
+    }
+
+    /**
+     * Chạy operations lần action trên THREADS thread, tất cả bắt đầu cùng lúc, rồi in throughput
+     */
+    private void runConcurrently(String name, int operations, IndexedAction action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < operations; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    action.run(index);
+                    return null;
+                }));
+            }
+            long startedAt = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+            System.out.printf("%s: %d ops on %d threads in %.3f s (%.0f ops/sec)%n",
+                    name, operations, THREADS, seconds, operations / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedAction {
+        void run(int index);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.service.implementation;
+
+import org.example.dto.DealerOrderPageResponse;
+import org.example.security.CurrentUser;
+import org.example.security.CurrentUserProvider;
+import org.example.service.ChangeFeedService;
+import org.example.service.DailySalesFactService;
+import org.example.service.DealerInventoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.when;
+
+/**
+ * Duyệt hết các trang orders của dealer bằng cursor, kể cả khi cursor rơi vào order không có orderDate
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(OrdersServiceImpl.class)
+class OrdersServiceImplPagingTest {
+
+    private static final int DEALER_ID = 1;
+    private static final String MANAGER_EMAIL = "manager@dealer.test";
+    private static final LocalDateTime BASE_DATE = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    @Autowired
+    private OrdersServiceImpl ordersService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private CurrentUserProvider currentUserProvider;
+
+    @MockitoBean
+    private DealerInventoryService dealerInventoryService;
+
+    @MockitoBean
+    private DailySalesFactService dailySalesFactService;
+
+    @MockitoBean
+    private ReportCache reportCache;
+
+    @MockitoBean
+    private AutocompleteIndex autocompleteIndex;
+
+    @MockitoBean
+    private CarNameResolver carNameResolver;
+
+    @MockitoBean
+    private ChangeFeedService changeFeedService;
+
+    @MockitoBean
+    private DealerEventHub dealerEventHub;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO DEALER (DealerID, DealerName) VALUES (?, 'Dealer')", DEALER_ID);
+        jdbcTemplate.update("INSERT INTO CUSTOMER (CustomerId, FullName) VALUES (1, 'Customer')");
+
+        // Order 1..3 có ngày đặt, order 4..5 không có ngày đặt
+        for (int orderId = 1; orderId <= 5; orderId++) {
+            LocalDateTime orderDate = orderId <= 3 ? BASE_DATE.plusDays(orderId) : null;
+            jdbcTemplate.update("INSERT INTO ORDERS (OrderId, CustomerId, DealerId, OrderDate, Status) " +
+                    "VALUES (?, 1, ?, ?, 'Pending')", orderId, DEALER_ID, orderDate);
+        }
+
+        when(currentUserProvider.getByEmail(MANAGER_EMAIL)).thenReturn(
+                new CurrentUser(1, MANAGER_EMAIL, "manager", "DealerManager", DEALER_ID, "Dealer", "Active"));
+    }
+
+    @Test
+    void descendingPagesReachOrdersWithoutDate() {
+        assertEquals(List.of(3, 2, 1, 5, 4), readAllPages("DESC"));
+    }
+
+    @Test
+    void ascendingPagesStartWithOrdersWithoutDate() {
+        assertEquals(List.of(4, 5, 1, 2, 3), readAllPages("ASC"));
+    }
+
+    private List<Integer> readAllPages(String direction) {
+        List<Integer> orderIds = new ArrayList<>();
+        String cursor = null;
+        for (int page = 0; page < 10; page++) {
+            DealerOrderPageResponse response = ordersService.getOrderPageByCurrentUserDealer(
+                    null, null, null, null, direction, cursor, 2, MANAGER_EMAIL);
+            response.getOrders().forEach(order -> orderIds.add(order.getOrderInfo().getOrderId()));
+            if (!response.getHasMore()) {
+                return orderIds;
+            }
+            assertNotNull(response.getNextCursor());
+            cursor = response.getNextCursor();
+        }
+        return fail("Paging did not terminate");
+    }
+}
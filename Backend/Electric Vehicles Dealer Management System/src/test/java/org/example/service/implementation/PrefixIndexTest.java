@@ -0,0 +1,50 @@
+package org.example.service.implementation;
+
+import org.example.dto.AutocompleteSuggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixIndexTest {
+
+    @Test
+    void containsTracksSuggestionsAddedLater() {
+        PrefixIndex index = PrefixIndex.of(List.of(customer(1, "Nguyễn Văn An", "0901")), PrefixIndexTest::keys);
+
+        PrefixIndex updated = index.with(customer(2, "Trần Thị Bình", "0902"), keys(customer(2, "Trần Thị Bình", "0902")));
+
+        assertTrue(updated.contains(1));
+        assertTrue(updated.contains(2));
+        assertFalse(updated.contains(3));
+        assertFalse(index.contains(2));
+    }
+
+    @Test
+    void withReplacesEveryKeyOfTheOldSuggestion() {
+        AutocompleteSuggestion renamed = customer(1, "Lê Minh Châu", "0903");
+        PrefixIndex index = PrefixIndex.of(List.of(customer(1, "Nguyễn Văn An", "0901"), customer(2, "Văn Bình", "0902")),
+                        PrefixIndexTest::keys)
+                .with(renamed, keys(renamed));
+
+        assertEquals(List.of(), index.top("nguyen", 10));
+        assertEquals(List.of(2), ids(index.top("van", 10)));
+        assertEquals(List.of(1), ids(index.top("chau", 10)));
+        assertEquals(List.of(1), ids(index.top("0903", 10)));
+    }
+
+    private static AutocompleteSuggestion customer(Integer id, String name, String phone) {
+        return new AutocompleteSuggestion(id, name, phone);
+    }
+
+    private static List<String> keys(AutocompleteSuggestion suggestion) {
+        return List.of(suggestion.getName(), suggestion.getDetail());
+    }
+
+    private static List<Integer> ids(List<AutocompleteSuggestion> suggestions) {
+        return suggestions.stream().map(AutocompleteSuggestion::getId).toList();
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.service.implementation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * S3ImageStorage chạy với MinIO trong container (bỏ qua nếu máy không có Docker)
+ * Hai instance dùng chung bucket nhưng cache đĩa riêng, giống hai app server sau load balancer
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class S3ImageStorageIntegrationTest {
+
+    private static final String BUCKET = "car-images";
+
+    @Container
+    static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2024-10-13T13-34-11Z");
+
+    private static S3Client client;
+
+    @TempDir
+    Path cacheA;
+
+    @TempDir
+    Path cacheB;
+
+    private S3ImageStorage instanceA;
+
+    private S3ImageStorage instanceB;
+
+    @BeforeAll
+    static void createBucket() {
+        client = S3Client.builder()
+                .endpointOverride(URI.create(MINIO.getS3URL()))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(MINIO.getUserName(), MINIO.getPassword())))
+                .forcePathStyle(true)
+                .build();
+        client.createBucket(builder -> builder.bucket(BUCKET));
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        instanceA = storage(cacheA);
+        instanceB = storage(cacheB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        instanceA.shutdown();
+        instanceB.shutdown();
+    }
+
+    @Test
+    void savedImageIsReadThroughByAnotherInstance() throws IOException {
+        byte[] content = randomBytes(64 * 1024);
+
+        assertTrue(instanceA.save("small.png", upload(instanceA, content)));
+
+        Optional<Path> copy = instanceB.localCopy("small.png");
+        assertTrue(copy.isPresent());
+        assertEquals(cacheB.resolve("small.png"), copy.get());
+        assertArrayEquals(content, Files.readAllBytes(copy.get()));
+        assertEquals(Files.getLastModifiedTime(cacheA.resolve("small.png")), Files.getLastModifiedTime(copy.get()));
+    }
+
+    @Test
+    void saveReturnsFalseWhenImageAlreadyInBucket() throws IOException {
+        byte[] content = randomBytes(1024);
+        assertTrue(instanceA.save("duplicate.png", upload(instanceA, content)));
+
+        assertFalse(instanceB.save("duplicate.png", upload(instanceB, content)));
+    }
+
+    @Test
+    void largeImageIsUploadedInParts() throws IOException {
+        // 20MB > MULTIPART_THRESHOLD: 3 part 8MB + 8MB + 4MB
+        byte[] content = randomBytes(20 * 1024 * 1024);
+
+        assertTrue(instanceA.save("large.jpg", upload(instanceA, content)));
+
+        String eTag = client.headObject(HeadObjectRequest.builder().bucket(BUCKET).key("car-images/large.jpg").build())
+                .eTag();
+        assertTrue(eTag.endsWith("-3\""), "expected a 3-part multipart ETag, got " + eTag);
+        assertArrayEquals(content, Files.readAllBytes(instanceB.localCopy("large.jpg").orElseThrow()));
+    }
+
+    @Test
+    void presignedUrlServesByteRanges() throws Exception {
+        byte[] content = randomBytes(256 * 1024);
+        instanceA.save("range.webp", upload(instanceA, content));
+
+        String url = instanceA.directDownloadUrl("range.webp").orElseThrow();
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(url)).header("Range", "bytes=1000-1999").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(206, response.statusCode());
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000), response.body());
+    }
+
+    @Test
+    void deleteRemovesObjectAndLocalCopy() throws IOException {
+        instanceA.save("deleted.png", upload(instanceA, randomBytes(1024)));
+        instanceB.localCopy("deleted.png");
+
+        assertTrue(instanceB.delete("deleted.png"));
+
+        assertFalse(Files.exists(cacheB.resolve("deleted.png")));
+        S3Exception notFound = assertThrows(S3Exception.class, () ->
+                client.headObject(HeadObjectRequest.builder().bucket(BUCKET).key("car-images/deleted.png").build()));
+        assertEquals(404, notFound.statusCode());
+        assertFalse(instanceB.delete("deleted.png"));
+        // Instance A vẫn giữ bản cache tới khi bị đẩy ra theo LRU, instance chưa cache thì không thấy ảnh
+        assertEquals(Optional.empty(), instanceB.localCopy("deleted.png"));
+    }
+
+    @Test
+    void missingImageHasNoLocalCopy() throws IOException {
+        assertEquals(Optional.empty(), instanceA.localCopy("missing.png"));
+        assertEquals(Optional.empty(), instanceA.localCopy("../escape.png"));
+    }
+
+    private S3ImageStorage storage(Path cacheDir) throws IOException {
+        S3ImageStorage storage = new S3ImageStorage();
+        ReflectionTestUtils.setField(storage, "imageBasePath", cacheDir.toString());
+        ReflectionTestUtils.setField(storage, "endpoint", MINIO.getS3URL());
+        ReflectionTestUtils.setField(storage, "region", "us-east-1");
+        ReflectionTestUtils.setField(storage, "bucket", BUCKET);
+        ReflectionTestUtils.setField(storage, "accessKey", MINIO.getUserName());
+        ReflectionTestUtils.setField(storage, "secretKey", MINIO.getPassword());
+        ReflectionTestUtils.setField(storage, "pathStyleAccess", true);
+        ReflectionTestUtils.setField(storage, "keyPrefix", "car-images/");
+        ReflectionTestUtils.setField(storage, "presignTtlMinutes", 15L);
+        ReflectionTestUtils.setField(storage, "maxCacheSizeMb", 2048L);
+        storage.init();
+        return storage;
+    }
+
+    /**
+     * File tạm nằm trong thư mục cache của instance như ImageController, để save() đổi tên được
+     */
+    private static Path upload(S3ImageStorage storage, byte[] content) throws IOException {
+        Path file = Files.createTempFile(storage.localDirectory(), ".upload-", ".tmp");
+        Files.write(file, content);
+        return file;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,272 @@
+package org.example.service.implementation;
+
+import org.example.entity.Car;
+import org.example.entity.CarModel;
+import org.example.entity.CarVariant;
+import org.example.entity.DealerCar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Độ trễ tìm kiếm xe theo từ khóa trên 50.000 dòng DEALER_CAR (5 dealer x 10.000 xe, 1.000 variant)
+ * multiPassFilter: bộ lọc cũ của CarServiceImpl, tối đa 4 lượt duyệt toàn bộ DealerCar,
+ * lowercase / replaceAll mỗi xe mỗi lượt rồi chấm điểm lại
+ * variantSearchIndex: VariantSearchIndex.search với bộ lọc variant dealer đang có (bitmap như DealerVariantIndex)
+ * Các từ khóa phủ cả 4 bước: nguyên cụm, tách chữ/số, bỏ khoảng trắng, từng từ khóa
+ * Chạy: mvn test-compile rồi chạy main() của class này (classpath test)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VariantSearchBenchmark {
+
+    private static final int DEALERS = 5;
+    private static final int MODELS = 50;
+    private static final int VARIANTS_PER_MODEL = 20;
+    private static final int COLORS = 10;
+
+    private static final String[] EDITIONS = {"Eco", "Plus", "Standard", "Premium", "Luxury"};
+
+    // {từ khóa người dùng nhập, từ khóa đã mở rộng viết tắt}
+    private static final String[][] TERMS = {
+            {"VF 12 Plus 3", "vf 12 plus 3"},
+            {"vf7eco", "vf7 eco"},
+            {"vf 33premium", "vf 33 premium"},
+            {"luxury", "luxury"},
+            {"vf 48 standard 9", "vf 48 standard 9"},
+            {"eco 17", "eco 17"}
+    };
+
+    private List<DealerCar> dealerCars;
+
+    private VariantSearchIndex index;
+
+    private Predicate<Integer> stockedVariants;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<CatalogSnapshot.ModelEntry> models = new ArrayList<>();
+        List<CatalogSnapshot.VariantEntry> variants = new ArrayList<>();
+        List<CatalogSnapshot.ColorEntry> colors = new ArrayList<>();
+        List<CatalogSnapshot.CarEntry> cars = new ArrayList<>();
+        List<Car> carEntities = new ArrayList<>();
+        BitSet variantBits = new BitSet();
+
+        for (int colorId = 1; colorId <= COLORS; colorId++) {
+            colors.add(new CatalogSnapshot.ColorEntry(colorId, "Màu " + colorId));
+        }
+        int variantId = 0;
+        int carId = 0;
+        for (int modelId = 1; modelId <= MODELS; modelId++) {
+            CarModel carModel = new CarModel();
+            carModel.setModelId(modelId);
+            carModel.setModelName("VF " + modelId);
+            models.add(new CatalogSnapshot.ModelEntry(modelId, carModel.getModelName(), "SUV"));
+
+            for (int v = 1; v <= VARIANTS_PER_MODEL; v++) {
+                variantId++;
+                CarVariant carVariant = new CarVariant();
+                carVariant.setVariantId(variantId);
+                carVariant.setModelId(modelId);
+                carVariant.setVariantName(EDITIONS[v % EDITIONS.length] + " " + v);
+                carVariant.setCarModel(carModel);
+                variants.add(new CatalogSnapshot.VariantEntry(variantId, modelId, carVariant.getVariantName(), null));
+                variantBits.set(variantId);
+
+                for (int colorId = 1; colorId <= COLORS; colorId++) {
+                    carId++;
+                    Car car = new Car();
+                    car.setCarId(carId);
+                    car.setVariantId(variantId);
+                    car.setColorId(colorId);
+                    car.setCarVariant(carVariant);
+                    carEntities.add(car);
+                    cars.add(new CatalogSnapshot.CarEntry(carId, variantId, colorId, 2025, 500_000_000L, null));
+                }
+            }
+        }
+
+        dealerCars = new ArrayList<>(DEALERS * carEntities.size());
+        for (int dealerId = 1; dealerId <= DEALERS; dealerId++) {
+            for (Car car : carEntities) {
+                DealerCar dealerCar = new DealerCar();
+                dealerCar.setDealerId(dealerId);
+                dealerCar.setCarId(car.getCarId());
+                dealerCar.setQuantity(5);
+                dealerCar.setCar(car);
+                dealerCars.add(dealerCar);
+            }
+        }
+
+        CatalogCache catalogCache = mock(CatalogCache.class);
+        when(catalogCache.get()).thenReturn(new CatalogSnapshot(1L, models, variants, List.of(), colors, cars));
+        index = new VariantSearchIndex(catalogCache);
+        stockedVariants = id -> id != null && id >= 0 && variantBits.get(id);
+        // Build index trước khi đo
+        index.search(TERMS[0][0], TERMS[0][1], stockedVariants);
+    }
+
+    @Benchmark
+    public int multiPassFilter() {
+        return LegacyFilter.search(dealerCars, nextTerm()[0]).size();
+    }
+
+    @Benchmark
+    public int variantSearchIndex() {
+        String[] term = nextTerm();
+        return index.search(term[0], term[1], stockedVariants).size();
+    }
+
+    private String[] nextTerm() {
+        String[] term = TERMS[next];
+        next = (next + 1) % TERMS.length;
+        return term;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VariantSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Bộ lọc nhiều lượt trước đây của CarServiceImpl, giữ nguyên để làm mốc so sánh
+     */
+    private static final class LegacyFilter {
+
+        static List<DealerCar> search(List<DealerCar> dealerCars, String searchTerm) {
+            String normalizedSearchTerm = normalizeSearchTerm(searchTerm);
+            String[] keywords = normalizedSearchTerm.toLowerCase().trim().split("\\s+");
+
+            List<DealerCar> exactResults = searchByTerm(dealerCars, searchTerm);
+            if (!exactResults.isEmpty()) {
+                return exactResults;
+            }
+
+            if (!normalizedSearchTerm.equals(searchTerm)) {
+                List<DealerCar> normalizedResults = searchByTerm(dealerCars, normalizedSearchTerm);
+                if (!normalizedResults.isEmpty()) {
+                    return normalizedResults;
+                }
+            }
+
+            List<DealerCar> substringResults = searchBySubstrings(dealerCars, searchTerm.toLowerCase());
+            if (!substringResults.isEmpty()) {
+                return filterByRelevance(substringResults, keywords, searchTerm.toLowerCase());
+            }
+
+            Set<DealerCar> combinedResults = new LinkedHashSet<>();
+            for (String keyword : keywords) {
+                if (keyword.length() >= 2) {
+                    combinedResults.addAll(searchByTerm(dealerCars, keyword));
+                }
+            }
+            return filterByRelevance(new ArrayList<>(combinedResults), keywords, searchTerm.toLowerCase());
+        }
+
+        private static List<DealerCar> searchByTerm(List<DealerCar> dealerCars, String searchTerm) {
+            return dealerCars.stream()
+                    .filter(dealerCar -> {
+                        Car car = dealerCar.getCar();
+                        String modelName = car.getCarVariant().getCarModel().getModelName().toLowerCase();
+                        String variantName = car.getCarVariant().getVariantName().toLowerCase();
+                        return modelName.contains(searchTerm.toLowerCase()) || variantName.contains(searchTerm.toLowerCase());
+                    })
+                    .toList();
+        }
+
+        private static List<DealerCar> searchBySubstrings(List<DealerCar> dealerCars, String searchTerm) {
+            List<DealerCar> matchingDealerCars = new ArrayList<>();
+            for (DealerCar dealerCar : dealerCars) {
+                Car car = dealerCar.getCar();
+                String modelName = car.getCarVariant().getCarModel().getModelName().toLowerCase();
+                String variantName = car.getCarVariant().getVariantName().toLowerCase();
+                String fullName = (modelName + variantName).replaceAll("\\s+", "");
+                String fullNameWithSpace = (modelName + " " + variantName).toLowerCase();
+
+                if ((fullName.contains(searchTerm) && searchTerm.length() >= 3)
+                        || (fullNameWithSpace.contains(searchTerm) && searchTerm.length() >= 3)
+                        || (modelName.replaceAll("\\s+", "").contains(searchTerm) && searchTerm.length() >= 2)
+                        || (variantName.replaceAll("\\s+", "").contains(searchTerm) && searchTerm.length() >= 2)) {
+                    matchingDealerCars.add(dealerCar);
+                }
+            }
+            return matchingDealerCars;
+        }
+
+        private static List<DealerCar> filterByRelevance(List<DealerCar> dealerCars, String[] keywords, String originalSearchTerm) {
+            record Scored(DealerCar dealerCar, int score) {
+            }
+            return dealerCars.stream()
+                    .map(dealerCar -> new Scored(dealerCar, score(dealerCar, keywords, originalSearchTerm)))
+                    .filter(scored -> scored.score() > 0)
+                    .sorted((a, b) -> Integer.compare(b.score(), a.score()))
+                    .map(Scored::dealerCar)
+                    .toList();
+        }
+
+        private static int score(DealerCar dealerCar, String[] keywords, String originalSearchTerm) {
+            int score = 0;
+            Car car = dealerCar.getCar();
+            String modelName = car.getCarVariant().getCarModel().getModelName().toLowerCase();
+            String variantName = car.getCarVariant().getVariantName().toLowerCase();
+            String fullName = (modelName + " " + variantName).toLowerCase();
+            String fullNameNoSpace = (modelName + variantName).replaceAll("\\s+", "");
+
+            if (fullNameNoSpace.contains(originalSearchTerm)
+                    || fullName.contains(originalSearchTerm)
+                    || modelName.replaceAll("\\s+", "").contains(originalSearchTerm)
+                    || variantName.replaceAll("\\s+", "").contains(originalSearchTerm)) {
+                score += 10;
+            }
+
+            for (String keyword : keywords) {
+                String lowerKeyword = keyword.toLowerCase();
+                if (modelName.contains(lowerKeyword) || variantName.contains(lowerKeyword)) {
+                    score += 2;
+                }
+                if (fullName.contains(lowerKeyword)) {
+                    score++;
+                }
+            }
+            return score;
+        }
+
+        private static String normalizeSearchTerm(String searchTerm) {
+            String normalized = searchTerm.toLowerCase().trim();
+            normalized = normalized.replaceAll("([a-zA-Z]+)(\\d+)", "$1 $2");
+            normalized = normalized.replaceAll("(\\d+)([a-zA-Z]+)", "$1 $2");
+            normalized = normalized.replaceAll("(vf\\d+)(eco|plus|standard|premium|luxury)", "$1 $2");
+            normalized = normalized.replaceAll("(vinfast)(\\w+)", "$1 $2");
+            return normalized.replaceAll("\\s+", " ").trim();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TtlLruCacheTest {
+
+    private static final long FAR_FUTURE = Long.MAX_VALUE;
+
+    @Test
+    void expiredEntryIsNotReturned() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(10);
+        cache.put("expired", "value", System.currentTimeMillis() - 1);
+
+        assertNull(cache.get("expired"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expiredEntriesAreEvictedBeforeLeastRecentlyUsed() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(2);
+        cache.put("a", "A", FAR_FUTURE);
+        cache.put("expired", "X", System.currentTimeMillis() - 1);
+        cache.put("b", "B", FAR_FUTURE);
+
+        assertEquals("A", cache.get("a"));
+        assertEquals("B", cache.get("b"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        TtlLruCache<String, String> cache = new TtlLruCache<>(2);
+        cache.put("a", "A", FAR_FUTURE);
+        cache.put("b", "B", FAR_FUTURE);
+        cache.get("a");
+        cache.put("c", "C", FAR_FUTURE);
+
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+}
@@ -0,0 +1,137 @@
+-- Benchmark kế hoạch thực thi của các query báo cáo theo kỳ trên SQL Server
+-- So sánh cách lọc cũ YEAR()/MONTH() trên cột ngày với khoảng nửa mở [start, end)
+-- dùng IX_ORDERS_Dealer_Status_CompletionDate và IX_CAR_DISTRIBUTION_REQUEST_Dealer_ActualDeliveryDate
+--
+-- Cách chạy (sqlcmd hoặc SSMS) trên database đã tạo bằng DB_EVM.sql:
+--   sqlcmd -S localhost -d DB_EVM -i report-index-benchmark.sql
+-- Mặc định sinh 3.000.000 dòng ORDERS và 500.000 dòng CAR_DISTRIBUTION_REQUEST (đánh dấu PaymentMethod / Note = N'BENCH'),
+-- phần cuối script xóa dữ liệu sinh ra. Kết quả mong đợi:
+--   old YEAR/MONTH: Index Scan / Clustered Index Scan, logical reads tỷ lệ với cả bảng
+--   half-open range: Index Seek trên index composite, logical reads chỉ tỷ lệ với số dòng của dealer trong kỳ
+
+SET NOCOUNT ON;
+
+DECLARE @OrderRows INT = 3000000;
+DECLARE @DistributionRows INT = 500000;
+
+-- ===== 1. SINH DỮ LIỆU =====
+
+-- Các id có sẵn để gán khóa ngoại xoay vòng
+SELECT ROW_NUMBER() OVER (ORDER BY DealerId) - 1 AS Idx, DealerId INTO #Dealers FROM DEALER;
+SELECT ROW_NUMBER() OVER (ORDER BY CustomerId) - 1 AS Idx, CustomerId INTO #Customers FROM CUSTOMER;
+SELECT ROW_NUMBER() OVER (ORDER BY UserID) - 1 AS Idx, UserID INTO #Users FROM USER_ACCOUNT;
+SELECT ROW_NUMBER() OVER (ORDER BY CarID) - 1 AS Idx, CarID INTO #Cars FROM CAR;
+
+DECLARE @DealerCount INT = (SELECT COUNT(*) FROM #Dealers);
+DECLARE @CustomerCount INT = (SELECT COUNT(*) FROM #Customers);
+DECLARE @UserCount INT = (SELECT COUNT(*) FROM #Users);
+DECLARE @CarCount INT = (SELECT COUNT(*) FROM #Cars);
+
+-- Bảng số 0..N-1 từ tích chéo của sys.all_objects
+;WITH Numbers AS (
+    SELECT TOP (@OrderRows) ROW_NUMBER() OVER (ORDER BY (SELECT NULL)) - 1 AS N
+    FROM sys.all_objects a CROSS JOIN sys.all_objects b CROSS JOIN sys.all_objects c
+)
+INSERT INTO ORDERS (CustomerId, DealerId, UserId, OrderDate, CompletionDate, SubTotal, DiscountAmount, PaymentMethod, Status)
+SELECT cu.CustomerId, d.DealerId, u.UserID,
+       DATEADD(MINUTE, -(n.N % 1051200), '2026-01-01'),                      -- trải đều trong 2 năm
+       CASE WHEN n.N % 4 = 0 THEN NULL
+            ELSE DATEADD(DAY, n.N % 7, DATEADD(MINUTE, -(n.N % 1051200), '2026-01-01')) END,
+       500000000 + (n.N % 1000) * 1000000, 0, N'BENCH',
+       CASE WHEN n.N % 4 = 0 THEN N'Chờ xử lý' ELSE N'Đã thanh toán' END
+FROM Numbers n
+INNER JOIN #Dealers d ON d.Idx = n.N % @DealerCount
+INNER JOIN #Customers cu ON cu.Idx = n.N % @CustomerCount
+INNER JOIN #Users u ON u.Idx = n.N % @UserCount;
+
+;WITH Numbers AS (
+    SELECT TOP (@DistributionRows) ROW_NUMBER() OVER (ORDER BY (SELECT NULL)) - 1 AS N
+    FROM sys.all_objects a CROSS JOIN sys.all_objects b CROSS JOIN sys.all_objects c
+)
+INSERT INTO CAR_DISTRIBUTION_REQUEST (DealerID, CarID, Quantity, RequestDate, Status, UnitPriceAtApproval, TotalAmount,
+                                      ActualDeliveryDate, Note)
+SELECT d.DealerId, c.CarID, 1 + n.N % 5,
+       DATEADD(MINUTE, -(n.N % 1051200), '2026-01-01'),
+       N'Đã giao', 400000000, (1 + n.N % 5) * 400000000,
+       DATEADD(DAY, 3, DATEADD(MINUTE, -(n.N % 1051200), '2026-01-01')), N'BENCH'
+FROM Numbers n
+INNER JOIN #Dealers d ON d.Idx = n.N % @DealerCount
+INNER JOIN #Cars c ON c.Idx = n.N % @CarCount;
+
+UPDATE STATISTICS ORDERS WITH FULLSCAN;
+UPDATE STATISTICS CAR_DISTRIBUTION_REQUEST WITH FULLSCAN;
+
+DROP TABLE #Dealers, #Customers, #Users, #Cars;
+GO
+
+-- ===== 2. CHẠY QUERY =====
+-- Chạy qua sp_executesql với tham số như PreparedStatement của ứng dụng, mỗi query có plan cache riêng
+
+DECLARE @DealerId INT = (SELECT MIN(DealerId) FROM DEALER);
+DECLARE @Year INT = 2025;
+DECLARE @Month INT = 10;
+DECLARE @Start DATETIME = DATEFROMPARTS(@Year, @Month, 1);
+DECLARE @End DATETIME = DATEADD(MONTH, 1, @Start);
+
+SET STATISTICS IO, TIME ON;
+
+-- Doanh thu tháng, cách cũ
+EXEC sp_executesql N'SELECT /* bench:orders-year-month */ COALESCE(SUM(o.TotalAmount), 0)
+FROM ORDERS o
+WHERE o.DealerId = @dealerId AND o.Status = N''Đã thanh toán''
+AND YEAR(o.CompletionDate) = @year AND MONTH(o.CompletionDate) = @month',
+    N'@dealerId INT, @year INT, @month INT', @DealerId, @Year, @Month;
+
+-- Doanh thu tháng, khoảng nửa mở
+EXEC sp_executesql N'SELECT /* bench:orders-half-open */ COALESCE(SUM(o.TotalAmount), 0)
+FROM ORDERS o
+WHERE o.DealerId = @dealerId AND o.Status = N''Đã thanh toán''
+AND o.CompletionDate >= @startDate AND o.CompletionDate < @endDate',
+    N'@dealerId INT, @startDate DATETIME, @endDate DATETIME', @DealerId, @Start, @End;
+
+-- Chi phí nhập xe theo ngày, cách cũ
+EXEC sp_executesql N'SELECT /* bench:distribution-year-month */ DAY(cdr.ActualDeliveryDate),
+       COALESCE(SUM(cdr.TotalAmount), 0), COALESCE(SUM(cdr.Quantity), 0)
+FROM CAR_DISTRIBUTION_REQUEST cdr
+WHERE cdr.Status = N''Đã giao'' AND cdr.DealerID = @dealerId
+AND YEAR(cdr.ActualDeliveryDate) = @year AND MONTH(cdr.ActualDeliveryDate) = @month
+GROUP BY DAY(cdr.ActualDeliveryDate)',
+    N'@dealerId INT, @year INT, @month INT', @DealerId, @Year, @Month;
+
+-- Chi phí nhập xe theo ngày, khoảng nửa mở
+EXEC sp_executesql N'SELECT /* bench:distribution-half-open */ DAY(cdr.ActualDeliveryDate),
+       COALESCE(SUM(cdr.TotalAmount), 0), COALESCE(SUM(cdr.Quantity), 0)
+FROM CAR_DISTRIBUTION_REQUEST cdr
+WHERE cdr.Status = N''Đã giao'' AND cdr.DealerID = @dealerId
+AND cdr.ActualDeliveryDate >= @startDate AND cdr.ActualDeliveryDate < @endDate
+GROUP BY DAY(cdr.ActualDeliveryDate)',
+    N'@dealerId INT, @startDate DATETIME, @endDate DATETIME', @DealerId, @Start, @End;
+
+SET STATISTICS IO, TIME OFF;
+GO
+
+-- ===== 3. KIỂM TRA KẾ HOẠCH =====
+-- UsesCompositeSeek = 1 nghĩa là plan có Index Seek trên index composite của bảng
+
+WITH XMLNAMESPACES (DEFAULT 'http://schemas.microsoft.com/sqlserver/2004/07/showplan')
+SELECT SUBSTRING(s.StatementText, CHARINDEX('bench:', s.StatementText),
+                 CHARINDEX(' */', s.StatementText) - CHARINDEX('bench:', s.StatementText)) AS Query,
+       qp.query_plan.exist('//RelOp[@PhysicalOp="Index Seek"]/IndexScan/Object[@Index="[IX_ORDERS_Dealer_Status_CompletionDate]"
+                            or @Index="[IX_CAR_DISTRIBUTION_REQUEST_Dealer_ActualDeliveryDate]"]') AS UsesCompositeSeek,
+       qs.total_logical_reads / qs.execution_count AS AvgLogicalReads,
+       qs.total_elapsed_time / qs.execution_count AS AvgElapsedMicroseconds
+FROM sys.dm_exec_query_stats qs
+CROSS APPLY sys.dm_exec_sql_text(qs.sql_handle) st
+CROSS APPLY sys.dm_exec_query_plan(qs.plan_handle) qp
+-- Câu lệnh cụ thể trong batch (bỏ phần khai báo tham số của sp_executesql)
+CROSS APPLY (SELECT SUBSTRING(st.text, qs.statement_start_offset / 2 + 1,
+                              (CASE qs.statement_end_offset WHEN -1 THEN DATALENGTH(st.text)
+                                    ELSE qs.statement_end_offset END - qs.statement_start_offset) / 2 + 1) AS StatementText) s
+WHERE s.StatementText LIKE N'SELECT /* bench:%'
+ORDER BY Query;
+GO
+
+-- ===== 4. DỌN DỮ LIỆU =====
+
+DELETE FROM CAR_DISTRIBUTION_REQUEST WHERE Note = N'BENCH';
+DELETE FROM ORDERS WHERE PaymentMethod = N'BENCH';
@@ -200,7 +200,8 @@ CREATE TABLE CAR (
     ImagePath NVARCHAR(255),  -- cột lưu đường dẫn hoặc tên file ảnh
 
     CONSTRAINT FK_CAR_VERSION FOREIGN KEY (VariantId) REFERENCES CAR_VARIANT(VariantId),
-    CONSTRAINT FK_CAR_COLOR FOREIGN KEY (ColorID) REFERENCES COLOR(ColorID)
+    CONSTRAINT FK_CAR_COLOR FOREIGN KEY (ColorID) REFERENCES COLOR(ColorID),
+    CONSTRAINT UQ_CAR_VARIANT_COLOR UNIQUE (VariantId, ColorID)  -- mỗi (variant, màu) chỉ có một xe
 );
 
 -------------------------------------------------
@@ -295,6 +296,9 @@ VALUES
 (10, 4, 2025, 1380000000, N'vf9_xanhduong.png'),  -- Blue
 (10, 5, 2025, 1390000000, N'vf9_xanhreu.png');  -- Moss Green
 
+-- Index đếm số xe dùng chung một file ảnh (ảnh lưu theo hash nội dung)
+CREATE INDEX IX_CAR_ImagePath ON CAR (ImagePath);
+
 CREATE TABLE DEALER_CAR (
     DealerID INT NOT NULL,
     CarID INT NOT NULL,
@@ -303,6 +307,7 @@ CREATE TABLE DEALER_CAR (
     Status NVARCHAR(50) DEFAULT N'Pending', -- Trạng thái: Pending / On Sale / Sold
     
     CONSTRAINT PK_DEALER_CAR PRIMARY KEY (DealerID, CarID),
+    CONSTRAINT CK_DEALER_CAR_Quantity CHECK (Quantity >= 0), -- Tồn kho không bao giờ âm
     CONSTRAINT FK_DEALER_CAR_DEALER FOREIGN KEY (DealerID) REFERENCES DEALER(DealerID),
     CONSTRAINT FK_DEALER_CAR_CAR FOREIGN KEY (CarID) REFERENCES CAR(CarID)
 );
@@ -449,6 +454,12 @@ CREATE TABLE ORDERS (
     FOREIGN KEY (DealerId) REFERENCES DEALER(DealerId)
 );
 
+-- Index cho danh sách orders phân trang theo dealer (keyset theo OrderDate, OrderId)
+CREATE INDEX IX_ORDERS_Dealer_OrderDate ON ORDERS (DealerId, OrderDate, OrderId);
+
+-- Index cho báo cáo theo khoảng ngày hoàn thành (CompletionDate >= start AND CompletionDate < end)
+CREATE INDEX IX_ORDERS_Dealer_Status_CompletionDate ON ORDERS (DealerId, Status, CompletionDate) INCLUDE (TotalAmount, DiscountAmount);
+
 SET IDENTITY_INSERT ORDERS ON;
 
 INSERT INTO ORDERS (OrderId, CustomerId, DealerId, UserId, OrderDate, CompletionDate, SubTotal, DiscountAmount, PaymentMethod, Status, PromotionId)
@@ -479,6 +490,9 @@ CREATE TABLE ORDER_DETAILS (
     FOREIGN KEY (CarId) REFERENCES CAR(CarId)
 );
 
+-- Index cho việc nạp order details theo lô nhiều OrderId
+CREATE INDEX IX_ORDER_DETAILS_OrderId ON ORDER_DETAILS (OrderId);
+
 INSERT INTO ORDER_DETAILS (OrderId, CarId, Quantity, UnitPrice)
 VALUES
 (10, 22, 1, 1018500000.00),
@@ -507,6 +521,91 @@ VALUES
 (1, 21, 3, 1008000000.00),
 (1, 18, 2, 771750000.00);
 
+-- Bảng tổng hợp doanh số theo ngày hoàn thành / dealer / model / nhân viên (chỉ đơn đã thanh toán)
+-- Ứng dụng tính lại từng (DealerId, SalesDate) khi đơn thay đổi; các báo cáo tháng/quý/năm đọc từ bảng này
+-- OrdersCount và Revenue (TotalAmount) chỉ ghi ở một model của đơn để không đếm trùng
+-- Đơn đã thanh toán nhưng chưa có chi tiết vẫn được tính OrdersCount/Revenue, ghi ở dòng ModelId NULL
+CREATE TABLE DAILY_SALES_FACT (
+    FactId BIGINT IDENTITY(1,1) NOT NULL,
+    SalesDate DATE NOT NULL,
+    DealerId INT NOT NULL,
+    ModelId INT NULL,
+    UserId INT NOT NULL,
+    OrdersCount INT NOT NULL DEFAULT 0,
+    CarsSold INT NOT NULL DEFAULT 0,
+    Revenue DECIMAL(18,2) NOT NULL DEFAULT 0,            -- TotalAmount của đơn
+    NetRevenue DECIMAL(18,2) NOT NULL DEFAULT 0,         -- FinalPrice - khuyến mãi phân bổ theo số lượng
+    Profit DECIMAL(18,2) NOT NULL DEFAULT 0,             -- (UnitPrice - giá hãng) × số lượng - giảm giá phân bổ
+    PromotionAllocated DECIMAL(18,2) NOT NULL DEFAULT 0, -- Giá trị khuyến mãi phân bổ theo số lượng
+
+    CONSTRAINT PK_DAILY_SALES_FACT PRIMARY KEY NONCLUSTERED (FactId),
+    FOREIGN KEY (DealerId) REFERENCES DEALER(DealerId),
+    FOREIGN KEY (ModelId) REFERENCES CAR_MODEL(ModelID),
+    FOREIGN KEY (UserId) REFERENCES USER_ACCOUNT(UserID)
+);
+
+-- ModelId có thể NULL nên không nằm trong khóa chính; index unique clustered giữ thứ tự đọc theo (DealerId, SalesDate)
+CREATE UNIQUE CLUSTERED INDEX UX_DAILY_SALES_FACT ON DAILY_SALES_FACT (DealerId, SalesDate, ModelId, UserId);
+
+-- Nạp số liệu tổng hợp cho các đơn đã thanh toán có sẵn
+WITH PaidOrder AS (
+    SELECT o.OrderId, o.DealerId, o.UserId, CAST(o.CompletionDate AS DATE) AS SalesDate,
+           ISNULL(o.TotalAmount, 0) AS TotalAmount,
+           ISNULL(o.DiscountAmount, 0) AS DiscountAmount,
+           ISNULL(p.Value, 0) AS PromotionValue
+    FROM ORDERS o
+    LEFT JOIN PROMOTION p ON o.PromotionId = p.PromotionId
+    WHERE o.Status = N'Đã thanh toán' AND o.CompletionDate IS NOT NULL
+), OrderModel AS (
+    SELECT po.OrderId, po.DealerId, po.UserId, po.SalesDate, cv.ModelID AS ModelId,
+           MAX(po.TotalAmount) AS TotalAmount,
+           MAX(po.DiscountAmount) AS DiscountAmount,
+           MAX(po.PromotionValue) AS PromotionValue,
+           ISNULL(SUM(od.Quantity), 0) AS Quantity,
+           ISNULL(SUM(od.FinalPrice), 0) AS FinalPrice,
+           ISNULL(SUM((od.UnitPrice - c.Price) * od.Quantity), 0) AS GrossProfit
+    FROM PaidOrder po
+    LEFT JOIN ORDER_DETAILS od ON po.OrderId = od.OrderId
+    LEFT JOIN CAR c ON od.CarId = c.CarID
+    LEFT JOIN CAR_VARIANT cv ON c.VariantID = cv.VariantID
+    GROUP BY po.OrderId, po.DealerId, po.UserId, po.SalesDate, cv.ModelID
+), Allocated AS (
+    SELECT om.*,
+           SUM(om.Quantity) OVER (PARTITION BY om.OrderId) AS TotalQuantity,
+           CASE WHEN ROW_NUMBER() OVER (PARTITION BY om.OrderId ORDER BY om.ModelId) = 1 THEN 1 ELSE 0 END AS IsPrimary
+    FROM OrderModel om
+)
+INSERT INTO DAILY_SALES_FACT (SalesDate, DealerId, ModelId, UserId, OrdersCount, CarsSold,
+                              Revenue, NetRevenue, Profit, PromotionAllocated)
+SELECT a.SalesDate, a.DealerId, a.ModelId, a.UserId,
+       SUM(a.IsPrimary),
+       SUM(a.Quantity),
+       SUM(CASE WHEN a.IsPrimary = 1 THEN a.TotalAmount ELSE 0 END),
+       SUM(a.FinalPrice - ISNULL(a.PromotionValue * a.Quantity / NULLIF(a.TotalQuantity, 0), 0)),
+       SUM(a.GrossProfit - ISNULL(a.DiscountAmount * a.Quantity / NULLIF(a.TotalQuantity, 0), a.DiscountAmount)),
+       SUM(ISNULL(a.PromotionValue * a.Quantity / NULLIF(a.TotalQuantity, 0), 0))
+FROM Allocated a
+GROUP BY a.SalesDate, a.DealerId, a.ModelId, a.UserId;
+
+
+-- Nhật ký thay đổi cho API đồng bộ delta (GET /api/changes?since=<token>)
+-- Mỗi lần ghi DEALER_CAR / danh mục xe / đơn hàng / khuyến mãi chèn một dòng trong cùng transaction với dữ liệu
+-- Token là ChangeVersion (ROWVERSION) đổi sang BIGINT: chỉ đọc các dòng nhỏ hơn MIN_ACTIVE_ROWVERSION()
+-- nên transaction chèn trước nhưng commit sau không bị client bỏ qua
+CREATE TABLE CHANGE_LOG (
+    ChangeId BIGINT IDENTITY(1,1) PRIMARY KEY,
+    ChangeVersion ROWVERSION NOT NULL,
+    Domain VARCHAR(20) NOT NULL,       -- DEALER_CAR, CAR, VARIANT, MODEL, ORDER, PROMOTION
+    DealerId INT NULL,                 -- NULL: thay đổi danh mục dùng chung cho mọi dealer
+    EntityId INT NOT NULL,             -- CarId (DEALER_CAR, CAR), VariantId, ModelId, OrderId, PromotionId
+    Operation VARCHAR(10) NOT NULL,    -- UPSERT, DELETE
+    ChangedAt DATETIME NOT NULL DEFAULT GETDATE()
+);
+
+CREATE UNIQUE INDEX IX_CHANGE_LOG_ChangeVersion ON CHANGE_LOG (ChangeVersion);
+CREATE INDEX IX_CHANGE_LOG_DealerId_ChangeVersion ON CHANGE_LOG (DealerId, ChangeVersion);
+-- Tìm dòng mốc quá hạn và dọn dẹp theo ChangedAt chỉ đọc các dòng quá hạn, không quét cả bảng
+CREATE INDEX IX_CHANGE_LOG_ChangedAt ON CHANGE_LOG (ChangedAt) INCLUDE (ChangeVersion);
 
 --13. Tạo bảng lưu thông tin thanh toán
 CREATE TABLE Payment (
@@ -563,6 +662,9 @@ CREATE TABLE CAR_DISTRIBUTION_REQUEST (
     CONSTRAINT FK_REQ_CAR FOREIGN KEY (CarID) REFERENCES CAR(CarID)
 );
 
+-- Index cho báo cáo chi phí nhập xe theo khoảng ngày giao thực tế
+CREATE INDEX IX_CAR_DISTRIBUTION_REQUEST_Dealer_ActualDeliveryDate ON CAR_DISTRIBUTION_REQUEST (DealerID, ActualDeliveryDate) INCLUDE (Status, Quantity, TotalAmount);
+
 INSERT INTO CAR_DISTRIBUTION_REQUEST
 (DealerID, CarID, Quantity, RequestDate, Status, UnitPriceAtApproval, TotalAmount, ApprovedDate, ExpectedDeliveryDate, ActualDeliveryDate, Note)
 VALUES